@@ -0,0 +1,102 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AliasIndex;
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolve latency of numeric codes and of custom aliases through
+ * {@link DefaultUrlShortenerService} over one million mappings, with
+ * {@code aliases} aliases loaded into its {@link AliasIndex}. Numeric
+ * resolves should not depend on the number of aliases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AliasBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+    private static final int KEYS = 1 << 22;
+
+    @Param({"0", "10000000"})
+    public int aliases;
+
+    @Param({Keys.UNIFORM, Keys.ZIPF})
+    public String distribution;
+
+    private final String[] codes = new String[ENTRIES];
+    private String[] aliasNames;
+    private UrlShortenerService service;
+    private int[] keys;
+    private int[] aliasKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AliasIndex aliasIndex = new AliasIndex();
+        service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                new SegmentedForwardIndex(),
+                new ConcurrentReverseIndex(),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().aliasIndex(aliasIndex));
+        for (int i = 0; i < ENTRIES; i++) {
+            codes[i] = service.shorten(SyntheticUrls.url(i));
+        }
+        // Aliases name the mappings round-robin; only a sample is kept for resolving
+        int sampled = Math.min(Math.max(aliases, 1), ENTRIES);
+        aliasNames = new String[sampled];
+        for (int i = 0; i < aliases; i++) {
+            String alias = alias(i);
+            aliasIndex.putIfAbsent(alias, i % ENTRIES);
+            if (i < sampled) {
+                aliasNames[i] = alias;
+            }
+        }
+        if (aliases == 0) {
+            aliasNames[0] = alias(0);
+        }
+        keys = Keys.sample(distribution, ENTRIES, KEYS, 42);
+        aliasKeys = Keys.sample(distribution, sampled, KEYS, 43);
+    }
+
+    private static String alias(int i) {
+        return "campaign-" + Integer.toString(i, 36);
+    }
+
+    @Benchmark
+    public Optional<String> resolveCode(Cursor cursor) {
+        return service.resolve(codes[keys[cursor.next(KEYS - 1)]]);
+    }
+
+    @Benchmark
+    public Optional<String> resolveAlias(Cursor cursor) {
+        return service.resolve(aliasNames[aliasKeys[cursor.next(KEYS - 1)]]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.Base64UrlCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the table-driven {@link Base64UrlCodec} against the original
+ * regex/{@link java.util.Base64} implementation on the encode path (shorten)
+ * and the validate+decode path (resolve).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64CodecBenchmark {
+
+    private static final int SIZE = 1 << 12;
+    private static final int MASK = SIZE - 1;
+
+    private final Base64UrlCodec codec = new Base64UrlCodec();
+    private final LegacyBase64UrlCodec legacy = new LegacyBase64UrlCodec();
+
+    private final long[] ids = new long[SIZE];
+    private final String[] codes = new String[SIZE];
+    private final byte[] out = new byte[8];
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = random.nextLong(1L << 48);
+            codes[i] = codec.encode(ids[i]);
+        }
+    }
+
+    private int next() {
+        return cursor++ & MASK;
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        return legacy.encode(ids[next()]);
+    }
+
+    @Benchmark
+    public String encodeTable() {
+        return codec.encode(ids[next()]);
+    }
+
+    @Benchmark
+    public byte[] encodeTableIntoBuffer() {
+        codec.encode(ids[next()], out, 0);
+        return out;
+    }
+
+    @Benchmark
+    public long resolveDecodeLegacy() {
+        String code = codes[next()];
+        return legacy.isValidCode(code) ? legacy.decode(code) : -1L;
+    }
+
+    @Benchmark
+    public long resolveDecodeTable() {
+        return codec.tryDecode(codes[next()]);
+    }
+}
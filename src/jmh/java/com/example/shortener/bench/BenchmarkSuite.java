@@ -0,0 +1,96 @@
+package com.example.shortener.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Default entry point of the {@code benchmarks} profile. Takes the usual JMH
+ * command line and runs the selected benchmarks once per thread count, with
+ * the gc profiler enabled unless other profilers are given, then writes all
+ * results to one JSON file for comparing runs across releases. Two options
+ * are handled here rather than by JMH:
+ * <ul>
+ *   <li>{@code --threads 1,2,4}: thread counts to run; defaults to powers of
+ *       two up to the number of processors, or to {@code -t} if given</li>
+ *   <li>{@code --out file}: result file; defaults to
+ *       {@code target/jmh/results-<timestamp>.json}</li>
+ * </ul>
+ * Listing and help options are passed straight to the JMH runner.
+ */
+public final class BenchmarkSuite {
+
+    private BenchmarkSuite() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>();
+        int[] threads = null;
+        Path out = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--out":
+                    out = Path.of(args[++i]);
+                    break;
+                default:
+                    jmhArgs.add(args[i]);
+            }
+        }
+        CommandLineOptions cmd = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            Main.main(jmhArgs.toArray(new String[0]));
+            return;
+        }
+        if (threads == null) {
+            threads = cmd.getThreads().hasValue() ? new int[] {cmd.getThreads().get()} : defaultThreads();
+        }
+        if (out == null) {
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            out = Path.of("target", "jmh", "results-" + timestamp + ".json");
+        }
+
+        List<RunResult> results = new ArrayList<>();
+        for (int t : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).threads(t);
+            if (cmd.getProfilers().isEmpty()) {
+                options.addProfiler(GCProfiler.class);
+            }
+            results.addAll(new Runner(options.build()).run());
+        }
+        Path parent = out.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, out.toString()).writeOut(results);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    /**
+     * Returns 1, 2, 4, ... up to and including the number of processors.
+     */
+    private static int[] defaultThreads() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        List<Integer> threads = new ArrayList<>();
+        for (int t = 1; t < cpus; t *= 2) {
+            threads.add(t);
+        }
+        threads.add(cpus);
+        return threads.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
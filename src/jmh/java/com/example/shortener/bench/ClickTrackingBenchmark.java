@@ -0,0 +1,91 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ClickCounters;
+import com.example.shortener.core.ClickTracker;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.HeavyHitters;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of click tracking on the resolve path: {@code resolve} through
+ * {@link DefaultUrlShortenerService} over one million mappings with and
+ * without a {@link ClickTracker}, configured like the defaults of
+ * {@code shortener.clicks.*}, and {@code record} on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ClickTrackingBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+    private static final int KEYS = 1 << 22;
+
+    @Param({"false", "true"})
+    public boolean tracking;
+
+    @Param({Keys.UNIFORM, Keys.ZIPF})
+    public String distribution;
+
+    /** {@code shortener.clicks.sample-shift}; 16 leaves little but the per-ID counters. */
+    @Param({"4"})
+    public int sampleShift;
+
+    private final String[] codes = new String[ENTRIES];
+    private UrlShortenerService service;
+    private ClickTracker tracker;
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new ClickTracker(new ClickCounters(20),
+                new HeavyHitters(100, 1 << 16, sampleShift, 3_600_000, System.currentTimeMillis()));
+        service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                new SegmentedForwardIndex(),
+                new ConcurrentReverseIndex(),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().clicks(tracking ? tracker : null));
+        for (int i = 0; i < ENTRIES; i++) {
+            codes[i] = service.shorten(SyntheticUrls.url(i));
+        }
+        keys = Keys.sample(distribution, ENTRIES, KEYS, 42);
+    }
+
+    @Benchmark
+    public Optional<String> resolve(Cursor cursor) {
+        return service.resolve(codes[keys[cursor.next(KEYS - 1)]]);
+    }
+
+    /** The tracker alone; independent of {@code tracking}. */
+    @Benchmark
+    public void record(Cursor cursor) {
+        tracker.record(keys[cursor.next(KEYS - 1)]);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.shortener.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-thread position in a shared key stream. Each thread starts at a random
+ * offset so concurrent threads do not walk the stream in lock step.
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        next = ThreadLocalRandom.current().nextInt();
+    }
+
+    /**
+     * Returns the next position, masked to the stream length.
+     */
+    int next(int mask) {
+        return next++ & mask;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.ForwardIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ForwardIndex#get} and {@link ForwardIndex#put} for each forward
+ * index implementation. Reads follow a uniform or Zipf key stream over one
+ * million entries. Puts fill a fresh index per invocation, so memory stays
+ * bounded however fast they run, and are reported per entry; they do not
+ * depend on {@code distribution}. {@code segmented-cold} reads from 64K-entry
+ * segments compacted after the fill, except the newest, through a 16 MiB
+ * block cache; its puts go to a fresh, uncompacted index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class ForwardIndexBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+    private static final int KEYS = 1 << 22;
+    private static final int PUT_BATCH = 1 << 16;
+
+    @Param({"segmented", "segmented-cold", "arena-heap", "arena-direct", "prefix"})
+    public String type;
+
+    @Param({Keys.UNIFORM, Keys.ZIPF})
+    public String distribution;
+
+    private final String[] urls = new String[ENTRIES];
+    private ForwardIndex index;
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = ForwardIndexFootprint.create(type);
+        for (int i = 0; i < ENTRIES; i++) {
+            urls[i] = SyntheticUrls.url(i);
+            index.put(i, urls[i]);
+        }
+        ForwardIndexFootprint.compact(index);
+        keys = Keys.sample(distribution, ENTRIES, KEYS, 42);
+    }
+
+    @Benchmark
+    public Optional<String> get(Cursor cursor) {
+        return index.get(keys[cursor.next(KEYS - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUT_BATCH)
+    public ForwardIndex put() {
+        ForwardIndex fresh = ForwardIndexFootprint.create(type);
+        for (int i = 0; i < PUT_BATCH; i++) {
+            fresh.put(i, urls[i]);
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.ArenaForwardIndex;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.PrefixForwardIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fills a forward index with synthetic URLs and reports the retained heap
+ * (and direct memory) per entry. {@code segmented-cold} compacts all but the
+ * newest segment after filling. Run one implementation per JVM so the
+ * measurements do not interfere:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.ForwardIndexFootprint \
+ *     -Dbench.jvmArgs="-Xmx4g" -Djmh.args="arena-heap 10000000"
+ * </pre>
+ */
+public final class ForwardIndexFootprint {
+
+    private ForwardIndexFootprint() {
+    }
+
+    public static void main(String[] args) {
+        String type = args.length > 0 ? args[0] : "segmented";
+        long count = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000L;
+
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+        long start = System.nanoTime();
+        ForwardIndex index = create(type);
+        long urlChars = 0;
+        for (long id = 0; id < count; id++) {
+            String url = SyntheticUrls.url(id);
+            urlChars += url.length();
+            index.put(id, url);
+        }
+        compact(index);
+        long fillMillis = (System.nanoTime() - start) / 1_000_000;
+        long heap = usedHeap() - heapBefore;
+        long direct = usedDirect() - directBefore;
+
+        System.out.printf("type=%s entries=%d avgUrlLength=%.1f fillMs=%d%n",
+                type, count, (double) urlChars / count, fillMillis);
+        System.out.printf("heap=%,d bytes (%.1f B/entry) direct=%,d bytes (%.1f B/entry)%n",
+                heap, (double) heap / count, direct, (double) direct / count);
+        if (index instanceof SegmentedForwardIndex && ((SegmentedForwardIndex) index).isCompactionEnabled()) {
+            SegmentedForwardIndex segmented = (SegmentedForwardIndex) index;
+            System.out.printf("cold segments=%d raw=%,d bytes compressed=%,d bytes (ratio %.2f)%n",
+                    segmented.coldSegmentCount(), segmented.coldRawBytes(), segmented.coldCompressedBytes(),
+                    (double) segmented.coldRawBytes() / segmented.coldCompressedBytes());
+        }
+        // Keep the index reachable until after the measurement
+        System.out.println("check=" + index.get(count - 1).orElse("<missing>"));
+    }
+
+    static ForwardIndex create(String type) {
+        switch (type) {
+            case "segmented":
+                return new SegmentedForwardIndex();
+            case "segmented-cold":
+                return new SegmentedForwardIndex(16, SegmentedForwardIndex.newBlockCache(16 << 20));
+            case "arena-heap":
+                return new ArenaForwardIndex(ArenaForwardIndex.Storage.HEAP);
+            case "arena-direct":
+                return new ArenaForwardIndex(ArenaForwardIndex.Storage.DIRECT);
+            case "prefix":
+                return new PrefixForwardIndex();
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    /**
+     * Compacts all but the newest segment of a {@code segmented-cold} index;
+     * other indexes are left as they are.
+     */
+    static void compact(ForwardIndex index) {
+        if (index instanceof SegmentedForwardIndex) {
+            ((SegmentedForwardIndex) index).compactColdSegments(1);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long usedDirect() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.IdSpace;
+import com.example.shortener.core.LeasingIdSpace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation throughput of the shared-counter {@link AtomicIdSpace} against
+ * {@link LeasingIdSpace}. Run with increasing thread counts to see how each
+ * scales with cores, e.g. {@code -Djmh.args="IdSpace -t 1"}, {@code -t 8},
+ * {@code -t 32}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdSpaceBenchmark {
+
+    @Param({"atomic", "leasing"})
+    public String type;
+
+    @Param({"1024"})
+    public int blockSize;
+
+    private IdSpace idSpace;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        idSpace = "atomic".equals(type) ? new AtomicIdSpace() : new LeasingIdSpace(blockSize);
+    }
+
+    @Benchmark
+    public long allocate() {
+        return idSpace.allocate();
+    }
+}
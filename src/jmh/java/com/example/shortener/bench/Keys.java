@@ -0,0 +1,34 @@
+package com.example.shortener.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Key streams for benchmarks that read existing entries: either every key
+ * equally likely, or Zipf-distributed with exponent 0.99 so a small set of
+ * hot keys dominates, as with real click traffic.
+ */
+final class Keys {
+
+    static final String UNIFORM = "uniform";
+    static final String ZIPF = "zipf";
+
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    private Keys() {
+    }
+
+    /**
+     * Returns {@code count} keys in {@code [0, n)} drawn from a fixed seed.
+     * For {@code zipf}, key 0 is the hottest.
+     */
+    static int[] sample(String distribution, int n, int count, long seed) {
+        switch (distribution) {
+            case UNIFORM:
+                return new SplittableRandom(seed).ints(count, 0, n).toArray();
+            case ZIPF:
+                return Zipf.samples(n, ZIPF_EXPONENT, count, seed);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.shortener.bench;
+
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * The original {@code Base64UrlCodec} built on {@link java.util.Base64} and a
+ * regex, kept verbatim as a baseline for {@link Base64CodecBenchmark}.
+ */
+final class LegacyBase64UrlCodec {
+    private static final long MAX_ID = (1L << 48) - 1;
+    private static final int BYTES_LENGTH = 6;
+    private static final int CODE_LENGTH = 8;
+    private static final Pattern VALID_CODE_PATTERN = Pattern.compile("^[A-Za-z0-9_-]{8}$");
+
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Base64.Decoder decoder = Base64.getUrlDecoder();
+
+    String encode(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("ID out of range: " + id);
+        }
+        byte[] buffer = new byte[BYTES_LENGTH];
+        for (int i = BYTES_LENGTH - 1; i >= 0; i--) {
+            buffer[i] = (byte) (id & 0xFF);
+            id >>>= 8;
+        }
+        String encoded = encoder.encodeToString(buffer);
+        if (encoded.length() != CODE_LENGTH) {
+            throw new IllegalStateException("Unexpected code length: " + encoded);
+        }
+        return encoded;
+    }
+
+    long decode(String code) {
+        if (!isValidCode(code)) {
+            throw new IllegalArgumentException("Invalid code format: " + code);
+        }
+        byte[] bytes = decoder.decode(code);
+        long id = 0L;
+        for (byte b : bytes) {
+            id = (id << 8) | (b & 0xFF);
+        }
+        return id;
+    }
+
+    boolean isValidCode(String code) {
+        return code != null && VALID_CODE_PATTERN.matcher(code).matches();
+    }
+}
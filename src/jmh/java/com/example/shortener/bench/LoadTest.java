@@ -0,0 +1,191 @@
+package com.example.shortener.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing request execution modes
+ * (platform vs virtual threads) against a running server. Each of
+ * {@code connections} client threads keeps one request in flight on its own
+ * connection, sending Zipf-distributed codes; the first fifth of the run is
+ * warmup. Prints throughput and latency percentiles:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.LoadTest \
+ *     -Djmh.args="http://localhost:8080 1000 30 redirect"
+ * </pre>
+ * Modes are {@code redirect} ({@code GET /{code}}), {@code resolve} and
+ * {@code shorten} (URLs that are mostly already shortened). Run the client on
+ * a different machine from the server for meaningful figures.
+ * <p>
+ * The first argument may list the base URLs of several nodes of a cluster,
+ * separated by commas. The corpus is then shortened round-robin across the
+ * nodes and each connection sticks to one node, so shortens scale out while
+ * redirects and resolves of other nodes' codes are forwarded to their owner.
+ */
+public final class LoadTest {
+
+    private static final int CODES = 10_000;
+    private static final int KEYS = 1 << 20;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI[] bases = Arrays.stream((args.length > 0 ? args[0] : "http://localhost:8080").split(","))
+                .map(URI::create)
+                .toArray(URI[]::new);
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String mode = args.length > 3 ? args[3] : "redirect";
+
+        HttpClient setupClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String[] codes = shortenCorpus(setupClient, bases);
+        int[] keys = Keys.sample(Keys.ZIPF, CODES, KEYS, 42);
+
+        long start = System.nanoTime();
+        long measureFrom = start + Duration.ofSeconds(seconds).toNanos() / 5;
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        Worker[] workers = new Worker[connections];
+        Thread[] threads = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            // A client per worker keeps each worker on its own connection
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .build();
+            workers[i] = new Worker(client, bases[i % bases.length], mode, codes, keys, i * 7919, measureFrom, end, errors);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        for (Worker worker : workers) {
+            total += worker.count;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        double measuredSeconds = (end - measureFrom) / 1e9;
+        System.out.printf("mode=%s nodes=%d connections=%d requests=%d errors=%d throughput=%.0f req/s "
+                        + "p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                mode, bases.length, connections, total, errors.get(), total / measuredSeconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+
+    private static String[] shortenCorpus(HttpClient client, URI[] bases) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String[] codes = new String[CODES];
+        for (int i = 0; i < CODES; i++) {
+            HttpResponse<String> response = client.send(
+                    shortenRequest(bases[i % bases.length], SyntheticUrls.url(i)), HttpResponse.BodyHandlers.ofString());
+            codes[i] = mapper.readTree(response.body()).get("shortCode").asText();
+        }
+        return codes;
+    }
+
+    private static HttpRequest shortenRequest(URI base, String url) {
+        return HttpRequest.newBuilder(base.resolve("/api/shorten"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"longUrl\":\"" + url + "\"}"))
+                .build();
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Worker implements Runnable {
+        private final HttpClient client;
+        private final URI base;
+        private final String mode;
+        private final String[] codes;
+        private final int[] keys;
+        private final long measureFrom;
+        private final long end;
+        private final AtomicLong errors;
+        private int cursor;
+        long[] latencies = new long[1024];
+        int count;
+
+        Worker(HttpClient client, URI base, String mode, String[] codes, int[] keys, int cursor,
+               long measureFrom, long end, AtomicLong errors) {
+            this.client = client;
+            this.base = base;
+            this.mode = mode;
+            this.codes = codes;
+            this.keys = keys;
+            this.cursor = cursor;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.errors = errors;
+        }
+
+        @Override
+        public void run() {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                int key = keys[cursor++ & (KEYS - 1)];
+                try {
+                    HttpResponse<Void> response = client.send(request(key), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+                if (now >= measureFrom) {
+                    record(System.nanoTime() - now);
+                }
+            }
+        }
+
+        private HttpRequest request(int key) {
+            switch (mode) {
+                case "redirect":
+                    return HttpRequest.newBuilder(base.resolve("/" + codes[key])).GET().build();
+                case "resolve":
+                    return HttpRequest.newBuilder(base.resolve("/api/resolve"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"shortCode\":\"" + codes[key] + "\"}"))
+                            .build();
+                case "shorten":
+                    // One in sixteen URLs is new
+                    long n = (cursor & 15) == 0 ? CODES + (long) cursor * 31 + key : key;
+                    return shortenRequest(base, SyntheticUrls.url(n));
+                default:
+                    throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.LsmReverseIndex;
+import com.example.shortener.core.ReverseIndex;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Loads synthetic URLs into an {@link LsmReverseIndex} the way shorten does,
+ * with {@code getOrAllocate} of each new URL, and reports after every
+ * {@code count / 10} URLs: the latency percentiles of those calls, blocks
+ * read per call, run files, heap retained after a full GC, bytes on disk
+ * and write amplification. Finally it times repeat shortens of random
+ * URLs already indexed. No forward index is kept, so the heap holds only the
+ * reverse index:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.LsmReverseIndexLoad \
+ *     -Dbench.jvmArgs="-Xmx2g" -Djmh.args="100000000 /tmp/lsm"
+ * </pre>
+ */
+public final class LsmReverseIndexLoad {
+
+    private LsmReverseIndexLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        Path dir = Path.of(args.length > 1 ? args[1] : "target/lsm-load");
+        int memtableEntries = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 20;
+        int interval = (int) Math.max(1, count / 10);
+        long[] latencies = new long[interval];
+
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, memtableEntries, 12, 4)) {
+            long baseline = usedHeap();
+            long start = System.nanoTime();
+            long next = 0;
+            while (next < count) {
+                int n = (int) Math.min(interval, count - next);
+                long readsBefore = index.blockReads();
+                for (int i = 0; i < n; i++, next++) {
+                    String url = SyntheticUrls.url(next);
+                    long id = next;
+                    long t0 = System.nanoTime();
+                    index.getOrAllocate(url, u -> id);
+                    latencies[i] = System.nanoTime() - t0;
+                }
+                long reads = index.blockReads() - readsBefore;
+                Arrays.sort(latencies, 0, n);
+                System.out.printf("urls=%,d elapsedS=%d new: p50=%.1f us p99=%.1f us p99.9=%.1f us max=%.1f ms "
+                                + "blockReads/op=%.4f%n",
+                        next, (System.nanoTime() - start) / 1_000_000_000L,
+                        percentile(latencies, n, 0.50) / 1e3, percentile(latencies, n, 0.99) / 1e3,
+                        percentile(latencies, n, 0.999) / 1e3, percentile(latencies, n, 1.0) / 1e6,
+                        (double) reads / n);
+                long heap = usedHeap() - baseline;
+                System.out.printf("    runs=%d heap=%,d bytes (%.1f B/url, runs %.1f B/url) disk=%,d bytes "
+                                + "writeAmplification=%.2f compactions=%d%n",
+                        index.runCount(), heap, (double) heap / next,
+                        (double) index.runRetainedBytes() / next, index.diskBytes(),
+                        index.writeAmplification(), index.compactions());
+            }
+
+            // Repeat shortens of indexed URLs read one block from the run holding them
+            int repeats = 100_000;
+            SplittableRandom random = new SplittableRandom(42);
+            long readsBefore = index.blockReads();
+            for (int i = 0; i < repeats; i++) {
+                String url = SyntheticUrls.url(random.nextLong(count));
+                long t0 = System.nanoTime();
+                index.getOrAllocate(url, u -> {
+                    throw new IllegalStateException("Indexed URL not found: " + u);
+                });
+                latencies[i] = System.nanoTime() - t0;
+            }
+            Arrays.sort(latencies, 0, repeats);
+            System.out.printf("existing: p50=%.1f us p99=%.1f us p99.9=%.1f us max=%.1f ms blockReads/op=%.2f%n",
+                    percentile(latencies, repeats, 0.50) / 1e3, percentile(latencies, repeats, 0.99) / 1e3,
+                    percentile(latencies, repeats, 0.999) / 1e3, percentile(latencies, repeats, 1.0) / 1e6,
+                    (double) (index.blockReads() - readsBefore) / repeats);
+        }
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, int length, double p) {
+        int index = (int) Math.min(length - 1, Math.ceil(p * length) - 1);
+        return sortedNanos[Math.max(0, index)];
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
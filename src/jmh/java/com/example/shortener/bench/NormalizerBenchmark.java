@@ -0,0 +1,62 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.CanonicalUrlNormalizer;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.UrlNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of normalizing URLs that are already canonical (returned as-is) and
+ * of URLs spelled in one of the non-canonical ways of
+ * {@link SyntheticUrls#spelling} (copied and rewritten). The memory this
+ * buys is measured by {@link NormalizerFootprint}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizerBenchmark {
+
+    private static final int SIZE = 1 << 12;
+
+    @Param({"noop", "canonical", "canonical-sorted"})
+    public String normalizer;
+
+    private final String[] canonical = new String[SIZE];
+    private final String[] variant = new String[SIZE];
+    private UrlNormalizer urlNormalizer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        urlNormalizer = NormalizerFootprint.create(normalizer);
+        for (int i = 0; i < SIZE; i++) {
+            canonical[i] = SyntheticUrls.spelling(i, 0);
+            variant[i] = SyntheticUrls.spelling(i, 1 + i % (SyntheticUrls.SPELLINGS - 1));
+        }
+    }
+
+    @Benchmark
+    public String canonicalUrl(Cursor cursor) {
+        return urlNormalizer.normalize(canonical[cursor.next(SIZE - 1)]);
+    }
+
+    @Benchmark
+    public String variantUrl(Cursor cursor) {
+        return urlNormalizer.normalize(variant[cursor.next(SIZE - 1)]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.CanonicalUrlNormalizer;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.core.UrlNormalizer;
+import com.example.shortener.service.DefaultUrlShortenerService;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Shortens a stream of submissions of {@code distinct} URLs, each submitted
+ * on average {@code count / distinct} times and spelled non-canonically
+ * with probability {@code variantPercent}, and reports the mappings kept,
+ * the heap they retain and the time spent normalizing. Run one normalizer
+ * per JVM:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.NormalizerFootprint \
+ *     -Dbench.jvmArgs="-Xmx4g" -Djmh.args="canonical 4000000 1000000 20"
+ * </pre>
+ */
+public final class NormalizerFootprint {
+
+    private NormalizerFootprint() {
+    }
+
+    public static void main(String[] args) {
+        String type = args.length > 0 ? args[0] : "canonical";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 4_000_000;
+        int distinct = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        int variantPercent = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        UrlNormalizer normalizer = create(type);
+        SegmentedForwardIndex forward = new SegmentedForwardIndex();
+        ReverseIndex reverse = new ConcurrentReverseIndex();
+        DefaultUrlShortenerService service = new DefaultUrlShortenerService(new AtomicIdSpace(), forward, reverse,
+                new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")), normalizer);
+
+        long heapBefore = usedHeap();
+        SplittableRandom random = new SplittableRandom(11);
+        long normalizeNanos = 0;
+        for (int i = 0; i < count; i++) {
+            int spelling = random.nextInt(100) < variantPercent ? 1 + random.nextInt(SyntheticUrls.SPELLINGS - 1) : 0;
+            String url = SyntheticUrls.spelling(random.nextInt(distinct), spelling);
+            long start = System.nanoTime();
+            normalizer.normalize(url);
+            normalizeNanos += System.nanoTime() - start;
+            service.shorten(url);
+        }
+        long heap = usedHeap() - heapBefore;
+        long entries = reverse.size();
+
+        System.out.printf("type=%s submissions=%d distinct=%d variants=%d%%%n", type, count, distinct, variantPercent);
+        System.out.printf("entries=%d (%.2f per distinct URL) heap=%,d bytes (%.1f B/entry)%n",
+                entries, (double) entries / distinct, heap, (double) heap / entries);
+        System.out.printf("normalize=%.1f ns/submission%n", (double) normalizeNanos / count);
+        // Keep both indexes reachable until after the measurement
+        System.out.println("check=" + forward.get(entries - 1).isPresent());
+    }
+
+    static UrlNormalizer create(String type) {
+        switch (type) {
+            case "noop":
+                return new NoOpUrlNormalizer();
+            case "canonical":
+                return new CanonicalUrlNormalizer();
+            case "canonical-sorted":
+                return new CanonicalUrlNormalizer(true);
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
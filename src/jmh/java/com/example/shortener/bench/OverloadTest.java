@@ -0,0 +1,226 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.Base64UrlCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP load generator for overload tests. Each mode is driven by a number of
+ * simulated users, given as {@code mode=users} pairs; every user sends its
+ * next request as soon as the previous one is answered, or, if it was shed
+ * with {@code 503}, after the {@code Retry-After} it was given. With more
+ * users than the server can serve at once, a server that queues requests
+ * makes every user wait, while one that sheds them keeps the latency of the
+ * requests it admits low and the shed users back off. The first fifth of
+ * the run is warmup:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.OverloadTest \
+ *     -Djmh.args="http://localhost:8080 40 redirect=200 ingest=1000"
+ * </pre>
+ * Modes are {@code redirect} ({@code GET /{code}} of Zipf-distributed
+ * codes), {@code resolve}, {@code ingest} (shortens of new URLs) and
+ * {@code remote}: redirects of codes minted by node 1 of a cluster with the
+ * default 4 node bits, which a server running as node 0 forwards, e.g. to a
+ * {@link SlowNode}. All users share one client, so connections are opened as
+ * needed. For each mode
+ * it prints the throughput and latency percentiles of successful requests,
+ * and the number and p99 latency of shed ones.
+ */
+public final class OverloadTest {
+
+    private static final int CODES = 10_000;
+    private static final int KEYS = 1 << 20;
+    private static final long NODE_1 = 1L << 44;
+    private static final Base64UrlCodec CODEC = new Base64UrlCodec();
+
+    private OverloadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI base = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        List<Mode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            String[] pair = args[i].split("=");
+            modes.add(new Mode(pair[0], Integer.parseInt(pair[1])));
+        }
+        if (modes.isEmpty()) {
+            modes.add(new Mode("redirect", 1000));
+        }
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
+                .build();
+        String[] codes = shortenCorpus(client, base);
+        int[] keys = Keys.sample(Keys.ZIPF, CODES, KEYS, 42);
+
+        long start = System.nanoTime();
+        Run run = new Run(client, executor, base, codes, keys,
+                start + TimeUnit.SECONDS.toNanos(seconds) / 5, start + TimeUnit.SECONDS.toNanos(seconds));
+        for (Mode mode : modes) {
+            for (int i = 0; i < mode.users; i++) {
+                run.send(mode);
+            }
+        }
+        TimeUnit.NANOSECONDS.sleep(run.end - System.nanoTime());
+        // Requests still unanswered count as errors
+        TimeUnit.SECONDS.sleep(1);
+
+        double measuredSeconds = (run.end - run.measureFrom) / 1e9;
+        for (Mode mode : modes) {
+            synchronized (mode) {
+                long[] ok = Arrays.copyOf(mode.latencies, mode.count);
+                long[] shed = Arrays.copyOf(mode.shedLatencies, mode.shedCount);
+                Arrays.sort(ok);
+                Arrays.sort(shed);
+                System.out.printf("mode=%s users=%d ok=%d (%.0f req/s) shed=%d errors=%d "
+                                + "p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms shed p99=%.2f ms%n",
+                        mode.name, mode.users, ok.length, ok.length / measuredSeconds, shed.length, mode.errors,
+                        percentile(ok, 0.50), percentile(ok, 0.99), percentile(ok, 0.999), percentile(ok, 1.0),
+                        percentile(shed, 0.99));
+            }
+        }
+        System.exit(0);
+    }
+
+    private static String[] shortenCorpus(HttpClient client, URI base) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String[] codes = new String[CODES];
+        for (int i = 0; i < CODES; i++) {
+            HttpResponse<String> response = client.send(
+                    shortenRequest(base, SyntheticUrls.url(i)), HttpResponse.BodyHandlers.ofString());
+            codes[i] = mapper.readTree(response.body()).get("shortCode").asText();
+        }
+        return codes;
+    }
+
+    private static HttpRequest shortenRequest(URI base, String url) {
+        return HttpRequest.newBuilder(base.resolve("/api/shorten"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"longUrl\":\"" + url + "\"}"))
+                .build();
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Run {
+        final HttpClient client;
+        final ScheduledExecutorService executor;
+        final URI base;
+        final String[] codes;
+        final int[] keys;
+        final long measureFrom;
+        final long end;
+        final AtomicLong sequence = new AtomicLong();
+        final AtomicLong newUrls = new AtomicLong(1L << 32);
+
+        Run(HttpClient client, ScheduledExecutorService executor, URI base, String[] codes, int[] keys,
+            long measureFrom, long end) {
+            this.client = client;
+            this.executor = executor;
+            this.base = base;
+            this.codes = codes;
+            this.keys = keys;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        /**
+         * Sends the next request of a user of {@code mode}, and the one
+         * after it once this one is answered.
+         */
+        void send(Mode mode) {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                return;
+            }
+            client.sendAsync(request(mode.name), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        int status = failure == null ? response.statusCode() : -1;
+                        if (sent >= measureFrom) {
+                            mode.record(status, System.nanoTime() - sent);
+                        }
+                        if (status == 503) {
+                            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                            executor.schedule(() -> send(mode), retryAfter, TimeUnit.SECONDS);
+                        } else {
+                            send(mode);
+                        }
+                    });
+        }
+
+        private HttpRequest request(String mode) {
+            switch (mode) {
+                case "redirect":
+                    return HttpRequest.newBuilder(base.resolve("/" + codes[key()])).GET().build();
+                case "resolve":
+                    return HttpRequest.newBuilder(base.resolve("/api/resolve"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"shortCode\":\"" + codes[key()] + "\"}"))
+                            .build();
+                case "ingest":
+                    return shortenRequest(base, SyntheticUrls.url(newUrls.getAndIncrement()));
+                case "remote":
+                    return HttpRequest.newBuilder(base.resolve("/" + CODEC.encode(NODE_1 | key()))).GET().build();
+                default:
+                    throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+        }
+
+        private int key() {
+            return keys[(int) (sequence.getAndIncrement() & (KEYS - 1))];
+        }
+    }
+
+    private static final class Mode {
+        final String name;
+        final int users;
+        long[] latencies = new long[1024];
+        int count;
+        long[] shedLatencies = new long[1024];
+        int shedCount;
+        long errors;
+
+        Mode(String name, int users) {
+            this.name = name;
+            this.users = users;
+        }
+
+        synchronized void record(int status, long nanos) {
+            if (status == 503) {
+                if (shedCount == shedLatencies.length) {
+                    shedLatencies = Arrays.copyOf(shedLatencies, shedCount * 2);
+                }
+                shedLatencies[shedCount++] = nanos;
+            } else if (status < 0 || status >= 400) {
+                errors++;
+            } else {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = nanos;
+            }
+        }
+    }
+}
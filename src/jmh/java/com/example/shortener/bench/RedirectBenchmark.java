@@ -0,0 +1,90 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.controller.RedirectController;
+import com.example.shortener.controller.ShortenerController;
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Resolves per second through the Spring MVC stack for {@code GET /{code}}
+ * against {@code POST /api/resolve}. Requests are dispatched in-process with
+ * MockMvc, so this measures the server-side cost of each endpoint (routing,
+ * JSON parsing and serialization) without the network or servlet container;
+ * the client-side JSON parsing the redirect also saves is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedirectBenchmark {
+
+    private static final int URLS = 1 << 16;
+
+    private final String[] codes = new String[URLS];
+    private final String[] resolveBodies = new String[URLS];
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UrlShortenerService service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                new SegmentedForwardIndex(),
+                new ConcurrentReverseIndex(),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer());
+        for (int i = 0; i < URLS; i++) {
+            codes[i] = service.shorten(SyntheticUrls.url(i));
+            resolveBodies[i] = "{\"shortCode\":\"" + codes[i] + "\"}";
+        }
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new ShortenerController(service, new Base64UrlCodec(), new ClockCache(0), new ObjectMapper(), 1000),
+                new RedirectController(service, 301)).build();
+    }
+
+    @Benchmark
+    public int redirect() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(URLS);
+        return mockMvc.perform(get("/" + codes[i])).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int resolveJson() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(URLS);
+        return mockMvc.perform(post("/api/resolve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(resolveBodies[i]))
+                .andReturn().getResponse().getStatus();
+    }
+}
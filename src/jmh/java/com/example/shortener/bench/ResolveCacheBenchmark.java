@@ -0,0 +1,93 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.controller.ShortenerController;
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.dto.ResolveRequest;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ShortenerController#resolve} with and without the response cache
+ * under a Zipf-distributed stream of codes. The controller is called
+ * directly, so the figures isolate lookup, serialization and caching from
+ * request dispatch; run with {@code -prof gc} to compare allocation per
+ * resolve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolveCacheBenchmark {
+
+    private static final int URLS = 1 << 20;
+    private static final int SAMPLES = 1 << 22;
+
+    /** Response cache budget; 0 disables caching. */
+    @Param({"0", "16777216"})
+    public long cacheBytes;
+
+    @Param({"0.99"})
+    public double skew;
+
+    private final String[] codes = new String[URLS];
+    private int[] samples;
+    private ClockCache cache;
+    private ShortenerController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UrlShortenerService service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                new SegmentedForwardIndex(),
+                new ConcurrentReverseIndex(),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer());
+        for (int i = 0; i < URLS; i++) {
+            codes[i] = service.shorten(SyntheticUrls.url(i));
+        }
+        samples = Zipf.samples(URLS, skew, SAMPLES, 42);
+        cache = new ClockCache(cacheBytes);
+        controller = new ShortenerController(service, new Base64UrlCodec(), cache, new ObjectMapper(), 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        long lookups = cache.hits() + cache.misses();
+        if (lookups > 0) {
+            System.out.printf("%nhit ratio %.3f, evictions %d, %d bytes cached%n",
+                    (double) cache.hits() / lookups, cache.evictions(), cache.sizeInBytes());
+        }
+    }
+
+    @Benchmark
+    public byte[] resolve(Cursor cursor) throws Exception {
+        int i = samples[cursor.next(SAMPLES - 1)];
+        return controller.resolve(new ResolveRequest(codes[i]), null).getBody();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReverseIndex#tryGetId} for each reverse index implementation, for
+ * URLs that are present (following a uniform or Zipf key stream over one
+ * million entries) and for URLs that are not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReverseIndexBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+    private static final int KEYS = 1 << 22;
+    private static final int MISSES = 1 << 16;
+
+    @Param({"concurrent", "fingerprint"})
+    public String type;
+
+    @Param({Keys.UNIFORM, Keys.ZIPF})
+    public String distribution;
+
+    private final String[] urls = new String[ENTRIES];
+    private final String[] absent = new String[MISSES];
+    private ReverseIndex index;
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ForwardIndex forward = new SegmentedForwardIndex();
+        index = ReverseIndexFootprint.create(type, forward);
+        for (int i = 0; i < ENTRIES; i++) {
+            urls[i] = SyntheticUrls.url(i);
+            forward.put(i, urls[i]);
+            index.putIfAbsent(urls[i], i);
+        }
+        for (int i = 0; i < MISSES; i++) {
+            absent[i] = SyntheticUrls.url(ENTRIES + i);
+        }
+        keys = Keys.sample(distribution, ENTRIES, KEYS, 42);
+    }
+
+    @Benchmark
+    public long lookupHit(Cursor cursor) {
+        return index.tryGetId(urls[keys[cursor.next(KEYS - 1)]]);
+    }
+
+    @Benchmark
+    public long lookupMiss(Cursor cursor) {
+        return index.tryGetId(absent[cursor.next(MISSES - 1)]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.FingerprintReverseIndex;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+
+/**
+ * Fills a segmented forward index with synthetic URLs, then indexes them in
+ * a reverse index and reports the heap retained by the reverse index alone
+ * (the URL Strings are shared with the forward index). Run one
+ * implementation per JVM:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.ReverseIndexFootprint \
+ *     -Dbench.jvmArgs="-Xmx6g" -Djmh.args="fingerprint 10000000"
+ * </pre>
+ */
+public final class ReverseIndexFootprint {
+
+    private ReverseIndexFootprint() {
+    }
+
+    public static void main(String[] args) {
+        String type = args.length > 0 ? args[0] : "concurrent";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        ForwardIndex forward = new SegmentedForwardIndex();
+        for (long id = 0; id < count; id++) {
+            forward.put(id, SyntheticUrls.url(id));
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ReverseIndex reverse = create(type, forward);
+        for (long id = 0; id < count; id++) {
+            reverse.putIfAbsent(forward.get(id).orElseThrow(), id);
+        }
+        long fillMillis = (System.nanoTime() - start) / 1_000_000;
+        long heap = usedHeap() - heapBefore;
+
+        System.out.printf("type=%s entries=%d fillMs=%d%n", type, count, fillMillis);
+        System.out.printf("heap=%,d bytes (%.1f B/entry)%n", heap, (double) heap / count);
+        // Keep both indexes reachable until after the measurement
+        System.out.println("check=" + reverse.tryGetId(forward.get(count - 1).orElseThrow()));
+    }
+
+    static ReverseIndex create(String type, ForwardIndex forward) {
+        switch (type) {
+            case "concurrent":
+                return new ConcurrentReverseIndex();
+            case "fingerprint":
+                return new FingerprintReverseIndex(forward);
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.metrics.MicrometerServiceMetrics;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.ServiceMetrics;
+import com.example.shortener.service.UrlShortenerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolve and repeat-shorten latency through {@link DefaultUrlShortenerService}
+ * over one million mappings, following a uniform or Zipf key stream. Shortening
+ * new URLs is covered by {@link ShortenBenchmark}. {@code metrics} compares
+ * uninstrumented runs with Micrometer stage timers and resolve counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ServiceBenchmark {
+
+    private static final int ENTRIES = 1 << 20;
+    private static final int KEYS = 1 << 22;
+
+    @Param({"concurrent", "fingerprint"})
+    public String reverseIndex;
+
+    @Param({Keys.UNIFORM, Keys.ZIPF})
+    public String distribution;
+
+    @Param({"off", "micrometer"})
+    public String metrics;
+
+    private final String[] urls = new String[ENTRIES];
+    private final String[] codes = new String[ENTRIES];
+    private UrlShortenerService service;
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ForwardIndex forward = new SegmentedForwardIndex();
+        service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                forward,
+                ReverseIndexFootprint.create(reverseIndex, forward),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().metrics(
+                        "off".equals(metrics) ? ServiceMetrics.NOOP : new MicrometerServiceMetrics(new SimpleMeterRegistry())));
+        for (int i = 0; i < ENTRIES; i++) {
+            urls[i] = SyntheticUrls.url(i);
+            codes[i] = service.shorten(urls[i]);
+        }
+        keys = Keys.sample(distribution, ENTRIES, KEYS, 42);
+    }
+
+    @Benchmark
+    public Optional<String> resolve(Cursor cursor) {
+        return service.resolve(codes[keys[cursor.next(KEYS - 1)]]);
+    }
+
+    @Benchmark
+    public String shortenExisting(Cursor cursor) {
+        return service.shorten(urls[keys[cursor.next(KEYS - 1)]]);
+    }
+}
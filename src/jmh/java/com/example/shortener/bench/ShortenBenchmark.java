@@ -0,0 +1,113 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.MappingJournal;
+import com.example.shortener.core.NoOpMappingJournal;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.persistence.SyncPolicy;
+import com.example.shortener.persistence.WriteAheadLog;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Shorten throughput through {@link DefaultUrlShortenerService} for each
+ * reverse index implementation, for new URLs and for URLs that were already
+ * shortened, without a journal or with a group-commit write-ahead log in
+ * {@code java.io.tmpdir}. Use {@code -t} to vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShortenBenchmark {
+
+    private static final int PREFILL = 1 << 20;
+
+    @Param({"concurrent", "fingerprint"})
+    public String reverseIndex;
+
+    @Param({"none", "wal"})
+    public String journal;
+
+    private final AtomicLong next = new AtomicLong(PREFILL);
+    private final String[] existing = new String[PREFILL];
+    private Path dir;
+    private WriteAheadLog wal;
+    private UrlShortenerService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ForwardIndex forward = new SegmentedForwardIndex();
+        MappingJournal mappingJournal = new NoOpMappingJournal();
+        if (journal.equals("wal")) {
+            dir = Files.createTempDirectory("shorten-bench");
+            wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0);
+            mappingJournal = wal;
+        }
+        service = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                forward,
+                ReverseIndexFootprint.create(reverseIndex, forward),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().journal(mappingJournal));
+        for (int i = 0; i < PREFILL; i++) {
+            existing[i] = SyntheticUrls.url(i);
+        }
+        // In batches, so prefilling costs one force per batch rather than per URL
+        for (int i = 0; i < PREFILL; i += 1_000) {
+            service.shortenAll(Arrays.asList(existing).subList(i, Math.min(i + 1_000, PREFILL)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (wal != null) {
+            wal.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public String shortenNew() {
+        return service.shorten(SyntheticUrls.url(next.getAndIncrement()));
+    }
+
+    @Benchmark
+    public String shortenExisting() {
+        return service.shorten(existing[ThreadLocalRandom.current().nextInt(PREFILL)]);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.shortener.bench;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for an overloaded node of a cluster: answers every request with
+ * a redirect after a fixed delay, without using CPU while it waits. Listed
+ * as a peer, it makes the resolves a node forwards to it hold their threads
+ * for that long, e.g. for {@link OverloadTest}:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec \
+ *     -Dbench.main=com.example.shortener.bench.SlowNode -Djmh.args="8081 1000"
+ * </pre>
+ */
+public final class SlowNode {
+
+    private SlowNode() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        long delayMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().set("Location", "https://example.com/slow");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.start();
+        System.out.printf("Answering on port %d after %d ms%n", port, delayMillis);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.shortener.bench;
+
+/**
+ * Deterministic synthetic URL corpus shared by benchmarks and footprint
+ * tools. URLs are 60-90 characters long and spread over a few thousand hosts,
+ * roughly resembling real shortener traffic.
+ */
+final class SyntheticUrls {
+
+    private static final String[] SCHEMES = {"https://", "http://"};
+    private static final String[] PATHS = {"/articles/", "/products/item/", "/watch?v=", "/blog/2024/", "/docs/page/"};
+
+    private SyntheticUrls() {
+    }
+
+    static String url(long n) {
+        long h = mix(n);
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(SCHEMES[(int) (h & 1)])
+                .append("www.host-").append((h >>> 8) % 4096).append(".example.com")
+                .append(PATHS[(int) ((h >>> 24) % PATHS.length)])
+                .append(Long.toHexString(h))
+                .append("?ref=").append(n);
+        return sb.toString();
+    }
+
+    /** Number of spellings {@link #spelling} knows, including the canonical one. */
+    static final int SPELLINGS = 6;
+
+    /**
+     * Returns URL {@code n} with a tracking parameter, spelled in one of the
+     * equivalent ways seen in real submissions: 0 is canonical, the others
+     * use an uppercase host, the default port, a {@code ./} segment, an
+     * escaped unreserved character, or the parameters in another order.
+     */
+    static String spelling(long n, int spelling) {
+        String url = url(n);
+        int host = url.indexOf("//") + 2;
+        int path = url.indexOf('/', host);
+        String query = url.substring(url.indexOf('?') + 1);
+        String base = url.substring(0, url.indexOf('?'));
+        switch (spelling) {
+            case 0:
+                return base + '?' + query + "&utm_source=feed";
+            case 1:
+                return url.substring(0, host) + url.substring(host, path).toUpperCase()
+                        + url.substring(path) + "&utm_source=feed";
+            case 2:
+                return url.substring(0, path) + (url.startsWith("https") ? ":443" : ":80")
+                        + url.substring(path) + "&utm_source=feed";
+            case 3:
+                return url.substring(0, path) + "/." + url.substring(path) + "&utm_source=feed";
+            case 4:
+                return url.replaceFirst("-", "%2D") + "&utm_source=feed";
+            case 5:
+                return base + "?utm_source=feed&" + query;
+            default:
+                throw new IllegalArgumentException("Unknown spelling: " + spelling);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return (z ^ (z >>> 31)) & Long.MAX_VALUE;
+    }
+}
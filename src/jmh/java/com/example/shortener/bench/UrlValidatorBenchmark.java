@@ -0,0 +1,79 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.UriUrlValidator;
+import com.example.shortener.core.UrlValidator;
+import com.example.shortener.errors.InvalidUrlException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link DefaultUrlValidator} against the
+ * {@link java.net.URI}-based {@link UriUrlValidator} on valid URLs and on
+ * garbage: URLs with an illegal character at a random position, as sent by
+ * abusive clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlValidatorBenchmark {
+
+    private static final int SIZE = 1 << 12;
+
+    @Param({"uri", "scanner"})
+    public String validator;
+
+    private final String[] valid = new String[SIZE];
+    private final String[] invalid = new String[SIZE];
+    private UrlValidator urlValidator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Set<String> schemes = Set.of("http", "https");
+        urlValidator = "uri".equals(validator)
+                ? new UriUrlValidator(2048, schemes)
+                : new DefaultUrlValidator(2048, schemes);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < SIZE; i++) {
+            valid[i] = SyntheticUrls.url(i);
+            int at = 1 + random.nextInt(valid[i].length() - 1);
+            invalid[i] = valid[i].substring(0, at) + ' ' + valid[i].substring(at);
+        }
+    }
+
+    @Benchmark
+    public boolean validUrl(Cursor cursor) {
+        return accepts(valid[cursor.next(SIZE - 1)]);
+    }
+
+    @Benchmark
+    public boolean invalidUrl(Cursor cursor) {
+        return accepts(invalid[cursor.next(SIZE - 1)]);
+    }
+
+    private boolean accepts(String url) {
+        try {
+            urlValidator.validate(url);
+            return true;
+        } catch (InvalidUrlException e) {
+            return false;
+        }
+    }
+}
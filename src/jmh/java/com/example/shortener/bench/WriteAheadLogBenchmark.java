@@ -0,0 +1,68 @@
+package com.example.shortener.bench;
+
+import com.example.shortener.persistence.SyncPolicy;
+import com.example.shortener.persistence.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Records per second for each {@link SyncPolicy} with concurrent writers.
+ * The log is written to {@code java.io.tmpdir}; point it at the production
+ * file system (-Djava.io.tmpdir=...) for meaningful fsync costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+    @Param({"PER_WRITE", "GROUP_COMMIT", "INTERVAL"})
+    public SyncPolicy policy;
+
+    private final AtomicLong ids = new AtomicLong();
+    private Path dir;
+    private WriteAheadLog wal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("wal-bench");
+        wal = new WriteAheadLog(dir, policy, 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        long id = ids.getAndIncrement();
+        wal.record(id, SyntheticUrls.url(id));
+    }
+}
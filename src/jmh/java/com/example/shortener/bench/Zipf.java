@@ -0,0 +1,36 @@
+package com.example.shortener.bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed ranks for skewed workloads: rank {@code k} (0-based) is
+ * drawn with probability proportional to {@code 1 / (k + 1)^s}. Samples are
+ * drawn up front from a precomputed CDF so the measured loop only indexes an
+ * array.
+ */
+final class Zipf {
+
+    private Zipf() {
+    }
+
+    /**
+     * Returns {@code count} ranks in {@code [0, n)} drawn with exponent
+     * {@code s} from a fixed seed.
+     */
+    static int[] samples(int n, double s, int count, long seed) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            samples[i] = Math.min(n - 1, k < 0 ? -k - 1 : k);
+        }
+        return samples;
+    }
+}
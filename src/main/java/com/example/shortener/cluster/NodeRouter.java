@@ -0,0 +1,244 @@
+package com.example.shortener.cluster;
+
+import com.example.shortener.core.Base64Codec;
+import com.example.shortener.core.NodePartition;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Routes resolves of codes minted by other nodes of a {@link NodePartition}
+ * to their owner. The owner is read from the node bits of the code's ID,
+ * decoded with the plain (unpartitioned) {@link Base64Codec}, so routing
+ * needs no shared state. Forwarded requests carry {@link #FORWARDED_HEADER}
+ * and are never forwarded again, so a misconfigured peer list cannot loop.
+ * <p>
+ * Responses of the owner are relayed as-is; a code whose node has no peer
+ * was never minted and resolves to 404.
+ */
+public class NodeRouter {
+
+    /** Marks a request forwarded by another node. */
+    public static final String FORWARDED_HEADER = "X-Shortener-Forwarded";
+
+    private static final String NO_STORE = "no-store";
+
+    private final NodePartition partition;
+    private final Base64Codec codec;
+    /** Base URL per node ID without a trailing slash, null for unknown nodes. */
+    private final String[] peers;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * @param partition this node's partition
+     * @param codec the plain codec, decoding global IDs
+     * @param peers base URL of each node, indexed by node ID; this node's
+     *              entry is never used and empty entries mark absent nodes
+     * @param objectMapper parses batch responses of other nodes
+     * @param timeout connect and response timeout of forwarded requests
+     */
+    public NodeRouter(NodePartition partition, Base64Codec codec, List<String> peers, ObjectMapper objectMapper,
+                      Duration timeout) {
+        if (peers.size() > partition.nodeCount()) {
+            throw new IllegalArgumentException("More peers than the " + partition.nodeCount()
+                    + " nodes addressable with " + partition.nodeBits() + " node bits");
+        }
+        this.partition = partition;
+        this.codec = codec;
+        this.peers = new String[partition.nodeCount()];
+        for (int node = 0; node < peers.size(); node++) {
+            String peer = peers.get(node).trim();
+            while (peer.endsWith("/")) {
+                peer = peer.substring(0, peer.length() - 1);
+            }
+            this.peers[node] = peer.isEmpty() ? null : peer;
+        }
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Returns the node that minted {@code code}, or -1 if it is not a valid
+     * code.
+     */
+    public int ownerOf(CharSequence code) {
+        long id = codec.tryDecode(code);
+        return id == Base64Codec.INVALID_ID ? -1 : partition.nodeOf(id);
+    }
+
+    /**
+     * Returns true if {@code code} is valid and was minted by another node.
+     */
+    public boolean isRemote(CharSequence code) {
+        int owner = ownerOf(code);
+        return owner >= 0 && owner != partition.nodeId();
+    }
+
+    /**
+     * Forwards {@code GET /{code}} to the owner of {@code code} and relays
+     * its status and caching headers.
+     *
+     * @throws NodeUnavailableException if the owner cannot be reached
+     */
+    public ResponseEntity<Void> forwardRedirect(String code, String ifNoneMatch) {
+        String peer = peers[ownerOf(code)];
+        if (peer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header(HttpHeaders.CACHE_CONTROL, NO_STORE).build();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(peer + "/" + code))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, "1")
+                .GET();
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        HttpResponse<Void> response = send(request.build(), HttpResponse.BodyHandlers.discarding(), peer);
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : List.of(HttpHeaders.LOCATION, HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL)) {
+            response.headers().firstValue(name).ifPresent(value -> headers.set(name, value));
+        }
+        return ResponseEntity.status(response.statusCode()).headers(headers).build();
+    }
+
+    /**
+     * Forwards {@code POST /api/resolve} for {@code code} to its owner and
+     * relays the response.
+     *
+     * @throws NodeUnavailableException if the owner cannot be reached
+     */
+    public ResponseEntity<byte[]> forwardResolve(String code) {
+        String peer = peers[ownerOf(code)];
+        if (peer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        byte[] body = json(Map.of("shortCode", code));
+        HttpResponse<byte[]> response = send(post(peer + "/api/resolve", body), HttpResponse.BodyHandlers.ofByteArray(),
+                peer);
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            return ResponseEntity.status(response.statusCode()).build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response.body());
+    }
+
+    /**
+     * Resolves {@code codes}, passing the codes of this node (and invalid
+     * ones) to {@code local} and sending those of every other node to it in
+     * one batch request.
+     *
+     * @param codes codes to resolve
+     * @param local resolves codes on this node, one result per code in order
+     * @return one result per code, in order
+     * @throws NodeUnavailableException if an owner cannot be reached
+     */
+    public List<Optional<String>> resolveAll(List<String> codes, Function<List<String>, List<Optional<String>>> local) {
+        Map<Integer, List<Integer>> byNode = new LinkedHashMap<>();
+        for (int i = 0; i < codes.size(); i++) {
+            int owner = ownerOf(codes.get(i));
+            int node = owner < 0 ? partition.nodeId() : owner;
+            byNode.computeIfAbsent(node, k -> new ArrayList<>()).add(i);
+        }
+        if (byNode.size() == 1 && byNode.containsKey(partition.nodeId())) {
+            return local.apply(codes);
+        }
+        @SuppressWarnings("unchecked")
+        Optional<String>[] results = new Optional[codes.size()];
+        Arrays.fill(results, Optional.empty());
+        for (Map.Entry<Integer, List<Integer>> group : byNode.entrySet()) {
+            int node = group.getKey();
+            List<Integer> indexes = group.getValue();
+            List<String> subset = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                subset.add(codes.get(index));
+            }
+            List<Optional<String>> resolved;
+            if (node == partition.nodeId()) {
+                resolved = local.apply(subset);
+            } else if (peers[node] != null) {
+                resolved = forwardResolveAll(peers[node], subset);
+            } else {
+                continue;
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = resolved.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<Optional<String>> forwardResolveAll(String peer, List<String> codes) {
+        byte[] body = json(Map.of("shortCodes", codes));
+        HttpResponse<byte[]> response = send(post(peer + "/api/resolve/batch", body),
+                HttpResponse.BodyHandlers.ofByteArray(), peer);
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new NodeUnavailableException("Node " + peer + " answered a batch resolve with "
+                    + response.statusCode());
+        }
+        try {
+            JsonNode results = objectMapper.readTree(response.body()).path("results");
+            if (results.size() != codes.size()) {
+                throw new NodeUnavailableException("Node " + peer + " returned " + results.size()
+                        + " results for " + codes.size() + " codes");
+            }
+            List<Optional<String>> resolved = new ArrayList<>(codes.size());
+            for (JsonNode result : results) {
+                resolved.add(Optional.ofNullable(result.path("longUrl").textValue()));
+            }
+            return resolved;
+        } catch (IOException e) {
+            throw new NodeUnavailableException("Node " + peer + " returned an unreadable batch response", e);
+        }
+    }
+
+    private HttpRequest post(String uri, byte[] body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, "1")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, String peer) {
+        try {
+            return client.send(request, handler);
+        } catch (IOException e) {
+            throw new NodeUnavailableException("Node " + peer + " is unavailable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodeUnavailableException("Interrupted while forwarding to node " + peer, e);
+        }
+    }
+}
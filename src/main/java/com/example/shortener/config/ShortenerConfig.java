@@ -1,22 +1,72 @@
 package com.example.shortener.config;
 
+import com.example.shortener.cluster.NodeRouter;
+import com.example.shortener.core.AliasIndex;
+import com.example.shortener.core.ArenaForwardIndex;
 import com.example.shortener.core.AtomicIdSpace;
 import com.example.shortener.core.Base64Codec;
 import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.CanonicalUrlNormalizer;
+import com.example.shortener.core.ClickCounters;
+import com.example.shortener.core.ClickTracker;
+import com.example.shortener.core.ClockCache;
 import com.example.shortener.core.ConcurrentReverseIndex;
 import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.ExpiryReaper;
+import com.example.shortener.core.FingerprintReverseIndex;
 import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.HeavyHitters;
 import com.example.shortener.core.IdSpace;
+import com.example.shortener.core.LeasingIdSpace;
+import com.example.shortener.core.LsmReverseIndex;
+import com.example.shortener.core.MappedForwardIndex;
+import com.example.shortener.core.MappingExpirer;
+import com.example.shortener.core.MappingJournal;
+import com.example.shortener.core.NodePartition;
+import com.example.shortener.core.NoOpMappingJournal;
 import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.PartitionedBase64Codec;
+import com.example.shortener.core.PartitionedIdSpace;
+import com.example.shortener.core.PrefixForwardIndex;
 import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentCompactor;
 import com.example.shortener.core.SegmentedForwardIndex;
 import com.example.shortener.core.UrlNormalizer;
 import com.example.shortener.core.UrlValidator;
+import com.example.shortener.limit.AdaptiveLimiter;
+import com.example.shortener.limit.ConcurrencyLimitFilter;
+import com.example.shortener.limit.ConcurrencyLimits;
+import com.example.shortener.metrics.ExpiryMeterBinder;
+import com.example.shortener.metrics.LimiterMeterBinder;
+import com.example.shortener.metrics.MicrometerServiceMetrics;
+import com.example.shortener.metrics.ReplicationMeterBinder;
+import com.example.shortener.metrics.ShortenerMeterBinder;
+import com.example.shortener.persistence.SnapshotLoader;
+import com.example.shortener.persistence.Snapshotter;
+import com.example.shortener.persistence.SyncPolicy;
+import com.example.shortener.persistence.WriteAheadLog;
+import com.example.shortener.replication.ReplicatingJournal;
+import com.example.shortener.replication.ReplicationFollower;
+import com.example.shortener.replication.ReplicationLeader;
 import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.ReadOnlyUrlShortenerService;
+import com.example.shortener.service.ServiceMetrics;
 import com.example.shortener.service.UrlShortenerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -26,25 +76,376 @@ import java.util.Set;
 @Configuration
 public class ShortenerConfig {
 
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    /**
+     * The ID space resumes after the highest ID already present in the
+     * forward index, which is only non-empty for persistent indexes.
+     * {@code shortener.id-space.type=leasing} hands out IDs from blocks of
+     * {@code shortener.id-space.block-size} leased per shard instead of a
+     * single shared counter. On a node of a cluster, IDs are confined to the
+     * node's share of the ID space.
+     */
+    @Bean
+    public IdSpace idSpace(@Value("${shortener.id-space.type:atomic}") String type,
+                           @Value("${shortener.id-space.block-size:1024}") int blockSize,
+                           ForwardIndex forwardIndex,
+                           ObjectProvider<NodePartition> partition) {
+        IdSpace idSpace;
+        switch (type) {
+            case "atomic":
+                idSpace = new AtomicIdSpace();
+                break;
+            case "leasing":
+                idSpace = new LeasingIdSpace(blockSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shortener.id-space.type: " + type);
+        }
+        NodePartition node = partition.getIfAvailable();
+        if (node != null) {
+            idSpace = new PartitionedIdSpace(idSpace, node);
+        }
+        idSpace.advancePast(forwardIndex.highWatermark());
+        return idSpace;
+    }
+
+    /**
+     * Selects the forward index storage via {@code shortener.forward-index.type}:
+     * {@code segmented} (default, one String per ID), {@code arena-heap} or
+     * {@code arena-direct} (UTF-8 bytes in on-heap or off-heap arenas),
+     * {@code prefix} (shared URL prefixes interned, suffixes in an arena), or
+     * {@code mapped} (memory-mapped files under {@code shortener.data-dir}
+     * that survive restarts). With {@code shortener.snapshot.enabled=true}
+     * the segmented index is first restored from its last snapshot. With
+     * {@code shortener.forward-index.cold.enabled=true} old segments of the
+     * segmented index can be compressed, with inflated blocks cached in
+     * {@code shortener.forward-index.cold.cache-bytes} (default 16 MiB).
+     * With {@code shortener.expiry.enabled=true} the segmented index accepts
+     * removals and releases segments left without entries.
+     */
+    @Bean
+    public ForwardIndex forwardIndex(@Value("${shortener.forward-index.type:segmented}") String type,
+                                     @Value("${shortener.data-dir:data}") Path dataDir,
+                                     @Value("${shortener.snapshot.enabled:false}") boolean snapshotEnabled,
+                                     @Value("${shortener.forward-index.cold.enabled:false}") boolean coldEnabled,
+                                     @Value("${shortener.forward-index.cold.cache-bytes:16777216}") long coldCacheBytes,
+                                     @Value("${shortener.expiry.enabled:false}") boolean expiryEnabled,
+                                     MappingJournal journal) {
+        ForwardIndex forwardIndex;
+        if (coldEnabled || expiryEnabled) {
+            if (!"segmented".equals(type)) {
+                throw new IllegalArgumentException((coldEnabled ? "Cold segments" : "Expiry")
+                        + " require shortener.forward-index.type=segmented");
+            }
+            forwardIndex = new SegmentedForwardIndex(20,
+                    coldEnabled ? SegmentedForwardIndex.newBlockCache(coldCacheBytes) : null, expiryEnabled);
+        } else {
+            forwardIndex = createForwardIndex(type, dataDir);
+        }
+        if (snapshotEnabled) {
+            if (!(forwardIndex instanceof SegmentedForwardIndex)) {
+                throw new IllegalArgumentException("Snapshots require shortener.forward-index.type=segmented");
+            }
+            Path snapshot = dataDir.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshot)) {
+                try {
+                    new SnapshotLoader().load(snapshot, (SegmentedForwardIndex) forwardIndex);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot load snapshot " + snapshot, e);
+                }
+            }
+        }
+        // Replay journaled mappings the index does not already hold
+        journal.replay((id, url) -> {
+            if (forwardIndex.get(id).isEmpty()) {
+                forwardIndex.put(id, url);
+            }
+        });
+        return forwardIndex;
+    }
+
+    private static ForwardIndex createForwardIndex(String type, Path dataDir) {
+        // All variants use the default segment size (1<<20), ~1M entries per segment.
+        switch (type) {
+            case "segmented":
+                return new SegmentedForwardIndex();
+            case "arena-heap":
+                return new ArenaForwardIndex(ArenaForwardIndex.Storage.HEAP);
+            case "arena-direct":
+                return new ArenaForwardIndex(ArenaForwardIndex.Storage.DIRECT);
+            case "prefix":
+                return new PrefixForwardIndex();
+            case "mapped":
+                return new MappedForwardIndex(dataDir.resolve("forward"));
+            default:
+                throw new IllegalArgumentException("Unknown shortener.forward-index.type: " + type);
+        }
+    }
+
+    /**
+     * Background compaction of forward index segments older than the newest
+     * {@code shortener.forward-index.cold.hot-segments} (default 2), every
+     * {@code shortener.forward-index.cold.interval-ms} (default 1 minute).
+     */
+    @Bean
+    @ConditionalOnProperty("shortener.forward-index.cold.enabled")
+    public SegmentCompactor segmentCompactor(ForwardIndex forwardIndex,
+                                             @Value("${shortener.forward-index.cold.hot-segments:2}") int hotSegments,
+                                             @Value("${shortener.forward-index.cold.interval-ms:60000}") long intervalMillis) {
+        return new SegmentCompactor((SegmentedForwardIndex) forwardIndex, hotSegments, intervalMillis);
+    }
+
+    /**
+     * Expiry of mappings shortened with a time to live, enabled with
+     * {@code shortener.expiry.enabled=true}; deadlines are rounded to
+     * {@code shortener.expiry.tick-ms} (default 1 second). Deadlines and
+     * expirations are neither journaled, snapshotted nor replicated, so
+     * expiry refuses to start alongside any of them rather than let expired
+     * codes come back after a restart or live on in followers.
+     */
+    @Bean
+    @ConditionalOnProperty("shortener.expiry.enabled")
+    public MappingExpirer mappingExpirer(ForwardIndex forwardIndex,
+                                         ReverseIndex reverseIndex,
+                                         ClockCache responseCache,
+                                         @Value("${shortener.expiry.tick-ms:1000}") long tickMillis,
+                                         @Value("${shortener.wal.enabled:false}") boolean walEnabled,
+                                         @Value("${shortener.snapshot.enabled:false}") boolean snapshotEnabled,
+                                         @Value("${shortener.replication.role:none}") String role) {
+        if (walEnabled || snapshotEnabled || !"none".equals(role)) {
+            throw new IllegalArgumentException("Expiry cannot be combined with shortener.wal.enabled, "
+                    + "shortener.snapshot.enabled or shortener.replication.role, which do not keep deadlines");
+        }
+        return new MappingExpirer(forwardIndex, reverseIndex, responseCache, tickMillis, System.currentTimeMillis());
+    }
+
+    @Bean
+    @ConditionalOnProperty("shortener.expiry.enabled")
+    public ExpiryReaper expiryReaper(MappingExpirer expirer,
+                                     @Value("${shortener.expiry.tick-ms:1000}") long tickMillis) {
+        return new ExpiryReaper(expirer, tickMillis);
+    }
+
+    /**
+     * Click tracking on resolve, enabled with
+     * {@code shortener.clicks.enabled=true}: lifetime clicks per code, and
+     * the {@code shortener.clicks.top-k} (default 100) most clicked codes of
+     * recent traffic, estimated with a sketch of
+     * {@code shortener.clicks.sketch-width} counters per row from one in
+     * {@code 2^shortener.clicks.sample-shift} clicks and halved every
+     * {@code shortener.clicks.half-life-ms}.
+     */
+    @Bean
+    @ConditionalOnProperty("shortener.clicks.enabled")
+    public ClickTracker clickTracker(@Value("${shortener.clicks.top-k:100}") int topK,
+                                     @Value("${shortener.clicks.sketch-width:65536}") int sketchWidth,
+                                     @Value("${shortener.clicks.sample-shift:4}") int sampleShift,
+                                     @Value("${shortener.clicks.half-life-ms:3600000}") long halfLifeMillis) {
+        return new ClickTracker(new ClickCounters(20),
+                new HeavyHitters(topK, sketchWidth, sampleShift, halfLifeMillis, System.currentTimeMillis()));
+    }
+
+    /**
+     * Adaptive concurrency limits, enabled with
+     * {@code shortener.limiter.enabled=true}: resolves and redirects
+     * (between {@code shortener.limiter.resolve.min-limit} and
+     * {@code max-limit}, default 4 and 150) and shortens (default 2 and 40)
+     * are limited separately. Every {@code shortener.limiter.window-ms}
+     * (default 100) each limit grows while latency stays within
+     * {@code shortener.limiter.tolerance} (default 1.5) of its long-term
+     * average and shrinks beyond it. Rejected requests are told to retry
+     * after {@code shortener.limiter.retry-after-seconds} (default 1). The
+     * two maximums should stay below the server's worker threads, 200 by
+     * default, so shortens can never occupy all of them.
+     */
+    @Bean
+    @ConditionalOnProperty("shortener.limiter.enabled")
+    public ConcurrencyLimits concurrencyLimits(@Value("${shortener.limiter.resolve.initial-limit:40}") int resolveInitial,
+                                               @Value("${shortener.limiter.resolve.min-limit:4}") int resolveMin,
+                                               @Value("${shortener.limiter.resolve.max-limit:150}") int resolveMax,
+                                               @Value("${shortener.limiter.shorten.initial-limit:10}") int shortenInitial,
+                                               @Value("${shortener.limiter.shorten.min-limit:2}") int shortenMin,
+                                               @Value("${shortener.limiter.shorten.max-limit:40}") int shortenMax,
+                                               @Value("${shortener.limiter.tolerance:1.5}") double tolerance,
+                                               @Value("${shortener.limiter.window-ms:100}") long windowMillis,
+                                               @Value("${shortener.limiter.retry-after-seconds:1}") long retryAfterSeconds) {
+        return new ConcurrencyLimits(
+                new AdaptiveLimiter("resolve", resolveInitial, resolveMin, resolveMax, tolerance, windowMillis),
+                new AdaptiveLimiter("shorten", shortenInitial, shortenMin, shortenMax, tolerance, windowMillis),
+                retryAfterSeconds);
+    }
+
+    /**
+     * Sheds resolves, redirects and shortens beyond their concurrency limit
+     * before they reach a controller.
+     */
+    @Bean
+    @ConditionalOnProperty("shortener.limiter.enabled")
+    public ConcurrencyLimitFilter concurrencyLimitFilter(ConcurrencyLimits limits) {
+        return new ConcurrencyLimitFilter(limits);
+    }
+
+    /**
+     * Write-ahead log for new mappings, enabled with
+     * {@code shortener.wal.enabled=true}. {@code shortener.wal.sync-policy}
+     * selects {@code PER_WRITE}, {@code GROUP_COMMIT} (default) or
+     * {@code INTERVAL}; the latter forces every
+     * {@code shortener.wal.sync-interval-ms} milliseconds.
+     */
+    @Bean
+    public MappingJournal mappingJournal(@Value("${shortener.wal.enabled:false}") boolean enabled,
+                                         @Value("${shortener.wal.sync-policy:GROUP_COMMIT}") SyncPolicy policy,
+                                         @Value("${shortener.wal.sync-interval-ms:100}") long syncIntervalMillis,
+                                         @Value("${shortener.data-dir:data}") Path dataDir) {
+        if (!enabled) {
+            return new NoOpMappingJournal();
+        }
+        return new WriteAheadLog(dataDir.resolve("wal"), policy, syncIntervalMillis);
+    }
+
+    /**
+     * Selects the reverse index via {@code shortener.reverse-index.type}:
+     * {@code concurrent} (default, a {@code ConcurrentHashMap}),
+     * {@code fingerprint} (primitive fingerprint table that confirms matches
+     * against the forward index) or {@code lsm} (memtable flushed to sorted
+     * run files in {@code shortener.reverse-index.lsm.dir}, for URL sets
+     * larger than the heap). The reverse index is rebuilt from whatever
+     * the forward index already holds so that shortening a previously stored
+     * URL stays idempotent across restarts.
+     */
+    @Bean
+    public ReverseIndex reverseIndex(@Value("${shortener.reverse-index.type:concurrent}") String type,
+                                     ForwardIndex forwardIndex,
+                                     @Value("${shortener.reverse-index.lsm.dir:${shortener.data-dir:data}/reverse}") Path lsmDir,
+                                     @Value("${shortener.reverse-index.lsm.memtable-entries:1048576}") int memtableEntries,
+                                     @Value("${shortener.reverse-index.lsm.bloom-bits-per-key:12}") int bloomBitsPerKey,
+                                     @Value("${shortener.reverse-index.lsm.fanout:4}") int fanout) {
+        int expectedSize = (int) Math.min(forwardIndex.highWatermark() + 1, Integer.MAX_VALUE);
+        ReverseIndex reverseIndex;
+        switch (type) {
+            case "concurrent":
+                reverseIndex = new ConcurrentReverseIndex(Math.max(expectedSize, 16));
+                break;
+            case "fingerprint":
+                reverseIndex = new FingerprintReverseIndex(forwardIndex, expectedSize);
+                break;
+            case "lsm":
+                reverseIndex = new LsmReverseIndex(lsmDir, memtableEntries, bloomBitsPerKey, fanout);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shortener.reverse-index.type: " + type);
+        }
+        if (forwardIndex instanceof SegmentedForwardIndex) {
+            // Segments can be scanned independently, so rebuild in parallel
+            try {
+                new SnapshotLoader().rebuildReverseIndex((SegmentedForwardIndex) forwardIndex, reverseIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot rebuild reverse index", e);
+            }
+        } else {
+            forwardIndex.forEach((id, url) -> reverseIndex.putIfAbsent(url, id));
+        }
+        return reverseIndex;
+    }
+
+    /**
+     * Periodic snapshots of the segmented forward index, enabled with
+     * {@code shortener.snapshot.enabled=true} and taken every
+     * {@code shortener.snapshot.interval-ms} milliseconds and on shutdown.
+     * Write-ahead log files covered by a snapshot are purged.
+     */
     @Bean
-    public IdSpace idSpace() {
-        return new AtomicIdSpace();
+    @ConditionalOnProperty("shortener.snapshot.enabled")
+    public Snapshotter snapshotter(ForwardIndex forwardIndex,
+                                   MappingJournal journal,
+                                   @Value("${shortener.snapshot.interval-ms:300000}") long intervalMillis,
+                                   @Value("${shortener.data-dir:data}") Path dataDir) {
+        WriteAheadLog wal = journal instanceof WriteAheadLog ? (WriteAheadLog) journal : null;
+        return new Snapshotter((SegmentedForwardIndex) forwardIndex, dataDir.resolve(SNAPSHOT_FILE), wal, intervalMillis);
     }
 
+    /**
+     * On a node of a cluster, codes carry the node ID in the high bits of
+     * their ID.
+     */
     @Bean
-    public ForwardIndex forwardIndex() {
-        // Use default segment size (1<<20). This yields ~1M entries per segment.
-        return new SegmentedForwardIndex();
+    public Base64Codec base64Codec(ObjectProvider<NodePartition> partition) {
+        NodePartition node = partition.getIfAvailable();
+        return node == null ? new Base64UrlCodec() : new PartitionedBase64Codec(new Base64UrlCodec(), node);
     }
 
+    /**
+     * This node's share of the ID space when
+     * {@code shortener.cluster.enabled=true}: the top
+     * {@code shortener.cluster.node-bits} bits (default 4) of every ID hold
+     * {@code shortener.cluster.node-id}, which must be unique in the cluster.
+     */
     @Bean
-    public ReverseIndex reverseIndex() {
-        return new ConcurrentReverseIndex();
+    @ConditionalOnProperty("shortener.cluster.enabled")
+    public NodePartition nodePartition(@Value("${shortener.cluster.node-bits:4}") int nodeBits,
+                                       @Value("${shortener.cluster.node-id}") int nodeId) {
+        return new NodePartition(nodeBits, nodeId);
     }
 
+    /**
+     * Forwards resolves of codes minted by other nodes to the base URL at
+     * their node ID in {@code shortener.cluster.peers} (comma-separated,
+     * empty for absent nodes), waiting at most
+     * {@code shortener.cluster.timeout-ms} (default 2 seconds).
+     */
     @Bean
-    public Base64Codec base64Codec() {
-        return new Base64UrlCodec();
+    @ConditionalOnProperty("shortener.cluster.enabled")
+    public NodeRouter nodeRouter(NodePartition partition,
+                                 @Value("${shortener.cluster.peers:}") List<String> peers,
+                                 @Value("${shortener.cluster.timeout-ms:2000}") long timeoutMillis,
+                                 ObjectMapper objectMapper) {
+        return new NodeRouter(partition, new Base64UrlCodec(), peers, objectMapper, Duration.ofMillis(timeoutMillis));
+    }
+
+    /**
+     * Streams new mappings to followers connecting to
+     * {@code shortener.replication.port} (default 7070) when
+     * {@code shortener.replication.role=leader}. A follower more than
+     * {@code shortener.replication.backlog} mappings (default 65536) behind is
+     * disconnected; idle streams carry a heartbeat every
+     * {@code shortener.replication.heartbeat-ms} (default 1 second).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.replication.role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(ForwardIndex forwardIndex,
+                                               @Value("${shortener.replication.port:7070}") int port,
+                                               @Value("${shortener.replication.backlog:65536}") int backlog,
+                                               @Value("${shortener.replication.heartbeat-ms:1000}") long heartbeatMillis) {
+        return new ReplicationLeader(forwardIndex, new InetSocketAddress(port), backlog, heartbeatMillis);
+    }
+
+    /**
+     * Replicates from the leader at {@code shortener.replication.leader}
+     * ({@code host:port}) when {@code shortener.replication.role=follower},
+     * reconnecting after {@code shortener.replication.retry-ms} (default 1
+     * second) and giving up on a connection silent for
+     * {@code shortener.replication.timeout-ms} (default 5 seconds).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.replication.role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(ForwardIndex forwardIndex,
+                                                   ReverseIndex reverseIndex,
+                                                   @Value("${shortener.replication.leader}") String leader,
+                                                   @Value("${shortener.replication.retry-ms:1000}") long retryMillis,
+                                                   @Value("${shortener.replication.timeout-ms:5000}") int timeoutMillis) {
+        return new ReplicationFollower(forwardIndex, reverseIndex, ReplicationFollower.parseAddress(leader),
+                retryMillis, timeoutMillis);
+    }
+
+    /**
+     * Cache of serialized resolve responses keyed by ID, bounded by
+     * {@code shortener.response-cache.max-bytes} (default 64 MiB; 0 disables
+     * caching).
+     */
+    @Bean
+    public ClockCache responseCache(@Value("${shortener.response-cache.max-bytes:67108864}") long maxBytes) {
+        return new ClockCache(maxBytes);
     }
 
     @Bean
@@ -52,19 +453,130 @@ public class ShortenerConfig {
         return new DefaultUrlValidator(2048, Set.of("http", "https"));
     }
 
+    /**
+     * Selects URL normalization via {@code shortener.normalizer.type}:
+     * {@code noop} (default, URLs are stored as submitted) or
+     * {@code canonical} (RFC 3986 normalization, so equivalent spellings
+     * share one code). {@code shortener.normalizer.sort-query-params=true}
+     * additionally sorts query parameters by name.
+     */
+    @Bean
+    public UrlNormalizer urlNormalizer(@Value("${shortener.normalizer.type:noop}") String type,
+                                       @Value("${shortener.normalizer.sort-query-params:false}") boolean sortQueryParams) {
+        switch (type) {
+            case "noop":
+                return new NoOpUrlNormalizer();
+            case "canonical":
+                return new CanonicalUrlNormalizer(sortQueryParams);
+            default:
+                throw new IllegalArgumentException("Unknown shortener.normalizer.type: " + type);
+        }
+    }
+
+    /**
+     * Shorten stage timers and resolve counters, registered unless
+     * {@code shortener.metrics.enabled=false}. Without this bean the service
+     * uses {@link ServiceMetrics#NOOP} and never reads the clock.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.metrics.enabled", matchIfMissing = true)
+    public ServiceMetrics serviceMetrics(MeterRegistry registry) {
+        return new MicrometerServiceMetrics(registry);
+    }
+
+    /**
+     * Capacity gauges, bound to the registry by Spring Boot unless
+     * {@code shortener.metrics.enabled=false}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.metrics.enabled", matchIfMissing = true)
+    public ShortenerMeterBinder shortenerMeterBinder(IdSpace idSpace,
+                                                     ForwardIndex forwardIndex,
+                                                     ReverseIndex reverseIndex,
+                                                     ClockCache responseCache) {
+        return new ShortenerMeterBinder(idSpace, forwardIndex, reverseIndex, responseCache);
+    }
+
+    /**
+     * Replication meters of a leader or follower, bound unless
+     * {@code shortener.metrics.enabled=false}; binds nothing on a standalone
+     * node.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.metrics.enabled", matchIfMissing = true)
+    public ReplicationMeterBinder replicationMeterBinder(ObjectProvider<ReplicationLeader> leader,
+                                                         ObjectProvider<ReplicationFollower> follower) {
+        return new ReplicationMeterBinder(leader.getIfAvailable(), follower.getIfAvailable());
+    }
+
+    /**
+     * Expiry meters, bound unless {@code shortener.metrics.enabled=false};
+     * binds nothing when expiry is disabled.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "shortener.metrics.enabled", matchIfMissing = true)
+    public ExpiryMeterBinder expiryMeterBinder(ObjectProvider<MappingExpirer> expirer, ForwardIndex forwardIndex) {
+        return new ExpiryMeterBinder(expirer.getIfAvailable(), forwardIndex);
+    }
+
+    /**
+     * Concurrency limiter meters, bound unless
+     * {@code shortener.metrics.enabled=false}; binds nothing when the
+     * limiter is disabled.
+     */
     @Bean
-    public UrlNormalizer urlNormalizer() {
-        // No-op normalization by default; can be replaced with custom implementation
-        return new NoOpUrlNormalizer();
+    @ConditionalOnProperty(name = "shortener.metrics.enabled", matchIfMissing = true)
+    public LimiterMeterBinder limiterMeterBinder(ObjectProvider<ConcurrencyLimits> limits) {
+        return new LimiterMeterBinder(limits.getIfAvailable());
     }
 
+    /**
+     * {@code shortener.replication.role} selects {@code none} (default),
+     * {@code leader} (recorded mappings are also streamed to followers) or
+     * {@code follower} (resolves only; shortens are rejected).
+     * <p>
+     * Custom aliases ({@code POST /api/alias}) live only in memory: they are
+     * neither journaled, snapshotted nor replicated. They are therefore
+     * disabled whenever mappings outlive the process or reach followers, i.e.
+     * with the write-ahead log, snapshots, the mapped forward index or a
+     * replication role, rather than be lost on restart or missing on
+     * followers.
+     */
     @Bean
     public UrlShortenerService urlShortenerService(IdSpace idSpace,
                                                    ForwardIndex forwardIndex,
                                                    ReverseIndex reverseIndex,
                                                    Base64Codec codec,
                                                    UrlValidator validator,
-                                                   UrlNormalizer normalizer) {
-        return new DefaultUrlShortenerService(idSpace, forwardIndex, reverseIndex, codec, validator, normalizer);
+                                                   UrlNormalizer normalizer,
+                                                   MappingJournal journal,
+                                                   ObjectProvider<ServiceMetrics> metrics,
+                                                   @Value("${shortener.replication.role:none}") String role,
+                                                   @Value("${shortener.wal.enabled:false}") boolean walEnabled,
+                                                   @Value("${shortener.snapshot.enabled:false}") boolean snapshotEnabled,
+                                                   @Value("${shortener.forward-index.type:segmented}") String forwardIndexType,
+                                                   ObjectProvider<ReplicationLeader> leader,
+                                                   ObjectProvider<MappingExpirer> expirer,
+                                                   ObjectProvider<ClickTracker> clickTracker) {
+        switch (role) {
+            case "none":
+            case "follower":
+                break;
+            case "leader":
+                journal = new ReplicatingJournal(journal, leader.getObject());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shortener.replication.role: " + role);
+        }
+        boolean persistent = walEnabled || snapshotEnabled || "mapped".equals(forwardIndexType);
+        AliasIndex aliasIndex = persistent || !role.equals("none") ? null : new AliasIndex();
+        UrlShortenerService service = new DefaultUrlShortenerService(idSpace, forwardIndex, reverseIndex, codec,
+                validator, normalizer, new DefaultUrlShortenerService.Options()
+                        .journal(journal)
+                        .metrics(metrics.getIfAvailable(() -> ServiceMetrics.NOOP))
+                        .expirer(expirer.getIfAvailable())
+                        .aliasIndex(aliasIndex)
+                        .clicks(clickTracker.getIfAvailable()));
+        return role.equals("follower") ? new ReadOnlyUrlShortenerService(service) : service;
     }
 }
\ No newline at end of file
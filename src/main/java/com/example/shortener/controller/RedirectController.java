@@ -0,0 +1,133 @@
+package com.example.shortener.controller;
+
+import com.example.shortener.cluster.NodeRouter;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.example.shortener.service.UrlShortenerService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Redirects {@code GET /{code}} straight to the original URL. Responses carry
+ * no body, so no message converter (and no JSON) is involved. A code's
+ * mapping never changes once published, so redirects are marked immutable
+ * and carry the code as a strong ETag; CDNs and browsers can then absorb
+ * repeat clicks. Codes that expire are cached only until their expiry and
+ * not marked immutable. Custom aliases, of any length but a code's, redirect
+ * the same way. Unknown codes are not cached since they may be issued later.
+ * On a node of a cluster, codes minted by other nodes are forwarded to them
+ * by a {@link NodeRouter} and their responses relayed.
+ */
+@RestController
+public class RedirectController {
+
+    /** One year, the conventional maximum for immutable responses. */
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final UrlShortenerService service;
+    private final HttpStatus redirectStatus;
+    private final NodeRouter router;
+
+    public RedirectController(UrlShortenerService service, int redirectStatus) {
+        this(service, redirectStatus, (NodeRouter) null);
+    }
+
+    /**
+     * @param service the shortener service
+     * @param redirectStatus {@code shortener.redirect.status}: 301 (default)
+     *                       or 302 when clicks should keep reaching the
+     *                       service, e.g. for counting
+     * @param router forwards other nodes' codes; absent if this node is not
+     *               part of a cluster
+     */
+    @Autowired
+    public RedirectController(UrlShortenerService service,
+                              @Value("${shortener.redirect.status:301}") int redirectStatus,
+                              ObjectProvider<NodeRouter> router) {
+        this(service, redirectStatus, router.getIfAvailable());
+    }
+
+    private RedirectController(UrlShortenerService service, int redirectStatus, NodeRouter router) {
+        if (redirectStatus != 301 && redirectStatus != 302) {
+            throw new IllegalArgumentException("shortener.redirect.status must be 301 or 302");
+        }
+        this.service = service;
+        this.redirectStatus = HttpStatus.valueOf(redirectStatus);
+        this.router = router;
+    }
+
+    /**
+     * Redirects to the URL behind {@code code} or alias, answers a matching
+     * {@code If-None-Match} with 304, or returns 404 if the code is unknown.
+     */
+    @GetMapping({"/{code:[A-Za-z0-9_-]{8}}", "/{code:[A-Za-z0-9_-]{3,7}|[A-Za-z0-9_-]{9,64}}"})
+    public ResponseEntity<Void> redirect(@PathVariable String code,
+                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(name = NodeRouter.FORWARDED_HEADER, required = false) String forwarded) {
+        if (router != null && forwarded == null && router.isRemote(code)) {
+            return router.forwardRedirect(code, ifNoneMatch);
+        }
+        Optional<String> longUrl = service.resolve(code);
+        if (longUrl.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .build();
+        }
+        String etag = '"' + code + '"';
+        String cacheControl = cacheControl(code);
+        // Weak comparison, so a list of tags or W/"..." also matches
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.ETAG, etag)
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                    .build();
+        }
+        return ResponseEntity.status(redirectStatus)
+                .header(HttpHeaders.LOCATION, toAscii(longUrl.get()))
+                .header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .build();
+    }
+
+    private String cacheControl(String code) {
+        Optional<Instant> expiresAt = service.expiresAt(code);
+        if (expiresAt.isEmpty()) {
+            return CACHE_CONTROL;
+        }
+        long seconds = Math.max(0, (expiresAt.get().toEpochMilli() - System.currentTimeMillis()) / 1000);
+        return "public, max-age=" + seconds;
+    }
+
+    /**
+     * Returns 502 Bad Gateway when the node owning a code cannot be reached.
+     */
+    @ExceptionHandler(NodeUnavailableException.class)
+    public ResponseEntity<String> handleNodeUnavailable(NodeUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(ex.getMessage());
+    }
+
+    /**
+     * Percent-encodes non-ASCII characters, which URLs accepted by the
+     * validator may contain but HTTP header values may not.
+     */
+    private static String toAscii(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            if (url.charAt(i) >= 0x80) {
+                return URI.create(url).toASCIIString();
+            }
+        }
+        return url;
+    }
+}
@@ -1,65 +1,384 @@
 package com.example.shortener.controller;
 
+import com.example.shortener.cluster.NodeRouter;
+import com.example.shortener.core.Base64Codec;
+import com.example.shortener.core.ClickTracker;
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.dto.AliasRequest;
+import com.example.shortener.dto.BatchResolveRequest;
+import com.example.shortener.dto.BatchShortenRequest;
 import com.example.shortener.dto.ResolveRequest;
 import com.example.shortener.dto.ResolveResponse;
 import com.example.shortener.dto.ShortenRequest;
 import com.example.shortener.dto.ShortenResponse;
+import com.example.shortener.errors.AliasTakenException;
+import com.example.shortener.errors.AliasesNotEnabledException;
+import com.example.shortener.errors.BatchTooLargeException;
 import com.example.shortener.errors.CapacityExceededException;
+import com.example.shortener.errors.ClicksNotEnabledException;
+import com.example.shortener.errors.ExpiryNotEnabledException;
+import com.example.shortener.errors.InvalidAliasException;
 import com.example.shortener.errors.InvalidUrlException;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.example.shortener.errors.ReadOnlyReplicaException;
+import com.example.shortener.service.ClickStats;
+import com.example.shortener.service.ShortenResult;
 import com.example.shortener.service.UrlShortenerService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * REST controller exposing endpoints for shortening and resolving URLs. Both
  * operations are exposed as POST to accept a JSON payload describing the
- * input.
+ * input, individually or in batches. On a node of a cluster, resolves of
+ * codes minted by other nodes are forwarded to them by a {@link NodeRouter}.
+ * With click tracking enabled, the clicks of codes are served from
+ * {@code /api/clicks}.
  */
 @RestController
 @RequestMapping("/api")
 @Validated
 public class ShortenerController {
 
+    /** Shared by every resolve response so cache hits allocate no header map. */
+    private static final HttpHeaders JSON_HEADERS;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
     private final UrlShortenerService service;
+    private final Base64Codec codec;
+    private final ClockCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final int maxBatchSize;
+    private final NodeRouter router;
+    private final ClickTracker clickTracker;
 
-    public ShortenerController(UrlShortenerService service) {
+    public ShortenerController(UrlShortenerService service,
+                               Base64Codec codec,
+                               ClockCache responseCache,
+                               ObjectMapper objectMapper,
+                               int maxBatchSize) {
+        this(service, codec, responseCache, objectMapper, maxBatchSize, (NodeRouter) null, (ClickTracker) null);
+    }
+
+    /**
+     * @param router forwards resolves of other nodes' codes; absent if this
+     *               node is not part of a cluster
+     * @param clickTracker counts resolves answered from the response cache,
+     *                     which never reach the service; absent unless click
+     *                     counting is enabled
+     */
+    @Autowired
+    public ShortenerController(UrlShortenerService service,
+                               Base64Codec codec,
+                               ClockCache responseCache,
+                               ObjectMapper objectMapper,
+                               @Value("${shortener.batch.max-size:1000}") int maxBatchSize,
+                               ObjectProvider<NodeRouter> router,
+                               ObjectProvider<ClickTracker> clickTracker) {
+        this(service, codec, responseCache, objectMapper, maxBatchSize,
+                router.getIfAvailable(), clickTracker.getIfAvailable());
+    }
+
+    private ShortenerController(UrlShortenerService service,
+                                Base64Codec codec,
+                                ClockCache responseCache,
+                                ObjectMapper objectMapper,
+                                int maxBatchSize,
+                                NodeRouter router,
+                                ClickTracker clickTracker) {
         this.service = service;
+        this.codec = codec;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxBatchSize = maxBatchSize;
+        this.router = router;
+        this.clickTracker = clickTracker;
     }
 
     /**
-     * Accepts a long URL in the request body and returns a short code.
+     * Accepts a long URL in the request body and returns a short code. With
+     * {@code ttlSeconds} the mapping expires after that many seconds.
      *
      * @param request request containing the longUrl to shorten
      * @return ShortenResponse with the generated short code
      */
     @PostMapping(path = "/shorten", consumes = "application/json", produces = "application/json")
     public ResponseEntity<ShortenResponse> shorten(@Valid @RequestBody ShortenRequest request) {
-        String code = service.shorten(request.getLongUrl());
+        Long ttlSeconds = request.getTtlSeconds();
+        String code = ttlSeconds == null ? service.shorten(request.getLongUrl())
+                : service.shorten(request.getLongUrl(), Duration.ofSeconds(ttlSeconds));
         return ResponseEntity.ok(new ShortenResponse(code));
     }
 
+    /**
+     * Shortens a URL and names it with a custom alias, which then works
+     * wherever a short code does.
+     *
+     * @param request request containing the alias and the longUrl
+     * @return ShortenResponse with the alias as its short code, 400 if the
+     *         alias or URL is invalid, 404 if aliases are not enabled, or 409
+     *         if the alias names another URL
+     */
+    @PostMapping(path = "/alias", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<ShortenResponse> createAlias(@Valid @RequestBody AliasRequest request) {
+        String alias = service.createAlias(request.getAlias(), request.getLongUrl());
+        return ResponseEntity.ok(new ShortenResponse(alias));
+    }
+
     /**
      * Accepts a short code in the request body and returns the original URL if
      * known. Returns 404 Not Found if the code is unknown or invalid.
+     * <p>
+     * Mappings never change, so the serialized {@link ResolveResponse} body
+     * is cached by ID and written as-is on later hits, skipping Jackson.
+     * Expired mappings are dropped from the cache when they are removed.
      *
      * @param request request containing the shortCode to resolve
-     * @return ResolveResponse with the original URL, or 404 if not found
+     * @return JSON-encoded ResolveResponse with the original URL, or 404 if
+     *         not found
      */
     @PostMapping(path = "/resolve", consumes = "application/json", produces = "application/json")
-    public ResponseEntity<ResolveResponse> resolve(@Valid @RequestBody ResolveRequest request) {
-        Optional<String> longUrl = service.resolve(request.getShortCode());
-        return longUrl
-                .map(url -> ResponseEntity.ok(new ResolveResponse(url)))
-                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    public ResponseEntity<byte[]> resolve(@Valid @RequestBody ResolveRequest request,
+                                          @RequestHeader(name = NodeRouter.FORWARDED_HEADER, required = false) String forwarded)
+            throws IOException {
+        String code = request.getShortCode();
+        if (router != null && forwarded == null && router.isRemote(code)) {
+            return router.forwardResolve(code);
+        }
+        long id = codec.tryDecode(code);
+        // Invalid codes skip the cache and are rejected (and counted) by the service
+        byte[] body = id == Base64Codec.INVALID_ID ? null : responseCache.get(id);
+        if (body == null) {
+            Optional<String> longUrl = service.resolve(code);
+            if (longUrl.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            body = objectMapper.writeValueAsBytes(new ResolveResponse(longUrl.get()));
+            if (id != Base64Codec.INVALID_ID) {
+                // Aliases have no ID to cache under
+                responseCache.put(id, body);
+            }
+        } else if (clickTracker != null) {
+            clickTracker.record(id);
+        }
+        return new ResponseEntity<>(body, JSON_HEADERS, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the lifetime and estimated recent clicks of a short code or
+     * alias, counted by this node.
+     *
+     * @return ClickStats of the code, or 404 if it is unknown or click
+     *         tracking is not enabled
+     */
+    @GetMapping(path = "/clicks/{code}", produces = "application/json")
+    public ResponseEntity<ClickStats> clicks(@PathVariable String code) {
+        return ResponseEntity.of(service.clicks(code));
+    }
+
+    /**
+     * Returns the most clicked codes of recent traffic on this node, most
+     * clicked first. At most {@code shortener.clicks.top-k} codes are
+     * tracked.
+     *
+     * @param limit maximum number of codes returned
+     * @return ClickStats of each code, or 404 if click tracking is not
+     *         enabled
+     */
+    @GetMapping(path = "/clicks", produces = "application/json")
+    public ResponseEntity<List<ClickStats>> topClicks(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(service.topClicks(limit));
+    }
+
+    /**
+     * Shortens up to {@code shortener.batch.max-size} URLs. The response is
+     * streamed as {@code {"results":[...]}} with one element per input URL,
+     * in order: {@code {"shortCode":"..."}} or {@code {"error":"..."}}.
+     * Invalid URLs only fail their own element. The whole batch is shortened
+     * before the response is committed, so a failure of the batch as a whole,
+     * e.g. of the journal, is reported with an error status rather than a
+     * truncated 200.
+     *
+     * @param request request containing the longUrls to shorten
+     * @return streamed results, or 413 if the batch is too large
+     */
+    @PostMapping(path = "/shorten/batch", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> shortenBatch(@Valid @RequestBody BatchShortenRequest request) {
+        List<String> longUrls = request.getLongUrls();
+        checkBatchSize(longUrls.size());
+        if (service.isReadOnly()) {
+            throw new ReadOnlyReplicaException();
+        }
+        return streamResults(service.shortenAll(longUrls), (json, result) -> {
+            if (result.isSuccess()) {
+                json.writeStringField("shortCode", result.getShortCode());
+            } else {
+                json.writeStringField("error", result.getError());
+            }
+        });
+    }
+
+    /**
+     * Resolves up to {@code shortener.batch.max-size} codes. The response is
+     * streamed as {@code {"results":[...]}} with one element per input code,
+     * in order: {@code {"longUrl":"..."}} or {@code {"error":"Not found"}}.
+     * Like shortens, the codes are resolved before the response is committed.
+     *
+     * @param request request containing the shortCodes to resolve
+     * @return streamed results, 413 if the batch is too large, or 502 if the
+     *         node owning some of the codes cannot be reached
+     */
+    @PostMapping(path = "/resolve/batch", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> resolveBatch(@Valid @RequestBody BatchResolveRequest request,
+                                                              @RequestHeader(name = NodeRouter.FORWARDED_HEADER, required = false) String forwarded) {
+        List<String> codes = request.getShortCodes();
+        checkBatchSize(codes.size());
+        boolean route = router != null && forwarded == null;
+        List<Optional<String>> longUrls = route ? router.resolveAll(codes, service::resolveAll) : service.resolveAll(codes);
+        return streamResults(longUrls, (json, longUrl) -> {
+            if (longUrl.isPresent()) {
+                json.writeStringField("longUrl", longUrl.get());
+            } else {
+                json.writeStringField("error", "Not found");
+            }
+        });
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new BatchTooLargeException("Batch of " + size + " items exceeds the limit of " + maxBatchSize);
+        }
+    }
+
+    /**
+     * Streams the results, already computed, without building a JSON tree;
+     * only writing them remains once the 200 is committed.
+     */
+    private <T> ResponseEntity<StreamingResponseBody> streamResults(List<T> results, ResultWriter<T> writer) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("results");
+                for (T result : results) {
+                    json.writeStartObject();
+                    writer.write(json, result);
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return new ResponseEntity<>(body, JSON_HEADERS, HttpStatus.OK);
+    }
+
+    /**
+     * Writes the fields of the result of one item of a batch.
+     */
+    @FunctionalInterface
+    private interface ResultWriter<T> {
+        void write(JsonGenerator json, T result) throws IOException;
+    }
+
+    /**
+     * Handle BatchTooLargeException and return HTTP 413 Payload Too Large.
+     */
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<String> handleBatchTooLarge(BatchTooLargeException ex) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ex.getMessage());
+    }
+
+    /**
+     * Handle NodeUnavailableException and return HTTP 502 Bad Gateway when
+     * the node owning a code cannot be reached.
+     */
+    @ExceptionHandler(NodeUnavailableException.class)
+    public ResponseEntity<String> handleNodeUnavailable(NodeUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(ex.getMessage());
+    }
+
+    /**
+     * Handle ReadOnlyReplicaException and return HTTP 421 Misdirected Request
+     * when a shorten reaches a read-only replica.
+     */
+    @ExceptionHandler(ReadOnlyReplicaException.class)
+    public ResponseEntity<String> handleReadOnlyReplica(ReadOnlyReplicaException ex) {
+        return ResponseEntity.status(421).body(ex.getMessage());
+    }
+
+    /**
+     * Handle InvalidAliasException and return HTTP 400 Bad Request.
+     */
+    @ExceptionHandler(InvalidAliasException.class)
+    public ResponseEntity<String> handleInvalidAlias(InvalidAliasException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    /**
+     * Handle AliasTakenException and return HTTP 409 Conflict.
+     */
+    @ExceptionHandler(AliasTakenException.class)
+    public ResponseEntity<String> handleAliasTaken(AliasTakenException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    /**
+     * Handle ExpiryNotEnabledException and return HTTP 400 Bad Request when
+     * a time to live is requested from a node that does not expire mappings.
+     */
+    @ExceptionHandler(ExpiryNotEnabledException.class)
+    public ResponseEntity<String> handleExpiryNotEnabled(ExpiryNotEnabledException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    /**
+     * Handle AliasesNotEnabledException and return HTTP 404 Not Found when an
+     * alias is requested from a node that does not keep aliases.
+     */
+    @ExceptionHandler(AliasesNotEnabledException.class)
+    public ResponseEntity<String> handleAliasesNotEnabled(AliasesNotEnabledException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    /**
+     * Handle ClicksNotEnabledException and return HTTP 404 Not Found when
+     * click statistics are requested from a node that does not count clicks.
+     */
+    @ExceptionHandler(ClicksNotEnabledException.class)
+    public ResponseEntity<String> handleClicksNotEnabled(ClicksNotEnabledException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
     }
 
     /**
@@ -71,6 +390,16 @@ public class ShortenerController {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    /**
+     * Handle UncheckedIOException and return HTTP 503 Service Unavailable
+     * when storage, e.g. the write-ahead log, cannot be written. Nothing of
+     * the failed request was published.
+     */
+    @ExceptionHandler(UncheckedIOException.class)
+    public ResponseEntity<String> handleStorageFailure(UncheckedIOException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Storage unavailable");
+    }
+
     /**
      * Handle CapacityExceededException and return HTTP 503 Service Unavailable
      * indicating that no further IDs can be allocated.
@@ -0,0 +1,287 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index of custom aliases, e.g. {@code spring-sale}, to the IDs of the
+ * mappings they name. An alias is 3 to 64 characters from the Base64URL
+ * alphabet of any length but 8, which is reserved for numeric codes, so a
+ * code is either a numeric code or an alias and never both.
+ * <p>
+ * Alias characters are ASCII, so they are interned as one byte each into
+ * append-only per-shard chunks; open-addressing tables of primitive longs
+ * hold a reference to the bytes, tagged with hash bits, and the ID. There is
+ * no String, map node or boxed {@code Long} per alias. The index is split
+ * into 64 shards by the top hash bits. Lookups are lock-free; inserts take
+ * the shard's lock and a shard past 75% load is rehashed into a table twice
+ * the size, which is then published. Aliases are never removed.
+ */
+public class AliasIndex {
+
+    /** Returned by {@link #get(String)} for unknown aliases. */
+    public static final long NO_ID = -1L;
+
+    public static final int MIN_LENGTH = 3;
+    public static final int MAX_LENGTH = 64;
+
+    /** Aliases that would shadow paths served by the application itself. */
+    private static final Set<String> RESERVED = Set.of("api", "error");
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int SHARD_BITS = 6;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 29;
+    private static final int CHUNK_BITS = 20;
+    /** Chunks double from this size up to {@code 1 << CHUNK_BITS}, so sparse shards stay small. */
+    private static final int FIRST_CHUNK_SIZE = 4096;
+    /** Bits of a reference: length (7), offset in chunk (20), chunk (24), hash tag (13). */
+    private static final int LENGTH_BITS = 7;
+    private static final int CHUNK_INDEX_BITS = 24;
+    private static final int TAG_SHIFT = LENGTH_BITS + CHUNK_BITS + CHUNK_INDEX_BITS;
+    /** Reference value marking an empty slot; real ones have a non-zero length. */
+    private static final long EMPTY = 0L;
+
+    private final ToLongFunction<String> hasher;
+    private final Shard[] shards;
+
+    public AliasIndex() {
+        this.hasher = FingerprintReverseIndex.seededFingerprint(ThreadLocalRandom.current().nextLong());
+        this.shards = new Shard[1 << SHARD_BITS];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Returns true if {@code alias} has a valid length and characters, does
+     * not have the length of a numeric code and is not reserved.
+     */
+    public static boolean isValid(String alias) {
+        int length = alias == null ? 0 : alias.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH || length == Base64Codec.CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = alias.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return !RESERVED.contains(alias);
+    }
+
+    /**
+     * Returns the ID of {@code alias}, or {@link #NO_ID} if it is unknown or
+     * not a valid alias.
+     */
+    public long get(String alias) {
+        if (!isValid(alias)) {
+            return NO_ID;
+        }
+        long hash = hasher.applyAsLong(alias);
+        return shard(hash).find(hash, alias);
+    }
+
+    /**
+     * Associates {@code alias} with {@code id} unless it is already taken.
+     *
+     * @return the ID the alias names afterwards: {@code id}, or the one it
+     *         was already associated with
+     * @throws IllegalArgumentException if the alias is not valid
+     */
+    public long putIfAbsent(String alias, long id) {
+        if (!isValid(alias)) {
+            throw new IllegalArgumentException("Invalid alias: " + alias);
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException("id must be non-negative");
+        }
+        long hash = hasher.applyAsLong(alias);
+        Shard shard = shard(hash);
+        shard.lock.lock();
+        try {
+            long existing = shard.find(hash, alias);
+            if (existing != NO_ID) {
+                return existing;
+            }
+            shard.insert(hash, alias, id);
+            return id;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /** Number of aliases. */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    /** Bytes held by tables and alias chunks. */
+    public long retainedBytes() {
+        long bytes = 0;
+        for (Shard shard : shards) {
+            bytes += 16L * shard.table.capacity() + shard.chunkBytes;
+        }
+        return bytes;
+    }
+
+    private Shard shard(long hash) {
+        return shards[(int) (hash >>> (64 - SHARD_BITS))];
+    }
+
+    /**
+     * Interleaved {@code (reference, id)} pairs, like the tables of
+     * {@link FingerprintReverseIndex}.
+     */
+    private static final class Table {
+        final long[] slots;
+        final int mask;
+
+        Table(int capacity) {
+            this.slots = new long[capacity << 1];
+            this.mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        /**
+         * Stores a pair in the first free slot, writing the ID before the
+         * reference is released.
+         */
+        void insert(long hash, long reference, long id) {
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                if (slots[i << 1] == EMPTY) {
+                    slots[(i << 1) + 1] = id;
+                    SLOT.setRelease(slots, i << 1, reference);
+                    return;
+                }
+            }
+        }
+    }
+
+    private final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Table table = new Table(MIN_CAPACITY);
+        /** Alias bytes; replaced when it grows, before any reference into a new chunk is released. */
+        volatile byte[][] chunks = new byte[1][];
+        /** Chunks allocated, their total size and the write position in the last one; guarded by lock. */
+        int chunkCount;
+        long chunkBytes;
+        int position;
+        /** Aliases in the shard; written under lock. */
+        volatile int size;
+
+        long find(long hash, String alias) {
+            Table local = table;
+            long[] slots = local.slots;
+            int mask = local.mask;
+            long expected = tag(hash) | alias.length();
+            long compared = (1L << LENGTH_BITS) - 1 | -1L << TAG_SHIFT;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long reference = (long) SLOT.getAcquire(slots, i << 1);
+                if (reference == EMPTY) {
+                    return NO_ID;
+                }
+                // Tag and length first, so most mismatches never touch the chunks
+                if ((reference & compared) == expected && matches(reference, alias)) {
+                    return slots[(i << 1) + 1];
+                }
+            }
+        }
+
+        private boolean matches(long reference, String alias) {
+            byte[] chunk = chunks[(int) (reference >>> (LENGTH_BITS + CHUNK_BITS)) & ((1 << CHUNK_INDEX_BITS) - 1)];
+            int offset = (int) (reference >>> LENGTH_BITS) & ((1 << CHUNK_BITS) - 1);
+            for (int i = 0; i < alias.length(); i++) {
+                if (chunk[offset + i] != (byte) alias.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void insert(long hash, String alias, long id) {
+            if (size + 1 > table.capacity() / 4 * 3) {
+                grow();
+            }
+            table.insert(hash, intern(hash, alias), id);
+            size = size + 1;
+        }
+
+        private long intern(long hash, String alias) {
+            int length = alias.length();
+            if (chunkCount == 0 || position + length > chunks[chunkCount - 1].length) {
+                if (chunkCount == 1 << CHUNK_INDEX_BITS) {
+                    throw new IllegalStateException("Alias index shard is full");
+                }
+                byte[][] local = chunks;
+                if (chunkCount == local.length) {
+                    local = Arrays.copyOf(local, local.length << 1);
+                }
+                int chunkSize = FIRST_CHUNK_SIZE << Math.min(chunkCount, CHUNK_BITS - 12);
+                local[chunkCount] = new byte[chunkSize];
+                chunks = local;
+                chunkCount++;
+                chunkBytes += chunkSize;
+                position = 0;
+            }
+            byte[] chunk = chunks[chunkCount - 1];
+            for (int i = 0; i < length; i++) {
+                chunk[position + i] = (byte) alias.charAt(i);
+            }
+            long reference = tag(hash) | (long) (chunkCount - 1) << (LENGTH_BITS + CHUNK_BITS)
+                    | (long) position << LENGTH_BITS | length;
+            position += length;
+            return reference;
+        }
+
+        /**
+         * Rehashes into a table twice the size, then publishes it; lookups
+         * keep using the old table, which is no longer written, until then.
+         */
+        private void grow() {
+            Table old = table;
+            if (old.capacity() == MAX_CAPACITY) {
+                throw new IllegalStateException("Alias index shard is full");
+            }
+            Table grown = new Table(old.capacity() << 1);
+            long[] slots = old.slots;
+            for (int i = 0; i < old.capacity(); i++) {
+                long reference = slots[i << 1];
+                if (reference != EMPTY) {
+                    grown.insert(rehash(reference), reference, slots[(i << 1) + 1]);
+                }
+            }
+            table = grown;
+        }
+
+        /**
+         * Recomputes the probe start of a stored alias from its bytes.
+         */
+        private long rehash(long reference) {
+            byte[] chunk = chunks[(int) (reference >>> (LENGTH_BITS + CHUNK_BITS)) & ((1 << CHUNK_INDEX_BITS) - 1)];
+            int offset = (int) (reference >>> LENGTH_BITS) & ((1 << CHUNK_BITS) - 1);
+            int length = (int) reference & ((1 << LENGTH_BITS) - 1);
+            return hasher.applyAsLong(new String(chunk, offset, length, StandardCharsets.ISO_8859_1));
+        }
+
+        private static long tag(long hash) {
+            // The low bits pick the slot and the top ones the shard, so tag with the middle ones
+            return (hash >>> 20) << TAG_SHIFT;
+        }
+    }
+}
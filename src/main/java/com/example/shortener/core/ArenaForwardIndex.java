@@ -0,0 +1,255 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A forward index that stores URLs as UTF-8 bytes appended to large chunked
+ * arenas instead of one {@link String} per ID. Each ID maps to a packed
+ * {@code long} slot holding the arena offset and length of its bytes; slots
+ * use the same two-level segment geometry as {@link SegmentedForwardIndex},
+ * so lookups remain constant time. Strings are only materialized when
+ * {@link #get(long)} is called.
+ * <p>
+ * Arena chunks are either on-heap {@code byte[]} slabs or off-heap direct
+ * {@link ByteBuffer}s (see {@link Storage}). Either way the garbage collector
+ * only sees a handful of large objects instead of two objects per entry.
+ * An entry never straddles two chunks; the unused tail of a chunk is skipped.
+ */
+public class ArenaForwardIndex implements ForwardIndex {
+
+    /**
+     * Where arena chunks are allocated.
+     */
+    public enum Storage {
+        /** On-heap {@code byte[]} slabs. */
+        HEAP,
+        /** Off-heap direct {@link ByteBuffer}s. */
+        DIRECT
+    }
+
+    /**
+     * Slot layout: bit 63 marks the slot as present, bits 24..62 hold the
+     * arena offset and bits 0..23 hold the entry length. An all-zero slot is
+     * empty.
+     */
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long MAX_OFFSET = (1L << (63 - LENGTH_BITS)) - 1;
+    private static final long PRESENT = 1L << 63;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Storage storage;
+    private final int segmentShift;
+    private final long segmentSize;
+    private final long segmentMask;
+    private final int chunkShift;
+    private final int chunkSize;
+    private final long chunkMask;
+
+    /**
+     * Packed offset/length slots, allocated lazily one segment at a time.
+     */
+    private volatile long[][] segments;
+
+    /**
+     * Arena chunks, allocated lazily as the append position advances.
+     */
+    private volatile ByteBuffer[] chunks;
+
+    /**
+     * Next free byte in the arena. Reservations advance it with a CAS so
+     * concurrent writers never overlap.
+     */
+    private final AtomicLong arenaPosition = new AtomicLong(0L);
+
+    private final AtomicLong highWatermark = new AtomicLong(-1L);
+
+    /**
+     * Lock for segment and chunk expansion. Reads are lock-free.
+     */
+    private final Lock expandLock = new ReentrantLock();
+
+    public ArenaForwardIndex() {
+        this(Storage.HEAP);
+    }
+
+    public ArenaForwardIndex(Storage storage) {
+        this(storage, 20, 22);
+    }
+
+    /**
+     * Creates a new arena index.
+     *
+     * @param storage where arena chunks live
+     * @param segmentShift log2 of the number of slots per segment (1..29)
+     * @param chunkShift log2 of the arena chunk size in bytes (12..30)
+     */
+    public ArenaForwardIndex(Storage storage, int segmentShift, int chunkShift) {
+        if (segmentShift <= 0 || segmentShift >= 30) {
+            throw new IllegalArgumentException("segmentShift must be between 1 and 29");
+        }
+        if (chunkShift < 12 || chunkShift > 30) {
+            throw new IllegalArgumentException("chunkShift must be between 12 and 30");
+        }
+        this.storage = storage;
+        this.segmentShift = segmentShift;
+        this.segmentSize = 1L << segmentShift;
+        this.segmentMask = segmentSize - 1;
+        this.chunkShift = chunkShift;
+        this.chunkSize = 1 << chunkShift;
+        this.chunkMask = chunkSize - 1;
+        this.segments = new long[1][];
+        this.chunks = new ByteBuffer[1];
+    }
+
+    @Override
+    public void put(long id, String url) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must be non-negative");
+        }
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > chunkSize || bytes.length > LENGTH_MASK) {
+            throw new IllegalArgumentException("URL of " + bytes.length + " bytes does not fit into an arena chunk");
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        int offset = (int) (id & segmentMask);
+        long[] segment = ensureSegment(segIndex);
+
+        long position = reserve(bytes.length);
+        ByteBuffer chunk = ensureChunk((int) (position >>> chunkShift));
+        chunk.put((int) (position & chunkMask), bytes);
+
+        // Release store: readers that observe the slot also observe the bytes
+        SLOT.setRelease(segment, offset, PRESENT | (position << LENGTH_BITS) | bytes.length);
+        long current;
+        do {
+            current = highWatermark.get();
+        } while (id > current && !highWatermark.compareAndSet(current, id));
+    }
+
+    /**
+     * Reserves {@code length} contiguous bytes inside a single chunk and
+     * returns the arena offset of the first byte.
+     */
+    private long reserve(int length) {
+        while (true) {
+            long current = arenaPosition.get();
+            long start = current;
+            long chunkEnd = (start | chunkMask) + 1;
+            if (start + length > chunkEnd) {
+                // Skip the tail of the current chunk
+                start = chunkEnd;
+            }
+            if (start + length > MAX_OFFSET) {
+                throw new IllegalStateException("Arena exhausted");
+            }
+            if (arenaPosition.compareAndSet(current, start + length)) {
+                return start;
+            }
+        }
+    }
+
+    private long[] ensureSegment(int segIndex) {
+        long[][] local = segments;
+        if (segIndex < local.length && local[segIndex] != null) {
+            return local[segIndex];
+        }
+        expandLock.lock();
+        try {
+            if (segIndex >= segments.length) {
+                segments = Arrays.copyOf(segments, Math.max(segIndex + 1, segments.length * 2));
+            }
+            if (segments[segIndex] == null) {
+                segments[segIndex] = new long[(int) segmentSize];
+            }
+            return segments[segIndex];
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    private ByteBuffer ensureChunk(int chunkIndex) {
+        ByteBuffer[] local = chunks;
+        if (chunkIndex < local.length && local[chunkIndex] != null) {
+            return local[chunkIndex];
+        }
+        expandLock.lock();
+        try {
+            if (chunkIndex >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunkIndex + 1, chunks.length * 2));
+            }
+            if (chunks[chunkIndex] == null) {
+                chunks[chunkIndex] = storage == Storage.DIRECT
+                        ? ByteBuffer.allocateDirect(chunkSize)
+                        : ByteBuffer.wrap(new byte[chunkSize]);
+            }
+            return chunks[chunkIndex];
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> get(long id) {
+        long hw = highWatermark.get();
+        if (id < 0 || id > hw) {
+            return Optional.empty();
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        long[][] local = segments;
+        if (segIndex >= local.length) {
+            return Optional.empty();
+        }
+        long[] segment = local[segIndex];
+        if (segment == null) {
+            return Optional.empty();
+        }
+        long slot = (long) SLOT.getAcquire(segment, (int) (id & segmentMask));
+        if (slot == 0L) {
+            return Optional.empty();
+        }
+        long position = (slot & ~PRESENT) >>> LENGTH_BITS;
+        int length = (int) (slot & LENGTH_MASK);
+        ByteBuffer chunk = chunks[(int) (position >>> chunkShift)];
+        int index = (int) (position & chunkMask);
+        if (chunk.hasArray()) {
+            return Optional.of(new String(chunk.array(), chunk.arrayOffset() + index, length, StandardCharsets.UTF_8));
+        }
+        byte[] bytes = new byte[length];
+        chunk.get(index, bytes);
+        return Optional.of(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public long highWatermark() {
+        return highWatermark.get();
+    }
+
+    @Override
+    public int allocatedSegmentCount() {
+        int count = 0;
+        for (long[] segment : segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of arena bytes reserved so far, including skipped
+     * chunk tails.
+     */
+    public long arenaBytes() {
+        return arenaPosition.get();
+    }
+}
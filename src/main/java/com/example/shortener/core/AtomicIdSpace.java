@@ -22,6 +22,18 @@ public class AtomicIdSpace implements IdSpace {
         return next;
     }
 
+    @Override
+    public long allocateBlock(int count) throws CapacityExceededException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        long first = counter.getAndAdd(count);
+        if (first + count - 1 > MAX_ID) {
+            throw new CapacityExceededException("ID space exhausted");
+        }
+        return first;
+    }
+
     @Override
     public long maxId() {
         return MAX_ID;
@@ -33,4 +45,9 @@ public class AtomicIdSpace implements IdSpace {
         long remaining = MAX_ID - current;
         return remaining < 0 ? 0 : remaining;
     }
+
+    @Override
+    public void advancePast(long id) {
+        counter.accumulateAndGet(id + 1, Math::max);
+    }
 }
\ No newline at end of file
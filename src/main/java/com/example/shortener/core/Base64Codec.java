@@ -1,12 +1,29 @@
 package com.example.shortener.core;
 
+import java.nio.ByteBuffer;
+
 /**
  * Codec for encoding and decoding 48-bit IDs into an 8-character Base64 URL-safe
  * string without padding and vice versa. The encode/decode methods should
  * throw {@link IllegalArgumentException} if inputs are invalid (e.g., code
  * format does not match expectations, or id is outside the supported range).
+ * <p>
+ * Besides the {@link String} based methods, the codec exposes overloads that
+ * work on {@link CharSequence}s, byte slices and buffers so that callers which
+ * already hold the raw request bytes do not need to materialize a String.
  */
 public interface Base64Codec {
+    /**
+     * Number of characters in an encoded code.
+     */
+    int CODE_LENGTH = 8;
+
+    /**
+     * Sentinel returned by {@link #tryDecode(CharSequence)} when the input is
+     * not a valid code. Valid IDs are always non-negative.
+     */
+    long INVALID_ID = -1L;
+
     /**
      * Encodes a 48-bit ID to an 8-character Base64 URL-safe string.
      *
@@ -16,6 +33,30 @@ public interface Base64Codec {
      */
     String encode(long id);
 
+    /**
+     * Encodes a 48-bit ID into the given char array starting at
+     * {@code offset}. Exactly {@link #CODE_LENGTH} characters are written.
+     *
+     * @param id the ID to encode (0 <= id <= 2^48 - 1)
+     * @param dst destination array
+     * @param offset index of the first character to write
+     * @throws IllegalArgumentException if the id is out of range
+     * @throws IndexOutOfBoundsException if {@code dst} is too small
+     */
+    void encode(long id, char[] dst, int offset);
+
+    /**
+     * Encodes a 48-bit ID as ASCII bytes into the given array starting at
+     * {@code offset}. Exactly {@link #CODE_LENGTH} bytes are written.
+     *
+     * @param id the ID to encode (0 <= id <= 2^48 - 1)
+     * @param dst destination array
+     * @param offset index of the first byte to write
+     * @throws IllegalArgumentException if the id is out of range
+     * @throws IndexOutOfBoundsException if {@code dst} is too small
+     */
+    void encode(long id, byte[] dst, int offset);
+
     /**
      * Decodes an 8-character Base64 URL-safe string back to its 48-bit ID.
      *
@@ -26,6 +67,48 @@ public interface Base64Codec {
      */
     long decode(String code);
 
+    /**
+     * Decodes an 8-character sequence back to its 48-bit ID.
+     *
+     * @param code the 8-character Base64 URL-safe sequence without padding
+     * @return the decoded 48-bit ID
+     * @throws IllegalArgumentException if the input is not exactly 8 valid
+     *                                  Base64 URL-safe characters
+     */
+    long decode(CharSequence code);
+
+    /**
+     * Decodes 8 ASCII bytes starting at {@code offset}.
+     *
+     * @param src source array
+     * @param offset index of the first byte of the code
+     * @param length number of bytes in the slice; must be {@link #CODE_LENGTH}
+     * @return the decoded 48-bit ID
+     * @throws IllegalArgumentException if the slice is not a valid code
+     */
+    long decode(byte[] src, int offset, int length);
+
+    /**
+     * Decodes the remaining bytes of the given buffer. The buffer's position
+     * is not modified.
+     *
+     * @param src buffer whose remaining bytes hold the code
+     * @return the decoded 48-bit ID
+     * @throws IllegalArgumentException if the remaining bytes are not a valid code
+     */
+    long decode(ByteBuffer src);
+
+    /**
+     * Decodes the given sequence in a single pass, returning
+     * {@link #INVALID_ID} instead of throwing when it is not a valid code.
+     * This is the preferred entry point on hot paths where invalid input is
+     * expected (e.g. resolving user supplied codes).
+     *
+     * @param code the candidate code, may be null
+     * @return the decoded ID, or {@link #INVALID_ID}
+     */
+    long tryDecode(CharSequence code);
+
     /**
      * Validates that the given string conforms to the 8-character Base64 URL-safe
      * format expected by this codec.
@@ -34,4 +117,4 @@ public interface Base64Codec {
      * @return true if valid, false otherwise
      */
     boolean isValidCode(String code);
-}
\ No newline at end of file
+}
@@ -1,65 +1,157 @@
 package com.example.shortener.core;
 
-import java.util.Base64;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
- * Implementation of {@link Base64Codec} that uses Java's built-in Base64
- * URL encoder/decoder. IDs are restricted to 48 bits and encoded as 6 bytes
- * which produce exactly 8 Base64 characters. No padding characters are used.
+ * Table-driven implementation of {@link Base64Codec}. IDs are restricted to
+ * 48 bits, which split evenly into eight 6-bit groups, so each output character
+ * maps directly to one group of the big-endian ID. The result is bit-identical
+ * to Base64URL-encoding the 6-byte big-endian representation of the ID without
+ * padding, but no regex matchers or intermediate byte arrays are involved:
+ * decoding never allocates, and only {@link #encode(long)} allocates its
+ * result. The codec is stateless and thread-safe.
  */
 public class Base64UrlCodec implements Base64Codec {
     private static final long MAX_ID = (1L << 48) - 1;
-    private static final int BYTES_LENGTH = 6; // 48 bits / 8 = 6 bytes
-    private static final int CODE_LENGTH = 8;  // 6 bytes -> 8 Base64 chars
-    private static final Pattern VALID_CODE_PATTERN = Pattern.compile("^[A-Za-z0-9_-]{8}$");
+    private static final int BITS_PER_CHAR = 6;
+    private static final int CHAR_MASK = (1 << BITS_PER_CHAR) - 1;
 
-    private final Base64.Encoder encoder;
-    private final Base64.Decoder decoder;
+    /**
+     * RFC 4648 "base64url" alphabet.
+     */
+    private static final byte[] ENCODE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
 
-    public Base64UrlCodec() {
-        this.encoder = Base64.getUrlEncoder().withoutPadding();
-        this.decoder = Base64.getUrlDecoder();
+    /**
+     * Reverse lookup for ASCII characters; -1 marks characters outside the
+     * alphabet. Non-ASCII characters are rejected before indexing.
+     */
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+        }
     }
 
     @Override
     public String encode(long id) {
-        if (id < 0 || id > MAX_ID) {
-            throw new IllegalArgumentException("ID out of range: " + id);
-        }
-        byte[] buffer = new byte[BYTES_LENGTH];
-        // big-endian encoding: write lowest 6 bytes of the id into the array
-        for (int i = BYTES_LENGTH - 1; i >= 0; i--) {
-            buffer[i] = (byte) (id & 0xFF);
-            id >>>= 8;
+        checkRange(id);
+        byte[] buffer = new byte[CODE_LENGTH];
+        encodeUnchecked(id, buffer, 0);
+        // ISO-8859-1 maps bytes to chars one-to-one, so no charset decoding runs
+        return new String(buffer, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public void encode(long id, char[] dst, int offset) {
+        checkRange(id);
+        Objects.checkFromIndexSize(offset, CODE_LENGTH, dst.length);
+        int shift = (CODE_LENGTH - 1) * BITS_PER_CHAR;
+        for (int i = 0; i < CODE_LENGTH; i++, shift -= BITS_PER_CHAR) {
+            dst[offset + i] = (char) ENCODE[(int) (id >>> shift) & CHAR_MASK];
         }
-        String encoded = encoder.encodeToString(buffer);
-        if (encoded.length() != CODE_LENGTH) {
-            // Safety check: should always be 8 characters
-            throw new IllegalStateException("Unexpected code length: " + encoded);
+    }
+
+    @Override
+    public void encode(long id, byte[] dst, int offset) {
+        checkRange(id);
+        Objects.checkFromIndexSize(offset, CODE_LENGTH, dst.length);
+        encodeUnchecked(id, dst, offset);
+    }
+
+    private static void encodeUnchecked(long id, byte[] dst, int offset) {
+        int shift = (CODE_LENGTH - 1) * BITS_PER_CHAR;
+        for (int i = 0; i < CODE_LENGTH; i++, shift -= BITS_PER_CHAR) {
+            dst[offset + i] = ENCODE[(int) (id >>> shift) & CHAR_MASK];
         }
-        return encoded;
     }
 
     @Override
     public long decode(String code) {
-        if (!isValidCode(code)) {
+        return decode((CharSequence) code);
+    }
+
+    @Override
+    public long decode(CharSequence code) {
+        long id = tryDecode(code);
+        if (id < 0) {
             throw new IllegalArgumentException("Invalid code format: " + code);
         }
-        byte[] bytes = decoder.decode(code);
-        if (bytes.length != BYTES_LENGTH) {
-            throw new IllegalArgumentException(
-                    "Decoded byte array length must be " + BYTES_LENGTH + ", but was " + bytes.length);
+        return id;
+    }
+
+    @Override
+    public long decode(byte[] src, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, src.length);
+        if (length != CODE_LENGTH) {
+            throw new IllegalArgumentException("Code must be " + CODE_LENGTH + " bytes, but was " + length);
+        }
+        long id = 0L;
+        int invalid = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int v = lookup(src[offset + i] & 0xFF);
+            invalid |= v;
+            id = (id << BITS_PER_CHAR) | (v & CHAR_MASK);
+        }
+        if (invalid < 0) {
+            throw new IllegalArgumentException("Invalid code format");
         }
+        return id;
+    }
+
+    @Override
+    public long decode(ByteBuffer src) {
+        int length = src.remaining();
+        if (length != CODE_LENGTH) {
+            throw new IllegalArgumentException("Code must be " + CODE_LENGTH + " bytes, but was " + length);
+        }
+        int base = src.position();
         long id = 0L;
-        for (byte b : bytes) {
-            id = (id << 8) | (b & 0xFF);
+        int invalid = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int v = lookup(src.get(base + i) & 0xFF);
+            invalid |= v;
+            id = (id << BITS_PER_CHAR) | (v & CHAR_MASK);
+        }
+        if (invalid < 0) {
+            throw new IllegalArgumentException("Invalid code format");
         }
         return id;
     }
 
+    @Override
+    public long tryDecode(CharSequence code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return INVALID_ID;
+        }
+        long id = 0L;
+        int invalid = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int v = lookup(code.charAt(i));
+            // Any rejected character leaves the sign bit set in the accumulator
+            invalid |= v;
+            id = (id << BITS_PER_CHAR) | (v & CHAR_MASK);
+        }
+        return invalid < 0 ? INVALID_ID : id;
+    }
+
     @Override
     public boolean isValidCode(String code) {
-        return code != null && VALID_CODE_PATTERN.matcher(code).matches();
+        return tryDecode(code) >= 0;
+    }
+
+    private static int lookup(int c) {
+        return c < DECODE.length ? DECODE[c] : -1;
+    }
+
+    private static void checkRange(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("ID out of range: " + id);
+        }
     }
-}
\ No newline at end of file
+}
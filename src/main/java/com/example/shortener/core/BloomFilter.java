@@ -0,0 +1,97 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Bloom filter over 64-bit key hashes, sized once for an expected number of
+ * keys. The {@code k} probe positions are derived from one hash by double
+ * hashing, so a key is hashed once however many probes are made. With
+ * {@code bitsPerKey} bits per key and the optimal {@code k}, the false
+ * positive rate is about {@code 0.6185^bitsPerKey}: 0.8% at 10, 0.3% at 12.
+ * <p>
+ * Filled by one thread before it is published; read-only afterwards.
+ */
+final class BloomFilter {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long M = 0xC6A4A7935BD1E995L;
+    private static final int R = 47;
+
+    private final long[] words;
+    private final long bits;
+    private final int probes;
+
+    /**
+     * @param expectedKeys number of keys that will be added
+     * @param bitsPerKey bits of filter per key, between 1 and 32
+     */
+    BloomFilter(long expectedKeys, int bitsPerKey) {
+        if (bitsPerKey < 1 || bitsPerKey > 32) {
+            throw new IllegalArgumentException("bitsPerKey must be between 1 and 32");
+        }
+        long words = Math.max(1, (Math.max(expectedKeys, 1) * bitsPerKey + 63) >>> 6);
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many keys for one filter: " + expectedKeys);
+        }
+        this.words = new long[(int) words];
+        this.bits = words << 6;
+        this.probes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+    }
+
+    void add(long hash) {
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bits);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Returns false if the key was definitely never added.
+     */
+    boolean mightContain(long hash) {
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < probes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long retainedBytes() {
+        return 16 + 8L * words.length;
+    }
+
+    /**
+     * MurmurHash64A of {@code key}.
+     */
+    static long hash(byte[] key) {
+        int length = key.length;
+        long h = 0x2545F4914F6CDD1DL ^ (length * M);
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long k = (long) LONGS.get(key, i);
+            k *= M;
+            k ^= k >>> R;
+            k *= M;
+            h ^= k;
+            h *= M;
+        }
+        if (i < length) {
+            long tail = 0;
+            for (int j = length - 1; j >= i; j--) {
+                tail = (tail << 8) | (key[j] & 0xFF);
+            }
+            h ^= tail;
+            h *= M;
+        }
+        h ^= h >>> R;
+        h *= M;
+        h ^= h >>> R;
+        return h;
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.shortener.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Normalizer applying the syntax- and scheme-based normalizations of
+ * RFC 3986, section 6.2, so equivalent spellings of a URL share one ID:
+ * <ul>
+ *   <li>scheme and host are lowercased (ASCII letters only, so
+ *       internationalized hosts are left as they are)</li>
+ *   <li>the default port ({@code :80} for http, {@code :443} for https) and
+ *       an empty port are removed</li>
+ *   <li>percent-encoded unreserved characters are decoded and the hex digits
+ *       of all other escapes are uppercased</li>
+ *   <li>{@code .} and {@code ..} path segments are removed, and an empty
+ *       path becomes {@code /}</li>
+ *   <li>optionally, query parameters are sorted by name; parameters with the
+ *       same name keep their order</li>
+ * </ul>
+ * The URL is scanned once and a copy is only started at the first character
+ * that changes, so an already canonical URL is returned as the same instance
+ * without allocating. URLs without an authority (e.g. {@code http:foo}) only
+ * have their scheme lowercased. Input is expected to have passed the
+ * {@link UrlValidator}; malformed escapes are copied unchanged.
+ */
+public class CanonicalUrlNormalizer implements UrlNormalizer {
+
+    private static final Comparator<String> BY_PARAM_NAME = Comparator.comparing(CanonicalUrlNormalizer::paramName);
+
+    private final boolean sortQueryParams;
+
+    public CanonicalUrlNormalizer() {
+        this(false);
+    }
+
+    /**
+     * @param sortQueryParams whether to sort query parameters by name; only
+     *                        safe if the target servers ignore their order
+     */
+    public CanonicalUrlNormalizer(boolean sortQueryParams) {
+        this.sortQueryParams = sortQueryParams;
+    }
+
+    @Override
+    public String normalize(String url) {
+        int n = url.length();
+        int colon = url.indexOf(':');
+        if (colon <= 0) {
+            return url;
+        }
+        // While sb is null the output equals the input up to the current position
+        StringBuilder sb = null;
+        for (int i = 0; i < colon; i++) {
+            char c = url.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                sb = copyOf(sb, url, i);
+                sb.append((char) (c + ('a' - 'A')));
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        if (sb != null) {
+            sb.append(':');
+        }
+        int authority = colon + 3;
+        if (!url.startsWith("//", colon + 1)) {
+            return sb == null ? url : sb.append(url, colon + 1, n).toString();
+        }
+        if (sb != null) {
+            sb.append("//");
+        }
+
+        int authorityEnd = authority;
+        while (authorityEnd < n && !isDelimiter(url.charAt(authorityEnd))) {
+            authorityEnd++;
+        }
+        int host = url.indexOf('@', authority);
+        host = host < 0 || host >= authorityEnd ? authority : host + 1;
+        sb = copyNormalized(sb, url, authority, host, false);
+        int hostEnd = host;
+        if (hostEnd < authorityEnd && url.charAt(hostEnd) == '[') {
+            // IPv6 literals may contain ':'
+            while (hostEnd < authorityEnd && url.charAt(hostEnd) != ']') {
+                hostEnd++;
+            }
+        }
+        while (hostEnd < authorityEnd && url.charAt(hostEnd) != ':') {
+            hostEnd++;
+        }
+        sb = copyNormalized(sb, url, host, hostEnd, true);
+        if (hostEnd < authorityEnd) {
+            if (isDefaultPort(url, colon, hostEnd + 1, authorityEnd)) {
+                sb = copyOf(sb, url, hostEnd);
+            } else if (sb != null) {
+                sb.append(url, hostEnd, authorityEnd);
+            }
+        }
+
+        int pathEnd = authorityEnd;
+        while (pathEnd < n && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') {
+            pathEnd++;
+        }
+        if (pathEnd == authorityEnd) {
+            sb = copyOf(sb, url, authorityEnd);
+            sb.append('/');
+        } else {
+            sb = normalizePath(sb, url, authorityEnd, pathEnd);
+        }
+
+        int p = pathEnd;
+        if (p < n && url.charAt(p) == '?') {
+            int queryEnd = url.indexOf('#', p);
+            queryEnd = queryEnd < 0 ? n : queryEnd;
+            if (sb != null) {
+                sb.append('?');
+            }
+            int queryStart = sb == null ? p + 1 : sb.length();
+            sb = copyNormalized(sb, url, p + 1, queryEnd, false);
+            if (sortQueryParams) {
+                sb = sortQuery(sb, url, queryStart, queryEnd);
+            }
+            p = queryEnd;
+        }
+        if (p < n) {
+            if (sb != null) {
+                sb.append('#');
+            }
+            sb = copyNormalized(sb, url, p + 1, n, false);
+        }
+        return sb == null ? url : sb.toString();
+    }
+
+    /**
+     * Copies the path segment by segment, resolving {@code .} and {@code ..}
+     * against the segments already written.
+     */
+    private static StringBuilder normalizePath(StringBuilder sb, String url, int start, int end) {
+        int pathStart = sb == null ? start : sb.length();
+        int i = start;
+        while (i < end) {
+            // Every segment, including the first, follows a '/'
+            int segment = i + 1;
+            int segmentEnd = url.indexOf('/', segment);
+            if (segmentEnd < 0 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            int dots = dotSegment(url, segment, segmentEnd);
+            if (dots > 0) {
+                sb = copyOf(sb, url, i);
+                if (dots == 2) {
+                    int cut = sb.lastIndexOf("/");
+                    if (cut >= pathStart) {
+                        sb.setLength(cut);
+                    }
+                }
+                // A trailing dot segment still names a directory
+                if (segmentEnd == end) {
+                    sb.append('/');
+                }
+            } else {
+                if (sb != null) {
+                    sb.append('/');
+                }
+                sb = copyNormalized(sb, url, segment, segmentEnd, false);
+            }
+            i = segmentEnd;
+        }
+        return sb;
+    }
+
+    /**
+     * Returns 1 if {@code [start, end)} is a {@code .} segment, 2 for
+     * {@code ..}, else 0. Dots may be percent-encoded.
+     */
+    private static int dotSegment(String url, int start, int end) {
+        int dots = 0;
+        int i = start;
+        while (i < end && dots < 3) {
+            if (url.charAt(i) == '.') {
+                i++;
+            } else if (url.startsWith("%2", i) && i + 2 < end && (url.charAt(i + 2) | 0x20) == 'e') {
+                i += 3;
+            } else {
+                return 0;
+            }
+            dots++;
+        }
+        return dots < 3 ? dots : 0;
+    }
+
+    /**
+     * Copies {@code [start, end)}, decoding escaped unreserved characters,
+     * uppercasing the hex digits of other escapes and, for hosts, lowercasing
+     * ASCII letters.
+     */
+    private static StringBuilder copyNormalized(StringBuilder sb, String url, int start, int end, boolean lowercase) {
+        if (sb == null && !lowercase) {
+            // Only escapes can change; skip straight to the first one
+            int escape = url.indexOf('%', start);
+            if (escape < 0 || escape >= end) {
+                return null;
+            }
+            start = escape;
+        }
+        int i = start;
+        while (i < end) {
+            char c = url.charAt(i);
+            if (c == '%' && i + 2 < end && isHex(url.charAt(i + 1)) && isHex(url.charAt(i + 2))) {
+                char hi = url.charAt(i + 1);
+                char lo = url.charAt(i + 2);
+                char decoded = (char) (Character.digit(hi, 16) << 4 | Character.digit(lo, 16));
+                if (isUnreserved(decoded)) {
+                    sb = copyOf(sb, url, i);
+                    sb.append(lowercase ? toLower(decoded) : decoded);
+                } else if (hi >= 'a' || lo >= 'a') {
+                    sb = copyOf(sb, url, i);
+                    sb.append('%').append(toUpper(hi)).append(toUpper(lo));
+                } else if (sb != null) {
+                    sb.append(url, i, i + 3);
+                }
+                i += 3;
+                continue;
+            }
+            if (lowercase && c >= 'A' && c <= 'Z') {
+                sb = copyOf(sb, url, i);
+                sb.append(toLower(c));
+            } else if (sb != null) {
+                sb.append(c);
+            }
+            i++;
+        }
+        return sb;
+    }
+
+    /**
+     * Sorts the query written from {@code queryStart} (in {@code sb}, or in
+     * {@code url} if nothing was copied yet) by parameter name, unless it is
+     * sorted already.
+     */
+    private static StringBuilder sortQuery(StringBuilder sb, String url, int queryStart, int queryEnd) {
+        CharSequence out = sb == null ? url : sb;
+        int end = sb == null ? queryEnd : sb.length();
+        if (isSortedByName(out, queryStart, end)) {
+            return sb;
+        }
+        sb = copyOf(sb, url, queryEnd);
+        List<String> params = new ArrayList<>(Arrays.asList(sb.substring(queryStart).split("&", -1)));
+        // List.sort is stable, so repeated names keep their order
+        params.sort(BY_PARAM_NAME);
+        sb.setLength(queryStart);
+        sb.append(String.join("&", params));
+        return sb;
+    }
+
+    private static boolean isSortedByName(CharSequence s, int start, int end) {
+        int previous = -1;
+        int param = start;
+        while (param <= end) {
+            int paramEnd = param;
+            while (paramEnd < end && s.charAt(paramEnd) != '&') {
+                paramEnd++;
+            }
+            if (previous >= 0 && compareNames(s, previous, param) > 0) {
+                return false;
+            }
+            previous = param;
+            param = paramEnd + 1;
+        }
+        return true;
+    }
+
+    private static int compareNames(CharSequence s, int a, int b) {
+        while (true) {
+            char ca = a < s.length() ? s.charAt(a) : '&';
+            char cb = b < s.length() ? s.charAt(b) : '&';
+            boolean endA = ca == '&' || ca == '=';
+            boolean endB = cb == '&' || cb == '=';
+            if (endA || endB) {
+                return endA == endB ? 0 : endA ? -1 : 1;
+            }
+            if (ca != cb) {
+                return ca - cb;
+            }
+            a++;
+            b++;
+        }
+    }
+
+    private static String paramName(String param) {
+        int eq = param.indexOf('=');
+        return eq < 0 ? param : param.substring(0, eq);
+    }
+
+    /**
+     * Whether the port in {@code [start, end)} is empty or the default port
+     * of the scheme ending at {@code colon}.
+     */
+    private static boolean isDefaultPort(String url, int colon, int start, int end) {
+        if (start == end) {
+            return true;
+        }
+        if (end - start > 5) {
+            return false;
+        }
+        int port = 0;
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            port = port * 10 + (c - '0');
+        }
+        if (colon == 4 && url.regionMatches(true, 0, "http", 0, 4)) {
+            return port == 80;
+        }
+        return colon == 5 && url.regionMatches(true, 0, "https", 0, 5) && port == 443;
+    }
+
+    /**
+     * Returns {@code sb}, or a new builder holding the input up to
+     * {@code upTo} if no copy was started yet.
+     */
+    private static StringBuilder copyOf(StringBuilder sb, String url, int upTo) {
+        if (sb != null) {
+            return sb;
+        }
+        StringBuilder copy = new StringBuilder(url.length() + 8);
+        copy.append(url, 0, upTo);
+        return copy;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
+    }
+
+    private static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static char toUpper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
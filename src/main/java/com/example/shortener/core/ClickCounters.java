@@ -0,0 +1,92 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lifetime click count per ID, in primitive {@code long[]} segments laid out
+ * like those of {@link SegmentedForwardIndex} and allocated on the first
+ * click of one of their IDs.
+ * <p>
+ * Increments are an opaque read followed by an opaque write rather than an
+ * atomic add, so the hot path has no locked instruction and no fence;
+ * concurrent clicks on the same ID can occasionally lose an increment.
+ * Clicks on different IDs never contend except through false sharing.
+ */
+public class ClickCounters {
+
+    private static final VarHandle COUNT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int segmentShift;
+    private final int segmentMask;
+    private final ReentrantLock expandLock = new ReentrantLock();
+    /** Replaced, never modified, once published. */
+    private volatile long[][] segments = new long[0][];
+    private volatile int allocatedSegments;
+
+    /**
+     * @param segmentShift log2 of the number of IDs per segment
+     */
+    public ClickCounters(int segmentShift) {
+        if (segmentShift <= 0 || segmentShift >= 30) {
+            throw new IllegalArgumentException("segmentShift must be between 1 and 29");
+        }
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+    }
+
+    /**
+     * Counts one click of {@code id}; negative IDs are ignored.
+     */
+    public void increment(long id) {
+        if (id < 0) {
+            return;
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        long[][] local = segments;
+        long[] segment = segIndex < local.length ? local[segIndex] : null;
+        if (segment == null) {
+            segment = allocate(segIndex);
+        }
+        int offset = (int) id & segmentMask;
+        COUNT.setOpaque(segment, offset, (long) COUNT.getOpaque(segment, offset) + 1);
+    }
+
+    /**
+     * Returns the clicks counted for {@code id}.
+     */
+    public long get(long id) {
+        if (id < 0) {
+            return 0;
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        long[][] local = segments;
+        long[] segment = segIndex < local.length ? local[segIndex] : null;
+        return segment == null ? 0 : (long) COUNT.getOpaque(segment, (int) id & segmentMask);
+    }
+
+    /** Bytes held by allocated segments. */
+    public long retainedBytes() {
+        return (long) allocatedSegments * (16 + 8L * (segmentMask + 1));
+    }
+
+    private long[] allocate(int segIndex) {
+        expandLock.lock();
+        try {
+            long[][] local = segments;
+            if (segIndex < local.length && local[segIndex] != null) {
+                return local[segIndex];
+            }
+            // Copy on write, so readers of the published array never see it change
+            long[][] grown = Arrays.copyOf(local, Math.max(local.length, segIndex + 1));
+            grown[segIndex] = new long[segmentMask + 1];
+            segments = grown;
+            allocatedSegments = allocatedSegments + 1;
+            return grown[segIndex];
+        } finally {
+            expandLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.shortener.core;
+
+import java.util.List;
+
+/**
+ * Counts resolves per ID: lifetime totals in {@link ClickCounters}
+ * and the currently hottest IDs in {@link HeavyHitters}.
+ */
+public class ClickTracker {
+
+    private final ClickCounters counters;
+    private final HeavyHitters heavyHitters;
+
+    public ClickTracker(ClickCounters counters, HeavyHitters heavyHitters) {
+        this.counters = counters;
+        this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * Counts one click of {@code id}.
+     */
+    public void record(long id) {
+        counters.increment(id);
+        heavyHitters.offer(id);
+    }
+
+    /** Lifetime clicks of {@code id}. */
+    public long clicks(long id) {
+        return counters.get(id);
+    }
+
+    /** Estimated recent clicks of {@code id}. */
+    public long recentClicks(long id) {
+        return heavyHitters.estimate(id);
+    }
+
+    /**
+     * Returns up to {@code limit} of the hottest IDs, highest estimate first.
+     */
+    public List<HeavyHitters.Entry> top(int limit) {
+        return heavyHitters.top(limit);
+    }
+
+    /** Bytes held by counters, sketch and table. */
+    public long retainedBytes() {
+        return counters.retainedBytes() + heavyHitters.retainedBytes();
+    }
+}
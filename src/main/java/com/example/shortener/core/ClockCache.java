@@ -0,0 +1,216 @@
+package com.example.shortener.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free cache from {@code long} keys to byte arrays, limited by
+ * the total size of the cached values. Keys hash to a set of eight adjacent
+ * slots; a value replaces the slot already holding its key, or else is
+ * stored in a free slot of its set or replaces the first slot whose
+ * reference bit is clear, giving each recently read entry a second
+ * chance. When the byte budget is exceeded a global CLOCK hand sweeps the
+ * slots, clearing reference bits and evicting entries that were not read
+ * since the hand last passed.
+ * <p>
+ * Slots are swapped with CAS, so concurrent puts may occasionally drop a
+ * value instead of caching it. Values must not be modified once cached.
+ */
+public class ClockCache {
+
+    private static final int WAYS = 8;
+    /** Rough per-entry overhead (entry object, array header, slot) counted against the budget. */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final int setMask;
+    private final AtomicReferenceArray<Entry> slots;
+    /** Reference bits; races only cost an extra or a missed second chance. */
+    private final byte[] referenced;
+    private final AtomicLong hand = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache sized for values of about 128 bytes.
+     *
+     * @param maxBytes budget for the cached values and their overhead
+     */
+    public ClockCache(long maxBytes) {
+        this(maxBytes, (int) Math.min(1 << 24, Math.max(WAYS, maxBytes / 128)));
+    }
+
+    /**
+     * @param maxBytes budget for the cached values and their overhead
+     * @param slots number of slots, rounded up to a power of two of at
+     *              least eight
+     */
+    public ClockCache(long maxBytes, int slots) {
+        if (maxBytes < 0 || slots <= 0 || slots > 1 << 30) {
+            throw new IllegalArgumentException("maxBytes must be >= 0 and slots between 1 and 2^30");
+        }
+        int capacity = Math.max(WAYS, Integer.highestOneBit(slots - 1) << 1);
+        this.maxBytes = maxBytes;
+        this.setMask = capacity / WAYS - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.referenced = new byte[capacity];
+    }
+
+    /**
+     * Returns the value cached for {@code key}, or null.
+     */
+    public byte[] get(long key) {
+        int base = setOf(key);
+        for (int i = base; i < base + WAYS; i++) {
+            Entry entry = slots.get(i);
+            if (entry != null && entry.key == key) {
+                if (referenced[i] == 0) {
+                    referenced[i] = 1;
+                }
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches {@code value} for {@code key}, evicting older entries if the
+     * byte budget is exceeded. Values larger than an eighth of the budget
+     * are not cached.
+     */
+    public void put(long key, byte[] value) {
+        long size = (long) value.length + ENTRY_OVERHEAD;
+        if (size > maxBytes / WAYS) {
+            return;
+        }
+        Entry entry = new Entry(key, value);
+        int base = setOf(key);
+        // The key may sit behind a slot that a remove or sweep emptied, so
+        // scan the whole set for it before taking a free or cold slot
+        int victim = -1;
+        int free = -1;
+        int cold = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            Entry current = slots.get(i);
+            if (current == null) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (current.key == key) {
+                victim = i;
+                break;
+            } else if (cold < 0 && referenced[i] == 0) {
+                cold = i;
+            }
+        }
+        if (victim < 0) {
+            victim = free >= 0 ? free : cold;
+        }
+        if (victim < 0) {
+            // Every entry of the set was read recently; give them a second chance
+            for (int i = base; i < base + WAYS; i++) {
+                referenced[i] = 0;
+            }
+            victim = base + (int) (key & (WAYS - 1));
+        }
+        Entry replaced = slots.get(victim);
+        if (!slots.compareAndSet(victim, replaced, entry)) {
+            return;
+        }
+        referenced[victim] = 0;
+        long delta = size;
+        if (replaced != null) {
+            delta -= replaced.size();
+            if (replaced.key != key) {
+                evictions.increment();
+            }
+        }
+        if (bytes.addAndGet(delta) > maxBytes) {
+            sweep();
+        }
+    }
+
+    /**
+     * Drops the value cached for {@code key}, if any; not counted as an
+     * eviction.
+     */
+    public void remove(long key) {
+        int base = setOf(key);
+        for (int i = base; i < base + WAYS; i++) {
+            Entry entry = slots.get(i);
+            if (entry != null && entry.key == key && slots.compareAndSet(i, entry, null)) {
+                bytes.addAndGet(-entry.size());
+            }
+        }
+    }
+
+    /**
+     * Advances the global hand until the cache is back under budget. Bounded
+     * to two full turns, after which every reference bit has been cleared.
+     */
+    private void sweep() {
+        int capacity = slots.length();
+        for (int step = 0; step < 2 * capacity && bytes.get() > maxBytes; step++) {
+            int i = (int) (hand.getAndIncrement() & (capacity - 1));
+            Entry entry = slots.get(i);
+            if (entry == null) {
+                continue;
+            }
+            if (referenced[i] != 0) {
+                referenced[i] = 0;
+            } else if (slots.compareAndSet(i, entry, null)) {
+                bytes.addAndGet(-entry.size());
+                evictions.increment();
+            }
+        }
+    }
+
+    private int setOf(long key) {
+        // Fibonacci hashing spreads sequential IDs over the sets
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32 & setMask) * WAYS;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the bytes currently charged against the budget, including the
+     * per-entry overhead.
+     */
+    public long sizeInBytes() {
+        return bytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    private static final class Entry {
+        final long key;
+        final byte[] value;
+
+        Entry(long key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        long size() {
+            return (long) value.length + ENTRY_OVERHEAD;
+        }
+    }
+}
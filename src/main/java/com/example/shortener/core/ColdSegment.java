@@ -0,0 +1,275 @@
+package com.example.shortener.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed copy of one {@link SegmentedForwardIndex} segment.
+ * Entries are grouped into blocks of {@value #BLOCK_SIZE} consecutive
+ * offsets, each compressed on its own with {@link Deflater} so a lookup only
+ * inflates one block; inflating dominates an uncached read, and 16 entries
+ * trade about a tenth of the ratio of 64 for a third of the latency. Every
+ * block is compressed against a preset dictionary
+ * trained on the segment: its most frequent URL prefixes (see
+ * {@link PrefixForwardIndex#prefixEnd}), which short blocks could otherwise
+ * not exploit.
+ * <p>
+ * An inflated block holds, per offset, a varint of the entry's UTF-8 length
+ * plus one (0 for an absent entry) followed by its bytes.
+ */
+final class ColdSegment {
+
+    static final int BLOCK_SHIFT = 4;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    /** Inflated size of a block of typical, 70-byte URLs. */
+    static final int TYPICAL_BLOCK_BYTES = BLOCK_SIZE * 72;
+
+    /**
+     * Every block hashes the whole dictionary before compressing, so it is
+     * kept to the few prefixes shared across many blocks; longer ones (up to
+     * deflate's 32 KiB window) compressed worse and slower in
+     * {@code ForwardIndexFootprint}.
+     */
+    private static final int MAX_DICTIONARY = 2 * 1024;
+
+    /** Unique per compaction, so cached blocks of a thawed segment are never reused. */
+    final long cacheId;
+    /** Bits of a block number, below {@link #cacheId} in the cache key. */
+    private final int blockBits;
+    private final byte[] dictionary;
+    private final byte[] data;
+    /** Start of each block in {@link #data}, plus the end of the last one. */
+    private final int[] blockOffsets;
+    private final int[] rawLengths;
+    private final long rawBytes;
+
+    private ColdSegment(long cacheId, byte[] dictionary, byte[] data, int[] blockOffsets, int[] rawLengths,
+                        long rawBytes) {
+        this.cacheId = cacheId;
+        this.blockBits = 32 - Integer.numberOfLeadingZeros(rawLengths.length - 1);
+        this.dictionary = dictionary;
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.rawLengths = rawLengths;
+        this.rawBytes = rawBytes;
+    }
+
+    /**
+     * Compresses {@code values}, whose length must be a multiple of
+     * {@value #BLOCK_SIZE}.
+     */
+    static ColdSegment compress(String[] values, long cacheId) {
+        byte[] dictionary = trainDictionary(values);
+        int blocks = values.length >>> BLOCK_SHIFT;
+        int[] blockOffsets = new int[blocks + 1];
+        int[] rawLengths = new int[blocks];
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length * 16);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_SIZE * 128);
+        byte[] buffer = new byte[BLOCK_SIZE * 256];
+        long rawBytes = 0;
+        Deflater deflater = new Deflater();
+        try {
+            for (int block = 0; block < blocks; block++) {
+                raw.reset();
+                for (int i = block << BLOCK_SHIFT; i < (block + 1) << BLOCK_SHIFT; i++) {
+                    if (values[i] == null) {
+                        raw.write(0);
+                    } else {
+                        byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+                        writeVarInt(raw, bytes.length + 1);
+                        raw.write(bytes, 0, bytes.length);
+                    }
+                }
+                byte[] input = raw.toByteArray();
+                rawLengths[block] = input.length;
+                rawBytes += input.length;
+                deflater.reset();
+                if (dictionary.length > 0) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(input);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+                blockOffsets[block + 1] = out.size();
+            }
+        } finally {
+            deflater.end();
+        }
+        return new ColdSegment(cacheId, dictionary, out.toByteArray(), blockOffsets, rawLengths, rawBytes);
+    }
+
+    /**
+     * Concatenates the most frequent prefixes, weighted by the bytes they
+     * would save, with the most valuable last where deflate finds them with
+     * the shortest distances.
+     */
+    private static byte[] trainDictionary(String[] values) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (String url : values) {
+            if (url != null) {
+                int end = PrefixForwardIndex.prefixEnd(url);
+                if (end > 0) {
+                    counts.computeIfAbsent(url.substring(0, end), k -> new int[1])[0]++;
+                }
+            }
+        }
+        List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.removeIf(e -> e.getValue()[0] < 2);
+        entries.sort((a, b) -> Long.compare((long) b.getValue()[0] * b.getKey().length(),
+                (long) a.getValue()[0] * a.getKey().length()));
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, int[]> entry : entries) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > MAX_DICTIONARY) {
+                break;
+            }
+            chosen.add(bytes);
+            size += bytes.length;
+        }
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (byte[] bytes : chosen) {
+            position -= bytes.length;
+            System.arraycopy(bytes, 0, dictionary, position, bytes.length);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Returns the entry at {@code offset}, or null if absent, inflating its
+     * block unless {@code cache} holds it.
+     */
+    String get(int offset, ClockCache cache, InflaterPool inflaters) {
+        int block = offset >>> BLOCK_SHIFT;
+        long key = cacheId << blockBits | block;
+        byte[] raw = cache.get(key);
+        if (raw == null) {
+            raw = inflate(block, inflaters);
+            cache.put(key, raw);
+        }
+        return entry(raw, offset & (BLOCK_SIZE - 1));
+    }
+
+    /**
+     * Visits the present entries with offsets below {@code limit}.
+     */
+    void forEach(long base, int limit, ForwardIndex.EntryConsumer action, InflaterPool inflaters) {
+        for (int block = 0; block << BLOCK_SHIFT < limit; block++) {
+            byte[] raw = inflate(block, inflaters);
+            int position = 0;
+            for (int i = 0; i < BLOCK_SIZE && (block << BLOCK_SHIFT) + i < limit; i++) {
+                int length = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = raw[position++];
+                    length |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                if (length > 0) {
+                    action.accept(base + (block << BLOCK_SHIFT) + i,
+                            new String(raw, position, length - 1, StandardCharsets.UTF_8));
+                    position += length - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inflates the whole segment back into {@code segmentSize} entries.
+     */
+    String[] expand(int segmentSize, InflaterPool inflaters) {
+        String[] values = new String[segmentSize];
+        forEach(0, segmentSize, (id, url) -> values[(int) id] = url, inflaters);
+        return values;
+    }
+
+    private byte[] inflate(int block, InflaterPool inflaters) {
+        byte[] raw = new byte[rawLengths[block]];
+        Inflater inflater = inflaters.acquire();
+        try {
+            inflater.setInput(data, blockOffsets[block], blockOffsets[block + 1] - blockOffsets[block]);
+            int n = 0;
+            while (n < raw.length) {
+                int read = inflater.inflate(raw, n, raw.length - n);
+                if (read == 0 && inflater.needsDictionary()) {
+                    inflater.setDictionary(dictionary);
+                } else if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated cold block " + block);
+                }
+                n += read;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt cold block " + block, e);
+        } finally {
+            inflaters.release(inflater);
+        }
+    }
+
+    private static String entry(byte[] raw, int index) {
+        int position = 0;
+        for (int i = 0; ; i++) {
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = raw[position++];
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (i == index) {
+                return length == 0 ? null : new String(raw, position, length - 1, StandardCharsets.UTF_8);
+            }
+            position += Math.max(0, length - 1);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while (value >= 0x80) {
+            out.write(value | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** UTF-8 bytes of the entries, as stored before compression. */
+    long rawBytes() {
+        return rawBytes;
+    }
+
+    /** Bytes of compressed blocks and the dictionary. */
+    long compressedBytes() {
+        return (long) data.length + dictionary.length + 8L * blockOffsets.length;
+    }
+
+    /**
+     * Reuses {@link Inflater}s, whose native state is too costly to create
+     * per lookup, without tying them to threads.
+     */
+    static final class InflaterPool {
+        private final ConcurrentLinkedQueue<Inflater> pool = new ConcurrentLinkedQueue<>();
+
+        Inflater acquire() {
+            Inflater inflater = pool.poll();
+            return inflater != null ? inflater : new Inflater();
+        }
+
+        void release(Inflater inflater) {
+            inflater.reset();
+            pool.offer(inflater);
+        }
+    }
+}
@@ -9,9 +9,27 @@ import java.util.concurrent.ConcurrentHashMap;
  * worst-case performance may degrade with malicious inputs; however, this map
  * is only used on the shorten path, so it does not affect resolve-time
  * guarantees.
+ * <p>
+ * New URLs are inserted with {@code computeIfAbsent}, so the allocator runs
+ * under the map's {@code synchronized} bin lock. The service journals new
+ * mappings before calling in, leaving the allocator only the forward-index
+ * put; that blocks, pinning a virtual thread to its carrier, only when it
+ * maps a new file segment.
  */
 public class ConcurrentReverseIndex implements ReverseIndex {
-    private final ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> map;
+
+    public ConcurrentReverseIndex() {
+        this(16);
+    }
+
+    /**
+     * Creates an index sized for {@code expectedSize} URLs, avoiding repeated
+     * resizing when it is bulk loaded.
+     */
+    public ConcurrentReverseIndex(int expectedSize) {
+        this.map = new ConcurrentHashMap<>(expectedSize);
+    }
 
     @Override
     public Optional<Long> getId(String normalizedUrl) {
@@ -19,8 +37,33 @@ public class ConcurrentReverseIndex implements ReverseIndex {
         return Optional.ofNullable(id);
     }
 
+    @Override
+    public long tryGetId(String normalizedUrl) {
+        Long id = map.get(normalizedUrl);
+        return id == null ? NO_ID : id;
+    }
+
+    @Override
+    public long size() {
+        return map.mappingCount();
+    }
+
     @Override
     public long putIfAbsent(String normalizedUrl, long id) {
-        return map.computeIfAbsent(normalizedUrl, k -> id);
+        Long existing = map.putIfAbsent(normalizedUrl, id);
+        return existing == null ? id : existing;
+    }
+
+    @Override
+    public boolean remove(String normalizedUrl, long id) {
+        return map.remove(normalizedUrl, id);
+    }
+
+    @Override
+    public long getOrAllocate(String normalizedUrl, IdAllocator allocator) {
+        // computeIfAbsent runs the allocator at most once per key, under the bin lock
+        long[] allocated = {NO_ID};
+        Long id = map.computeIfAbsent(normalizedUrl, k -> allocated[0] = allocator.allocate(k));
+        return allocated[0] == NO_ID ? id : -(allocated[0] + 1);
     }
-}
\ No newline at end of file
+}
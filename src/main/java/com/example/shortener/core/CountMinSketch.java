@@ -0,0 +1,77 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Count-Min sketch of {@code long} keys: four rows of {@code width} counters,
+ * each row indexed by its own hash of the key. An estimate is the minimum of
+ * the key's four counters, so it never undercounts except through the lost
+ * updates of concurrent relaxed writes, and overcounts by at most
+ * {@code e * total / width} with probability {@code 1 - e^-4}.
+ * <p>
+ * Updates are relaxed like those of {@link ClickCounters}.
+ */
+final class CountMinSketch {
+
+    private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final long[] cells;
+    private final int width;
+    private final int mask;
+
+    /**
+     * @param width counters per row, a power of two
+     */
+    CountMinSketch(int width) {
+        if (width <= 0 || Integer.bitCount(width) != 1 || width > 1 << 26) {
+            throw new IllegalArgumentException("width must be a power of two up to 2^26");
+        }
+        this.width = width;
+        this.mask = width - 1;
+        this.cells = new long[DEPTH * width];
+    }
+
+    void add(long key, long weight) {
+        for (int row = 0; row < DEPTH; row++) {
+            int i = row * width + index(key, row);
+            CELL.setOpaque(cells, i, (long) CELL.getOpaque(cells, i) + weight);
+        }
+    }
+
+    long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, (long) CELL.getOpaque(cells, row * width + index(key, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves every counter, so older counts weigh half as much as newer ones.
+     */
+    void halve() {
+        for (int i = 0; i < cells.length; i++) {
+            CELL.setOpaque(cells, i, (long) CELL.getOpaque(cells, i) >>> 1);
+        }
+    }
+
+    long retainedBytes() {
+        return 16 + 8L * cells.length;
+    }
+
+    private int index(long key, int row) {
+        // MurmurHash3 finalizer of the seeded key
+        long h = key ^ SEEDS[row];
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -8,11 +8,50 @@ import java.util.Set;
 
 /**
  * Default validator for URLs. Ensures that the URL is non-null, non-empty,
- * under a configurable maximum length and uses an allowed scheme.
+ * under a configurable maximum length, uses an allowed scheme and is
+ * syntactically valid.
+ * <p>
+ * URLs are checked in a single pass over the string against the character
+ * classes of RFC 2396, accepting and rejecting exactly what
+ * {@link URI#URI(String)} does (see {@link UriUrlValidator}) without building
+ * a {@code URI}. Like {@code URI}, it allows escaped octets and visible
+ * non-ASCII characters, opaque URLs such as {@code http:foo} and an empty
+ * authority before a path. Authorities holding an IPv6 literal are rare and
+ * have intricate syntax, so those URLs are handed to {@code URI}. Rejections
+ * carry no stack trace, keeping floods of bad input cheap.
  */
 public class DefaultUrlValidator implements UrlValidator {
+
+    private static final int SCHEME = 1;
+    /** Registry-based authority. */
+    private static final int REG_NAME = 2;
+    private static final int PATH = 4;
+    /** Opaque part, query and fragment. */
+    private static final int URIC = 8;
+    private static final int HEX = 16;
+
+    /** Character classes of the ASCII characters. */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        String alphanum = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        String unreserved = alphanum + "-_.!~*'()";
+        addClass(SCHEME, alphanum + "+-.");
+        addClass(REG_NAME, unreserved + "$,;:@&=+");
+        addClass(PATH, unreserved + ":@&=+$,;/");
+        addClass(URIC, unreserved + ";/?:@&=+$,[]");
+        addClass(HEX, "0123456789ABCDEFabcdef");
+    }
+
+    private static void addClass(int cls, String chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] |= cls;
+        }
+    }
+
     private final int maxLength;
-    private final Set<String> allowedSchemes;
+    private final String[] allowedSchemes;
+    private final String tooLongMessage;
 
     /**
      * Creates a new validator.
@@ -22,26 +61,168 @@ public class DefaultUrlValidator implements UrlValidator {
      */
     public DefaultUrlValidator(int maxLength, Set<String> allowedSchemes) {
         this.maxLength = maxLength;
-        this.allowedSchemes = allowedSchemes;
+        this.allowedSchemes = allowedSchemes.toArray(new String[0]);
+        this.tooLongMessage = "URL exceeds maximum length of " + maxLength;
     }
 
     @Override
     public void validate(String url) throws InvalidUrlException {
         if (url == null || url.isBlank()) {
-            throw new InvalidUrlException("URL must be non-empty");
+            throw InvalidUrlException.withoutStackTrace("URL must be non-empty");
+        }
+        int n = url.length();
+        if (n > maxLength) {
+            throw InvalidUrlException.withoutStackTrace(tooLongMessage);
+        }
+        // The scheme ends at the first ':', unless '/', '?' or '#' comes first
+        int colon = 0;
+        while (colon < n) {
+            char c = url.charAt(colon);
+            if (c == ':') {
+                break;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                colon = n;
+                break;
+            }
+            colon++;
+        }
+        if (colon == n) {
+            throw InvalidUrlException.withoutStackTrace("Unsupported URL scheme: null");
+        }
+        if (colon == 0 || !isAlpha(url.charAt(0)) || scan(url, 1, colon, SCHEME) < colon) {
+            throw InvalidUrlException.withoutStackTrace("Malformed URL");
+        }
+        if (!isAllowedScheme(url, colon)) {
+            throw InvalidUrlException.withoutStackTrace("Unsupported URL scheme: " + url.substring(0, colon));
+        }
+        if (!isValidSchemeSpecificPart(url, colon + 1, n)) {
+            throw InvalidUrlException.withoutStackTrace("Malformed URL");
+        }
+    }
+
+    private boolean isAllowedScheme(String url, int length) {
+        for (String scheme : allowedSchemes) {
+            if (scheme.length() == length && matchesLowercase(url, scheme)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesLowercase(String url, String scheme) {
+        for (int i = 0; i < scheme.length(); i++) {
+            char c = url.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != scheme.charAt(i)) {
+                return false;
+            }
         }
-        if (url.length() > maxLength) {
-            throw new InvalidUrlException("URL exceeds maximum length of " + maxLength);
+        return true;
+    }
+
+    /**
+     * Checks everything after the scheme's colon: a hierarchical part
+     * ({@code //authority}, path and query) or an opaque part, then an
+     * optional fragment.
+     */
+    private static boolean isValidSchemeSpecificPart(String url, int start, int n) {
+        int p = start;
+        if (p < n && url.charAt(p) == '/') {
+            if (p + 1 < n && url.charAt(p + 1) == '/') {
+                int authority = p + 2;
+                int end = authority;
+                while (end < n && !isDelimiter(url.charAt(end))) {
+                    end++;
+                }
+                if (end == authority) {
+                    // An empty authority is only allowed before something else
+                    if (end == n) {
+                        return false;
+                    }
+                } else if (!isValidAuthority(url, authority, end)) {
+                    return false;
+                }
+                p = end;
+            }
+            p = scan(url, p, n, PATH);
+            if (p < n && url.charAt(p) == '?') {
+                p = scan(url, p + 1, n, URIC);
+            }
+        } else {
+            int end = scan(url, p, n, URIC);
+            // The opaque part must not be empty
+            if (end == p) {
+                return false;
+            }
+            p = end;
+        }
+        if (p < n && url.charAt(p) == '#') {
+            p = scan(url, p + 1, n, URIC);
+        }
+        return p == n;
+    }
+
+    /**
+     * Without brackets, {@code URI} accepts an authority exactly when it is
+     * a valid registry-based one. Brackets (IPv6 literals) are only valid in
+     * a server-based authority, which is left to {@code URI} to parse.
+     */
+    private static boolean isValidAuthority(String url, int start, int end) {
+        int p = scan(url, start, end, REG_NAME);
+        if (p == end) {
+            return true;
         }
-        URI uri;
-        try {
-            uri = new URI(url);
-        } catch (URISyntaxException e) {
-            throw new InvalidUrlException("Malformed URL", e);
+        char c = url.charAt(p);
+        if (c == '[' || c == ']') {
+            try {
+                new URI(url);
+                return true;
+            } catch (URISyntaxException | NumberFormatException e) {
+                return false;
+            }
         }
-        String scheme = uri.getScheme();
-        if (scheme == null || !allowedSchemes.contains(scheme.toLowerCase())) {
-            throw new InvalidUrlException("Unsupported URL scheme: " + scheme);
+        return false;
+    }
+
+    /**
+     * Returns the index of the first character in {@code [start, end)} that
+     * is neither in {@code cls}, an escaped octet nor a visible non-ASCII
+     * character, or {@code end}. Scheme names allow neither of the latter.
+     */
+    private static int scan(String url, int start, int end, int cls) {
+        int p = start;
+        while (p < end) {
+            char c = url.charAt(p);
+            if (c < 128) {
+                if ((CLASSES[c] & cls) != 0) {
+                    p++;
+                } else if (c == '%' && cls != SCHEME && p + 2 < end
+                        && isHex(url.charAt(p + 1)) && isHex(url.charAt(p + 2))) {
+                    p += 3;
+                } else {
+                    break;
+                }
+            } else if (cls != SCHEME && c > 128 && !Character.isSpaceChar(c) && !Character.isISOControl(c)) {
+                p++;
+            } else {
+                break;
+            }
         }
+        return p;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isHex(char c) {
+        return c < 128 && (CLASSES[c] & HEX) != 0;
     }
-}
\ No newline at end of file
+}
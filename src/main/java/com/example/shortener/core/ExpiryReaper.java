@@ -0,0 +1,54 @@
+package com.example.shortener.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link MappingExpirer#expire(long)} once per tick on a single daemon
+ * thread. A failed pass is logged and the next one runs as scheduled.
+ */
+public class ExpiryReaper implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiryReaper.class);
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param expirer the expirer to run
+     * @param intervalMillis interval between passes, normally the expirer's
+     *                       tick
+     */
+    public ExpiryReaper(MappingExpirer expirer, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "expiry-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> expire(expirer), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a scheduled pass; an exception escaping it would cancel all later
+     * passes.
+     */
+    private static void expire(MappingExpirer expirer) {
+        try {
+            expirer.expire(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.error("Expiry pass failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link ReverseIndex} backed by open-addressing tables of primitive longs.
+ * Each slot holds a 64-bit fingerprint of the URL and its ID; the URL itself
+ * is not stored; a fingerprint match is confirmed by comparing against
+ * {@link ForwardIndex#get(long)}, so the forward index must hold a mapping
+ * before it is added here. Fingerprint collisions therefore only cost an
+ * extra probe, never a wrong answer.
+ * <p>
+ * The index is split into 64 shards by the top fingerprint bits. Lookups are
+ * lock-free; inserts take the shard's lock. When a shard's table passes 75%
+ * load it allocates a table twice the size and moves the old entries over a
+ * few slots per subsequent insert, so there is no stop-the-world rehash;
+ * until the move completes lookups probe both tables.
+ * <p>
+ * Removed entries leave a tombstone that lookups probe past; tombstones
+ * count towards the load factor and are dropped when the table is rebuilt.
+ * <p>
+ * Fingerprints are seeded per instance, so probe sequences cannot be
+ * predicted from outside the process.
+ */
+public class FingerprintReverseIndex implements ReverseIndex {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int SHARD_BITS = 6;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 29;
+    /** Old-table slots moved to the new table per insert while growing. */
+    private static final int MIGRATION_STEP = 16;
+    /** Fingerprint value marking an empty slot. */
+    private static final long EMPTY = 0L;
+    /** Fingerprint value marking a removed entry. */
+    private static final long TOMBSTONE = 1L;
+
+    private final ForwardIndex forwardIndex;
+    private final ToLongFunction<String> fingerprinter;
+    private final Shard[] shards;
+
+    public FingerprintReverseIndex(ForwardIndex forwardIndex) {
+        this(forwardIndex, 0);
+    }
+
+    /**
+     * Creates an index sized for {@code expectedSize} URLs, avoiding growth
+     * when it is bulk loaded.
+     */
+    public FingerprintReverseIndex(ForwardIndex forwardIndex, int expectedSize) {
+        this(forwardIndex, expectedSize, seededFingerprint(ThreadLocalRandom.current().nextLong()));
+    }
+
+    FingerprintReverseIndex(ForwardIndex forwardIndex, int expectedSize, ToLongFunction<String> fingerprinter) {
+        this.forwardIndex = forwardIndex;
+        this.fingerprinter = fingerprinter;
+        this.shards = new Shard[1 << SHARD_BITS];
+        long perShard = ((long) Math.max(expectedSize, 0) >>> SHARD_BITS) * 4 / 3 + 1;
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, Long.highestOneBit(perShard - 1) << 1));
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(capacity);
+        }
+    }
+
+    @Override
+    public Optional<Long> getId(String normalizedUrl) {
+        long id = tryGetId(normalizedUrl);
+        return id == NO_ID ? Optional.empty() : Optional.of(id);
+    }
+
+    @Override
+    public long tryGetId(String normalizedUrl) {
+        long fingerprint = fingerprint(normalizedUrl);
+        return lookup(shard(fingerprint), fingerprint, normalizedUrl);
+    }
+
+    @Override
+    public long putIfAbsent(String normalizedUrl, long id) {
+        long fingerprint = fingerprint(normalizedUrl);
+        Shard shard = shard(fingerprint);
+        shard.lock.lock();
+        try {
+            long existing = lookup(shard, fingerprint, normalizedUrl);
+            if (existing != NO_ID) {
+                return existing;
+            }
+            shard.insert(fingerprint, id);
+            return id;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String normalizedUrl, long id) {
+        long fingerprint = fingerprint(normalizedUrl);
+        Shard shard = shard(fingerprint);
+        shard.lock.lock();
+        try {
+            // The ID is unique to its URL, so it identifies the slot without confirming the URL
+            boolean removed = shard.current.remove(fingerprint, id);
+            // Pairs already moved are still in the previous table, which lookups also probe
+            Table previous = shard.previous;
+            if (previous != null && previous.remove(fingerprint, id)) {
+                removed = true;
+            }
+            if (removed) {
+                shard.size = shard.size - 1;
+                shard.tombstones++;
+            }
+            return removed;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public long getOrAllocate(String normalizedUrl, IdAllocator allocator) {
+        long fingerprint = fingerprint(normalizedUrl);
+        Shard shard = shard(fingerprint);
+        // Lock-free fast path for URLs that are already indexed
+        long existing = lookup(shard, fingerprint, normalizedUrl);
+        if (existing != NO_ID) {
+            return existing;
+        }
+        shard.lock.lock();
+        try {
+            existing = lookup(shard, fingerprint, normalizedUrl);
+            if (existing != NO_ID) {
+                return existing;
+            }
+            // The forward index holds the mapping before the fingerprint is published
+            long id = allocator.allocate(normalizedUrl);
+            shard.insert(fingerprint, id);
+            return -(id + 1);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    private long fingerprint(String url) {
+        long fingerprint = fingerprinter.applyAsLong(url);
+        return fingerprint == EMPTY || fingerprint == TOMBSTONE ? 2L : fingerprint;
+    }
+
+    private Shard shard(long fingerprint) {
+        return shards[(int) (fingerprint >>> (64 - SHARD_BITS))];
+    }
+
+    private long lookup(Shard shard, long fingerprint, String url) {
+        // Read current before previous: a grower publishes previous first
+        Table current = shard.current;
+        Table previous = shard.previous;
+        long id = find(current, fingerprint, url);
+        if (id == NO_ID && previous != null) {
+            id = find(previous, fingerprint, url);
+        }
+        return id;
+    }
+
+    private long find(Table table, long fingerprint, String url) {
+        long[] slots = table.slots;
+        int mask = table.mask;
+        for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+            long stored = (long) SLOT.getAcquire(slots, i << 1);
+            if (stored == EMPTY) {
+                return NO_ID;
+            }
+            if (stored == fingerprint) {
+                long id = slots[(i << 1) + 1];
+                Optional<String> candidate = forwardIndex.get(id);
+                if (candidate.isPresent() && candidate.get().equals(url)) {
+                    return id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Interleaved {@code (fingerprint, id)} pairs so a probe touches one
+     * cache line per four slots.
+     */
+    private static final class Table {
+        final long[] slots;
+        final int mask;
+
+        Table(int capacity) {
+            this.slots = new long[capacity << 1];
+            this.mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        /**
+         * Stores a pair in the first free slot. The ID is written before the
+         * fingerprint is released, so a reader that sees the fingerprint also
+         * sees the ID.
+         */
+        void insert(long fingerprint, long id) {
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                if (slots[i << 1] == EMPTY) {
+                    slots[(i << 1) + 1] = id;
+                    SLOT.setRelease(slots, i << 1, fingerprint);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Replaces the pair's fingerprint by a tombstone, keeping the probe
+         * sequences of later pairs intact.
+         */
+        boolean remove(long fingerprint, long id) {
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long stored = slots[i << 1];
+                if (stored == EMPTY) {
+                    return false;
+                }
+                if (stored == fingerprint && slots[(i << 1) + 1] == id) {
+                    SLOT.setRelease(slots, i << 1, TOMBSTONE);
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Table current;
+        /** Table being drained into {@link #current}, or null. */
+        volatile Table previous;
+        /** Number of slots of {@link #previous} already moved; guarded by lock. */
+        int migrated;
+        /** Entries in the shard; written under lock. */
+        volatile int size;
+        /** Tombstones in {@link #current} and {@link #previous}; guarded by lock. */
+        int tombstones;
+
+        Shard(int capacity) {
+            this.current = new Table(capacity);
+        }
+
+        void insert(long fingerprint, long id) {
+            if (previous != null) {
+                migrate(MIGRATION_STEP);
+            }
+            if (size + tombstones + 1 > current.capacity() / 4 * 3) {
+                grow();
+            }
+            current.insert(fingerprint, id);
+            size = size + 1;
+        }
+
+        private void grow() {
+            if (previous != null) {
+                migrate(Integer.MAX_VALUE);
+            }
+            Table old = current;
+            // Mostly tombstones: rebuild at the same size rather than doubling
+            int capacity = size + 1 > old.capacity() / 8 * 3 ? old.capacity() << 1 : old.capacity();
+            if (capacity > MAX_CAPACITY) {
+                throw new IllegalStateException("Reverse index shard is full");
+            }
+            migrated = 0;
+            tombstones = 0;
+            previous = old;
+            current = new Table(capacity);
+        }
+
+        private void migrate(int slots) {
+            Table old = previous;
+            long[] oldSlots = old.slots;
+            int end = (int) Math.min(old.capacity(), (long) migrated + slots);
+            for (int i = migrated; i < end; i++) {
+                long fingerprint = oldSlots[i << 1];
+                if (fingerprint != EMPTY && fingerprint != TOMBSTONE) {
+                    current.insert(fingerprint, oldSlots[(i << 1) + 1]);
+                }
+            }
+            migrated = end;
+            if (end == old.capacity()) {
+                previous = null;
+            }
+        }
+    }
+
+    /**
+     * Returns a 64-bit fingerprint function mixing four UTF-16 chars per step
+     * and finishing with the MurmurHash3 64-bit finalizer.
+     */
+    static ToLongFunction<String> seededFingerprint(long seed) {
+        return s -> {
+            int length = s.length();
+            long h = seed ^ (length * 0x9E3779B97F4A7C15L);
+            int i = 0;
+            for (; i + 4 <= length; i += 4) {
+                long block = s.charAt(i)
+                        | (long) s.charAt(i + 1) << 16
+                        | (long) s.charAt(i + 2) << 32
+                        | (long) s.charAt(i + 3) << 48;
+                h = Long.rotateLeft(h ^ block * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+            }
+            for (; i < length; i++) {
+                h = (h ^ s.charAt(i)) * 0x100000001B3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        };
+    }
+}
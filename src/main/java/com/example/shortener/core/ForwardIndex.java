@@ -5,8 +5,9 @@ import java.util.Optional;
 /**
  * Forward mapping from an ID to a URL. Implementations must ensure that
  * {@link #get(long)} operates in constant time regardless of the number of
- * entries stored. A {@link ForwardIndex} is append-only; entries are never
- * removed.
+ * entries stored. A {@link ForwardIndex} is append-only; entries are only
+ * removed when they expire, by implementations supporting
+ * {@link #remove(long)}.
  */
 public interface ForwardIndex {
     /**
@@ -18,6 +19,17 @@ public interface ForwardIndex {
      */
     void put(long id, String url);
 
+    /**
+     * Tombstones the entry at the given ID, so it resolves to nothing. IDs
+     * are never reused, so the slot stays empty unless the ID is put again.
+     *
+     * @param id the 48-bit ID
+     * @throws UnsupportedOperationException if the index is append-only
+     */
+    default void remove(long id) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support removal");
+    }
+
     /**
      * Retrieves the URL for the given ID. If the ID has not been assigned
      * or is beyond the current high watermark, returns {@link Optional#empty()}.
@@ -30,8 +42,45 @@ public interface ForwardIndex {
     /**
      * Returns the highest ID that has been stored so far. This is used to
      * cheaply reject unknown IDs before attempting to read the backing array.
+     * Lower IDs may be absent, e.g. when IDs are leased in blocks.
      *
      * @return the highest allocated ID
      */
     long highWatermark();
+
+    /**
+     * Returns the number of storage segments allocated so far, for
+     * monitoring. Implementations without segments return 0.
+     *
+     * @return the number of allocated segments
+     */
+    default int allocatedSegmentCount() {
+        return 0;
+    }
+
+    /**
+     * Visits every stored entry in ascending ID order. The default
+     * implementation probes each ID up to the current high watermark;
+     * implementations with a cheaper way to enumerate entries should
+     * override it. Entries added concurrently may or may not be visited.
+     *
+     * @param action callback receiving each ID and its URL
+     */
+    default void forEach(EntryConsumer action) {
+        long hw = highWatermark();
+        for (long id = 0; id <= hw; id++) {
+            Optional<String> url = get(id);
+            if (url.isPresent()) {
+                action.accept(id, url.get());
+            }
+        }
+    }
+
+    /**
+     * Callback for {@link #forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long id, String url);
+    }
 }
\ No newline at end of file
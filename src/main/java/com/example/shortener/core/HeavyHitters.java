@@ -0,0 +1,179 @@
+package com.example.shortener.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the most clicked IDs of recent traffic. Every
+ * {@code 2^sampleShift}-th click on average is added to a
+ * {@link CountMinSketch} with that weight, and a space-saving style table
+ * monitors the {@code capacity} IDs with the highest estimates: a newcomer
+ * replaces the monitored minimum once its estimate exceeds it. Sketch and
+ * table are halved every {@code halfLifeMillis}, so estimates follow recent
+ * clicks rather than lifetime totals.
+ * <p>
+ * Unsampled clicks cost one random number. Sampled ones update the sketch;
+ * only those whose estimate beats the table's minimum try its lock, and
+ * skip the update instead of waiting if another thread holds it.
+ */
+public class HeavyHitters {
+
+    private final CountMinSketch sketch;
+    private final int sampleMask;
+    private final long sampleWeight;
+    private final long halfLifeMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final long[] ids;
+    private final long[] estimates;
+    private int size;
+    /** Lowest monitored estimate once the table is full, else 0. */
+    private volatile long floor;
+    private volatile long nextDecay;
+
+    /**
+     * @param capacity number of IDs monitored
+     * @param sketchWidth counters per sketch row, a power of two
+     * @param sampleShift log2 of the sampling interval; 0 samples every click
+     * @param halfLifeMillis interval between halvings, or 0 to never decay
+     * @param nowMillis current time
+     */
+    public HeavyHitters(int capacity, int sketchWidth, int sampleShift, long halfLifeMillis, long nowMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (sampleShift < 0 || sampleShift > 16) {
+            throw new IllegalArgumentException("sampleShift must be between 0 and 16");
+        }
+        this.sketch = new CountMinSketch(sketchWidth);
+        this.sampleMask = (1 << sampleShift) - 1;
+        this.sampleWeight = 1L << sampleShift;
+        this.halfLifeMillis = halfLifeMillis;
+        this.ids = new long[capacity];
+        this.estimates = new long[capacity];
+        this.nextDecay = halfLifeMillis > 0 ? nowMillis + halfLifeMillis : Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts one click of {@code id}.
+     */
+    public void offer(long id) {
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+            return;
+        }
+        sketch.add(id, sampleWeight);
+        long estimate = sketch.estimate(id);
+        boolean decay = nextDecay != Long.MAX_VALUE && System.currentTimeMillis() >= nextDecay;
+        if ((estimate > floor || decay) && lock.tryLock()) {
+            try {
+                // Another thread may have decayed since the check
+                if (decay && System.currentTimeMillis() >= nextDecay) {
+                    decay();
+                    estimate = sketch.estimate(id);
+                }
+                update(id, estimate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void update(long id, long estimate) {
+        int min = -1;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                long previous = estimates[i];
+                estimates[i] = Math.max(previous, estimate);
+                if (previous == floor) {
+                    // Only raising the minimum can move the floor
+                    refreshFloor();
+                }
+                return;
+            }
+            if (min < 0 || estimates[i] < estimates[min]) {
+                min = i;
+            }
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            estimates[size++] = estimate;
+        } else if (estimate > estimates[min]) {
+            ids[min] = id;
+            estimates[min] = estimate;
+        }
+        refreshFloor();
+    }
+
+    private void refreshFloor() {
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            lowest = Math.min(lowest, estimates[i]);
+        }
+        floor = size < ids.length ? 0 : lowest;
+    }
+
+    private void decay() {
+        nextDecay = System.currentTimeMillis() + halfLifeMillis;
+        sketch.halve();
+        for (int i = 0; i < size; i++) {
+            estimates[i] >>>= 1;
+        }
+        refreshFloor();
+    }
+
+    /**
+     * Returns the estimated recent clicks of {@code id}, monitored or not.
+     */
+    public long estimate(long id) {
+        return sketch.estimate(id);
+    }
+
+    /**
+     * Returns up to {@code limit} monitored IDs, highest estimate first.
+     */
+    public List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(size);
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (estimates[i] > 0) {
+                    entries.add(new Entry(ids[i], estimates[i]));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        entries.sort(Comparator.comparingLong(Entry::estimate).reversed().thenComparingLong(Entry::id));
+        return entries.size() > limit ? entries.subList(0, Math.max(limit, 0)) : entries;
+    }
+
+    /** Bytes held by the sketch and the table. */
+    public long retainedBytes() {
+        return sketch.retainedBytes() + 32 + 16L * ids.length;
+    }
+
+    /**
+     * A monitored ID and its estimated recent clicks.
+     */
+    public static final class Entry {
+        private final long id;
+        private final long estimate;
+
+        Entry(long id, long estimate) {
+            this.id = id;
+            this.estimate = estimate;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public long estimate() {
+            return estimate;
+        }
+    }
+}
@@ -9,13 +9,25 @@ import com.example.shortener.errors.CapacityExceededException;
 public interface IdSpace {
     /**
      * Allocates and returns the next 48-bit ID. If the ID space is exhausted,
-     * a {@link CapacityExceededException} must be thrown.
+     * a {@link CapacityExceededException} must be thrown. IDs are never
+     * handed out twice but need not be globally sequential.
      *
-     * @return a monotonic ID in the range [0, 2^48 - 1]
+     * @return a unique ID in the range [0, 2^48 - 1]
      * @throws CapacityExceededException if no IDs remain
      */
     long allocate() throws CapacityExceededException;
 
+    /**
+     * Allocates {@code count} consecutive IDs at once, e.g. for a batch of new
+     * URLs.
+     *
+     * @param count number of IDs to allocate, at least 1
+     * @return the first ID of the block; the block ends at
+     *         {@code first + count - 1}
+     * @throws CapacityExceededException if fewer than {@code count} IDs remain
+     */
+    long allocateBlock(int count) throws CapacityExceededException;
+
     /**
      * Returns the maximum ID that can be allocated from this space.
      */
@@ -26,4 +38,14 @@ public interface IdSpace {
      * may return approximate values.
      */
     long remaining();
+
+    /**
+     * Ensures that every subsequent allocation returns an ID greater than
+     * {@code id}. Used when resuming from persisted state so that IDs that
+     * were handed out before a restart are never reused. Has no effect if the
+     * space has already moved past {@code id}.
+     *
+     * @param id the highest ID known to be in use
+     */
+    void advancePast(long id);
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.example.shortener.core;
+
+import com.example.shortener.errors.CapacityExceededException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ID space that leases contiguous blocks of IDs to shards and hands IDs out
+ * from the shard's current block. Threads are mapped to shards by thread ID,
+ * so with at least as many shards as busy threads each allocation is an
+ * uncontended CAS on a cache line owned by that shard; the shared block
+ * counter is only touched once per {@code blockSize} IDs.
+ * <p>
+ * IDs are unique and increase within a shard, but are no longer globally
+ * sequential: several blocks are partly used at any time, so the forward
+ * index has gaps below its high watermark until those blocks fill up. IDs in
+ * blocks that are still leased when the process stops are never handed out.
+ */
+public class LeasingIdSpace implements IdSpace {
+    private static final long MAX_ID = (1L << 48) - 1;
+
+    private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(long[].class);
+    /** 16 longs = 128 bytes per shard, keeping shards on separate cache lines. */
+    private static final int STRIDE = 16;
+    private static final int NEXT = 0;
+    private static final int END = 1;
+
+    private final int blockSize;
+    private final int shardMask;
+    /** Start of the next block to lease. */
+    private final AtomicLong blocks = new AtomicLong(0L);
+    /**
+     * Per shard, {@code [NEXT]} is the next ID of its block and {@code [END]}
+     * the exclusive end; the block is used up when they are equal. Only the
+     * shard's lock holder replaces a block, writing NEXT before END.
+     */
+    private final long[] cells;
+    private final ReentrantLock[] locks;
+
+    public LeasingIdSpace(int blockSize) {
+        this(blockSize, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param blockSize number of IDs leased to a shard at a time
+     * @param shards number of shards, rounded up to a power of two
+     */
+    public LeasingIdSpace(int blockSize, int shards) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        if (shards <= 0 || shards > 1 << 16) {
+            throw new IllegalArgumentException("shards must be between 1 and 65536");
+        }
+        int shardCount = Integer.highestOneBit(shards - 1) << 1;
+        shardCount = Math.max(shardCount, 1);
+        this.blockSize = blockSize;
+        this.shardMask = shardCount - 1;
+        this.cells = new long[shardCount * STRIDE];
+        this.locks = new ReentrantLock[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public long allocate() throws CapacityExceededException {
+        int shard = (int) Thread.currentThread().getId() & shardMask;
+        int base = shard * STRIDE;
+        for (;;) {
+            // Read NEXT before END; see lease() for why this is safe
+            long next = (long) CELL.getVolatile(cells, base + NEXT);
+            long end = (long) CELL.getVolatile(cells, base + END);
+            if (next < end) {
+                if (CELL.compareAndSet(cells, base + NEXT, next, next + 1)) {
+                    return next;
+                }
+            } else {
+                long id = lease(shard, base);
+                if (id >= 0) {
+                    return id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the shard's used-up block and returns its first ID, or -1 if
+     * another thread already replaced it. NEXT is written before END: a
+     * thread that reads the old NEXT and the new END fails its CAS because
+     * NEXT has moved, and one that reads the new NEXT with the old END sees
+     * an empty block and comes here.
+     */
+    private long lease(int shard, int base) {
+        ReentrantLock lock = locks[shard];
+        lock.lock();
+        try {
+            if ((long) CELL.getVolatile(cells, base + NEXT) < (long) CELL.getVolatile(cells, base + END)) {
+                return -1;
+            }
+            long start = blocks.getAndAdd(blockSize);
+            if (start > MAX_ID) {
+                throw new CapacityExceededException("ID space exhausted");
+            }
+            long end = Math.min(start + blockSize, MAX_ID + 1);
+            CELL.setVolatile(cells, base + NEXT, start + 1);
+            CELL.setVolatile(cells, base + END, end);
+            return start;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the block straight from the shared counter, bypassing the shards.
+     */
+    @Override
+    public long allocateBlock(int count) throws CapacityExceededException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        long first = blocks.getAndAdd(count);
+        if (first + count - 1 > MAX_ID) {
+            throw new CapacityExceededException("ID space exhausted");
+        }
+        return first;
+    }
+
+    @Override
+    public long maxId() {
+        return MAX_ID;
+    }
+
+    /**
+     * Counts never-leased IDs plus the unused rest of every leased block.
+     */
+    @Override
+    public long remaining() {
+        long remaining = Math.max(0, MAX_ID + 1 - blocks.get());
+        for (int shard = 0; shard <= shardMask; shard++) {
+            int base = shard * STRIDE;
+            long next = (long) CELL.getVolatile(cells, base + NEXT);
+            long end = (long) CELL.getVolatile(cells, base + END);
+            remaining += Math.max(0, end - next);
+        }
+        return remaining;
+    }
+
+    @Override
+    public void advancePast(long id) {
+        blocks.accumulateAndGet(id + 1, Math::max);
+        for (int shard = 0; shard <= shardMask; shard++) {
+            int base = shard * STRIDE;
+            locks[shard].lock();
+            try {
+                long next;
+                long end = (long) CELL.getVolatile(cells, base + END);
+                // Skip the part of the current block at or below id
+                while ((next = (long) CELL.getVolatile(cells, base + NEXT)) <= id && next < end) {
+                    CELL.compareAndSet(cells, base + NEXT, next, Math.min(id + 1, end));
+                }
+            } finally {
+                locks[shard].unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of IDs leased per block.
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+}
@@ -0,0 +1,677 @@
+package com.example.shortener.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link ReverseIndex} for URL sets larger than the heap, structured as a
+ * log-structured merge tree. New URLs go to an in-memory memtable; once it
+ * holds {@code memtableEntries} URLs it is frozen and a background thread
+ * writes it to a {@link SortedRun} file, whose Bloom filter and block index
+ * are all that stay on the heap (about 3 bytes per URL at 12 bits per key).
+ * Lookups check the memtables, then the runs from newest to oldest; since
+ * the Bloom filters reject almost every run that lacks a URL, looking up a
+ * new URL usually reads nothing from disk.
+ * <p>
+ * Runs are compacted size-tiered on a second thread, so flushes never wait
+ * for a merge: whenever {@code fanout} adjacent runs of the same tier have
+ * accumulated, they are merged into one run of the next tier, so each entry
+ * is rewritten about {@code log_fanout(size / memtableEntries)} times and
+ * about {@code fanout - 1} runs exist per tier. Runs flushed during a long
+ * merge wait for the next one. Removed URLs are kept as tombstones until a
+ * merge reaches the oldest run.
+ * <p>
+ * Only the shorten path uses the reverse index, so it can afford the
+ * occasional block read. Inserts of a URL are serialized by striped locks,
+ * like {@link ConcurrentReverseIndex}. Writers block only if the memtable
+ * reaches twice its size while the previous one is still being written.
+ * <p>
+ * If a run cannot be written, the frozen memtable is merged back into the
+ * memtable, so no URL is lost and blocked writers resume. Until a flush
+ * succeeds again, new URLs are then refused with an
+ * {@link UncheckedIOException} once the memtables hold twice their size,
+ * rather than growing the heap without bound; each refusal retries the
+ * flush unless one is pending.
+ * <p>
+ * The runs are not reopened after a restart: the index is rebuilt from the
+ * forward index like every other reverse index, so files left in the
+ * directory are deleted on construction.
+ */
+public class LsmReverseIndex implements ReverseIndex, Closeable {
+
+    /** Stored for a removed URL, shadowing older entries. */
+    static final long TOMBSTONE = -2L;
+
+    private static final int STRIPES = 64;
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".lsm";
+
+    private final Path directory;
+    private final int memtableEntries;
+    private final int bloomBitsPerKey;
+    private final int fanout;
+    private final Lock[] stripes = new Lock[STRIPES];
+    /** Held shared by inserts and exclusively while the memtable is frozen. */
+    private final ReentrantReadWriteLock freezeLock = new ReentrantReadWriteLock();
+    /** Serializes state changes; {@link #flushed} is signalled when a frozen memtable is written. */
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition flushed = stateLock.newCondition();
+    private final ExecutorService flusher;
+    private final ExecutorService compactor;
+    private volatile State state = new State(new ConcurrentHashMap<>(), null, List.of());
+    /** Why the last flush failed, or null once one succeeds. */
+    private volatile IOException flushFailure;
+
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder blockReads = new LongAdder();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private final AtomicLong compactedBytes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong nextRun = new AtomicLong();
+
+    /**
+     * Immutable snapshot of the tree; replaced as a whole.
+     */
+    private static final class State {
+        final ConcurrentHashMap<String, Long> memtable;
+        /** Frozen memtable being written to a run, or null. */
+        final Map<String, Long> frozen;
+        /** Newest first. */
+        final List<SortedRun> runs;
+
+        State(ConcurrentHashMap<String, Long> memtable, Map<String, Long> frozen, List<SortedRun> runs) {
+            this.memtable = memtable;
+            this.frozen = frozen;
+            this.runs = runs;
+        }
+    }
+
+    public LsmReverseIndex(Path directory) {
+        this(directory, 1 << 20, 12, 4);
+    }
+
+    /**
+     * @param directory directory for run files; existing runs are deleted
+     * @param memtableEntries URLs in the memtable before it is written out
+     * @param bloomBitsPerKey Bloom filter bits per URL, between 1 and 32
+     * @param fanout runs of one tier merged together, at least 2
+     * @throws UncheckedIOException if the directory cannot be prepared
+     */
+    public LsmReverseIndex(Path directory, int memtableEntries, int bloomBitsPerKey, int fanout) {
+        if (memtableEntries <= 0) {
+            throw new IllegalArgumentException("memtableEntries must be positive");
+        }
+        if (bloomBitsPerKey < 1 || bloomBitsPerKey > 32) {
+            throw new IllegalArgumentException("bloomBitsPerKey must be between 1 and 32");
+        }
+        if (fanout < 2) {
+            throw new IllegalArgumentException("fanout must be at least 2");
+        }
+        this.directory = directory;
+        this.memtableEntries = memtableEntries;
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        this.fanout = fanout;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, RUN_PREFIX + "*" + RUN_SUFFIX)) {
+                for (Path file : stale) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare reverse index directory " + directory, e);
+        }
+        this.flusher = daemonExecutor("reverse-index-flusher");
+        this.compactor = daemonExecutor("reverse-index-compactor");
+    }
+
+    private static ExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Optional<Long> getId(String normalizedUrl) {
+        long id = tryGetId(normalizedUrl);
+        return id == NO_ID ? Optional.empty() : Optional.of(id);
+    }
+
+    @Override
+    public long tryGetId(String normalizedUrl) {
+        long id = find(normalizedUrl);
+        return id == TOMBSTONE ? NO_ID : id;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public long putIfAbsent(String normalizedUrl, long id) {
+        checkWritable();
+        Lock lock = stripeOf(normalizedUrl);
+        lock.lock();
+        freezeLock.readLock().lock();
+        try {
+            long existing = tryGetId(normalizedUrl);
+            if (existing != NO_ID) {
+                return existing;
+            }
+            state.memtable.put(normalizedUrl, id);
+            size.incrementAndGet();
+        } finally {
+            freezeLock.readLock().unlock();
+            lock.unlock();
+        }
+        maybeFreeze();
+        return id;
+    }
+
+    @Override
+    public boolean remove(String normalizedUrl, long id) {
+        Lock lock = stripeOf(normalizedUrl);
+        lock.lock();
+        freezeLock.readLock().lock();
+        try {
+            if (tryGetId(normalizedUrl) != id) {
+                return false;
+            }
+            state.memtable.put(normalizedUrl, TOMBSTONE);
+            size.decrementAndGet();
+        } finally {
+            freezeLock.readLock().unlock();
+            lock.unlock();
+        }
+        maybeFreeze();
+        return true;
+    }
+
+    @Override
+    public long getOrAllocate(String normalizedUrl, IdAllocator allocator) {
+        long id = tryGetId(normalizedUrl);
+        if (id != NO_ID) {
+            return id;
+        }
+        checkWritable();
+        // Inserts of a URL are serialized by its stripe, so the allocator runs at most once per URL
+        Lock lock = stripeOf(normalizedUrl);
+        long allocated;
+        lock.lock();
+        freezeLock.readLock().lock();
+        try {
+            id = tryGetId(normalizedUrl);
+            if (id != NO_ID) {
+                return id;
+            }
+            allocated = allocator.allocate(normalizedUrl);
+            state.memtable.put(normalizedUrl, allocated);
+            size.incrementAndGet();
+        } finally {
+            freezeLock.readLock().unlock();
+            lock.unlock();
+        }
+        maybeFreeze();
+        return -(allocated + 1);
+    }
+
+    /**
+     * Returns the stored ID, {@link #TOMBSTONE} or {@link #NO_ID}.
+     */
+    private long find(String normalizedUrl) {
+        for (;;) {
+            State local = state;
+            Long id = local.memtable.get(normalizedUrl);
+            if (id == null && local.frozen != null) {
+                id = local.frozen.get(normalizedUrl);
+            }
+            if (id != null) {
+                return id;
+            }
+            if (local.runs.isEmpty()) {
+                return NO_ID;
+            }
+            byte[] key = normalizedUrl.getBytes(StandardCharsets.UTF_8);
+            long hash = BloomFilter.hash(key);
+            try {
+                for (SortedRun run : local.runs) {
+                    long found = run.get(key, hash);
+                    if (found != NO_ID) {
+                        return found;
+                    }
+                }
+                return NO_ID;
+            } catch (SortedRun.RetiredException e) {
+                // A compaction replaced a run; its entries are in the current state
+            }
+        }
+    }
+
+    /**
+     * Freezes a full memtable and hands it to the flusher. If the previous
+     * one is still being written, the memtable keeps growing until twice its
+     * size, then writers wait.
+     */
+    private void maybeFreeze() {
+        if (state.memtable.mappingCount() < memtableEntries) {
+            return;
+        }
+        stateLock.lock();
+        try {
+            while (state.frozen != null) {
+                if (state.memtable.mappingCount() < 2L * memtableEntries) {
+                    return;
+                }
+                flushed.await();
+            }
+            if (state.memtable.mappingCount() >= memtableEntries) {
+                freeze();
+                flusher.execute(this::flushFrozen);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Refuses a new URL while flushes fail and the memtables hold twice
+     * their size, retrying the flush unless one is pending. Must not hold
+     * {@link #freezeLock}.
+     */
+    private void checkWritable() {
+        if (flushFailure == null) {
+            return;
+        }
+        stateLock.lock();
+        try {
+            IOException failure = flushFailure;
+            State local = state;
+            long pending = local.memtable.mappingCount() + (local.frozen == null ? 0 : local.frozen.size());
+            if (failure == null || pending < 2L * memtableEntries) {
+                return;
+            }
+            if (local.frozen == null) {
+                freeze();
+                flusher.execute(this::flushFrozen);
+            }
+            throw new UncheckedIOException("Reverse index cannot write runs", failure);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /** Must hold stateLock, and no frozen memtable may be pending. */
+    private void freeze() {
+        freezeLock.writeLock().lock();
+        try {
+            State local = state;
+            state = new State(new ConcurrentHashMap<>(), local.memtable, local.runs);
+        } finally {
+            freezeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the memtable to a run now and waits for it and the compactions
+     * it triggers.
+     */
+    public void flush() {
+        await(flusher.submit(() -> {
+            stateLock.lock();
+            try {
+                if (state.frozen == null && !state.memtable.isEmpty()) {
+                    freeze();
+                }
+            } finally {
+                stateLock.unlock();
+            }
+            flushFrozen();
+        }));
+        await(compactor.submit(this::compact));
+    }
+
+    private static void await(Future<?> done) {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof UncheckedIOException ? (UncheckedIOException) e.getCause()
+                    : new IllegalStateException("Cannot flush reverse index", e.getCause());
+        }
+    }
+
+    /** Runs on the flusher thread. */
+    private void flushFrozen() {
+        Map<String, Long> frozen = state.frozen;
+        if (frozen == null) {
+            return;
+        }
+        List<Map.Entry<byte[], Long>> entries = new ArrayList<>(frozen.size());
+        for (Map.Entry<String, Long> entry : frozen.entrySet()) {
+            entries.add(Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+        }
+        entries.sort(Map.Entry.comparingByKey(Arrays::compareUnsigned));
+        Path file = nextRunFile();
+        SortedRun run;
+        try {
+            run = SortedRun.write(file, new SortedRun.EntrySource() {
+                private int next;
+                private Map.Entry<byte[], Long> current;
+
+                @Override
+                public boolean next() {
+                    current = next < entries.size() ? entries.get(next++) : null;
+                    return current != null;
+                }
+
+                @Override
+                public byte[] key() {
+                    return current.getKey();
+                }
+
+                @Override
+                public long id() {
+                    return current.getValue();
+                }
+            }, entries.size(), bloomBitsPerKey, 0, blockReads);
+        } catch (IOException e) {
+            unfreeze(e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Cannot write reverse index run", e);
+        }
+        flushedBytes.addAndGet(run.bytes());
+        stateLock.lock();
+        try {
+            State local = state;
+            List<SortedRun> runs = new ArrayList<>(local.runs.size() + 1);
+            runs.add(run);
+            runs.addAll(local.runs);
+            state = new State(local.memtable, null, Collections.unmodifiableList(runs));
+            flushFailure = null;
+            flushed.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+        compactor.execute(this::compact);
+    }
+
+    /**
+     * Merges the frozen memtable that could not be written back into the
+     * memtable, whose newer entries win, and wakes blocked writers.
+     */
+    private void unfreeze(IOException failure) {
+        stateLock.lock();
+        try {
+            freezeLock.writeLock().lock();
+            try {
+                State local = state;
+                ConcurrentHashMap<String, Long> memtable = new ConcurrentHashMap<>(local.frozen);
+                memtable.putAll(local.memtable);
+                state = new State(memtable, null, local.runs);
+            } finally {
+                freezeLock.writeLock().unlock();
+            }
+            flushFailure = failure;
+            flushed.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Merges groups of {@code fanout} adjacent runs of one tier, lowest tier
+     * first, until there are none. Runs on the compactor thread, the only
+     * one that removes runs; flushes only add newer ones meanwhile.
+     */
+    private void compact() {
+        for (;;) {
+            List<SortedRun> runs = state.runs;
+            int from = mergeGroup(runs);
+            if (from < 0) {
+                return;
+            }
+            List<SortedRun> merged = runs.subList(from, from + fanout);
+            boolean oldest = from + fanout == runs.size();
+            SortedRun run;
+            try {
+                run = merge(merged, merged.get(0).tier() + 1, oldest);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot compact reverse index runs", e);
+            }
+            compactedBytes.addAndGet(run.bytes());
+            compactions.incrementAndGet();
+            stateLock.lock();
+            try {
+                State local = state;
+                int at = local.runs.indexOf(merged.get(0));
+                List<SortedRun> replaced = new ArrayList<>(local.runs.size() - fanout + 1);
+                replaced.addAll(local.runs.subList(0, at));
+                if (run.entries() > 0) {
+                    replaced.add(run);
+                }
+                replaced.addAll(local.runs.subList(at + fanout, local.runs.size()));
+                state = new State(local.memtable, local.frozen, Collections.unmodifiableList(replaced));
+            } finally {
+                stateLock.unlock();
+            }
+            try {
+                for (SortedRun old : merged) {
+                    old.retire();
+                }
+                if (run.entries() == 0) {
+                    run.retire();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete compacted reverse index runs", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the newest of {@code fanout} adjacent runs of one
+     * tier, preferring the lowest tier, or -1 if there are none. Of a longer
+     * sequence of runs of the tier, which accumulates during a long merge,
+     * the oldest are picked, so tiers keep growing from newest to oldest run
+     * and runs of a tier stay adjacent.
+     */
+    private int mergeGroup(List<SortedRun> runs) {
+        int best = -1;
+        int start = 0;
+        for (int i = 1; i <= runs.size(); i++) {
+            if (i == runs.size() || runs.get(i).tier() != runs.get(start).tier()) {
+                if (i - start >= fanout && (best < 0 || runs.get(start).tier() < runs.get(best).tier())) {
+                    best = i - fanout;
+                }
+                start = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Merges {@code runs}, newest first, keeping the newest entry of each
+     * key. Tombstones are dropped when the oldest run is merged, since there
+     * is nothing left for them to shadow.
+     */
+    private SortedRun merge(List<SortedRun> runs, int tier, boolean dropTombstones) throws IOException {
+        List<SortedRun.Cursor> cursors = new ArrayList<>(runs.size());
+        try {
+            long expected = 0;
+            // Ties go to the newest run, which comes first
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator
+                    .<Integer, byte[]>comparing(i -> cursors.get(i).key(), Arrays::compareUnsigned)
+                    .thenComparing(Comparator.naturalOrder()));
+            for (SortedRun run : runs) {
+                SortedRun.Cursor cursor = run.cursor();
+                cursors.add(cursor);
+                expected += run.entries();
+            }
+            for (int i = 0; i < cursors.size(); i++) {
+                if (cursors.get(i).next()) {
+                    heap.add(i);
+                }
+            }
+            return SortedRun.write(nextRunFile(), new SortedRun.EntrySource() {
+                private byte[] key;
+                private long id;
+
+                @Override
+                public boolean next() throws IOException {
+                    while (!heap.isEmpty()) {
+                        int newest = heap.poll();
+                        key = cursors.get(newest).key();
+                        id = cursors.get(newest).id();
+                        advance(newest);
+                        // Skip older entries of the same key
+                        while (!heap.isEmpty() && Arrays.equals(cursors.get(heap.peek()).key(), key)) {
+                            advance(heap.poll());
+                        }
+                        if (!dropTombstones || id != TOMBSTONE) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                private void advance(int i) throws IOException {
+                    if (cursors.get(i).next()) {
+                        heap.add(i);
+                    }
+                }
+
+                @Override
+                public byte[] key() {
+                    return key;
+                }
+
+                @Override
+                public long id() {
+                    return id;
+                }
+            }, expected, bloomBitsPerKey, tier, blockReads);
+        } finally {
+            for (SortedRun.Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    private Path nextRunFile() {
+        return directory.resolve(String.format("%s%08d%s", RUN_PREFIX, nextRun.getAndIncrement(), RUN_SUFFIX));
+    }
+
+    private Lock stripeOf(String normalizedUrl) {
+        int h = normalizedUrl.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** Number of run files. */
+    public int runCount() {
+        return state.runs.size();
+    }
+
+    /** Bytes of all run files. */
+    public long diskBytes() {
+        long bytes = 0;
+        for (SortedRun run : state.runs) {
+            bytes += run.bytes();
+        }
+        return bytes;
+    }
+
+    /** Heap held by the Bloom filters and block indexes of the runs. */
+    public long runRetainedBytes() {
+        long bytes = 0;
+        for (SortedRun run : state.runs) {
+            bytes += run.retainedBytes();
+        }
+        return bytes;
+    }
+
+    /** Blocks read from run files by lookups. */
+    public long blockReads() {
+        return blockReads.sum();
+    }
+
+    /** Bytes written by memtable flushes. */
+    public long flushedBytes() {
+        return flushedBytes.get();
+    }
+
+    /** Bytes written by compactions. */
+    public long compactedBytes() {
+        return compactedBytes.get();
+    }
+
+    /** Compactions completed. */
+    public long compactions() {
+        return compactions.get();
+    }
+
+    /**
+     * Bytes written to run files per byte flushed from memtables; 1 until
+     * the first compaction.
+     */
+    public double writeAmplification() {
+        long flushed = flushedBytes.get();
+        return flushed == 0 ? 1.0 : (double) (flushed + compactedBytes.get()) / flushed;
+    }
+
+    /**
+     * Stops the flusher, waiting for a pending flush, and the compactor,
+     * abandoning a running merge, then closes the runs. Run files are left in
+     * place and deleted when the directory is reused.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+            compactor.shutdownNow();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SortedRun run : state.runs) {
+            run.close();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.shortener.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A forward index backed by memory-mapped files so that mappings survive
+ * restarts. The layout mirrors {@link ArenaForwardIndex}: URL bytes are
+ * appended to fixed-size data chunks and each ID owns one packed
+ * offset/length slot. Slots are grouped into segment files using the same
+ * {@code segmentShift} geometry as {@link SegmentedForwardIndex}.
+ * <p>
+ * The data directory contains:
+ * <ul>
+ *     <li>{@code meta.bin} – format header and the arena append position,</li>
+ *     <li>{@code slots-XXXXXXXX.bin} – one file of {@code 8 << segmentShift}
+ *     bytes per segment,</li>
+ *     <li>{@code data-XXXXXXXX.bin} – arena chunks of {@code 1 << chunkShift}
+ *     bytes.</li>
+ * </ul>
+ * Reopening a directory only maps the existing files and scans the last
+ * segment for the high watermark, so it takes milliseconds regardless of the
+ * number of entries. Resolves read straight from the mapped pages. Writes
+ * reach the OS page cache immediately and therefore survive a process crash;
+ * {@link #flush()} forces them to the storage device.
+ */
+public class MappedForwardIndex implements ForwardIndex, Closeable {
+
+    private static final int MAGIC = 0x53484649; // "SHFI"
+    private static final int VERSION = 1;
+    private static final int META_SIZE = 64;
+    private static final int META_MAGIC = 0;
+    private static final int META_VERSION = 4;
+    private static final int META_SEGMENT_SHIFT = 8;
+    private static final int META_CHUNK_SHIFT = 12;
+    private static final int META_ARENA_POSITION = 16;
+
+    /**
+     * Slot layout, identical to {@link ArenaForwardIndex}: bit 63 marks the
+     * slot as present, bits 24..62 hold the arena offset and bits 0..23 the
+     * entry length.
+     */
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long MAX_OFFSET = (1L << (63 - LENGTH_BITS)) - 1;
+    private static final long PRESENT = 1L << 63;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int segmentShift;
+    private final long segmentSize;
+    private final long segmentMask;
+    private final int chunkShift;
+    private final int chunkSize;
+    private final long chunkMask;
+
+    /**
+     * Header mapping. The arena append position lives here and is advanced
+     * with a CAS directly on the mapped page, so it is always persisted.
+     */
+    private final MappedByteBuffer meta;
+
+    private volatile MappedByteBuffer[] segments;
+    private volatile MappedByteBuffer[] chunks;
+
+    private final AtomicLong highWatermark = new AtomicLong(-1L);
+
+    /**
+     * Lock for mapping new segment and chunk files. Reads are lock-free.
+     */
+    private final Lock expandLock = new ReentrantLock();
+
+    public MappedForwardIndex(Path directory) {
+        this(directory, 20, 26);
+    }
+
+    /**
+     * Opens or creates a mapped index in {@code directory}. When the
+     * directory already holds an index, its geometry must match.
+     *
+     * @param directory data directory
+     * @param segmentShift log2 of the number of slots per segment file (1..29)
+     * @param chunkShift log2 of the data chunk size in bytes (12..30)
+     * @throws UncheckedIOException if the files cannot be opened or mapped
+     * @throws IllegalStateException if the directory holds an incompatible index
+     */
+    public MappedForwardIndex(Path directory, int segmentShift, int chunkShift) {
+        if (segmentShift <= 0 || segmentShift >= 30) {
+            throw new IllegalArgumentException("segmentShift must be between 1 and 29");
+        }
+        if (chunkShift < 12 || chunkShift > 30) {
+            throw new IllegalArgumentException("chunkShift must be between 12 and 30");
+        }
+        this.directory = directory;
+        this.segmentShift = segmentShift;
+        this.segmentSize = 1L << segmentShift;
+        this.segmentMask = segmentSize - 1;
+        this.chunkShift = chunkShift;
+        this.chunkSize = 1 << chunkShift;
+        this.chunkMask = chunkSize - 1;
+        try {
+            Files.createDirectories(directory);
+            Path metaFile = directory.resolve("meta.bin");
+            boolean existing = Files.exists(metaFile);
+            this.meta = map(metaFile, META_SIZE);
+            if (existing) {
+                checkHeader();
+            } else {
+                meta.putInt(META_MAGIC, MAGIC);
+                meta.putInt(META_VERSION, VERSION);
+                meta.putInt(META_SEGMENT_SHIFT, segmentShift);
+                meta.putInt(META_CHUNK_SHIFT, chunkShift);
+                meta.putLong(META_ARENA_POSITION, 0L);
+            }
+            this.segments = mapExisting("slots-", 8L << segmentShift);
+            this.chunks = mapExisting("data-", chunkSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open forward index in " + directory, e);
+        }
+        highWatermark.set(recoverHighWatermark());
+    }
+
+    private void checkHeader() {
+        if (meta.getInt(META_MAGIC) != MAGIC || meta.getInt(META_VERSION) != VERSION) {
+            throw new IllegalStateException("Not a forward index directory: " + directory);
+        }
+        int storedSegmentShift = meta.getInt(META_SEGMENT_SHIFT);
+        int storedChunkShift = meta.getInt(META_CHUNK_SHIFT);
+        if (storedSegmentShift != segmentShift || storedChunkShift != chunkShift) {
+            throw new IllegalStateException("Forward index in " + directory + " was created with segmentShift="
+                    + storedSegmentShift + ", chunkShift=" + storedChunkShift);
+        }
+    }
+
+    private MappedByteBuffer[] mapExisting(String prefix, long size) throws IOException {
+        MappedByteBuffer[] mapped = new MappedByteBuffer[1];
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(".bin")) {
+                    int index = Integer.parseInt(name.substring(prefix.length(), name.length() - 4), 16);
+                    if (index >= mapped.length) {
+                        mapped = Arrays.copyOf(mapped, Math.max(index + 1, mapped.length * 2));
+                    }
+                    mapped[index] = map(file, size);
+                }
+            }
+        }
+        return mapped;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end of the file extends it (sparsely on most file systems)
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private long recoverHighWatermark() {
+        MappedByteBuffer[] local = segments;
+        for (int segIndex = local.length - 1; segIndex >= 0; segIndex--) {
+            MappedByteBuffer segment = local[segIndex];
+            if (segment == null) {
+                continue;
+            }
+            for (long offset = segmentMask; offset >= 0; offset--) {
+                if (slot(segment, (int) offset) != 0L) {
+                    return ((long) segIndex << segmentShift) | offset;
+                }
+            }
+        }
+        return -1L;
+    }
+
+    @Override
+    public void put(long id, String url) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must be non-negative");
+        }
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > chunkSize || bytes.length > LENGTH_MASK) {
+            throw new IllegalArgumentException("URL of " + bytes.length + " bytes does not fit into a data chunk");
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        int offset = (int) (id & segmentMask);
+        MappedByteBuffer segment = ensureMapped(segIndex, true);
+
+        // Re-applying a mapping (journal replay, replication) must not
+        // append another copy of the URL to the persisted arena
+        long existing = slot(segment, offset);
+        if (existing != 0L && entry(existing).equals(ByteBuffer.wrap(bytes))) {
+            return;
+        }
+
+        long position = reserve(bytes.length);
+        MappedByteBuffer chunk = ensureMapped((int) (position >>> chunkShift), false);
+        chunk.put((int) (position & chunkMask), bytes);
+
+        // Release store: readers that observe the slot also observe the bytes
+        LONGS.setRelease(segment, offset << 3, PRESENT | (position << LENGTH_BITS) | bytes.length);
+        long current;
+        do {
+            current = highWatermark.get();
+        } while (id > current && !highWatermark.compareAndSet(current, id));
+    }
+
+    /**
+     * Reserves {@code length} contiguous bytes inside a single chunk by
+     * advancing the persisted append position.
+     */
+    private long reserve(int length) {
+        while (true) {
+            long current = (long) LONGS.getVolatile(meta, META_ARENA_POSITION);
+            long start = current;
+            long chunkEnd = (start | chunkMask) + 1;
+            if (start + length > chunkEnd) {
+                // Skip the tail of the current chunk
+                start = chunkEnd;
+            }
+            if (start + length > MAX_OFFSET) {
+                throw new IllegalStateException("Arena exhausted");
+            }
+            if (LONGS.compareAndSet(meta, META_ARENA_POSITION, current, start + length)) {
+                return start;
+            }
+        }
+    }
+
+    private MappedByteBuffer ensureMapped(int index, boolean segment) {
+        MappedByteBuffer[] local = segment ? segments : chunks;
+        if (index < local.length && local[index] != null) {
+            return local[index];
+        }
+        expandLock.lock();
+        try {
+            local = segment ? segments : chunks;
+            if (index < local.length && local[index] != null) {
+                return local[index];
+            }
+            String name = String.format(segment ? "slots-%08x.bin" : "data-%08x.bin", index);
+            MappedByteBuffer mapped = map(directory.resolve(name), segment ? 8L << segmentShift : chunkSize);
+            // Copy-on-write: lock-free readers only ever see fully built
+            // arrays, published by a single volatile write
+            int length = index < local.length ? local.length : Math.max(index + 1, local.length * 2);
+            MappedByteBuffer[] expanded = Arrays.copyOf(local, length);
+            expanded[index] = mapped;
+            if (segment) {
+                segments = expanded;
+            } else {
+                chunks = expanded;
+            }
+            return mapped;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + (segment ? "segment " : "chunk ") + index, e);
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> get(long id) {
+        ByteBuffer bytes = view(id);
+        if (bytes == null) {
+            return Optional.empty();
+        }
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        return Optional.of(new String(copy, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a read-only view of the UTF-8 bytes stored for {@code id}
+     * directly over the mapped pages, without copying, or {@code null} if the
+     * ID is not assigned. Callers that can write bytes (e.g. to a socket)
+     * avoid building a String this way.
+     *
+     * @param id the 48-bit ID
+     * @return a read-only buffer positioned at the entry, or null
+     */
+    public ByteBuffer view(long id) {
+        long hw = highWatermark.get();
+        if (id < 0 || id > hw) {
+            return null;
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        MappedByteBuffer[] local = segments;
+        if (segIndex >= local.length || local[segIndex] == null) {
+            return null;
+        }
+        long slot = slot(local[segIndex], (int) (id & segmentMask));
+        return slot == 0L ? null : entry(slot);
+    }
+
+    private ByteBuffer entry(long slot) {
+        long position = (slot & ~PRESENT) >>> LENGTH_BITS;
+        int length = (int) (slot & LENGTH_MASK);
+        MappedByteBuffer chunk = chunks[(int) (position >>> chunkShift)];
+        return chunk.slice((int) (position & chunkMask), length).asReadOnlyBuffer();
+    }
+
+    private static long slot(MappedByteBuffer segment, int offset) {
+        return (long) LONGS.getAcquire(segment, offset << 3);
+    }
+
+    @Override
+    public long highWatermark() {
+        return highWatermark.get();
+    }
+
+    /**
+     * Returns the number of arena bytes reserved so far, including skipped
+     * chunk tails.
+     */
+    public long arenaBytes() {
+        return (long) LONGS.getVolatile(meta, META_ARENA_POSITION);
+    }
+
+    @Override
+    public int allocatedSegmentCount() {
+        int count = 0;
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scans the mapped slot files directly, skipping segments that were never
+     * written.
+     */
+    @Override
+    public void forEach(EntryConsumer action) {
+        long hw = highWatermark.get();
+        MappedByteBuffer[] local = segments;
+        for (int segIndex = 0; segIndex < local.length; segIndex++) {
+            MappedByteBuffer segment = local[segIndex];
+            if (segment == null) {
+                continue;
+            }
+            long base = (long) segIndex << segmentShift;
+            for (int offset = 0; offset < segmentSize && base + offset <= hw; offset++) {
+                long slot = slot(segment, offset);
+                if (slot != 0L) {
+                    ByteBuffer bytes = entry(slot);
+                    byte[] copy = new byte[bytes.remaining()];
+                    bytes.get(copy);
+                    action.accept(base + offset, new String(copy, StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces all mapped files to the storage device.
+     */
+    public void flush() {
+        expandLock.lock();
+        try {
+            for (MappedByteBuffer chunk : chunks) {
+                if (chunk != null) {
+                    chunk.force();
+                }
+            }
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) {
+                    segment.force();
+                }
+            }
+            meta.force();
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes all mapped files. The mappings themselves are released when
+     * they become unreachable.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+}
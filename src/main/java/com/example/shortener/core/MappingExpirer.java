@@ -0,0 +1,259 @@
+package com.example.shortener.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expires mappings shortened with a time to live. Deadlines are kept per ID
+ * and the IDs are filed in a {@link TimingWheel} of {@code tickMillis} ticks;
+ * {@link #expire(long)} advances the wheel and, for each ID whose deadline
+ * has passed, removes the URL from the {@link ReverseIndex} (so shortening it
+ * again mints a new code), tombstones it in the {@link ForwardIndex} and
+ * drops its cached resolve response. Segments of a
+ * {@link SegmentedForwardIndex} left without entries are then released.
+ * <p>
+ * Between its deadline and the next tick an expired mapping is still stored;
+ * {@link #isExpired(long, long)} lets resolves hide it with one hash lookup,
+ * skipped entirely while no deadline is pending. A deadline can be raised, or
+ * removed when the URL is shortened again without a time to live; the wheel
+ * entry then fires early and is rescheduled or ignored.
+ * <p>
+ * An expiring mapping keeps a deadline, marked as being reaped, until it is
+ * gone from both indexes, so a shorten that found its ID just before can
+ * tell from {@link #extend(long, long)} that the ID is lost.
+ */
+public class MappingExpirer {
+
+    /** Deadline of mappings that never expire. */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * Rough heap retained by a stored URL besides its characters: String and
+     * array headers and fields.
+     */
+    private static final int URL_OVERHEAD = 40;
+
+    /** Deadline of a mapping {@link #expire(long)} is removing. */
+    private static final long REAPING = Long.MIN_VALUE;
+
+    private final ForwardIndex forwardIndex;
+    private final ReverseIndex reverseIndex;
+    private final ClockCache responseCache;
+    private final long tickMillis;
+    private final ConcurrentHashMap<Long, Long> deadlines = new ConcurrentHashMap<>();
+    /** Guarded by itself; schedulers only hold it for an O(1) insert. */
+    private final TimingWheel wheel;
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder reclaimedBytes = new LongAdder();
+
+    // Guarded by this; reused across passes
+    private long[] due = new long[64];
+    private int dueCount;
+    /** IDs expired by the previous pass, whose cached responses are dropped again. */
+    private long[] previous = new long[0];
+    private int previousCount;
+
+    /**
+     * @param forwardIndex index to tombstone expired entries in; must
+     *                     support {@link ForwardIndex#remove(long)}
+     * @param reverseIndex index to remove expired URLs from
+     * @param responseCache cache of resolve responses by ID, or null
+     * @param tickMillis resolution of deadlines
+     * @param nowMillis current time
+     */
+    public MappingExpirer(ForwardIndex forwardIndex, ReverseIndex reverseIndex, ClockCache responseCache,
+                          long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.forwardIndex = forwardIndex;
+        this.reverseIndex = reverseIndex;
+        this.responseCache = responseCache;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel(nowMillis / tickMillis);
+    }
+
+    /**
+     * Returns the deadline {@code ttlMillis} after {@code nowMillis},
+     * saturating at {@link #NEVER}.
+     */
+    public static long deadline(long nowMillis, long ttlMillis) {
+        return ttlMillis >= NEVER - nowMillis ? NEVER : nowMillis + ttlMillis;
+    }
+
+    /**
+     * Expires a newly published mapping at {@code deadlineMillis}.
+     */
+    public void expireAt(long id, long deadlineMillis) {
+        if (deadlineMillis == NEVER) {
+            return;
+        }
+        deadlines.put(id, deadlineMillis);
+        schedule(id, deadlineMillis);
+    }
+
+    /**
+     * Applies a repeated shorten of an existing mapping: a later deadline
+     * replaces an earlier one and {@link #NEVER} makes it permanent. Mappings
+     * without a deadline stay permanent.
+     * <p>
+     * Returns false if the mapping is being expired, and true otherwise,
+     * including for a mapping already expired: a caller that found the ID in
+     * the reverse index before it was expired must look it up again.
+     */
+    public boolean extend(long id, long deadlineMillis) {
+        if (deadlines.isEmpty()) {
+            return true;
+        }
+        Long result = deadlines.computeIfPresent(id, (key, current) -> {
+            if (current == REAPING) {
+                return current;
+            }
+            return deadlineMillis == NEVER ? null : Math.max(current, deadlineMillis);
+        });
+        return result == null || result != REAPING;
+    }
+
+    /**
+     * Returns the deadline of a mapping, or {@link #NEVER}.
+     */
+    public long deadlineOf(long id) {
+        if (deadlines.isEmpty()) {
+            return NEVER;
+        }
+        Long deadline = deadlines.get(id);
+        return deadline == null ? NEVER : deadline;
+    }
+
+    /**
+     * Returns true if the mapping's deadline is at most {@code nowMillis}.
+     */
+    public boolean isExpired(long id, long nowMillis) {
+        return deadlineOf(id) <= nowMillis;
+    }
+
+    private void schedule(long id, long deadlineMillis) {
+        // Round up so an entry never fires before its deadline
+        long tick = deadlineMillis / tickMillis + (deadlineMillis % tickMillis == 0 ? 0 : 1);
+        synchronized (wheel) {
+            wheel.schedule(id, tick);
+        }
+    }
+
+    /**
+     * Expires every mapping whose deadline is at most {@code nowMillis}. A
+     * mapping that cannot be removed keeps its deadline and is retried by the
+     * next pass; the first such failure is thrown once the others are
+     * expired.
+     *
+     * @return the number of mappings expired
+     */
+    public synchronized int expire(long nowMillis) {
+        if (responseCache != null) {
+            // A resolve racing the last pass may have cached a response again
+            for (int i = 0; i < previousCount; i++) {
+                responseCache.remove(previous[i]);
+            }
+        }
+        dueCount = 0;
+        synchronized (wheel) {
+            wheel.advance(nowMillis / tickMillis, this::addDue);
+        }
+        int count = 0;
+        RuntimeException failure = null;
+        BitSet touched = new BitSet();
+        SegmentedForwardIndex segmented = forwardIndex instanceof SegmentedForwardIndex
+                && ((SegmentedForwardIndex) forwardIndex).isSegmentReleaseEnabled()
+                ? (SegmentedForwardIndex) forwardIndex : null;
+        for (int i = 0; i < dueCount; i++) {
+            long id = due[i];
+            Long deadline = deadlines.get(id);
+            if (deadline == null) {
+                continue;
+            }
+            if (deadline > nowMillis) {
+                schedule(id, deadline);
+                continue;
+            }
+            // The deadline is dropped only once the mapping is gone from both indexes
+            if (!deadlines.replace(id, deadline, REAPING)) {
+                // Extended since; a permanent mapping has no deadline left
+                Long extended = deadlines.get(id);
+                if (extended != null) {
+                    schedule(id, extended);
+                }
+                continue;
+            }
+            try {
+                Optional<String> url = forwardIndex.get(id);
+                if (url.isPresent()) {
+                    reverseIndex.remove(url.get(), id);
+                    reclaimedBytes.add(URL_OVERHEAD + url.get().length());
+                }
+                forwardIndex.remove(id);
+            } catch (RuntimeException e) {
+                // Retried by the next pass rather than left marked, which would stall shortens of the URL
+                deadlines.put(id, deadline);
+                schedule(id, deadline);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                continue;
+            }
+            deadlines.remove(id);
+            if (responseCache != null) {
+                responseCache.remove(id);
+            }
+            due[count++] = id;
+            expired.increment();
+            if (segmented != null) {
+                touched.set(segmented.segmentOf(id));
+            }
+        }
+        // Each segment that lost entries is scanned once per pass
+        for (int segment = touched.nextSetBit(0); segment >= 0; segment = touched.nextSetBit(segment + 1)) {
+            if (segmented.releaseSegment(segment)) {
+                reclaimedBytes.add(segmented.segmentArrayBytes());
+            }
+        }
+        // The expired IDs were compacted to the front of due
+        long[] swap = previous;
+        previous = due;
+        previousCount = count;
+        due = swap.length >= 64 ? swap : new long[64];
+        if (failure != null) {
+            throw failure;
+        }
+        return count;
+    }
+
+    private void addDue(long id) {
+        if (dueCount == due.length) {
+            due = Arrays.copyOf(due, due.length * 2);
+        }
+        due[dueCount++] = id;
+    }
+
+    /** Mappings expired since startup. */
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Estimated heap given back by expirations since startup: the expired
+     * URLs and the arrays of released segments.
+     */
+    public long reclaimedBytes() {
+        return reclaimedBytes.sum();
+    }
+
+    /** Mappings with a pending deadline. */
+    public long pendingCount() {
+        return deadlines.size();
+    }
+}
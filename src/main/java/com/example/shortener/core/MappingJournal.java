@@ -0,0 +1,85 @@
+package com.example.shortener.core;
+
+/**
+ * Durable record of newly published {@code id → url} mappings. The service
+ * records a mapping before it stores it in the forward index and publishes
+ * it in the reverse index, so no caller can obtain a code the journal could
+ * still lose; the journal is replayed into the {@link ForwardIndex} on
+ * startup.
+ */
+public interface MappingJournal {
+    /**
+     * Records a new mapping. Returns once the record is as durable as the
+     * journal's sync policy promises.
+     *
+     * @param id the ID assigned to the URL
+     * @param normalizedUrl the normalized URL
+     * @throws java.io.UncheckedIOException if the record cannot be written
+     */
+    void record(long id, String normalizedUrl);
+
+    /**
+     * Records the first {@code count} mappings of a batch. Returns once all of
+     * them are as durable as the journal's sync policy promises; journals
+     * should make the batch durable together rather than record by record.
+     *
+     * @param ids the IDs assigned to the URLs
+     * @param normalizedUrls the normalized URLs, parallel to {@code ids}
+     * @param count number of mappings to record
+     * @throws java.io.UncheckedIOException if the records cannot be written
+     */
+    default void recordAll(long[] ids, String[] normalizedUrls, int count) {
+        for (int i = 0; i < count; i++) {
+            record(ids[i], normalizedUrls[i]);
+        }
+    }
+
+    /**
+     * Called once a mapping recorded earlier has been stored in the forward
+     * index, so anything that copies the forward index from then on, such as
+     * a replication bootstrap, sees it. Does nothing by default.
+     *
+     * @param id the ID assigned to the URL
+     * @param normalizedUrl the normalized URL
+     */
+    default void stored(long id, String normalizedUrl) {
+        // nothing to do
+    }
+
+    /**
+     * Called once the first {@code count} mappings of a batch, all recorded
+     * earlier, have been stored in the forward index; see
+     * {@link #stored(long, String)}.
+     *
+     * @param ids the IDs assigned to the URLs
+     * @param normalizedUrls the normalized URLs, parallel to {@code ids}
+     * @param count number of stored mappings
+     */
+    default void storedAll(long[] ids, String[] normalizedUrls, int count) {
+        for (int i = 0; i < count; i++) {
+            stored(ids[i], normalizedUrls[i]);
+        }
+    }
+
+    /**
+     * Records that a mapping recorded earlier was never published, because
+     * another caller indexed its URL first; replay skips it. Returns without
+     * waiting for the record to be durable, since a discarded mapping that
+     * survives only gives its URL a second code nobody was given.
+     *
+     * @param id the ID of the discarded mapping
+     * @throws java.io.UncheckedIOException if the record cannot be written
+     */
+    default void discard(long id) {
+        // nothing to discard
+    }
+
+    /**
+     * Replays every recorded mapping that was not discarded, in the order it
+     * was recorded.
+     *
+     * @param action callback receiving each ID and URL
+     * @throws java.io.UncheckedIOException if the journal cannot be read
+     */
+    void replay(ForwardIndex.EntryConsumer action);
+}
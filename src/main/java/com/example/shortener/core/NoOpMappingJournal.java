@@ -0,0 +1,17 @@
+package com.example.shortener.core;
+
+/**
+ * A journal that records nothing. Used when mappings only need to live as
+ * long as the process.
+ */
+public class NoOpMappingJournal implements MappingJournal {
+    @Override
+    public void record(long id, String normalizedUrl) {
+        // nothing to record
+    }
+
+    @Override
+    public void replay(ForwardIndex.EntryConsumer action) {
+        // nothing was recorded
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.shortener.core;
+
+/**
+ * Splits the 48-bit ID space between nodes: the top {@code nodeBits} bits of
+ * a global ID name the node that minted it, the remaining bits are an ID
+ * local to that node. Nodes therefore mint codes independently, without
+ * coordination and without collisions, as long as every node has a distinct
+ * {@code nodeId} and the same {@code nodeBits}.
+ * <p>
+ * Indexes and journals keep local IDs, so they stay dense on every node; the
+ * node bits only appear in published codes (see
+ * {@link PartitionedBase64Codec}).
+ */
+public final class NodePartition {
+
+    private static final int ID_BITS = 48;
+
+    private final int nodeBits;
+    private final int nodeId;
+    private final int localBits;
+    private final long maxLocalId;
+
+    /**
+     * @param nodeBits number of high ID bits reserved for the node ID, 1..16
+     * @param nodeId this node's ID, below {@code 2^nodeBits}
+     */
+    public NodePartition(int nodeBits, int nodeId) {
+        if (nodeBits < 1 || nodeBits > 16) {
+            throw new IllegalArgumentException("nodeBits must be between 1 and 16");
+        }
+        if (nodeId < 0 || nodeId >= 1 << nodeBits) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + ((1 << nodeBits) - 1));
+        }
+        this.nodeBits = nodeBits;
+        this.nodeId = nodeId;
+        this.localBits = ID_BITS - nodeBits;
+        this.maxLocalId = (1L << localBits) - 1;
+    }
+
+    public int nodeBits() {
+        return nodeBits;
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the number of nodes the partition can address.
+     */
+    public int nodeCount() {
+        return 1 << nodeBits;
+    }
+
+    /**
+     * Returns the highest local ID a node can mint.
+     */
+    public long maxLocalId() {
+        return maxLocalId;
+    }
+
+    /**
+     * Returns the global ID of this node's local ID {@code localId}.
+     */
+    public long globalId(long localId) {
+        return (long) nodeId << localBits | localId;
+    }
+
+    /**
+     * Returns the node that minted the global ID {@code globalId}.
+     */
+    public int nodeOf(long globalId) {
+        return (int) (globalId >>> localBits);
+    }
+
+    /**
+     * Returns the local part of the global ID {@code globalId}.
+     */
+    public long localId(long globalId) {
+        return globalId & maxLocalId;
+    }
+
+    /**
+     * Returns true if this node minted the global ID {@code globalId}.
+     */
+    public boolean owns(long globalId) {
+        return nodeOf(globalId) == nodeId;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shortener.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for one node of a {@link NodePartition}: encodes local IDs as codes
+ * of their global ID, carrying the node ID in the high bits, and decodes
+ * codes minted by this node back to local IDs. Codes minted by other nodes
+ * are rejected like malformed ones; they are routed to their owner before
+ * they reach the service.
+ */
+public class PartitionedBase64Codec implements Base64Codec {
+
+    private final Base64Codec delegate;
+    private final NodePartition partition;
+
+    public PartitionedBase64Codec(Base64Codec delegate, NodePartition partition) {
+        this.delegate = delegate;
+        this.partition = partition;
+    }
+
+    @Override
+    public String encode(long id) {
+        return delegate.encode(globalId(id));
+    }
+
+    @Override
+    public void encode(long id, char[] dst, int offset) {
+        delegate.encode(globalId(id), dst, offset);
+    }
+
+    @Override
+    public void encode(long id, byte[] dst, int offset) {
+        delegate.encode(globalId(id), dst, offset);
+    }
+
+    @Override
+    public long decode(String code) {
+        return localId(delegate.decode(code));
+    }
+
+    @Override
+    public long decode(CharSequence code) {
+        return localId(delegate.decode(code));
+    }
+
+    @Override
+    public long decode(byte[] src, int offset, int length) {
+        return localId(delegate.decode(src, offset, length));
+    }
+
+    @Override
+    public long decode(ByteBuffer src) {
+        return localId(delegate.decode(src));
+    }
+
+    @Override
+    public long tryDecode(CharSequence code) {
+        long id = delegate.tryDecode(code);
+        return id == INVALID_ID || !partition.owns(id) ? INVALID_ID : partition.localId(id);
+    }
+
+    @Override
+    public boolean isValidCode(String code) {
+        return tryDecode(code) != INVALID_ID;
+    }
+
+    private long globalId(long id) {
+        if (id < 0 || id > partition.maxLocalId()) {
+            throw new IllegalArgumentException("id out of range for node " + partition.nodeId() + ": " + id);
+        }
+        return partition.globalId(id);
+    }
+
+    private long localId(long id) {
+        if (!partition.owns(id)) {
+            throw new IllegalArgumentException("Code belongs to node " + partition.nodeOf(id));
+        }
+        return partition.localId(id);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.shortener.core;
+
+import com.example.shortener.errors.CapacityExceededException;
+
+/**
+ * ID space of one node in a {@link NodePartition}: it hands out local IDs
+ * from a delegate space but never beyond {@link NodePartition#maxLocalId},
+ * so the high bits stay free for the node ID that
+ * {@link PartitionedBase64Codec} adds to published codes. The delegate
+ * decides how IDs are allocated (a shared counter or leased blocks).
+ */
+public class PartitionedIdSpace implements IdSpace {
+
+    private final IdSpace delegate;
+    private final long maxLocalId;
+
+    public PartitionedIdSpace(IdSpace delegate, NodePartition partition) {
+        if (delegate.maxId() < partition.maxLocalId()) {
+            throw new IllegalArgumentException("Delegate ID space is smaller than the node's share");
+        }
+        this.delegate = delegate;
+        this.maxLocalId = partition.maxLocalId();
+    }
+
+    @Override
+    public long allocate() throws CapacityExceededException {
+        long id = delegate.allocate();
+        if (id > maxLocalId) {
+            throw new CapacityExceededException("Node ID space exhausted");
+        }
+        return id;
+    }
+
+    @Override
+    public long allocateBlock(int count) throws CapacityExceededException {
+        long first = delegate.allocateBlock(count);
+        if (first + count - 1 > maxLocalId) {
+            throw new CapacityExceededException("Node ID space exhausted");
+        }
+        return first;
+    }
+
+    @Override
+    public long maxId() {
+        return maxLocalId;
+    }
+
+    @Override
+    public long remaining() {
+        long remaining = delegate.remaining() - (delegate.maxId() - maxLocalId);
+        return remaining < 0 ? 0 : remaining;
+    }
+
+    @Override
+    public void advancePast(long id) {
+        delegate.advancePast(id);
+    }
+}
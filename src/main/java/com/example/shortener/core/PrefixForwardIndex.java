@@ -0,0 +1,326 @@
+package com.example.shortener.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A forward index that splits each URL into a shared prefix and a suffix.
+ * The prefix, i.e. scheme, authority and first path segment (for example
+ * {@code https://www.example.com/articles/}), is interned once in a
+ * dictionary; each entry stores only the prefix ID as a varint followed by
+ * the UTF-8 bytes of the rest of the URL in on-heap arena chunks, with the
+ * packed offset/length slots of {@link ArenaForwardIndex}. Shortened URLs
+ * share few hosts and sections, so most of each URL is stored once.
+ * <p>
+ * {@link #get(long)} rebuilds the URL from the dictionary entry and the
+ * suffix, which costs one extra copy of the prefix compared to
+ * {@link ArenaForwardIndex}. Once the dictionary holds {@code maxPrefixes}
+ * entries, URLs with new prefixes are stored whole under the empty prefix.
+ */
+public class PrefixForwardIndex implements ForwardIndex {
+
+    /** Slot layout as in {@link ArenaForwardIndex}; an all-zero slot is empty. */
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long MAX_OFFSET = (1L << (63 - LENGTH_BITS)) - 1;
+    private static final long PRESENT = 1L << 63;
+
+    /** Prefix ID of URLs stored whole. */
+    private static final int NO_PREFIX = 0;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int segmentShift;
+    private final long segmentSize;
+    private final long segmentMask;
+    private final int chunkShift;
+    private final int chunkSize;
+    private final long chunkMask;
+    private final int maxPrefixes;
+
+    private volatile long[][] segments;
+    private volatile byte[][] chunks;
+    private final AtomicLong arenaPosition = new AtomicLong(0L);
+    private final AtomicLong highWatermark = new AtomicLong(-1L);
+
+    /**
+     * Prefix bytes by ID, read by {@link #get(long)}. An ID is only published
+     * to {@link #prefixIds} after its bytes are stored here.
+     */
+    private volatile byte[][] prefixes;
+    private final ConcurrentHashMap<String, Integer> prefixIds = new ConcurrentHashMap<>();
+    private int prefixCount;
+
+    /**
+     * Lock for segment, chunk and dictionary expansion. Reads are lock-free.
+     */
+    private final Lock expandLock = new ReentrantLock();
+
+    public PrefixForwardIndex() {
+        this(20, 22, 1 << 20);
+    }
+
+    /**
+     * Creates a new prefix index.
+     *
+     * @param segmentShift log2 of the number of slots per segment (1..29)
+     * @param chunkShift log2 of the arena chunk size in bytes (12..30)
+     * @param maxPrefixes maximum number of dictionary entries
+     */
+    public PrefixForwardIndex(int segmentShift, int chunkShift, int maxPrefixes) {
+        if (segmentShift <= 0 || segmentShift >= 30) {
+            throw new IllegalArgumentException("segmentShift must be between 1 and 29");
+        }
+        if (chunkShift < 12 || chunkShift > 30) {
+            throw new IllegalArgumentException("chunkShift must be between 12 and 30");
+        }
+        if (maxPrefixes < 1) {
+            throw new IllegalArgumentException("maxPrefixes must be positive");
+        }
+        this.segmentShift = segmentShift;
+        this.segmentSize = 1L << segmentShift;
+        this.segmentMask = segmentSize - 1;
+        this.chunkShift = chunkShift;
+        this.chunkSize = 1 << chunkShift;
+        this.chunkMask = chunkSize - 1;
+        this.maxPrefixes = maxPrefixes;
+        this.segments = new long[1][];
+        this.chunks = new byte[1][];
+        this.prefixes = new byte[16][];
+        this.prefixes[NO_PREFIX] = new byte[0];
+        this.prefixCount = 1;
+    }
+
+    @Override
+    public void put(long id, String url) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must be non-negative");
+        }
+        int split = prefixEnd(url);
+        int prefixId = split == 0 ? NO_PREFIX : internPrefix(url.substring(0, split));
+        if (prefixId == NO_PREFIX) {
+            split = 0;
+        }
+        byte[] suffix = url.substring(split).getBytes(StandardCharsets.UTF_8);
+        int length = varIntSize(prefixId) + suffix.length;
+        if (length > chunkSize || length > LENGTH_MASK) {
+            throw new IllegalArgumentException("URL of " + suffix.length + " bytes does not fit into an arena chunk");
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        int offset = (int) (id & segmentMask);
+        long[] segment = ensureSegment(segIndex);
+
+        long position = reserve(length);
+        byte[] chunk = ensureChunk((int) (position >>> chunkShift));
+        int index = writeVarInt(chunk, (int) (position & chunkMask), prefixId);
+        System.arraycopy(suffix, 0, chunk, index, suffix.length);
+
+        // Release store: readers that observe the slot also observe the bytes
+        SLOT.setRelease(segment, offset, PRESENT | (position << LENGTH_BITS) | length);
+        long current;
+        do {
+            current = highWatermark.get();
+        } while (id > current && !highWatermark.compareAndSet(current, id));
+    }
+
+    /**
+     * Returns the length of the prefix of {@code url}: up to and including
+     * the slash after the first path segment, or after the authority if the
+     * path has a single segment. Returns 0 for URLs without an authority.
+     */
+    static int prefixEnd(String url) {
+        int colon = url.indexOf(':');
+        if (colon <= 0 || !url.startsWith("//", colon + 1)) {
+            return 0;
+        }
+        int slash = -1;
+        for (int i = colon + 3; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                break;
+            }
+            if (c == '/') {
+                if (slash >= 0) {
+                    return i + 1;
+                }
+                slash = i;
+            }
+        }
+        return slash + 1;
+    }
+
+    private int internPrefix(String prefix) {
+        Integer id = prefixIds.get(prefix);
+        if (id != null) {
+            return id;
+        }
+        expandLock.lock();
+        try {
+            id = prefixIds.get(prefix);
+            if (id != null) {
+                return id;
+            }
+            if (prefixCount == maxPrefixes) {
+                return NO_PREFIX;
+            }
+            if (prefixCount == prefixes.length) {
+                prefixes = Arrays.copyOf(prefixes, prefixes.length * 2);
+            }
+            int newId = prefixCount++;
+            prefixes[newId] = prefix.getBytes(StandardCharsets.UTF_8);
+            prefixIds.put(prefix, newId);
+            return newId;
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    private static int varIntSize(int value) {
+        return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : value < 1 << 21 ? 3 : value < 1 << 28 ? 4 : 5;
+    }
+
+    private static int writeVarInt(byte[] chunk, int index, int value) {
+        while (value >= 0x80) {
+            chunk[index++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        chunk[index++] = (byte) value;
+        return index;
+    }
+
+    /**
+     * Reserves {@code length} contiguous bytes inside a single chunk and
+     * returns the arena offset of the first byte.
+     */
+    private long reserve(int length) {
+        while (true) {
+            long current = arenaPosition.get();
+            long start = current;
+            long chunkEnd = (start | chunkMask) + 1;
+            if (start + length > chunkEnd) {
+                // Skip the tail of the current chunk
+                start = chunkEnd;
+            }
+            if (start + length > MAX_OFFSET) {
+                throw new IllegalStateException("Arena exhausted");
+            }
+            if (arenaPosition.compareAndSet(current, start + length)) {
+                return start;
+            }
+        }
+    }
+
+    private long[] ensureSegment(int segIndex) {
+        long[][] local = segments;
+        if (segIndex < local.length && local[segIndex] != null) {
+            return local[segIndex];
+        }
+        expandLock.lock();
+        try {
+            if (segIndex >= segments.length) {
+                segments = Arrays.copyOf(segments, Math.max(segIndex + 1, segments.length * 2));
+            }
+            if (segments[segIndex] == null) {
+                segments[segIndex] = new long[(int) segmentSize];
+            }
+            return segments[segIndex];
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    private byte[] ensureChunk(int chunkIndex) {
+        byte[][] local = chunks;
+        if (chunkIndex < local.length && local[chunkIndex] != null) {
+            return local[chunkIndex];
+        }
+        expandLock.lock();
+        try {
+            if (chunkIndex >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunkIndex + 1, chunks.length * 2));
+            }
+            if (chunks[chunkIndex] == null) {
+                chunks[chunkIndex] = new byte[chunkSize];
+            }
+            return chunks[chunkIndex];
+        } finally {
+            expandLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> get(long id) {
+        long hw = highWatermark.get();
+        if (id < 0 || id > hw) {
+            return Optional.empty();
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        long[][] local = segments;
+        if (segIndex >= local.length) {
+            return Optional.empty();
+        }
+        long[] segment = local[segIndex];
+        if (segment == null) {
+            return Optional.empty();
+        }
+        long slot = (long) SLOT.getAcquire(segment, (int) (id & segmentMask));
+        if (slot == 0L) {
+            return Optional.empty();
+        }
+        long position = (slot & ~PRESENT) >>> LENGTH_BITS;
+        int length = (int) (slot & LENGTH_MASK);
+        byte[] chunk = chunks[(int) (position >>> chunkShift)];
+        int index = (int) (position & chunkMask);
+        int end = index + length;
+        int prefixId = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = chunk[index++];
+            prefixId |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        byte[] prefix = prefixes[prefixId];
+        byte[] bytes = Arrays.copyOf(prefix, prefix.length + end - index);
+        System.arraycopy(chunk, index, bytes, prefix.length, end - index);
+        return Optional.of(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public long highWatermark() {
+        return highWatermark.get();
+    }
+
+    @Override
+    public int allocatedSegmentCount() {
+        int count = 0;
+        for (long[] segment : segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of arena bytes reserved so far, including skipped
+     * chunk tails.
+     */
+    public long arenaBytes() {
+        return arenaPosition.get();
+    }
+
+    /**
+     * Returns the number of interned prefixes, including the empty one.
+     */
+    public int prefixCount() {
+        return prefixIds.size() + 1;
+    }
+}
@@ -4,9 +4,14 @@ import java.util.Optional;
 
 /**
  * Reverse mapping from a URL to an ID. Used to ensure idempotency within a
- * single runtime. Does not need to support removal.
+ * single runtime. URLs are only removed when their mapping expires.
  */
 public interface ReverseIndex {
+    /**
+     * Returned by {@link #tryGetId(String)} when the URL is not present.
+     */
+    long NO_ID = -1L;
+
     /**
      * Retrieves the ID previously associated with the given normalized URL, if
      * present.
@@ -16,6 +21,23 @@ public interface ReverseIndex {
      */
     Optional<Long> getId(String normalizedUrl);
 
+    /**
+     * Like {@link #getId(String)} but returns {@link #NO_ID} instead of an
+     * empty Optional, so implementations can avoid boxing on the hot path.
+     *
+     * @param normalizedUrl a validated and normalized URL
+     * @return the ID, or {@link #NO_ID} if absent
+     */
+    default long tryGetId(String normalizedUrl) {
+        return getId(normalizedUrl).orElse(NO_ID);
+    }
+
+    /**
+     * Returns the number of URLs in the index. May be approximate while
+     * URLs are being added concurrently.
+     */
+    long size();
+
     /**
      * Associates the given URL with the specified ID if it is not already
      * present. Returns the ID that is ultimately stored.
@@ -25,4 +47,62 @@ public interface ReverseIndex {
      * @return the ID actually stored (may be the input or an existing one)
      */
     long putIfAbsent(String normalizedUrl, long id);
+
+    /**
+     * Removes the URL if it is associated with {@code id}, so shortening it
+     * again allocates a new ID.
+     *
+     * @param normalizedUrl a validated and normalized URL
+     * @param id the ID the URL must be associated with
+     * @return true if the URL was removed
+     */
+    boolean remove(String normalizedUrl, long id);
+
+    /**
+     * Returns the ID associated with the URL or, if there is none, atomically
+     * obtains a new one from {@code allocator} and associates it. For any URL
+     * the allocator runs at most once, so concurrent callers never allocate
+     * IDs that are then thrown away. The allocator must make the new mapping
+     * durable and resolvable (journal it and store it in the forward index)
+     * before returning, and must not call back into this index. If the
+     * allocator throws, nothing is associated and the exception propagates.
+     * <p>
+     * To tell the cases apart without allocating, a newly allocated ID is
+     * returned encoded as {@code -(id + 1)}, in the style of
+     * {@link java.util.Arrays#binarySearch(long[], long)}; see
+     * {@link #isAllocated(long)} and {@link #allocatedId(long)}.
+     *
+     * @param normalizedUrl a validated and normalized URL
+     * @param allocator supplies and stores the ID of a new URL
+     * @return the existing ID, or {@code -(id + 1)} for a newly allocated ID
+     */
+    long getOrAllocate(String normalizedUrl, IdAllocator allocator);
+
+    /**
+     * Returns whether a {@link #getOrAllocate} result is a newly allocated ID.
+     */
+    static boolean isAllocated(long result) {
+        return result < 0;
+    }
+
+    /**
+     * Decodes the ID from a {@link #getOrAllocate} result.
+     */
+    static long allocatedId(long result) {
+        return result < 0 ? -(result + 1) : result;
+    }
+
+    /**
+     * Supplies the ID of a URL seen for the first time.
+     */
+    @FunctionalInterface
+    interface IdAllocator {
+        /**
+         * Allocates an ID for {@code normalizedUrl}, journals the mapping and
+         * stores it in the forward index.
+         *
+         * @return the new ID
+         */
+        long allocate(String normalizedUrl);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.example.shortener.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically compacts the segments of a {@link SegmentedForwardIndex}
+ * that are older than the newest {@code hotSegments}, on a single daemon
+ * thread. Resolve traffic concentrates on recent IDs, so old segments are
+ * rarely read and can be kept compressed. A failed pass is logged and the
+ * next one runs as scheduled.
+ */
+public class SegmentCompactor implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentCompactor.class);
+
+    private final SegmentedForwardIndex index;
+    private final int hotSegments;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param index the index to compact; must have compaction enabled
+     * @param hotSegments number of newest segments kept uncompressed
+     * @param intervalMillis interval between compaction passes
+     */
+    public SegmentCompactor(SegmentedForwardIndex index, int hotSegments, long intervalMillis) {
+        if (!index.isCompactionEnabled()) {
+            throw new IllegalArgumentException("Compaction is not enabled for this index");
+        }
+        if (hotSegments < 1 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("hotSegments and intervalMillis must be positive");
+        }
+        this.index = index;
+        this.hotSegments = hotSegments;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactLogged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one compaction pass now.
+     *
+     * @return the number of segments compacted
+     */
+    public int compact() {
+        return index.compactColdSegments(hotSegments);
+    }
+
+    /**
+     * Runs a scheduled pass; an exception escaping it would cancel all later
+     * passes.
+     */
+    private void compactLogged() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("Segment compaction failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -2,7 +2,9 @@ package com.example.shortener.core;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -12,6 +14,18 @@ import java.util.concurrent.locks.ReentrantLock;
  * configurable shift. Each segment holds a fixed number of references
  * corresponding to contiguous ID ranges. This design avoids large contiguous
  * allocations and provides constant-time resolution of IDs.
+ * <p>
+ * When created with a block cache, old segments can be compacted into
+ * {@link ColdSegment}s with {@link #compactSegment(int)}: their entries are
+ * deflated in small blocks and inflated on demand, with recently read blocks
+ * kept in the cache. Readers stay lock-free. Writers to a segment being
+ * compacted wait for the compaction and then thaw the segment back into an
+ * array, so late writes (e.g. from leased ID blocks) are never lost.
+ * <p>
+ * Entries can be tombstoned with {@link #remove(long)}. When created with
+ * reclaimable segments, a segment whose entries have all been removed can be
+ * released with {@link #releaseSegment(int)}; a later write to its range
+ * allocates it again, guarded like a write to a compacted segment.
  */
 public class SegmentedForwardIndex implements ForwardIndex {
     /**
@@ -41,19 +55,85 @@ public class SegmentedForwardIndex implements ForwardIndex {
      */
     private final Lock expandLock = new ReentrantLock();
 
+    /**
+     * Cache of inflated cold blocks, or null if segments are never compacted.
+     */
+    private final ClockCache blockCache;
+
+    /**
+     * Compacted segments, indexed like {@link #segments}; a segment is cold
+     * while its slot in {@link #segments} is null and its slot here is not.
+     */
+    private volatile ColdSegment[] coldSegments;
+
+    /**
+     * Per-segment count of writers in flight, or -1 while the segment is
+     * being compacted, cold or released. Only maintained when compaction or
+     * segment release is enabled.
+     */
+    private volatile AtomicInteger[] writers;
+
+    /**
+     * Serializes compactions and thaws.
+     */
+    private final Lock compactLock = new ReentrantLock();
+    private final ColdSegment.InflaterPool inflaters = new ColdSegment.InflaterPool();
+    private final AtomicLong coldIds = new AtomicLong();
+    private final AtomicLong coldRawBytes = new AtomicLong();
+    private final AtomicLong coldCompressedBytes = new AtomicLong();
+    private final LongAdder coldReads = new LongAdder();
+    private final LongAdder coldReadNanos = new LongAdder();
+    private final AtomicInteger releasedSegments = new AtomicInteger();
+
     public SegmentedForwardIndex() {
         this(20);
     }
 
     public SegmentedForwardIndex(int segmentShift) {
+        this(segmentShift, null);
+    }
+
+    /**
+     * Creates an index whose segments can be compacted.
+     *
+     * @param segmentShift log2 of the segment size (4..29 if compaction is
+     *                     enabled)
+     * @param blockCache cache for inflated cold blocks, or null to disable
+     *                   compaction
+     */
+    public SegmentedForwardIndex(int segmentShift, ClockCache blockCache) {
+        this(segmentShift, blockCache, false);
+    }
+
+    /**
+     * Creates an index whose segments can be compacted and, once all their
+     * entries are removed, released.
+     *
+     * @param segmentShift log2 of the segment size (4..29 if compaction is
+     *                     enabled)
+     * @param blockCache cache for inflated cold blocks, or null to disable
+     *                   compaction
+     * @param reclaimSegments whether empty segments can be released; guards
+     *                        every write with a per-segment writer count
+     */
+    public SegmentedForwardIndex(int segmentShift, ClockCache blockCache, boolean reclaimSegments) {
         if (segmentShift <= 0 || segmentShift >= 30) {
             throw new IllegalArgumentException("segmentShift must be between 1 and 29");
         }
+        if (blockCache != null && segmentShift < ColdSegment.BLOCK_SHIFT) {
+            throw new IllegalArgumentException("segmentShift must be at least " + ColdSegment.BLOCK_SHIFT
+                    + " to compact segments");
+        }
         this.segmentShift = segmentShift;
         this.segmentSize = 1L << segmentShift;
         this.segmentMask = segmentSize - 1;
         // Preallocate a small number of segment slots; actual segments allocated on demand
         this.segments = new String[1][];
+        this.blockCache = blockCache;
+        if (blockCache != null || reclaimSegments) {
+            this.coldSegments = new ColdSegment[1];
+            this.writers = new AtomicInteger[]{new AtomicInteger()};
+        }
     }
 
     @Override
@@ -64,8 +144,12 @@ public class SegmentedForwardIndex implements ForwardIndex {
         int segIndex = (int) (id >>> segmentShift);
         int offset = (int) (id & segmentMask);
         ensureCapacity(segIndex);
-        String[] segment = segments[segIndex];
-        segment[offset] = url;
+        if (writers == null) {
+            String[] segment = segments[segIndex];
+            segment[offset] = url;
+        } else {
+            putGuarded(segIndex, offset, url);
+        }
         // Publish the new high watermark after the URL is visible
         long current;
         do {
@@ -81,7 +165,7 @@ public class SegmentedForwardIndex implements ForwardIndex {
             if (local[segIndex] == null) {
                 expandLock.lock();
                 try {
-                    if (segments[segIndex] == null) {
+                    if (segments[segIndex] == null && !isParked(segIndex)) {
                         segments[segIndex] = new String[(int) segmentSize];
                     }
                 } finally {
@@ -95,13 +179,12 @@ public class SegmentedForwardIndex implements ForwardIndex {
         try {
             // Double-check after acquiring lock
             if (segIndex < segments.length) {
-                if (segments[segIndex] == null) {
+                if (segments[segIndex] == null && !isParked(segIndex)) {
                     segments[segIndex] = new String[(int) segmentSize];
                 }
                 return;
             }
-            int newLength = Math.max(segIndex + 1, segments.length * 2);
-            segments = Arrays.copyOf(segments, newLength);
+            growTo(segIndex);
             // Allocate the new segment
             segments[segIndex] = new String[(int) segmentSize];
         } finally {
@@ -109,6 +192,282 @@ public class SegmentedForwardIndex implements ForwardIndex {
         }
     }
 
+    /**
+     * Grows the segment arrays to include {@code segIndex}. Called with
+     * {@link #expandLock} held.
+     */
+    private void growTo(int segIndex) {
+        if (segIndex < segments.length) {
+            return;
+        }
+        int newLength = Math.max(segIndex + 1, segments.length * 2);
+        if (writers != null) {
+            // Writer counts are shared objects, so in-flight writers keep counting on the same ones
+            AtomicInteger[] grown = Arrays.copyOf(writers, newLength);
+            for (int i = writers.length; i < newLength; i++) {
+                grown[i] = new AtomicInteger();
+            }
+            writers = grown;
+            coldSegments = Arrays.copyOf(coldSegments, newLength);
+        }
+        segments = Arrays.copyOf(segments, newLength);
+    }
+
+    private boolean isCold(int segIndex) {
+        ColdSegment[] cold = coldSegments;
+        return cold != null && segIndex < cold.length && cold[segIndex] != null;
+    }
+
+    /**
+     * Returns true if the segment is cold or released, so only
+     * {@link #thawAndPut} may allocate it again.
+     */
+    private boolean isParked(int segIndex) {
+        return isCold(segIndex) || writers != null && writers[segIndex].get() < 0;
+    }
+
+    /**
+     * Writes an entry while registered as a writer of its segment, so a
+     * compaction cannot snapshot the segment halfway through the write.
+     */
+    private void putGuarded(int segIndex, int offset, String url) {
+        AtomicInteger guard = writers[segIndex];
+        while (true) {
+            int count = guard.get();
+            if (count < 0) {
+                thawAndPut(segIndex, offset, url);
+                return;
+            }
+            if (guard.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        try {
+            segments[segIndex][offset] = url;
+        } finally {
+            guard.decrementAndGet();
+        }
+    }
+
+    /**
+     * Slow path for writes to a compacted or released segment: waits for any
+     * running compaction, inflates the segment back into an array (or
+     * allocates an empty one) and writes to it.
+     */
+    private void thawAndPut(int segIndex, int offset, String url) {
+        compactLock.lock();
+        try {
+            AtomicInteger guard = writers[segIndex];
+            if (guard.get() < 0) {
+                ColdSegment cold = coldSegments[segIndex];
+                if (cold == null) {
+                    // Released
+                    expandLock.lock();
+                    try {
+                        segments[segIndex] = new String[(int) segmentSize];
+                    } finally {
+                        expandLock.unlock();
+                    }
+                    releasedSegments.decrementAndGet();
+                    guard.set(0);
+                    segments[segIndex][offset] = url;
+                    return;
+                }
+                String[] values = cold.expand((int) segmentSize, inflaters);
+                expandLock.lock();
+                try {
+                    String[][] hot = segments.clone();
+                    hot[segIndex] = values;
+                    segments = hot;
+                    // Readers that still find the segment missing re-read segments after this
+                    ColdSegment[] remaining = coldSegments.clone();
+                    remaining[segIndex] = null;
+                    coldSegments = remaining;
+                } finally {
+                    expandLock.unlock();
+                }
+                coldRawBytes.addAndGet(-cold.rawBytes());
+                coldCompressedBytes.addAndGet(-cold.compressedBytes());
+                guard.set(0);
+            }
+            segments[segIndex][offset] = url;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    /**
+     * Compresses a segment into a {@link ColdSegment}, which then serves its
+     * reads. Running writers of the segment are waited for; later writers
+     * thaw it again.
+     *
+     * @param segIndex segment to compact
+     * @return false if compaction is disabled or the segment is absent or
+     *         already compacted
+     */
+    public boolean compactSegment(int segIndex) {
+        if (blockCache == null) {
+            return false;
+        }
+        compactLock.lock();
+        try {
+            String[][] local = segments;
+            if (segIndex < 0 || segIndex >= local.length || local[segIndex] == null) {
+                return false;
+            }
+            String[] values = local[segIndex];
+            AtomicInteger guard = writers[segIndex];
+            while (!guard.compareAndSet(0, -1)) {
+                Thread.onSpinWait();
+            }
+            ColdSegment cold = ColdSegment.compress(values, coldIds.getAndIncrement());
+            expandLock.lock();
+            try {
+                // Publish the cold segment before the array slot is cleared
+                ColdSegment[] compacted = coldSegments.clone();
+                compacted[segIndex] = cold;
+                coldSegments = compacted;
+                String[][] hot = segments.clone();
+                hot[segIndex] = null;
+                segments = hot;
+            } finally {
+                expandLock.unlock();
+            }
+            coldRawBytes.addAndGet(cold.rawBytes());
+            coldCompressedBytes.addAndGet(cold.compressedBytes());
+            return true;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    /**
+     * Compacts every segment except the {@code hotSegments} newest ones up to
+     * the high watermark.
+     *
+     * @return the number of segments compacted
+     */
+    public int compactColdSegments(int hotSegments) {
+        long hw = highWatermark.get();
+        int compacted = 0;
+        if (hw < 0) {
+            return 0;
+        }
+        for (long segIndex = (hw >>> segmentShift) - hotSegments; segIndex >= 0; segIndex--) {
+            if (compactSegment((int) segIndex)) {
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Tombstones an entry. Removing from a compacted segment thaws it.
+     */
+    @Override
+    public void remove(long id) {
+        if (id < 0 || id > highWatermark.get()) {
+            return;
+        }
+        int segIndex = (int) (id >>> segmentShift);
+        int offset = (int) (id & segmentMask);
+        String[][] local = segments;
+        if (segIndex >= local.length) {
+            return;
+        }
+        if (writers == null) {
+            String[] segment = local[segIndex];
+            if (segment != null) {
+                segment[offset] = null;
+            }
+        } else if (local[segIndex] != null || isCold(segIndex)) {
+            putGuarded(segIndex, offset, null);
+        }
+    }
+
+    /**
+     * Releases a segment whose entries have all been removed, leaving its
+     * array to the garbage collector. The segment of the high watermark is
+     * never released, since IDs are still being written to it. Running
+     * writers of the segment are waited for; later writers allocate it again.
+     *
+     * @param segIndex segment to release
+     * @return false if segment release is disabled, or the segment is
+     *         absent, cold, the newest one or still holds entries
+     */
+    public boolean releaseSegment(int segIndex) {
+        if (writers == null || segIndex < 0 || segIndex >= highWatermark.get() >>> segmentShift) {
+            return false;
+        }
+        compactLock.lock();
+        try {
+            String[][] local = segments;
+            if (segIndex >= local.length || local[segIndex] == null || !isEmpty(local[segIndex])) {
+                return false;
+            }
+            String[] values = local[segIndex];
+            AtomicInteger guard = writers[segIndex];
+            while (!guard.compareAndSet(0, -1)) {
+                Thread.onSpinWait();
+            }
+            // A write may have landed between the first scan and the guard
+            if (!isEmpty(values)) {
+                guard.set(0);
+                return false;
+            }
+            expandLock.lock();
+            try {
+                String[][] hot = segments.clone();
+                hot[segIndex] = null;
+                segments = hot;
+            } finally {
+                expandLock.unlock();
+            }
+            releasedSegments.incrementAndGet();
+            return true;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    private static boolean isEmpty(String[] segment) {
+        for (String url : segment) {
+            if (url != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of segments currently released.
+     */
+    public int releasedSegmentCount() {
+        return releasedSegments.get();
+    }
+
+    /**
+     * Returns the size of one segment's array of references, which a
+     * released segment gives back, assuming compressed references.
+     */
+    public long segmentArrayBytes() {
+        return 16 + 4 * segmentSize;
+    }
+
+    /**
+     * Returns true if empty segments can be released.
+     */
+    public boolean isSegmentReleaseEnabled() {
+        return writers != null;
+    }
+
+    /**
+     * Returns the segment holding {@code id}.
+     */
+    public int segmentOf(long id) {
+        return (int) (id >>> segmentShift);
+    }
+
     @Override
     public Optional<String> get(long id) {
         long hw = highWatermark.get();
@@ -123,14 +482,199 @@ public class SegmentedForwardIndex implements ForwardIndex {
         }
         String[] segment = local[segIndex];
         if (segment == null) {
-            return Optional.empty();
+            return blockCache == null ? Optional.empty() : getCold(segIndex, offset);
         }
         String url = segment[offset];
         return Optional.ofNullable(url);
     }
 
+    private Optional<String> getCold(int segIndex, int offset) {
+        ColdSegment[] cold = coldSegments;
+        ColdSegment segment = segIndex < cold.length ? cold[segIndex] : null;
+        if (segment == null) {
+            // The segment may have been thawed since segments was read
+            String[] thawed = segments[segIndex];
+            return thawed == null ? Optional.empty() : Optional.ofNullable(thawed[offset]);
+        }
+        long start = System.nanoTime();
+        String url = segment.get(offset, blockCache, inflaters);
+        coldReadNanos.add(System.nanoTime() - start);
+        coldReads.increment();
+        return Optional.ofNullable(url);
+    }
+
     @Override
     public long highWatermark() {
         return highWatermark.get();
     }
+
+    @Override
+    public int allocatedSegmentCount() {
+        int count = 0;
+        for (String[] segment : segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count + coldSegmentCount();
+    }
+
+    /**
+     * Returns the number of compacted segments.
+     */
+    public int coldSegmentCount() {
+        ColdSegment[] cold = coldSegments;
+        int count = 0;
+        if (cold != null) {
+            for (ColdSegment segment : cold) {
+                if (segment != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether segments can be compacted, i.e. a block cache was given.
+     */
+    public boolean isCompactionEnabled() {
+        return blockCache != null;
+    }
+
+    /**
+     * Creates a cache for inflated cold blocks, with slots sized for blocks
+     * rather than the small values {@link ClockCache#ClockCache(long)}
+     * assumes.
+     *
+     * @param maxBytes budget for the cached blocks and their overhead
+     */
+    public static ClockCache newBlockCache(long maxBytes) {
+        return new ClockCache(maxBytes, (int) Math.min(1 << 24, Math.max(8, maxBytes / ColdSegment.TYPICAL_BLOCK_BYTES)));
+    }
+
+    /**
+     * Returns the cache of inflated cold blocks, or null if compaction is
+     * disabled.
+     */
+    public ClockCache coldBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the entries in compacted segments.
+     */
+    public long coldRawBytes() {
+        return coldRawBytes.get();
+    }
+
+    /**
+     * Returns the bytes of compacted segments after compression, including
+     * dictionaries and block offsets.
+     */
+    public long coldCompressedBytes() {
+        return coldCompressedBytes.get();
+    }
+
+    /**
+     * Returns the number of lookups served by compacted segments.
+     */
+    public long coldReads() {
+        return coldReads.sum();
+    }
+
+    /**
+     * Returns the total time spent in lookups served by compacted segments,
+     * in nanoseconds.
+     */
+    public long coldReadNanos() {
+        return coldReadNanos.sum();
+    }
+
+    /**
+     * Returns the number of bits used to split IDs into segment and offset.
+     */
+    public int segmentShift() {
+        return segmentShift;
+    }
+
+    /**
+     * Visits the non-null entries of one segment whose ID is at most
+     * {@code maxId}, in ascending ID order. Used to dump the index segment by
+     * segment.
+     *
+     * @param segIndex segment to visit
+     * @param maxId highest ID to include
+     * @param action callback receiving each ID and its URL
+     */
+    public void forEachInSegment(int segIndex, long maxId, EntryConsumer action) {
+        String[][] local = segments;
+        if (segIndex < 0 || segIndex >= local.length) {
+            return;
+        }
+        long base = (long) segIndex << segmentShift;
+        int limit = (int) Math.min(segmentSize, maxId - base + 1);
+        if (local[segIndex] == null) {
+            ColdSegment[] cold = coldSegments;
+            if (cold != null && segIndex < cold.length && cold[segIndex] != null && limit > 0) {
+                cold[segIndex].forEach(base, limit, action, inflaters);
+            }
+            return;
+        }
+        String[] segment = local[segIndex];
+        for (int offset = 0; offset < limit; offset++) {
+            String url = segment[offset];
+            if (url != null) {
+                action.accept(base + offset, url);
+            }
+        }
+    }
+
+    /**
+     * Installs a fully populated segment, e.g. when restoring from a
+     * snapshot. Distinct segments may be restored concurrently, but a segment
+     * must not be restored while IDs in its range are being written.
+     *
+     * @param segIndex segment to install
+     * @param values array of exactly {@code 1 << segmentShift} entries, owned
+     *               by the index afterwards
+     */
+    public void restoreSegment(int segIndex, String[] values) {
+        if (values.length != segmentSize) {
+            throw new IllegalArgumentException("segment must have " + segmentSize + " entries");
+        }
+        expandLock.lock();
+        try {
+            growTo(segIndex);
+            segments[segIndex] = values;
+        } finally {
+            expandLock.unlock();
+        }
+        for (int offset = values.length - 1; offset >= 0; offset--) {
+            if (values[offset] != null) {
+                long id = ((long) segIndex << segmentShift) | offset;
+                highWatermark.accumulateAndGet(id, Math::max);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of segment slots, allocated or not. Segment indexes
+     * passed to {@link #forEachInSegment} range from 0 to this value - 1.
+     */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Visits entries segment by segment, without probing IDs one at a time.
+     */
+    @Override
+    public void forEach(EntryConsumer action) {
+        long hw = highWatermark();
+        for (int segIndex = 0; segIndex < segmentCount() && (long) segIndex << segmentShift <= hw; segIndex++) {
+            forEachInSegment(segIndex, hw, action);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,314 @@
+package com.example.shortener.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable run file of an {@link LsmReverseIndex}: {@code (key, id)}
+ * entries sorted by the unsigned bytes of the key, each written as
+ * {@code int length, key bytes, long id}. Entries are grouped into blocks
+ * of about {@value #BLOCK_SIZE} bytes; the heap keeps only the first key and
+ * file offset of each block and a {@link BloomFilter} of all keys, so a
+ * lookup of an absent key usually reads nothing and any other one reads a
+ * single block.
+ * <p>
+ * Lookups use positional reads and may run concurrently. A run is retired
+ * by closing it once a compaction has replaced it; lookups that were still
+ * reading it fail with {@link RetiredException} and are retried against
+ * the current runs.
+ */
+final class SortedRun implements Closeable {
+
+    static final int BLOCK_SIZE = 4096;
+
+    private final Path file;
+    private final int tier;
+    private final long entries;
+    private final long bytes;
+    private final BloomFilter bloom;
+    private final byte[][] blockKeys;
+    /** Offset of each block, followed by the file length. */
+    private final long[] blockOffsets;
+    private final LongAdder blockReads;
+    private volatile FileChannel channel;
+    private volatile boolean retired;
+
+    private SortedRun(Path file, int tier, long entries, long bytes, BloomFilter bloom,
+                      byte[][] blockKeys, long[] blockOffsets, LongAdder blockReads) throws IOException {
+        this.file = file;
+        this.tier = tier;
+        this.entries = entries;
+        this.bytes = bytes;
+        this.bloom = bloom;
+        this.blockKeys = blockKeys;
+        this.blockOffsets = blockOffsets;
+        this.blockReads = blockReads;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Source of the entries of a new run, in key order without duplicates.
+     */
+    interface EntrySource {
+        /** Advances to the next entry; returns false at the end. */
+        boolean next() throws IOException;
+
+        byte[] key();
+
+        long id();
+    }
+
+    /**
+     * Writes the entries of {@code source} to {@code file} and opens it.
+     *
+     * @param expectedEntries upper bound of the number of entries, to size
+     *                        the Bloom filter
+     * @param tier number of merges the entries went through
+     * @param blockReads counts the blocks read by lookups of the new run
+     */
+    static SortedRun write(Path file, EntrySource source, long expectedEntries, int bloomBitsPerKey, int tier,
+                           LongAdder blockReads) throws IOException {
+        BloomFilter bloom = new BloomFilter(expectedEntries, bloomBitsPerKey);
+        List<byte[]> blockKeys = new ArrayList<>();
+        long[] blockOffsets = new long[16];
+        long entries = 0;
+        long position = 0;
+        long blockStart = -BLOCK_SIZE;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 1 << 16))) {
+            while (source.next()) {
+                byte[] key = source.key();
+                if (position - blockStart >= BLOCK_SIZE) {
+                    if (blockKeys.size() + 1 >= blockOffsets.length) {
+                        blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length << 1);
+                    }
+                    blockOffsets[blockKeys.size()] = position;
+                    blockKeys.add(key);
+                    blockStart = position;
+                }
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(source.id());
+                bloom.add(BloomFilter.hash(key));
+                position += 4 + key.length + 8;
+                entries++;
+            }
+        }
+        blockOffsets[blockKeys.size()] = position;
+        return new SortedRun(file, tier, entries, position, bloom, blockKeys.toArray(new byte[0][]),
+                Arrays.copyOf(blockOffsets, blockKeys.size() + 1), blockReads);
+    }
+
+    /**
+     * Returns the ID stored for {@code key}, which may be a tombstone, or
+     * {@link ReverseIndex#NO_ID} if the run does not contain it.
+     *
+     * @param hash {@link BloomFilter#hash(byte[])} of the key
+     * @throws RetiredException if the run was retired during the lookup
+     */
+    long get(byte[] key, long hash) {
+        if (!bloom.mightContain(hash)) {
+            return ReverseIndex.NO_ID;
+        }
+        int block = floorBlock(key);
+        if (block < 0) {
+            return ReverseIndex.NO_ID;
+        }
+        ByteBuffer buffer = read(blockOffsets[block], (int) (blockOffsets[block + 1] - blockOffsets[block]));
+        while (buffer.hasRemaining()) {
+            int length = buffer.getInt();
+            int cmp = compare(buffer, length, key);
+            if (cmp == 0) {
+                return buffer.getLong(buffer.position() + length);
+            }
+            if (cmp > 0) {
+                // Sorted, so the key would have come before
+                return ReverseIndex.NO_ID;
+            }
+            buffer.position(buffer.position() + length + 8);
+        }
+        return ReverseIndex.NO_ID;
+    }
+
+    /**
+     * Index of the last block whose first key is not greater than
+     * {@code key}, or -1 if the key precedes every block.
+     */
+    private int floorBlock(byte[] key) {
+        int low = 0;
+        int high = blockKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(blockKeys[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static int compare(ByteBuffer buffer, int length, byte[] key) {
+        int start = buffer.position();
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private ByteBuffer read(long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (;;) {
+            FileChannel local = channel;
+            try {
+                while (buffer.hasRemaining()) {
+                    if (local.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException("Truncated run " + file);
+                    }
+                }
+                blockReads.increment();
+                return buffer.flip();
+            } catch (ClosedByInterruptException e) {
+                // The interrupt closed the channel for every reader, so reopen it before giving up
+                reopen(local);
+                throw new UncheckedIOException("Interrupted while reading " + file, e);
+            } catch (ClosedChannelException e) {
+                if (retired) {
+                    throw new RetiredException();
+                }
+                reopen(local);
+                buffer.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + file, e);
+            }
+        }
+    }
+
+    private synchronized void reopen(FileChannel closed) {
+        if (channel != closed || retired) {
+            return;
+        }
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reopen " + file, e);
+        }
+    }
+
+    /**
+     * Reads the entries in order, independently of lookups.
+     */
+    Cursor cursor() throws IOException {
+        return new Cursor(new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16)));
+    }
+
+    int tier() {
+        return tier;
+    }
+
+    long entries() {
+        return entries;
+    }
+
+    /** Size of the file. */
+    long bytes() {
+        return bytes;
+    }
+
+    /** Heap held by the Bloom filter and block index. */
+    long retainedBytes() {
+        long keyBytes = 0;
+        for (byte[] key : blockKeys) {
+            keyBytes += 16 + key.length;
+        }
+        return bloom.retainedBytes() + keyBytes + 8L * blockKeys.length + 8L * blockOffsets.length;
+    }
+
+    /**
+     * Closes and deletes the run; lookups still reading it are retried.
+     */
+    synchronized void retire() throws IOException {
+        retired = true;
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        retired = true;
+        channel.close();
+    }
+
+    /**
+     * Sequential reader of a run's entries, for merging.
+     */
+    static final class Cursor implements EntrySource, Closeable {
+        private final DataInputStream in;
+        private byte[] key;
+        private long id;
+
+        private Cursor(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                key = null;
+                return false;
+            }
+            key = new byte[length];
+            in.readFully(key);
+            id = in.readLong();
+            return true;
+        }
+
+        @Override
+        public byte[] key() {
+            return key;
+        }
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Thrown by lookups of a run retired while they were reading it.
+     */
+    static final class RetiredException extends RuntimeException {
+        RetiredException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.shortener.core;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of {@code long} IDs keyed by an absolute tick.
+ * Level {@code L} has 64 slots of {@code 64^L} ticks each; an ID is filed at
+ * the lowest level whose slot still separates its tick from the current
+ * one, and moves one level down each time the wheel reaches the start of its
+ * slot. Scheduling is O(1) and every ID is moved at most once per level, so
+ * expiring costs O(1) amortized per ID regardless of how many are pending.
+ * IDs beyond the top level wait in an overflow bucket.
+ * <p>
+ * Not thread-safe.
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 6;
+
+    private final Bucket[][] levels = new Bucket[LEVELS][SLOTS];
+    private final Bucket overflow = new Bucket();
+    private long currentTick;
+    private long size;
+
+    /**
+     * @param startTick the tick the wheel starts at; IDs are due once the
+     *                  wheel has advanced to their tick
+     */
+    TimingWheel(long startTick) {
+        this.currentTick = startTick;
+        for (Bucket[] level : levels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Bucket();
+            }
+        }
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    /** Number of scheduled IDs. */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code id} for {@code tick}; ticks that have already passed
+     * are due on the next advance.
+     */
+    void schedule(long id, long tick) {
+        file(id, Math.max(tick, currentTick + 1));
+        size++;
+    }
+
+    private void file(long id, long tick) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if (tick >>> shift == currentTick >>> shift) {
+                levels[level][(int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1)].add(id, tick);
+                return;
+            }
+        }
+        overflow.add(id, tick);
+    }
+
+    /**
+     * Advances the wheel to {@code tick}, passing every ID due by then to
+     * {@code action}. IDs scheduled by {@code action} are filed after the
+     * ticks being processed and not run again in this call unless due.
+     * Ticks at which no slot is due are skipped rather than stepped through.
+     */
+    void advance(long tick, LongConsumer action) {
+        while (currentTick < tick) {
+            long next = size == 0 ? Long.MAX_VALUE : nextEventTick();
+            if (next > tick) {
+                currentTick = tick;
+                return;
+            }
+            currentTick = next;
+            // Cascade from the highest level whose slot starts now, so IDs land in slots not yet visited
+            int top = 0;
+            while (top < LEVELS && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+                top++;
+            }
+            if (top == LEVELS) {
+                cascade(overflow);
+                top = LEVELS - 1;
+            }
+            for (int level = top; level >= 1; level--) {
+                cascade(levels[level][(int) (currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1)]);
+            }
+            Bucket due = levels[0][(int) currentTick & (SLOTS - 1)];
+            long[] entries = due.entries;
+            int count = due.count;
+            due.clear();
+            size -= count;
+            for (int i = 0; i < count; i++) {
+                action.accept(entries[i << 1]);
+            }
+        }
+    }
+
+    /**
+     * Returns the first tick after the current one at which a non-empty
+     * slot is due or cascades. Every filed ID lies in a slot after the
+     * current one within its level's window, so no other tick can have work.
+     */
+    private long nextEventTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            long window = currentTick >>> (shift + SLOT_BITS) << (shift + SLOT_BITS);
+            for (int slot = (int) (currentTick >>> shift) & (SLOTS - 1); ++slot < SLOTS; ) {
+                if (levels[level][slot].count > 0) {
+                    next = Math.min(next, window | (long) slot << shift);
+                    break;
+                }
+            }
+        }
+        if (overflow.count > 0) {
+            int topShift = SLOT_BITS * LEVELS;
+            next = Math.min(next, (currentTick >>> topShift) + 1 << topShift);
+        }
+        return next;
+    }
+
+    private void cascade(Bucket bucket) {
+        long[] entries = bucket.entries;
+        int count = bucket.count;
+        // Pairs may be filed back into this bucket, which then starts a new array
+        bucket.clear();
+        for (int i = 0; i < count; i++) {
+            file(entries[i << 1], entries[(i << 1) + 1]);
+        }
+    }
+
+    /**
+     * Growable list of {@code (id, tick)} pairs.
+     */
+    private static final class Bucket {
+        private static final long[] EMPTY = new long[0];
+
+        long[] entries = EMPTY;
+        int count;
+
+        void add(long id, long tick) {
+            if (count << 1 == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(16, entries.length << 1));
+            }
+            entries[count << 1] = id;
+            entries[(count << 1) + 1] = tick;
+            count++;
+        }
+
+        void clear() {
+            entries = EMPTY;
+            count = 0;
+        }
+    }
+}
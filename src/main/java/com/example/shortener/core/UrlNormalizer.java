@@ -11,7 +11,8 @@ public interface UrlNormalizer {
      * value should be suitable for use as a map key in the reverse index.
      *
      * @param url a validated URL string
-     * @return a normalized form of the URL
+     * @return a normalized form of the URL, or {@code url} itself if it is
+     *         already normalized
      */
     String normalize(String url);
 }
\ No newline at end of file
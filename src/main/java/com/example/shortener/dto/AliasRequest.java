@@ -0,0 +1,43 @@
+package com.example.shortener.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request payload for creating a custom alias of a URL.
+ */
+public class AliasRequest {
+
+    @NotNull
+    @NotBlank
+    private String alias;
+
+    @NotNull
+    @NotBlank
+    private String longUrl;
+
+    public AliasRequest() {
+        // default constructor for JSON deserialization
+    }
+
+    public AliasRequest(String alias, String longUrl) {
+        this.alias = alias;
+        this.longUrl = longUrl;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public String getLongUrl() {
+        return longUrl;
+    }
+
+    public void setLongUrl(String longUrl) {
+        this.longUrl = longUrl;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.shortener.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Request payload for resolving several short codes at once.
+ */
+public class BatchResolveRequest {
+
+    @NotNull
+    private List<String> shortCodes;
+
+    public BatchResolveRequest() {
+        // default constructor for JSON deserialization
+    }
+
+    public BatchResolveRequest(List<String> shortCodes) {
+        this.shortCodes = shortCodes;
+    }
+
+    public List<String> getShortCodes() {
+        return shortCodes;
+    }
+
+    public void setShortCodes(List<String> shortCodes) {
+        this.shortCodes = shortCodes;
+    }
+}
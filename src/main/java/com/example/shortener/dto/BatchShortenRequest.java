@@ -0,0 +1,30 @@
+package com.example.shortener.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Request payload for shortening several URLs at once.
+ */
+public class BatchShortenRequest {
+
+    @NotNull
+    private List<String> longUrls;
+
+    public BatchShortenRequest() {
+        // default constructor for JSON deserialization
+    }
+
+    public BatchShortenRequest(List<String> longUrls) {
+        this.longUrls = longUrls;
+    }
+
+    public List<String> getLongUrls() {
+        return longUrls;
+    }
+
+    public void setLongUrls(List<String> longUrls) {
+        this.longUrls = longUrls;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.shortener.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
 /**
  * Request payload for shortening a URL.
@@ -12,6 +13,10 @@ public class ShortenRequest {
     @NotBlank
     private String longUrl;
 
+    /** Seconds until the mapping expires, or null for a permanent one. */
+    @Positive
+    private Long ttlSeconds;
+
     public ShortenRequest() {
         // default constructor for JSON deserialization
     }
@@ -27,4 +32,12 @@ public class ShortenRequest {
     public void setLongUrl(String longUrl) {
         this.longUrl = longUrl;
     }
+
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
 }
\ No newline at end of file
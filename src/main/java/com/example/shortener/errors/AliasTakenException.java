@@ -0,0 +1,10 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a custom alias already names a different URL.
+ */
+public class AliasTakenException extends RuntimeException {
+    public AliasTakenException(String alias) {
+        super("Alias is already taken: " + alias);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a custom alias is requested but aliases are not enabled on
+ * this node.
+ */
+public class AliasesNotEnabledException extends RuntimeException {
+    public AliasesNotEnabledException() {
+        super("Custom aliases are not enabled on this node");
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a batch request contains more items than the configured
+ * limit.
+ */
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException() {
+        super();
+    }
+
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+
+    public BatchTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when click statistics are requested but click tracking is not
+ * enabled on this node.
+ */
+public class ClicksNotEnabledException extends RuntimeException {
+    public ClicksNotEnabledException() {
+        super("Click tracking is not enabled on this node");
+    }
+}
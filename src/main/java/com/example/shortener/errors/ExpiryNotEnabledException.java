@@ -0,0 +1,11 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a URL is submitted with a time to live but mapping expiry is
+ * not enabled on this node.
+ */
+public class ExpiryNotEnabledException extends RuntimeException {
+    public ExpiryNotEnabledException() {
+        super("Expiring URLs are not enabled on this node");
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a custom alias has an invalid length or characters, has the
+ * length of a numeric code or is reserved.
+ */
+public class InvalidAliasException extends RuntimeException {
+    public InvalidAliasException(String message) {
+        super(message);
+    }
+}
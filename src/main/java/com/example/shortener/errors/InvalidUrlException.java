@@ -16,4 +16,16 @@ public class InvalidUrlException extends RuntimeException {
     public InvalidUrlException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * Creates an exception without a stack trace, for rejecting bad input
+     * cheaply where the trace would only point at the validator.
+     */
+    public static InvalidUrlException withoutStackTrace(String message) {
+        return new InvalidUrlException(message, null, false);
+    }
+
+    private InvalidUrlException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, false, writableStackTrace);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a request for a code minted by another node cannot be
+ * forwarded to that node, e.g. because it is down or timed out.
+ */
+public class NodeUnavailableException extends RuntimeException {
+    public NodeUnavailableException(String message) {
+        super(message);
+    }
+
+    public NodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shortener.errors;
+
+/**
+ * Thrown when a URL is submitted for shortening to a read-only replica;
+ * shortens must go to the replication leader.
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+    public ReadOnlyReplicaException() {
+        super("This node is a read-only replica; shorten URLs on the leader");
+    }
+}
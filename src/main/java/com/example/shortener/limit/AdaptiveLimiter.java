@@ -0,0 +1,180 @@
+package com.example.shortener.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the latency of the requests it admits,
+ * in the style of the gradient limiters of TCP congestion control. Requests
+ * beyond the limit are rejected at once instead of queueing.
+ * <p>
+ * Every {@code window} the average latency of the requests completed in it
+ * is compared with a long-term average, which follows it slowly. While the
+ * two agree within {@code tolerance}, the limit grows by its square root, so
+ * it probes for spare capacity; once latency rises above the long-term
+ * average by more than the tolerance, the limit shrinks in proportion, down
+ * to half per window. Changes are smoothed, and the limit does not grow
+ * while fewer than half of the permits are in use, since latency then says
+ * nothing about the limit. When latency falls far below the long-term
+ * average, e.g. once an overload has passed, the average is pulled down
+ * faster so the limit can recover. Latency that stays high becomes the new
+ * norm after about {@value #LONG_WINDOWS} windows, e.g. when a dependency
+ * has slowed down for good.
+ * <p>
+ * Acquiring and releasing permits is lock-free; one thread at a time
+ * recomputes the limit, only when a window has ended.
+ */
+public class AdaptiveLimiter {
+
+    /** Windows the long-term average latency spans. */
+    private static final int LONG_WINDOWS = 100;
+    /** Weight of a new limit against the previous one. */
+    private static final double SMOOTHING = 0.2;
+    /** Completed requests needed before a window ends. */
+    private static final int MIN_SAMPLES = 10;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder windowLatency = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile int limit;
+    private volatile long windowEnd;
+    /** Highest number of requests in flight seen in the window; racy but only a hint. */
+    private volatile int windowMaxInFlight;
+    // Guarded by updateLock
+    private double estimatedLimit;
+    private double longLatency;
+
+    /**
+     * @param name operation whose requests are limited, e.g. {@code resolve}
+     * @param initialLimit limit until the first window ends
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param tolerance ratio of window latency to long-term latency below
+     *                  which the limit may grow, e.g. 1.5
+     * @param windowMillis how often the limit is recomputed
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance,
+                           long windowMillis) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits of " + name + " must satisfy 1 <= min <= initial <= max");
+        }
+        if (tolerance < 1.0) {
+            throw new IllegalArgumentException("Latency tolerance of " + name + " must be at least 1");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    /**
+     * Takes a permit, or counts a rejection and returns false if the limit
+     * is reached. A permit must be given back with {@link #release(long)} or
+     * {@link #release()}.
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit and samples the latency of its request.
+     *
+     * @param startNanos {@link System#nanoTime()} when the request was admitted
+     */
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        int current = inFlight.getAndDecrement();
+        windowLatency.add(now - startNanos);
+        windowSamples.increment();
+        if (current > windowMaxInFlight) {
+            windowMaxInFlight = current;
+        }
+        if (now - windowEnd >= 0 && updateLock.tryLock()) {
+            try {
+                if (now - windowEnd >= 0) {
+                    update(now);
+                }
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit without sampling latency, for requests whose
+     * duration does not reflect load, e.g. streamed batches.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void update(long now) {
+        long samples = windowSamples.sum();
+        if (samples < MIN_SAMPLES) {
+            // Too few requests to judge; keep the window open
+            return;
+        }
+        double latency = (double) windowLatency.sumThenReset() / windowSamples.sumThenReset();
+        int maxInFlight = windowMaxInFlight;
+        windowMaxInFlight = 0;
+        windowEnd = now + windowNanos;
+
+        if (longLatency == 0) {
+            longLatency = latency;
+        } else {
+            longLatency += (latency - longLatency) / LONG_WINDOWS;
+            if (longLatency > 2 * latency) {
+                longLatency *= 0.95;
+            }
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / latency));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Current number of requests admitted at once. */
+    public int limit() {
+        return limit;
+    }
+
+    /** Requests admitted and not yet released. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /** Requests rejected since startup. */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+}
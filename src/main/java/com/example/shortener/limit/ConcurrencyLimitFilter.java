@@ -0,0 +1,129 @@
+package com.example.shortener.limit;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits resolves, redirects and shortens through their
+ * {@link ConcurrencyLimits} and answers the rest at once with
+ * {@code 503 Service Unavailable} and {@code Retry-After}, before their body
+ * is read or a controller is involved. Other requests, e.g. actuator
+ * endpoints, are not limited.
+ * <p>
+ * A request holds its permit from here until its response is complete, so
+ * the sampled latency includes message conversion and, under CPU
+ * contention, the time its thread waited to run. Streamed batches hold their
+ * permit until streaming ends but are not sampled, since their duration
+ * grows with their size rather than with load.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements Ordered {
+
+    /** Just inside Spring Boot's HTTP server observation, so shed requests are still observed. */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 2;
+
+    private final ConcurrencyLimits limits;
+    private final String retryAfter;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimits limits) {
+        this.limits = limits;
+        this.retryAfter = Long.toString(limits.retryAfterSeconds());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveLimiter limiter = limiterFor(request);
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean streaming = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limiter));
+                streaming = true;
+            }
+        } finally {
+            if (!streaming) {
+                limiter.release(start);
+            }
+        }
+    }
+
+    /**
+     * Returns the limiter of the operation {@code request} performs, or null
+     * if it is not limited.
+     */
+    AdaptiveLimiter limiterFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("POST".equals(method)) {
+            switch (path) {
+                case "/api/resolve":
+                case "/api/resolve/batch":
+                    return limits.resolve();
+                case "/api/shorten":
+                case "/api/shorten/batch":
+                case "/api/alias":
+                    return limits.shorten();
+                default:
+                    return null;
+            }
+        }
+        // Redirects are the only single-segment paths
+        if ("GET".equals(method) && path.length() > 1 && path.indexOf('/', 1) < 0) {
+            return limits.resolve();
+        }
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Releases the permit of a streamed response once it is complete, which
+     * also follows a timeout or error.
+     */
+    private static final class ReleaseOnComplete implements AsyncListener {
+        private final AdaptiveLimiter limiter;
+
+        ReleaseOnComplete(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.shortener.limit;
+
+/**
+ * Separate {@link AdaptiveLimiter}s for resolves (including redirects) and
+ * shortens, so a burst of shortens cannot take the threads redirects need.
+ */
+public class ConcurrencyLimits {
+
+    private final AdaptiveLimiter resolve;
+    private final AdaptiveLimiter shorten;
+    private final long retryAfterSeconds;
+
+    /**
+     * @param retryAfterSeconds sent to rejected clients in {@code Retry-After}
+     */
+    public ConcurrencyLimits(AdaptiveLimiter resolve, AdaptiveLimiter shorten, long retryAfterSeconds) {
+        this.resolve = resolve;
+        this.shorten = shorten;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public AdaptiveLimiter resolve() {
+        return resolve;
+    }
+
+    public AdaptiveLimiter shorten() {
+        return shorten;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.MappingExpirer;
+import com.example.shortener.core.SegmentedForwardIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Mapping expiry meters: {@code shortener.expiry.expired} mappings (whose
+ * rate is expirations per second), {@code shortener.expiry.reclaimed} bytes,
+ * {@code shortener.expiry.pending} mappings with a deadline and
+ * {@code shortener.expiry.released.segments} of the forward index.
+ */
+public class ExpiryMeterBinder implements MeterBinder {
+
+    private final MappingExpirer expirer;
+    private final ForwardIndex forwardIndex;
+
+    /**
+     * @param expirer the expirer, or null if expiry is disabled
+     * @param forwardIndex the forward index expired mappings are removed from
+     */
+    public ExpiryMeterBinder(MappingExpirer expirer, ForwardIndex forwardIndex) {
+        this.expirer = expirer;
+        this.forwardIndex = forwardIndex;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (expirer == null) {
+            return;
+        }
+        FunctionCounter.builder("shortener.expiry.expired", expirer, MappingExpirer::expiredCount)
+                .description("Mappings removed after their time to live")
+                .register(registry);
+        FunctionCounter.builder("shortener.expiry.reclaimed", expirer, MappingExpirer::reclaimedBytes)
+                .description("Estimated heap released by expired URLs and segments")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("shortener.expiry.pending", expirer, MappingExpirer::pendingCount)
+                .description("Mappings with a pending expiry")
+                .register(registry);
+        if (forwardIndex instanceof SegmentedForwardIndex) {
+            Gauge.builder("shortener.expiry.released.segments", (SegmentedForwardIndex) forwardIndex,
+                            SegmentedForwardIndex::releasedSegmentCount)
+                    .description("Forward index segments released after all their mappings expired")
+                    .register(registry);
+        }
+    }
+}
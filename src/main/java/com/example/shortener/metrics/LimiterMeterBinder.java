@@ -0,0 +1,50 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.limit.AdaptiveLimiter;
+import com.example.shortener.limit.ConcurrencyLimits;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Concurrency limiter meters, tagged with {@code operation=resolve} or
+ * {@code shorten}: the current {@code shortener.limiter.limit}, requests
+ * {@code shortener.limiter.inflight} and {@code shortener.limiter.rejected}
+ * requests.
+ */
+public class LimiterMeterBinder implements MeterBinder {
+
+    private final ConcurrencyLimits limits;
+
+    /**
+     * @param limits the limits, or null if the limiter is disabled
+     */
+    public LimiterMeterBinder(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (limits == null) {
+            return;
+        }
+        bind(registry, limits.resolve());
+        bind(registry, limits.shorten());
+    }
+
+    private static void bind(MeterRegistry registry, AdaptiveLimiter limiter) {
+        Gauge.builder("shortener.limiter.limit", limiter, AdaptiveLimiter::limit)
+                .description("Requests admitted at once")
+                .tag("operation", limiter.name())
+                .register(registry);
+        Gauge.builder("shortener.limiter.inflight", limiter, AdaptiveLimiter::inFlight)
+                .description("Requests admitted and not yet completed")
+                .tag("operation", limiter.name())
+                .register(registry);
+        FunctionCounter.builder("shortener.limiter.rejected", limiter, AdaptiveLimiter::rejectedCount)
+                .description("Requests shed with 503 because the limit was reached")
+                .tag("operation", limiter.name())
+                .register(registry);
+    }
+}
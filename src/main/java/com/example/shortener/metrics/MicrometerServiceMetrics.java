@@ -0,0 +1,75 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.service.ServiceMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records shorten stages as {@code shortener.shorten.stage} timers tagged
+ * with the stage, published with percentile histograms so quantiles can be
+ * aggregated across instances, shorten outcomes as the
+ * {@code shortener.shorten} counter tagged {@code outcome=new|existing|merged}
+ * and resolve outcomes as the {@code shortener.resolve} counter tagged
+ * {@code result=hit|miss|invalid}.
+ * Meters are registered once up front and looked up by ordinal, so
+ * recording does not touch the registry.
+ */
+public class MicrometerServiceMetrics implements ServiceMetrics {
+
+    private final Timer[] stageTimers;
+    private final Counter[] shortenCounters;
+    private final Counter[] resolveCounters;
+
+    public MicrometerServiceMetrics(MeterRegistry registry) {
+        Stage[] stages = Stage.values();
+        stageTimers = new Timer[stages.length];
+        for (Stage stage : stages) {
+            stageTimers[stage.ordinal()] = Timer.builder("shortener.shorten.stage")
+                    .description("Time spent in each stage of shortening a URL")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        ShortenOutcome[] outcomes = ShortenOutcome.values();
+        shortenCounters = new Counter[outcomes.length];
+        for (ShortenOutcome outcome : outcomes) {
+            shortenCounters[outcome.ordinal()] = Counter.builder("shortener.shorten")
+                    .description("Shortens by outcome; merged ones were de-duplicated by the normalizer")
+                    .tag("outcome", outcome.tag())
+                    .register(registry);
+        }
+        ResolveResult[] results = ResolveResult.values();
+        resolveCounters = new Counter[results.length];
+        for (ResolveResult result : results) {
+            resolveCounters[result.ordinal()] = Counter.builder("shortener.resolve")
+                    .description("Resolves by outcome")
+                    .tag("result", result.tag())
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public long startTimer() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long stopTimer(Stage stage, long start) {
+        long now = System.nanoTime();
+        stageTimers[stage.ordinal()].record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    @Override
+    public void recordShorten(ShortenOutcome outcome) {
+        shortenCounters[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void recordResolve(ResolveResult result) {
+        resolveCounters[result.ordinal()].increment();
+    }
+}
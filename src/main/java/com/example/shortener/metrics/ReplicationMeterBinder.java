@@ -0,0 +1,71 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.replication.ReplicationFollower;
+import com.example.shortener.replication.ReplicationLeader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replication meters of whichever side this node runs:
+ * <ul>
+ *   <li>leader: {@code shortener.replication.followers} connected,
+ *       {@code shortener.replication.published} mappings,
+ *       {@code shortener.replication.backlog} of the slowest follower and
+ *       {@code shortener.replication.dropped} followers</li>
+ *   <li>follower: {@code shortener.replication.lag} behind the leader,
+ *       {@code shortener.replication.connected},
+ *       {@code shortener.replication.applied} mappings and
+ *       {@code shortener.replication.bootstraps}</li>
+ * </ul>
+ */
+public class ReplicationMeterBinder implements MeterBinder {
+
+    private final ReplicationLeader leader;
+    private final ReplicationFollower follower;
+
+    /**
+     * @param leader the leader, or null if this node is not one
+     * @param follower the follower, or null if this node is not one
+     */
+    public ReplicationMeterBinder(ReplicationLeader leader, ReplicationFollower follower) {
+        this.leader = leader;
+        this.follower = follower;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (leader != null) {
+            Gauge.builder("shortener.replication.followers", leader, ReplicationLeader::followerCount)
+                    .description("Connected followers, bootstrapping or streaming")
+                    .register(registry);
+            FunctionCounter.builder("shortener.replication.published", leader, ReplicationLeader::publishedCount)
+                    .description("Mappings published to followers")
+                    .register(registry);
+            Gauge.builder("shortener.replication.backlog", leader, ReplicationLeader::backlog)
+                    .description("Mappings queued for the slowest follower")
+                    .register(registry);
+            FunctionCounter.builder("shortener.replication.dropped", leader, ReplicationLeader::droppedCount)
+                    .description("Followers disconnected because their backlog overflowed")
+                    .register(registry);
+        }
+        if (follower != null) {
+            TimeGauge.builder("shortener.replication.lag", follower, TimeUnit.MILLISECONDS, ReplicationFollower::lagMillis)
+                    .description("Time since the leader time this replica is known to be current up to")
+                    .register(registry);
+            Gauge.builder("shortener.replication.connected", follower, f -> f.isConnected() ? 1 : 0)
+                    .description("Whether the follower is connected to the leader")
+                    .register(registry);
+            FunctionCounter.builder("shortener.replication.applied", follower, ReplicationFollower::appliedCount)
+                    .description("Mappings applied from the leader, including bootstraps")
+                    .register(registry);
+            FunctionCounter.builder("shortener.replication.bootstraps", follower, ReplicationFollower::bootstrapCount)
+                    .description("Bulk transfers completed from the leader")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.IdSpace;
+import com.example.shortener.core.LsmReverseIndex;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capacity gauges, sampled only when the registry is scraped:
+ * <ul>
+ *   <li>{@code shortener.ids.remaining}: IDs left in the ID space</li>
+ *   <li>{@code shortener.forward.high.watermark}: highest stored ID</li>
+ *   <li>{@code shortener.forward.segments}: allocated forward index segments</li>
+ *   <li>{@code shortener.reverse.size}: URLs in the reverse index</li>
+ *   <li>{@code shortener.response.cache.*}: response cache hits and misses,
+ *       evictions and size; resolves served from this cache never reach the
+ *       service and are not counted by {@code shortener.resolve}</li>
+ *   <li>{@code shortener.forward.cold.*}: for a segmented index with
+ *       compaction, the compacted segments, their raw and compressed bytes,
+ *       the count and latency of reads they serve and the hits and misses
+ *       of the inflated block cache</li>
+ *   <li>{@code shortener.reverse.lsm.*}: for an LSM reverse index, its
+ *       runs, their bytes on disk and on the heap, blocks read by lookups
+ *       and bytes written by flushes and compactions</li>
+ * </ul>
+ */
+public class ShortenerMeterBinder implements MeterBinder {
+
+    private final IdSpace idSpace;
+    private final ForwardIndex forwardIndex;
+    private final ReverseIndex reverseIndex;
+    private final ClockCache responseCache;
+
+    public ShortenerMeterBinder(IdSpace idSpace,
+                                ForwardIndex forwardIndex,
+                                ReverseIndex reverseIndex,
+                                ClockCache responseCache) {
+        this.idSpace = idSpace;
+        this.forwardIndex = forwardIndex;
+        this.reverseIndex = reverseIndex;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shortener.ids.remaining", idSpace, IdSpace::remaining)
+                .description("IDs left in the ID space")
+                .register(registry);
+        Gauge.builder("shortener.forward.high.watermark", forwardIndex, ForwardIndex::highWatermark)
+                .description("Highest ID stored in the forward index")
+                .register(registry);
+        Gauge.builder("shortener.forward.segments", forwardIndex, ForwardIndex::allocatedSegmentCount)
+                .description("Allocated forward index segments")
+                .register(registry);
+        Gauge.builder("shortener.reverse.size", reverseIndex, ReverseIndex::size)
+                .description("URLs in the reverse index")
+                .register(registry);
+        FunctionCounter.builder("shortener.response.cache.requests", responseCache, ClockCache::hits)
+                .description("Response cache lookups by outcome")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("shortener.response.cache.requests", responseCache, ClockCache::misses)
+                .description("Response cache lookups by outcome")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("shortener.response.cache.evictions", responseCache, ClockCache::evictions)
+                .description("Entries evicted from the response cache")
+                .register(registry);
+        Gauge.builder("shortener.response.cache.size", responseCache, ClockCache::sizeInBytes)
+                .description("Bytes charged against the response cache budget")
+                .baseUnit("bytes")
+                .register(registry);
+        if (forwardIndex instanceof SegmentedForwardIndex && ((SegmentedForwardIndex) forwardIndex).isCompactionEnabled()) {
+            bindColdSegments((SegmentedForwardIndex) forwardIndex, registry);
+        }
+        if (reverseIndex instanceof LsmReverseIndex) {
+            bindLsm((LsmReverseIndex) reverseIndex, registry);
+        }
+    }
+
+    private static void bindLsm(LsmReverseIndex index, MeterRegistry registry) {
+        Gauge.builder("shortener.reverse.lsm.runs", index, LsmReverseIndex::runCount)
+                .description("Run files of the reverse index")
+                .register(registry);
+        Gauge.builder("shortener.reverse.lsm.disk", index, LsmReverseIndex::diskBytes)
+                .description("Bytes of reverse index run files")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("shortener.reverse.lsm.heap", index, LsmReverseIndex::runRetainedBytes)
+                .description("Heap held by the Bloom filters and block indexes of reverse index runs")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("shortener.reverse.lsm.block.reads", index, LsmReverseIndex::blockReads)
+                .description("Run file blocks read by reverse index lookups")
+                .register(registry);
+        FunctionCounter.builder("shortener.reverse.lsm.written", index, LsmReverseIndex::flushedBytes)
+                .description("Bytes written to reverse index runs; (flush + compaction) / flush is the write amplification")
+                .tag("source", "flush")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("shortener.reverse.lsm.written", index, LsmReverseIndex::compactedBytes)
+                .description("Bytes written to reverse index runs; (flush + compaction) / flush is the write amplification")
+                .tag("source", "compaction")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void bindColdSegments(SegmentedForwardIndex index, MeterRegistry registry) {
+        Gauge.builder("shortener.forward.cold.segments", index, SegmentedForwardIndex::coldSegmentCount)
+                .description("Compacted forward index segments")
+                .register(registry);
+        Gauge.builder("shortener.forward.cold.bytes", index, SegmentedForwardIndex::coldRawBytes)
+                .description("URL bytes in compacted segments, before and after compression")
+                .tag("state", "raw")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("shortener.forward.cold.bytes", index, SegmentedForwardIndex::coldCompressedBytes)
+                .description("URL bytes in compacted segments, before and after compression")
+                .tag("state", "compressed")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionTimer.builder("shortener.forward.cold.reads", index,
+                        SegmentedForwardIndex::coldReads, SegmentedForwardIndex::coldReadNanos, TimeUnit.NANOSECONDS)
+                .description("Lookups served by compacted segments, including inflating uncached blocks")
+                .register(registry);
+        ClockCache blockCache = index.coldBlockCache();
+        FunctionCounter.builder("shortener.forward.cold.cache.requests", blockCache, ClockCache::hits)
+                .description("Inflated cold block cache lookups by outcome")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("shortener.forward.cold.cache.requests", blockCache, ClockCache::misses)
+                .description("Inflated cold block cache lookups by outcome")
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
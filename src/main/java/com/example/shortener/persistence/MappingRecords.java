@@ -0,0 +1,171 @@
+package com.example.shortener.persistence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary framing for mapping records:
+ * <pre>
+ * int   bodyLength      (big-endian, = 7 + url bytes)
+ * byte  type
+ * 6     id              (big-endian 48-bit)
+ * n     url             (UTF-8)
+ * int   crc32c(body)
+ * </pre>
+ * A record costs 15 bytes of framing on top of the URL. The checksum lets
+ * readers detect torn writes at the tail of a log.
+ */
+public final class MappingRecords {
+
+    /**
+     * A published {@code id → url} mapping.
+     */
+    public static final byte TYPE_PUT = 1;
+
+    /**
+     * End of the bulk transfer that bootstraps a replica; the ID field holds
+     * the number of mappings transferred. Only sent over replication streams.
+     */
+    public static final byte TYPE_BOOTSTRAP_END = 2;
+
+    /**
+     * Replication heartbeat; the ID field holds the leader's wall-clock time
+     * in milliseconds up to which the replica is current. Only sent over
+     * replication streams.
+     */
+    public static final byte TYPE_HEARTBEAT = 3;
+
+    /**
+     * A mapping recorded earlier that was never published; the URL is empty.
+     * Only written to write-ahead logs.
+     */
+    public static final byte TYPE_DISCARD = 4;
+
+    /**
+     * Largest URL accepted in a record; anything longer is treated as
+     * corruption when reading.
+     */
+    public static final int MAX_URL_BYTES = 1 << 20;
+
+    private static final int ID_BYTES = 6;
+    private static final int FIXED_BODY = 1 + ID_BYTES;
+    private static final int FRAMING = 4 + FIXED_BODY + 4;
+
+    private MappingRecords() {
+    }
+
+    /**
+     * Returns the encoded size of a record whose URL has {@code urlBytes} bytes.
+     */
+    public static int encodedSize(int urlBytes) {
+        return FRAMING + urlBytes;
+    }
+
+    /**
+     * Writes one record at the buffer's position, which must have at least
+     * {@link #encodedSize(int)} bytes remaining.
+     */
+    public static void write(ByteBuffer dst, byte type, long id, byte[] url) {
+        int bodyStart = dst.position() + 4;
+        dst.putInt(FIXED_BODY + url.length);
+        dst.put(type);
+        dst.putShort((short) (id >>> 32));
+        dst.putInt((int) id);
+        dst.put(url);
+        CRC32C crc = new CRC32C();
+        crc.update(dst.duplicate().position(bodyStart).limit(dst.position()));
+        dst.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Sequential reader over a stream of records. After {@link #next()}
+     * returns true the fields of the current record are available through
+     * the accessors.
+     */
+    public static final class Reader {
+        private final DataInputStream in;
+        private final CRC32C crc = new CRC32C();
+        private byte[] body = new byte[256];
+        private long position;
+        private byte type;
+        private long id;
+        private String url;
+
+        public Reader(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false on a clean end of stream
+         * @throws CorruptRecordException if the stream ends inside a record or
+         *                                a record fails its checksum
+         * @throws IOException if the stream cannot be read
+         */
+        public boolean next() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return false;
+            }
+            try {
+                int length = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+                if (length < FIXED_BODY || length > FIXED_BODY + MAX_URL_BYTES) {
+                    throw new CorruptRecordException("Invalid record length " + length + " at " + position);
+                }
+                if (body.length < length) {
+                    body = new byte[Math.max(length, body.length * 2)];
+                }
+                in.readFully(body, 0, length);
+                int expected = in.readInt();
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != expected) {
+                    throw new CorruptRecordException("Checksum mismatch at " + position);
+                }
+                type = body[0];
+                id = ((long) (body[1] & 0xFF) << 40) | ((long) (body[2] & 0xFF) << 32)
+                        | ((long) (body[3] & 0xFF) << 24) | ((body[4] & 0xFF) << 16)
+                        | ((body[5] & 0xFF) << 8) | (body[6] & 0xFF);
+                url = new String(body, FIXED_BODY, length - FIXED_BODY, StandardCharsets.UTF_8);
+                position += 4 + length + 4;
+                return true;
+            } catch (EOFException e) {
+                throw new CorruptRecordException("Truncated record at " + position);
+            }
+        }
+
+        /**
+         * Number of bytes consumed by the records read successfully so far.
+         */
+        public long position() {
+            return position;
+        }
+
+        public byte type() {
+            return type;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public String url() {
+            return url;
+        }
+    }
+
+    /**
+     * Thrown when a record is truncated or fails its checksum.
+     */
+    public static class CorruptRecordException extends IOException {
+        public CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.shortener.persistence;
+
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32C;
+
+/**
+ * Restores snapshots written by {@link SnapshotWriter}. Segment blocks are
+ * read, verified and decoded in parallel on a fork-join pool, each task
+ * installing one segment with {@link SegmentedForwardIndex#restoreSegment}.
+ * The reverse index can then be rebuilt in parallel from the restored
+ * segments.
+ */
+public class SnapshotLoader {
+
+    private final ForkJoinPool pool;
+
+    public SnapshotLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SnapshotLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Loads the snapshot at {@code file} into an empty {@code index}.
+     *
+     * @return the high watermark the snapshot was cut at
+     * @throws IOException if the snapshot cannot be read, is corrupt or was
+     *                     written with a different segment geometry
+     */
+    public long load(Path file, SegmentedForwardIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, SnapshotWriter.HEADER_SIZE);
+            if (header.getInt() != SnapshotWriter.MAGIC || header.getInt() != SnapshotWriter.VERSION) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int shift = header.getInt();
+            long cut = header.getLong();
+            if (shift != index.segmentShift()) {
+                throw new IOException("Snapshot " + file + " was written with segmentShift=" + shift);
+            }
+
+            ByteBuffer trailer = readFully(channel, channel.size() - SnapshotWriter.TRAILER_SIZE, SnapshotWriter.TRAILER_SIZE);
+            long directoryPosition = trailer.getLong();
+            if (trailer.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            ByteBuffer count = readFully(channel, directoryPosition, 4);
+            int blocks = count.getInt();
+            ByteBuffer directory = readFully(channel, directoryPosition + 4, blocks * 20);
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(blocks);
+            for (int i = 0; i < blocks; i++) {
+                int segIndex = directory.getInt();
+                long position = directory.getLong();
+                long length = directory.getLong();
+                tasks.add(pool.submit(() -> restoreBlock(channel, segIndex, position, length, shift, index)));
+            }
+            awaitAll(tasks);
+            return cut;
+        }
+    }
+
+    private static void restoreBlock(FileChannel channel, int segIndex, long position, long length,
+                                     int shift, SegmentedForwardIndex index) {
+        try {
+            ByteBuffer block = readFully(channel, position, Math.toIntExact(length));
+            CRC32C crc = new CRC32C();
+            crc.update(block.array(), 0, block.limit() - 4);
+            if ((int) crc.getValue() != block.getInt(block.limit() - 4)) {
+                throw new IOException("Checksum mismatch in snapshot segment " + segIndex);
+            }
+            if (block.getInt() != segIndex) {
+                throw new IOException("Snapshot directory does not match segment " + segIndex);
+            }
+            byte[] bytes = block.array();
+            String[] values = new String[1 << shift];
+            int offset;
+            while ((offset = block.getInt()) != SnapshotWriter.END_OF_BLOCK) {
+                int urlLength = block.getInt();
+                values[offset] = new String(bytes, block.position(), urlLength, StandardCharsets.UTF_8);
+                block.position(block.position() + urlLength);
+            }
+            index.restoreSegment(segIndex, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds {@code reverseIndex} from every segment of {@code index}, one
+     * fork-join task per segment. The reverse index must tolerate concurrent
+     * inserts.
+     */
+    public void rebuildReverseIndex(SegmentedForwardIndex index, ReverseIndex reverseIndex) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int segIndex = 0; segIndex < index.segmentCount(); segIndex++) {
+            int segment = segIndex;
+            tasks.add(pool.submit(() -> index.forEachInSegment(segment, Long.MAX_VALUE,
+                    (id, url) -> reverseIndex.putIfAbsent(url, id))));
+        }
+        awaitAll(tasks);
+    }
+
+    private static void awaitAll(List<ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading snapshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Snapshot load failed", e.getCause());
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.shortener.persistence;
+
+import com.example.shortener.core.SegmentedForwardIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Dumps a {@link SegmentedForwardIndex} to a checksummed binary snapshot,
+ * one block per segment:
+ * <pre>
+ * header    int magic, int version, int segmentShift, long cutWatermark
+ * block*    int segIndex, (int offset, int length, byte[length] utf8)*, int -1, int crc32c(block)
+ * directory int blockCount, (int segIndex, long position, long length)*
+ * trailer   long directoryPosition, int magic
+ * </pre>
+ * The snapshot is cut at the high watermark observed when writing starts;
+ * entries with larger IDs are left to the write-ahead log. Writes may
+ * continue while the snapshot is taken. The file is written to a temporary
+ * sibling and atomically moved into place.
+ */
+public class SnapshotWriter {
+
+    static final int MAGIC = 0x5348534E; // "SHSN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    static final int TRAILER_SIZE = 8 + 4;
+    static final int END_OF_BLOCK = -1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Writes a snapshot of {@code index} to {@code target}.
+     *
+     * @return the high watermark the snapshot was cut at
+     * @throws IOException if the snapshot cannot be written
+     */
+    public long write(SegmentedForwardIndex index, Path target) throws IOException {
+        long cut = index.highWatermark();
+        int shift = index.segmentShift();
+        long mask = (1L << shift) - 1;
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<long[]> directory = new ArrayList<>();
+        Files.createDirectories(tmp.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BlockOutput out = new BlockOutput(channel);
+            out.ensure(HEADER_SIZE);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putInt(shift).putLong(cut);
+
+            int lastSegment = cut < 0 ? -1 : (int) (cut >>> shift);
+            for (int segIndex = 0; segIndex <= lastSegment; segIndex++) {
+                long start = out.position();
+                out.beginBlock();
+                out.ensure(4);
+                out.buffer.putInt(segIndex);
+                try {
+                    index.forEachInSegment(segIndex, cut, (id, url) -> {
+                        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+                        try {
+                            out.ensure(8 + bytes.length);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        out.buffer.putInt((int) (id & mask)).putInt(bytes.length).put(bytes);
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                out.ensure(4);
+                out.buffer.putInt(END_OF_BLOCK);
+                int crc = out.endBlock();
+                out.ensure(4);
+                out.buffer.putInt(crc);
+                directory.add(new long[]{segIndex, start, out.position() - start});
+            }
+
+            long directoryPosition = out.position();
+            out.ensure(4);
+            out.buffer.putInt(directory.size());
+            for (long[] entry : directory) {
+                out.ensure(20);
+                out.buffer.putInt((int) entry[0]).putLong(entry[1]).putLong(entry[2]);
+            }
+            out.ensure(TRAILER_SIZE);
+            out.buffer.putLong(directoryPosition).putInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return cut;
+    }
+
+    /**
+     * Buffered channel writer that checksums the bytes written between
+     * {@link #beginBlock()} and {@link #endBlock()}.
+     */
+    private static final class BlockOutput {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private long flushed;
+        private int crcMark;
+        private boolean inBlock;
+
+        BlockOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (bytes > BUFFER_SIZE) {
+                throw new IOException("Entry of " + bytes + " bytes exceeds the snapshot buffer");
+            }
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void beginBlock() {
+            crc.reset();
+            crcMark = buffer.position();
+            inBlock = true;
+        }
+
+        int endBlock() {
+            updateCrc();
+            inBlock = false;
+            return (int) crc.getValue();
+        }
+
+        private void updateCrc() {
+            if (inBlock) {
+                crc.update(buffer.duplicate().position(crcMark).limit(buffer.position()));
+                crcMark = buffer.position();
+            }
+        }
+
+        void flush() throws IOException {
+            updateCrc();
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+            crcMark = 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.shortener.persistence;
+
+import com.example.shortener.core.SegmentedForwardIndex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes snapshots of a {@link SegmentedForwardIndex} periodically and on
+ * close. When a {@link WriteAheadLog} is present it is rolled before the
+ * snapshot's watermark is read. Entries are logged before they are stored,
+ * so the roll waits until every entry recorded in the older log files has
+ * been stored or discarded; each of them is then covered by the snapshot,
+ * and those files are purged once the snapshot is safely in place.
+ */
+public class Snapshotter implements Closeable {
+
+    private final SegmentedForwardIndex index;
+    private final Path file;
+    private final WriteAheadLog wal;
+    private final SnapshotWriter writer = new SnapshotWriter();
+    private final Lock lock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param index the index to snapshot
+     * @param file snapshot file
+     * @param wal log to roll and purge, or null when no log is kept
+     * @param intervalMillis snapshot interval; 0 disables periodic snapshots
+     */
+    public Snapshotter(SegmentedForwardIndex index, Path file, WriteAheadLog wal, long intervalMillis) {
+        this.index = index;
+        this.file = file;
+        this.wal = wal;
+        if (intervalMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Writes a snapshot now.
+     *
+     * @return the high watermark the snapshot was cut at
+     */
+    public long snapshot() {
+        lock.lock();
+        try {
+            long generation = wal != null ? wal.roll() : 0;
+            long cut = writer.write(index, file);
+            if (wal != null) {
+                wal.purgeBefore(generation);
+            }
+            return cut;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops periodic snapshots and writes a final one.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        snapshot();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.shortener.persistence;
+
+/**
+ * When {@link WriteAheadLog} forces appended records to the storage device.
+ */
+public enum SyncPolicy {
+    /**
+     * Every record is written and forced before {@code record} returns.
+     * Safest and slowest: one fsync per shorten.
+     */
+    PER_WRITE,
+
+    /**
+     * Records are buffered and the caller waits until a force covers its
+     * record. Concurrent callers that arrive while a force is running share
+     * the next one, so the fsync cost is amortized across the group.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Records are buffered and forced by a background task at a fixed
+     * interval. Callers never wait; a crash may lose up to one interval of
+     * records.
+     */
+    INTERVAL
+}
@@ -0,0 +1,568 @@
+package com.example.shortener.persistence;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.MappingJournal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only write-ahead log of published mappings, framed with
+ * {@link MappingRecords}. Each process run appends to a fresh
+ * {@code wal-XXXXXXXXXXXXXXXX.log} file in the log directory; files left by
+ * earlier runs are immutable and are read by {@link #replay}. A torn record
+ * at the end of a file (from a crash mid-write) ends replay of that file.
+ * <p>
+ * Records are first appended to an in-memory buffer. How and when that
+ * buffer reaches the disk is governed by the {@link SyncPolicy}. With
+ * {@link SyncPolicy#GROUP_COMMIT} a caller whose record is not yet durable
+ * takes the flush lock and forces everything buffered so far, including the
+ * records of every caller that queued up while the previous force was
+ * running; those callers then find their record already durable and return
+ * without forcing again.
+ * <p>
+ * Once a write or force fails, the log refuses every later record: records
+ * buffered with the failed batch are lost, and forcing later ones must not
+ * make them appear durable.
+ * <p>
+ * The log counts mappings that were recorded but not yet reported
+ * {@linkplain #stored stored} or {@linkplain #discard discarded}, so that
+ * {@link #roll()} can wait until the forward index holds every mapping in
+ * the files it closes.
+ */
+public class WriteAheadLog implements MappingJournal, Closeable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int INITIAL_BUFFER = 64 * 1024;
+    /**
+     * With {@link SyncPolicy#INTERVAL} the buffer is written out (without
+     * forcing) once it grows past this size, bounding memory between syncs.
+     */
+    private static final int INTERVAL_WRITE_THRESHOLD = 1 << 20;
+    private static final byte[] NO_URL = new byte[0];
+
+    private final Path directory;
+    private final SyncPolicy policy;
+    /**
+     * Current log file and its channel; replaced by {@link #roll()} while
+     * holding {@link #flushLock}.
+     */
+    private volatile Path file;
+    private FileChannel channel;
+    private long generation;
+
+    /**
+     * Guards {@link #pending} and {@link #appendedPosition}. Held only while
+     * copying a record into memory.
+     */
+    private final Lock appendLock = new ReentrantLock();
+
+    /**
+     * Serializes writes to the channel and forces.
+     */
+    private final Lock flushLock = new ReentrantLock();
+
+    /**
+     * Mappings recorded but not yet reported stored or discarded, counted
+     * per epoch. {@link #roll()} flips the epoch and waits for the old
+     * count to drain; it is 0 or 1 and changes only under
+     * {@link #appendLock}.
+     */
+    private final AtomicLong[] unstored = {new AtomicLong(), new AtomicLong()};
+    private volatile int epoch;
+    /**
+     * Epoch of the calling thread's last record; the service reports a
+     * mapping stored or discarded on the thread that recorded it.
+     */
+    private final ThreadLocal<int[]> recordedEpoch = ThreadLocal.withInitial(() -> new int[1]);
+    /** Serializes rolls; its condition signals a drained epoch. */
+    private final Lock rollLock = new ReentrantLock();
+    private final Condition drained = rollLock.newCondition();
+
+    private ByteBuffer pending = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+    private long appendedPosition;
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+
+    private final ScheduledExecutorService syncer;
+    private volatile boolean closed;
+    /** First write or force failure; set once, after which nothing is written. */
+    private volatile IOException failure;
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed.
+     *
+     * @param directory log directory
+     * @param policy when appended records are forced to disk
+     * @param syncIntervalMillis force interval for {@link SyncPolicy#INTERVAL};
+     *                           ignored otherwise
+     */
+    public WriteAheadLog(Path directory, SyncPolicy policy, long syncIntervalMillis) {
+        this.directory = directory;
+        this.policy = policy;
+        try {
+            Files.createDirectories(directory);
+            List<Path> existing = logFiles();
+            openGeneration(existing.isEmpty() ? 0 : generation(existing.get(existing.size() - 1)) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+        if (policy == SyncPolicy.INTERVAL) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    private void openGeneration(long next) throws IOException {
+        Path nextFile = directory.resolve(String.format(PREFIX + "%016x" + SUFFIX, next));
+        channel = FileChannel.open(nextFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        file = nextFile;
+        generation = next;
+    }
+
+    @Override
+    public void record(long id, String normalizedUrl) {
+        byte[] url = normalizedUrl.getBytes(StandardCharsets.UTF_8);
+        if (policy == SyncPolicy.PER_WRITE) {
+            flushLock.lock();
+            try {
+                syncRecorded(appendRecorded(id, url), 1);
+            } finally {
+                flushLock.unlock();
+            }
+        } else {
+            syncRecorded(appendRecorded(id, url), 1);
+        }
+    }
+
+    /**
+     * Appends the whole batch before syncing, so it costs one force under
+     * {@code PER_WRITE} and {@code GROUP_COMMIT} instead of one per record.
+     */
+    @Override
+    public void recordAll(long[] ids, String[] normalizedUrls, int count) {
+        if (count == 0) {
+            return;
+        }
+        byte[][] urls = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            urls[i] = normalizedUrls[i].getBytes(StandardCharsets.UTF_8);
+        }
+        if (policy == SyncPolicy.PER_WRITE) {
+            flushLock.lock();
+            try {
+                syncRecorded(appendRecorded(ids, urls, count), count);
+            } finally {
+                flushLock.unlock();
+            }
+        } else {
+            syncRecorded(appendRecorded(ids, urls, count), count);
+        }
+    }
+
+    /**
+     * Makes the records just appended by the caller as durable as the sync
+     * policy promises. With {@code PER_WRITE} the caller holds
+     * {@link #flushLock}. If that fails the records count as never recorded,
+     * since the caller will not store them.
+     */
+    private void syncRecorded(long position, int count) {
+        try {
+            switch (policy) {
+                case PER_WRITE:
+                    writeAndForce(true);
+                    break;
+                case GROUP_COMMIT:
+                    awaitDurable(position);
+                    break;
+                case INTERVAL:
+                    if (position - writtenPosition > INTERVAL_WRITE_THRESHOLD && flushLock.tryLock()) {
+                        try {
+                            writeAndForce(false);
+                        } finally {
+                            flushLock.unlock();
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown sync policy " + policy);
+            }
+        } catch (RuntimeException e) {
+            release(count);
+            throw e;
+        }
+    }
+
+    @Override
+    public void stored(long id, String normalizedUrl) {
+        release(1);
+    }
+
+    @Override
+    public void storedAll(long[] ids, String[] normalizedUrls, int count) {
+        if (count > 0) {
+            release(count);
+        }
+    }
+
+    /**
+     * Buffered like any record, so it reaches the disk with the next write.
+     */
+    @Override
+    public void discard(long id) {
+        release(1);
+        appendLock.lock();
+        try {
+            checkAppendable();
+            append(MappingRecords.TYPE_DISCARD, id, NO_URL);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Copies a mapping into the pending buffer, counting it as unstored, and
+     * returns the log position just past it.
+     */
+    private long appendRecorded(long id, byte[] url) {
+        appendLock.lock();
+        try {
+            checkAppendable();
+            append(MappingRecords.TYPE_PUT, id, url);
+            countRecorded(1);
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Copies a batch of mappings under one hold of {@link #appendLock}, so
+     * they all count against the same epoch.
+     */
+    private long appendRecorded(long[] ids, byte[][] urls, int count) {
+        appendLock.lock();
+        try {
+            checkAppendable();
+            for (int i = 0; i < count; i++) {
+                append(MappingRecords.TYPE_PUT, ids[i], urls[i]);
+            }
+            countRecorded(count);
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void countRecorded(int count) {
+        int current = epoch;
+        unstored[current].addAndGet(count);
+        recordedEpoch.get()[0] = current;
+    }
+
+    private void checkAppendable() {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        checkNotFailed();
+    }
+
+    /**
+     * Copies a record into the pending buffer. Must be called with
+     * {@link #appendLock} held.
+     */
+    private void append(byte type, long id, byte[] url) {
+        int size = MappingRecords.encodedSize(url.length);
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        MappingRecords.write(pending, type, id, url);
+        appendedPosition += size;
+    }
+
+    /**
+     * Counts {@code count} mappings the calling thread recorded as stored or
+     * discarded, waking a {@link #roll()} waiting for them.
+     */
+    private void release(int count) {
+        int recorded = recordedEpoch.get()[0];
+        if (unstored[recorded].addAndGet(-count) == 0 && recorded != epoch) {
+            rollLock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                rollLock.unlock();
+            }
+        }
+    }
+
+    private void awaitDurable(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            // Whoever held the lock before us may already have forced our record
+            if (durablePosition < position) {
+                writeAndForce(true);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything buffered so far and optionally forces it. Must be
+     * called with {@link #flushLock} held.
+     */
+    private void writeAndForce(boolean force) {
+        checkNotFailed();
+        ByteBuffer batch;
+        long end;
+        appendLock.lock();
+        try {
+            batch = pending;
+            pending = spare;
+            end = appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            writtenPosition = end;
+            if (force && durablePosition < end) {
+                channel.force(false);
+                durablePosition = end;
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Cannot write to " + file, e);
+        } finally {
+            batch.clear();
+            spare = batch;
+        }
+    }
+
+    private void checkNotFailed() {
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException("Write-ahead log " + file + " failed earlier", e);
+        }
+    }
+
+    /**
+     * Writes and forces everything appended so far.
+     */
+    public void sync() {
+        flushLock.lock();
+        try {
+            if (channel.isOpen()) {
+                writeAndForce(true);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything buffered so far, closes the current log file and
+     * continues in a new one. Every record appended before this call lives in
+     * a file whose generation is lower than the returned one, and the call
+     * returns only once each of those mappings has been reported
+     * {@linkplain #stored stored} or {@linkplain #discard discarded}, so a
+     * snapshot of the forward index taken afterwards covers the older files.
+     *
+     * @return the generation of the new log file
+     */
+    public long roll() {
+        rollLock.lock();
+        try {
+            long next;
+            int draining;
+            flushLock.lock();
+            try {
+                writeAndForce(true);
+                channel.close();
+                openGeneration(generation + 1);
+                next = generation;
+                // Records appended since the buffer swap above land in the new
+                // file but count against the old epoch, which only waits longer
+                appendLock.lock();
+                try {
+                    draining = epoch;
+                    epoch = 1 - draining;
+                } finally {
+                    appendLock.unlock();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot roll write-ahead log in " + directory, e);
+            } finally {
+                flushLock.unlock();
+            }
+            while (unstored[draining].get() > 0) {
+                drained.awaitUninterruptibly();
+            }
+            return next;
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes log files older than {@code generation}, typically after a
+     * snapshot has captured their records.
+     */
+    public void purgeBefore(long generation) {
+        try {
+            for (Path log : logFiles()) {
+                if (generation(log) < generation && !log.equals(file)) {
+                    Files.delete(log);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot purge write-ahead log in " + directory, e);
+        }
+    }
+
+    /**
+     * Replays the records of all log files other than the current one,
+     * oldest first. At startup these are exactly the files written by
+     * earlier runs. Discards follow the mapping they discard, so a first
+     * pass collects them.
+     */
+    @Override
+    public void replay(ForwardIndex.EntryConsumer action) {
+        try {
+            List<Path> logs = new ArrayList<>(logFiles());
+            logs.remove(file);
+            Set<Long> discarded = new HashSet<>();
+            for (Path log : logs) {
+                replayFile(log, (type, id, url) -> {
+                    if (type == MappingRecords.TYPE_DISCARD) {
+                        discarded.add(id);
+                    }
+                });
+            }
+            for (Path log : logs) {
+                replayFile(log, (type, id, url) -> {
+                    if (type == MappingRecords.TYPE_PUT && !discarded.contains(id)) {
+                        action.accept(id, url);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log in " + directory, e);
+        }
+    }
+
+    private static void replayFile(Path log, RecordConsumer action) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(log), 1 << 16)) {
+            MappingRecords.Reader reader = new MappingRecords.Reader(in);
+            while (reader.next()) {
+                action.accept(reader.type(), reader.id(), reader.url());
+            }
+        } catch (MappingRecords.CorruptRecordException e) {
+            // Torn tail from a crash while writing; everything before it is intact
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(byte type, long id, String url);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long generation(Path log) {
+        String name = log.getFileName().toString();
+        return Long.parseUnsignedLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), 16);
+    }
+
+    /**
+     * Returns the number of record bytes appended during this run.
+     */
+    public long appendedBytes() {
+        appendLock.lock();
+        try {
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces all buffered records, unless the log has failed, and closes it.
+     * An empty log file is removed.
+     */
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        flushLock.lock();
+        try {
+            if (failure == null) {
+                writeAndForce(true);
+            }
+            boolean empty = channel.size() == 0;
+            channel.close();
+            if (empty) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close " + file, e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.shortener.replication;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.MappingJournal;
+
+/**
+ * Publishes mappings to a {@link ReplicationLeader} once the wrapped journal
+ * has recorded them and they are stored in the forward index, so followers
+ * only see mappings as durable as the journal's sync policy promises, and a
+ * follower bootstrapping from the forward index misses none of them.
+ * Discarded batch mappings are never published.
+ */
+public class ReplicatingJournal implements MappingJournal {
+
+    private final MappingJournal delegate;
+    private final ReplicationLeader leader;
+
+    public ReplicatingJournal(MappingJournal delegate, ReplicationLeader leader) {
+        this.delegate = delegate;
+        this.leader = leader;
+    }
+
+    @Override
+    public void record(long id, String normalizedUrl) {
+        delegate.record(id, normalizedUrl);
+    }
+
+    @Override
+    public void recordAll(long[] ids, String[] normalizedUrls, int count) {
+        delegate.recordAll(ids, normalizedUrls, count);
+    }
+
+    @Override
+    public void stored(long id, String normalizedUrl) {
+        delegate.stored(id, normalizedUrl);
+        leader.publish(id, normalizedUrl);
+    }
+
+    @Override
+    public void storedAll(long[] ids, String[] normalizedUrls, int count) {
+        delegate.storedAll(ids, normalizedUrls, count);
+        leader.publishAll(ids, normalizedUrls, count);
+    }
+
+    @Override
+    public void discard(long id) {
+        delegate.discard(id);
+    }
+
+    @Override
+    public void replay(ForwardIndex.EntryConsumer action) {
+        delegate.replay(action);
+    }
+}
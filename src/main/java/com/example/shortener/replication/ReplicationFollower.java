@@ -0,0 +1,196 @@
+package com.example.shortener.replication;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.persistence.MappingRecords;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies the mappings streamed by a {@link ReplicationLeader} to this
+ * node's {@link ForwardIndex} and {@link ReverseIndex}, on a single daemon
+ * thread. Every connection starts with a full bootstrap from the leader; when
+ * the connection breaks, or no record arrives within the timeout, the
+ * follower reconnects after the retry delay and bootstraps again. Mappings
+ * never change, so re-applying them is harmless.
+ * <p>
+ * Lag is measured against the leader time carried by heartbeats, so it
+ * assumes the clocks of leader and follower are synchronized.
+ */
+public class ReplicationFollower implements Closeable {
+
+    private final ForwardIndex forwardIndex;
+    private final ReverseIndex reverseIndex;
+    private final InetSocketAddress leader;
+    private final long retryMillis;
+    private final int timeoutMillis;
+    private final Thread thread;
+    private final CountDownLatch firstBootstrap = new CountDownLatch(1);
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder bootstraps = new LongAdder();
+    private volatile Socket socket;
+    private volatile boolean connected;
+    private volatile boolean bootstrapped;
+    /** Leader time of the last heartbeat, or -1 before the first one. */
+    private volatile long currentUpTo = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param forwardIndex index to apply mappings to
+     * @param reverseIndex index to apply mappings to
+     * @param leader address of the leader's replication port
+     * @param retryMillis delay before reconnecting after a failure
+     * @param timeoutMillis connect timeout, and longest silence tolerated
+     *                      from the leader; must exceed its heartbeat interval
+     */
+    public ReplicationFollower(ForwardIndex forwardIndex, ReverseIndex reverseIndex, InetSocketAddress leader,
+                               long retryMillis, int timeoutMillis) {
+        if (retryMillis <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("retryMillis and timeoutMillis must be positive");
+        }
+        this.forwardIndex = forwardIndex;
+        this.reverseIndex = reverseIndex;
+        this.leader = leader;
+        this.retryMillis = retryMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.thread = new Thread(this::run, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Parses a {@code host:port} leader address.
+     *
+     * @throws IllegalArgumentException if the address has no valid port
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        try {
+            if (colon > 0) {
+                return InetSocketAddress.createUnresolved(address.substring(0, colon),
+                        Integer.parseInt(address.substring(colon + 1)));
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below
+        }
+        throw new IllegalArgumentException("Leader address must be host:port: " + address);
+    }
+
+    /**
+     * Waits until the first bootstrap has completed.
+     *
+     * @return false if it did not complete within {@code timeout}
+     */
+    public boolean awaitBootstrap(Duration timeout) throws InterruptedException {
+        return firstBootstrap.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Whether the follower is connected to the leader. */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** Whether the current connection has completed its bootstrap. */
+    public boolean isBootstrapped() {
+        return bootstrapped;
+    }
+
+    /** Mappings applied since startup, including bootstraps. */
+    public long appliedCount() {
+        return applied.sum();
+    }
+
+    /** Bootstraps completed since startup. */
+    public long bootstrapCount() {
+        return bootstraps.sum();
+    }
+
+    /**
+     * Milliseconds between now and the leader time this replica is known to
+     * be current up to, or NaN before the first heartbeat. Keeps growing
+     * while the leader is unreachable.
+     */
+    public double lagMillis() {
+        long upTo = currentUpTo;
+        return upTo < 0 ? Double.NaN : Math.max(0, System.currentTimeMillis() - upTo);
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(new InetSocketAddress(leader.getHostString(), leader.getPort()), timeoutMillis);
+                if (s.getLocalPort() == s.getPort() && s.getLocalAddress().equals(s.getInetAddress())) {
+                    // TCP self-connect to a free ephemeral port, which would hold it from the leader
+                    throw new IOException("Connected to itself");
+                }
+                s.setSoTimeout(timeoutMillis);
+                connected = true;
+                MappingRecords.Reader reader = new MappingRecords.Reader(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+                while (reader.next()) {
+                    apply(reader);
+                }
+            } catch (IOException e) {
+                // Reconnect below
+            } finally {
+                connected = false;
+                bootstrapped = false;
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(MappingRecords.Reader reader) {
+        switch (reader.type()) {
+            case MappingRecords.TYPE_PUT:
+                // Forward first, so a reverse index confirming against it finds the URL.
+                // Re-bootstraps resend mappings the index holds; appending those again
+                // would grow append-only indexes on every reconnect
+                if (!reader.url().equals(forwardIndex.get(reader.id()).orElse(null))) {
+                    forwardIndex.put(reader.id(), reader.url());
+                }
+                reverseIndex.putIfAbsent(reader.url(), reader.id());
+                applied.increment();
+                break;
+            case MappingRecords.TYPE_BOOTSTRAP_END:
+                bootstrapped = true;
+                bootstraps.increment();
+                firstBootstrap.countDown();
+                break;
+            case MappingRecords.TYPE_HEARTBEAT:
+                currentUpTo = reader.id();
+                break;
+            default:
+                // Unknown types are skipped, so leaders can add new ones
+                break;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.shortener.replication;
+
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.persistence.MappingRecords;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams newly published mappings to {@link ReplicationFollower}s over TCP,
+ * framed as {@link MappingRecords}. A follower that connects first receives
+ * every entry of the {@link ForwardIndex}, then {@code BOOTSTRAP_END}, then
+ * new mappings as they are published, interleaved with heartbeats carrying
+ * the leader time the follower is current up to.
+ * <p>
+ * The service stores a mapping in the forward index only once its journal
+ * has recorded it, and publishes it only after storing it (see
+ * {@link ReplicatingJournal}), so the bootstrap scan sends no mapping the
+ * stream would not: with the write-ahead log's interval sync policy both
+ * may carry mappings not yet forced to disk, as the leader's own resolves
+ * do.
+ * <p>
+ * Each follower has its own sender thread and a queue of at most
+ * {@code backlog} mappings. The follower is registered before the bulk
+ * transfer starts, so mappings published during it are queued rather than
+ * missed; some may be sent twice, which is harmless since mappings never
+ * change. A follower whose queue overflows, because it or the network is too
+ * slow, is disconnected and re-bootstraps when it reconnects; publishing
+ * never blocks on a follower.
+ */
+public class ReplicationLeader implements Closeable {
+
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final ForwardIndex forwardIndex;
+    private final int backlog;
+    private final long heartbeatMillis;
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final Set<FollowerLink> followers = ConcurrentHashMap.newKeySet();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param forwardIndex index whose entries bootstrap new followers
+     * @param address address to accept followers on; port 0 picks a free port
+     * @param backlog mappings queued per follower before it is disconnected;
+     *                should cover the writes expected during a bootstrap
+     * @param heartbeatMillis interval between heartbeats of an idle stream
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public ReplicationLeader(ForwardIndex forwardIndex, InetSocketAddress address, int backlog, long heartbeatMillis) {
+        if (backlog < 1 || heartbeatMillis <= 0) {
+            throw new IllegalArgumentException("backlog and heartbeatMillis must be positive");
+        }
+        this.forwardIndex = forwardIndex;
+        this.backlog = backlog;
+        this.heartbeatMillis = heartbeatMillis;
+        try {
+            this.server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(address);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for followers on " + address, e);
+        }
+        this.acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port followers connect to.
+     */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Queues a newly published mapping for every connected follower.
+     */
+    public void publish(long id, String url) {
+        long now = System.currentTimeMillis();
+        for (FollowerLink follower : followers) {
+            follower.offer(new Entry(id, url, now));
+        }
+        published.increment();
+    }
+
+    /**
+     * Queues the first {@code count} mappings of a batch for every connected
+     * follower.
+     */
+    public void publishAll(long[] ids, String[] urls, int count) {
+        for (int i = 0; i < count; i++) {
+            publish(ids[i], urls[i]);
+        }
+    }
+
+    /** Number of connected followers, bootstrapping or streaming. */
+    public int followerCount() {
+        return followers.size();
+    }
+
+    /** Mappings published since startup. */
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    /** Followers disconnected because their queue overflowed. */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /** Mappings queued for the slowest follower. */
+    public int backlog() {
+        int max = 0;
+        for (FollowerLink follower : followers) {
+            max = Math.max(max, follower.queue.size());
+        }
+        return max;
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                FollowerLink follower = new FollowerLink(socket);
+                followers.add(follower);
+                Thread sender = new Thread(follower, "replication-sender-" + THREAD_IDS.incrementAndGet());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        for (FollowerLink follower : followers) {
+            follower.disconnect();
+        }
+    }
+
+    /**
+     * A mapping and the leader time it was published at.
+     */
+    private static final class Entry {
+        final long id;
+        final String url;
+        final long publishedAt;
+
+        Entry(long id, String url, long publishedAt) {
+            this.id = id;
+            this.url = url;
+            this.publishedAt = publishedAt;
+        }
+    }
+
+    /**
+     * The connection to one follower and the mappings queued for it.
+     */
+    private final class FollowerLink implements Runnable {
+        private final Socket socket;
+        private final ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(backlog);
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+        private volatile boolean overflowed;
+
+        FollowerLink(Socket socket) {
+            this.socket = socket;
+        }
+
+        void offer(Entry entry) {
+            if (!queue.offer(entry) && !overflowed) {
+                overflowed = true;
+                dropped.increment();
+                disconnect();
+            }
+        }
+
+        @Override
+        public void run() {
+            try (OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)) {
+                long bootstrapStart = System.currentTimeMillis();
+                long[] count = new long[1];
+                forwardIndex.forEach((id, url) -> {
+                    write(out, MappingRecords.TYPE_PUT, id, url);
+                    count[0]++;
+                });
+                write(out, MappingRecords.TYPE_BOOTSTRAP_END, count[0], "");
+                // Everything published before the scan started was stored in the index
+                write(out, MappingRecords.TYPE_HEARTBEAT, bootstrapStart, "");
+                out.flush();
+                stream(out);
+            } catch (IOException | UncheckedIOException e) {
+                // The follower went away or was dropped; it reconnects by itself
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void stream(OutputStream out) throws IOException, InterruptedException {
+            List<Entry> batch = new ArrayList<>();
+            long lastHeartbeat = System.currentTimeMillis();
+            while (!closed && !overflowed) {
+                Entry first = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                long currentUpTo;
+                if (first == null) {
+                    currentUpTo = System.currentTimeMillis();
+                } else {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    for (Entry entry : batch) {
+                        write(out, MappingRecords.TYPE_PUT, entry.id, entry.url);
+                    }
+                    // With the queue drained, the follower is current until now
+                    currentUpTo = queue.isEmpty() ? System.currentTimeMillis() : batch.get(batch.size() - 1).publishedAt;
+                    batch.clear();
+                }
+                if (first == null || currentUpTo - lastHeartbeat >= heartbeatMillis) {
+                    write(out, MappingRecords.TYPE_HEARTBEAT, currentUpTo, "");
+                    lastHeartbeat = currentUpTo;
+                }
+                out.flush();
+            }
+        }
+
+        private void write(OutputStream out, byte type, long id, String url) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            int size = MappingRecords.encodedSize(bytes.length);
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+            }
+            buffer.clear();
+            MappingRecords.write(buffer, type, id, bytes);
+            try {
+                out.write(buffer.array(), 0, buffer.position());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void disconnect() {
+            followers.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.shortener.service;
+
+/**
+ * Clicks of one short code: the lifetime total and an estimate of recent
+ * clicks, which decays over time.
+ */
+public final class ClickStats {
+    private final String shortCode;
+    private final long clicks;
+    private final long recentClicks;
+
+    public ClickStats(String shortCode, long clicks, long recentClicks) {
+        this.shortCode = shortCode;
+        this.clicks = clicks;
+        this.recentClicks = recentClicks;
+    }
+
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    /**
+     * Returns the clicks counted since the node started.
+     */
+    public long getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Returns the estimated clicks of recent traffic.
+     */
+    public long getRecentClicks() {
+        return recentClicks;
+    }
+}
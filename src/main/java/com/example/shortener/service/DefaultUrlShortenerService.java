@@ -1,21 +1,43 @@
 package com.example.shortener.service;
 
+import com.example.shortener.core.AliasIndex;
 import com.example.shortener.core.Base64Codec;
+import com.example.shortener.core.ClickTracker;
 import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.HeavyHitters;
 import com.example.shortener.core.IdSpace;
+import com.example.shortener.core.MappingExpirer;
+import com.example.shortener.core.MappingJournal;
+import com.example.shortener.core.NoOpMappingJournal;
 import com.example.shortener.core.ReverseIndex;
 import com.example.shortener.core.UrlNormalizer;
 import com.example.shortener.core.UrlValidator;
+import com.example.shortener.errors.AliasTakenException;
+import com.example.shortener.errors.AliasesNotEnabledException;
 import com.example.shortener.errors.CapacityExceededException;
+import com.example.shortener.errors.ClicksNotEnabledException;
+import com.example.shortener.errors.ExpiryNotEnabledException;
+import com.example.shortener.errors.InvalidAliasException;
 import com.example.shortener.errors.InvalidUrlException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Default implementation of {@link UrlShortenerService} that keeps all state
  * in-memory and guarantees O(1) lookup time for resolves. Codes are generated
  * from a monotonic ID and encoded using a Base64 URL-safe codec without
- * padding.
+ * padding. With a {@link MappingExpirer}, URLs can be shortened with a time
+ * to live; expired codes stop resolving at their deadline. With an
+ * {@link AliasIndex}, mappings can also be named by custom aliases, which
+ * are only looked up for codes that are not valid numeric codes. With a
+ * {@link ClickTracker}, every successful resolve is counted.
  */
 public class DefaultUrlShortenerService implements UrlShortenerService {
 
@@ -25,6 +47,11 @@ public class DefaultUrlShortenerService implements UrlShortenerService {
     private final Base64Codec codec;
     private final UrlValidator validator;
     private final UrlNormalizer normalizer;
+    private final MappingJournal journal;
+    private final ServiceMetrics metrics;
+    private final MappingExpirer expirer;
+    private final AliasIndex aliasIndex;
+    private final ClickTracker clicks;
 
     public DefaultUrlShortenerService(IdSpace idSpace,
                                       ForwardIndex forwardIndex,
@@ -32,51 +59,401 @@ public class DefaultUrlShortenerService implements UrlShortenerService {
                                       Base64Codec codec,
                                       UrlValidator validator,
                                       UrlNormalizer normalizer) {
+        this(idSpace, forwardIndex, reverseIndex, codec, validator, normalizer, new Options());
+    }
+
+    /**
+     * @param options the journal, metrics and optional features; read once,
+     *                so later changes to it have no effect
+     */
+    public DefaultUrlShortenerService(IdSpace idSpace,
+                                      ForwardIndex forwardIndex,
+                                      ReverseIndex reverseIndex,
+                                      Base64Codec codec,
+                                      UrlValidator validator,
+                                      UrlNormalizer normalizer,
+                                      Options options) {
         this.idSpace = idSpace;
         this.forwardIndex = forwardIndex;
         this.reverseIndex = reverseIndex;
         this.codec = codec;
         this.validator = validator;
         this.normalizer = normalizer;
+        this.journal = options.journal;
+        this.metrics = options.metrics;
+        this.expirer = options.expirer;
+        this.aliasIndex = options.aliasIndex;
+        this.clicks = options.clicks;
     }
 
     @Override
     public String shorten(String longUrl) throws InvalidUrlException, CapacityExceededException {
+        return codec.encode(shorten(longUrl, MappingExpirer.NEVER));
+    }
+
+    @Override
+    public String shorten(String longUrl, Duration ttl) {
+        if (ttl == null) {
+            return shorten(longUrl);
+        }
+        if (expirer == null) {
+            throw new ExpiryNotEnabledException();
+        }
+        return codec.encode(shorten(longUrl, MappingExpirer.deadline(System.currentTimeMillis(), ttl.toMillis())));
+    }
+
+    /**
+     * Shortens a URL, or finds its mapping, and returns the ID.
+     */
+    private long shorten(String longUrl, long deadline) {
+        long start = metrics.startTimer();
         // Validate input URL
         validator.validate(longUrl);
+        start = metrics.stopTimer(ServiceMetrics.Stage.VALIDATE, start);
         // Apply normalization (if configured)
         String normalized = normalizer.normalize(longUrl);
-        // Check if this URL has been shortened before
-        Optional<Long> existingId = reverseIndex.getId(normalized);
-        if (existingId.isPresent()) {
-            return codec.encode(existingId.get());
+        start = metrics.stopTimer(ServiceMetrics.Stage.NORMALIZE, start);
+        long existing = reverseIndex.tryGetId(normalized);
+        if (existing != ReverseIndex.NO_ID && extend(existing, normalized, deadline)) {
+            metrics.stopTimer(ServiceMetrics.Stage.REVERSE_INDEX, start);
+            metrics.recordShorten(outcomeOfExisting(longUrl, normalized));
+            return existing;
+        }
+        // New URL, or expired since: allocate and journal outside the reverse index, so
+        // a slow sync holds none of its locks and concurrent shortens share one force
+        start = metrics.startTimer();
+        JournaledAllocator allocator = new JournaledAllocator();
+        allocator.id = idSpace.allocate();
+        allocator.deadline = deadline;
+        start = metrics.stopTimer(ServiceMetrics.Stage.ALLOCATE, start);
+        journal.record(allocator.id, normalized);
+        start = metrics.stopTimer(ServiceMetrics.Stage.JOURNAL, start);
+        long result;
+        try {
+            result = reverseIndex.getOrAllocate(normalized, allocator);
+            while (!ReverseIndex.isAllocated(result) && !extend(result, normalized, deadline)) {
+                // Expired since the lookup; the URL gets a new code
+                result = reverseIndex.getOrAllocate(normalized, allocator);
+            }
+        } catch (RuntimeException e) {
+            journal.discard(allocator.id);
+            throw e;
+        }
+        metrics.stopTimer(ServiceMetrics.Stage.REVERSE_INDEX, start);
+        if (ReverseIndex.isAllocated(result)) {
+            journal.stored(allocator.id, normalized);
+            metrics.recordShorten(ServiceMetrics.ShortenOutcome.NEW);
+            return allocator.id;
+        }
+        // Lost the URL to a concurrent shorten since the lookup above
+        journal.discard(allocator.id);
+        metrics.recordShorten(outcomeOfExisting(longUrl, normalized));
+        return result;
+    }
+
+    /**
+     * Applies a repeated shorten to the existing mapping {@code id} of
+     * {@code normalizedUrl}. Returns false if the expirer is removing or has
+     * removed the mapping since it was looked up, so its code must not be
+     * handed out.
+     */
+    private boolean extend(long id, String normalizedUrl, long deadline) {
+        return expirer == null
+                || expirer.extend(id, deadline) && reverseIndex.tryGetId(normalizedUrl) == id;
+    }
+
+    /**
+     * Shortens the URL first, so the alias only ever names a published
+     * mapping; if the alias is then lost to a concurrent creator, the URL
+     * keeps its numeric code.
+     */
+    @Override
+    public String createAlias(String alias, String longUrl) {
+        if (aliasIndex == null) {
+            throw new AliasesNotEnabledException();
         }
-        // Allocate a new ID and record the mapping
-        long id = idSpace.allocate();
-        // Write to forward and reverse indexes
-        forwardIndex.put(id, normalized);
-        long actualId = reverseIndex.putIfAbsent(normalized, id);
-        // If another thread stored an ID simultaneously, use that one
-        if (actualId != id) {
-            // Remove the unused entry from forward index to avoid leaks
-            // Note: ForwardIndex implementation may keep the slot null or reused. We cannot delete from segmented array easily.
-            return codec.encode(actualId);
+        if (!AliasIndex.isValid(alias)) {
+            throw new InvalidAliasException("Alias must be " + AliasIndex.MIN_LENGTH + " to " + AliasIndex.MAX_LENGTH
+                    + " characters of A-Z, a-z, 0-9, '-' and '_', not " + Base64Codec.CODE_LENGTH + " and not reserved");
         }
-        return codec.encode(id);
+        long id = shorten(longUrl, MappingExpirer.NEVER);
+        if (aliasIndex.putIfAbsent(alias, id) != id) {
+            throw new AliasTakenException(alias);
+        }
+        return alias;
+    }
+
+    /**
+     * Normalizers return the input instance when it is already canonical, so
+     * a different instance means the URL was rewritten.
+     */
+    private static ServiceMetrics.ShortenOutcome outcomeOfExisting(String longUrl, String normalized) {
+        return normalized == longUrl ? ServiceMetrics.ShortenOutcome.EXISTING : ServiceMetrics.ShortenOutcome.MERGED;
     }
 
     @Override
     public Optional<String> resolve(String code) {
-        // Validate code format and decode
-        if (!codec.isValidCode(code)) {
+        // Validate code format and decode in a single pass
+        long id = code == null ? Base64Codec.INVALID_ID : codec.tryDecode(code);
+        if (id == Base64Codec.INVALID_ID) {
+            // Numeric codes never reach the alias index
+            id = aliasIndex == null ? AliasIndex.NO_ID : aliasIndex.get(code);
+            if (id == AliasIndex.NO_ID) {
+                metrics.recordResolve(aliasIndex != null && AliasIndex.isValid(code)
+                        ? ServiceMetrics.ResolveResult.MISS : ServiceMetrics.ResolveResult.INVALID);
+                return Optional.empty();
+            }
+        }
+        Optional<String> url = forwardIndex.get(id);
+        if (url.isPresent() && expirer != null && expirer.isExpired(id, System.currentTimeMillis())) {
+            // Past its deadline but not yet removed by the expirer
+            url = Optional.empty();
+        }
+        if (clicks != null && url.isPresent()) {
+            clicks.record(id);
+        }
+        metrics.recordResolve(url.isPresent() ? ServiceMetrics.ResolveResult.HIT : ServiceMetrics.ResolveResult.MISS);
+        return url;
+    }
+
+    @Override
+    public Optional<Instant> expiresAt(String code) {
+        long id = expirer == null || code == null ? Base64Codec.INVALID_ID : codec.tryDecode(code);
+        if (id == Base64Codec.INVALID_ID && expirer != null && aliasIndex != null) {
+            id = aliasIndex.get(code);
+        }
+        long deadline = id < 0 ? MappingExpirer.NEVER : expirer.deadlineOf(id);
+        return deadline == MappingExpirer.NEVER ? Optional.empty() : Optional.of(Instant.ofEpochMilli(deadline));
+    }
+
+    @Override
+    public Optional<ClickStats> clicks(String code) {
+        if (clicks == null) {
+            throw new ClicksNotEnabledException();
+        }
+        long id = code == null ? Base64Codec.INVALID_ID : codec.tryDecode(code);
+        if (id == Base64Codec.INVALID_ID && aliasIndex != null) {
+            id = aliasIndex.get(code);
+        }
+        if (id < 0 || forwardIndex.get(id).isEmpty()) {
             return Optional.empty();
         }
-        long id;
+        return Optional.of(new ClickStats(code, clicks.clicks(id), clicks.recentClicks(id)));
+    }
+
+    /**
+     * Codes of aliased mappings are listed as their numeric code.
+     */
+    @Override
+    public List<ClickStats> topClicks(int limit) {
+        if (clicks == null) {
+            throw new ClicksNotEnabledException();
+        }
+        List<HeavyHitters.Entry> top = clicks.top(limit);
+        List<ClickStats> stats = new ArrayList<>(top.size());
+        for (HeavyHitters.Entry entry : top) {
+            stats.add(new ClickStats(codec.encode(entry.id()), clicks.clicks(entry.id()), entry.estimate()));
+        }
+        return stats;
+    }
+
+    /**
+     * Validates and de-duplicates the batch, looks up known URLs, then takes
+     * one block of IDs for the remaining ones and journals them together
+     * before publishing any. If another caller indexes one of those URLs
+     * first, its ID from the block is never published and is discarded from
+     * the journal, so no orphan is left behind; so are the IDs of the rest of
+     * the batch if indexing it fails partway.
+     */
+    @Override
+    public List<ShortenResult> shortenAll(List<String> longUrls) {
+        int size = longUrls.size();
+        ShortenResult[] results = new ShortenResult[size];
+        String[] normalized = new String[size];
+        // Index of the first occurrence of each URL; duplicates copy its result
+        int[] first = new int[size];
+        Map<String, Integer> seen = new HashMap<>();
+        int[] misses = new int[size];
+        int missCount = 0;
+        for (int i = 0; i < size; i++) {
+            try {
+                validator.validate(longUrls.get(i));
+                normalized[i] = normalizer.normalize(longUrls.get(i));
+            } catch (InvalidUrlException e) {
+                results[i] = ShortenResult.failure(e.getMessage());
+                continue;
+            }
+            Integer earlier = seen.putIfAbsent(normalized[i], i);
+            first[i] = earlier == null ? i : earlier;
+            if (earlier != null) {
+                continue;
+            }
+            long id = reverseIndex.tryGetId(normalized[i]);
+            // Batch mappings are permanent
+            if (id != ReverseIndex.NO_ID && extend(id, normalized[i], MappingExpirer.NEVER)) {
+                results[i] = ShortenResult.success(codec.encode(id));
+                metrics.recordShorten(outcomeOfExisting(longUrls.get(i), normalized[i]));
+            } else {
+                misses[missCount++] = i;
+            }
+        }
+
+        if (missCount > 0) {
+            shortenMisses(longUrls, normalized, misses, missCount, results);
+        }
+        for (int i = 0; i < size; i++) {
+            if (results[i] == null) {
+                results[i] = results[first[i]];
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void shortenMisses(List<String> longUrls, String[] normalized, int[] misses, int missCount, ShortenResult[] results) {
+        long first;
+        long start = metrics.startTimer();
         try {
-            id = codec.decode(code);
-        } catch (IllegalArgumentException ex) {
-            return Optional.empty();
+            first = idSpace.allocateBlock(missCount);
+            metrics.stopTimer(ServiceMetrics.Stage.ALLOCATE, start);
+        } catch (CapacityExceededException e) {
+            for (int m = 0; m < missCount; m++) {
+                results[misses[m]] = ShortenResult.failure(e.getMessage());
+            }
+            return;
+        }
+        long[] ids = new long[missCount];
+        String[] urls = new String[missCount];
+        for (int m = 0; m < missCount; m++) {
+            ids[m] = first + m;
+            urls[m] = normalized[misses[m]];
+        }
+        // The whole batch is durable before any of it is published
+        start = metrics.startTimer();
+        journal.recordAll(ids, urls, missCount);
+        metrics.stopTimer(ServiceMetrics.Stage.JOURNAL, start);
+        JournaledAllocator allocator = new JournaledAllocator();
+        // The stored mappings, compacted to the front of urls as it is consumed
+        long[] storedIds = new long[missCount];
+        int storedCount = 0;
+        int m = 0;
+        try {
+            for (; m < missCount; m++) {
+                allocator.id = ids[m];
+                long result = reverseIndex.getOrAllocate(urls[m], allocator);
+                while (!ReverseIndex.isAllocated(result) && !extend(result, urls[m], MappingExpirer.NEVER)) {
+                    result = reverseIndex.getOrAllocate(urls[m], allocator);
+                }
+                if (ReverseIndex.isAllocated(result)) {
+                    storedIds[storedCount] = ids[m];
+                    urls[storedCount++] = urls[m];
+                    metrics.recordShorten(ServiceMetrics.ShortenOutcome.NEW);
+                } else {
+                    // Lost the URL to a concurrent shorten since the lookup above
+                    journal.discard(ids[m]);
+                    ids[m] = result;
+                    metrics.recordShorten(outcomeOfExisting(longUrls.get(misses[m]), urls[m]));
+                }
+            }
+        } catch (RuntimeException e) {
+            // The rest of the batch was never published
+            for (int rest = m; rest < missCount; rest++) {
+                journal.discard(ids[rest]);
+            }
+            throw e;
+        } finally {
+            // Mappings published before a failure are stored all the same
+            journal.storedAll(storedIds, urls, storedCount);
+        }
+        for (m = 0; m < missCount; m++) {
+            results[misses[m]] = ShortenResult.success(codec.encode(ids[m]));
+        }
+    }
+
+    @Override
+    public List<Optional<String>> resolveAll(List<String> codes) {
+        List<Optional<String>> results = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            results.add(resolve(code));
+        }
+        return results;
+    }
+
+    /**
+     * Hands out the ID already journaled for the URL being published and
+     * stores the mapping in the forward index. Runs at most once per URL,
+     * inside the reverse index, and only after the mapping is durable, so a
+     * concurrent shorten of the URL, or a resolve, never sees one the
+     * journal could lose. New expiring mappings get their deadline before
+     * they are indexed, so a racing permanent shorten clears it. Used by one
+     * thread at a time.
+     */
+    private final class JournaledAllocator implements ReverseIndex.IdAllocator {
+        long id;
+        long deadline = MappingExpirer.NEVER;
+
+        @Override
+        public long allocate(String normalizedUrl) {
+            long start = metrics.startTimer();
+            forwardIndex.put(id, normalizedUrl);
+            metrics.stopTimer(ServiceMetrics.Stage.FORWARD_PUT, start);
+            if (deadline != MappingExpirer.NEVER) {
+                expirer.expireAt(id, deadline);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Collaborators of the service beyond its indexes and codecs. By default
+     * mappings are not journaled, no metrics are recorded and expiry, aliases
+     * and click tracking are disabled.
+     */
+    public static final class Options {
+        private MappingJournal journal = new NoOpMappingJournal();
+        private ServiceMetrics metrics = ServiceMetrics.NOOP;
+        private MappingExpirer expirer;
+        private AliasIndex aliasIndex;
+        private ClickTracker clicks;
+
+        /**
+         * @param journal records new mappings before they are published
+         */
+        public Options journal(MappingJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * @param metrics records stage timings and outcomes
+         */
+        public Options metrics(ServiceMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param expirer expires mappings shortened with a time to live, or
+         *                null if every mapping is permanent
+         */
+        public Options expirer(MappingExpirer expirer) {
+            this.expirer = expirer;
+            return this;
+        }
+
+        /**
+         * @param aliasIndex custom aliases, or null if they are not supported
+         */
+        public Options aliasIndex(AliasIndex aliasIndex) {
+            this.aliasIndex = aliasIndex;
+            return this;
+        }
+
+        /**
+         * @param clicks counts resolves per ID, or null
+         */
+        public Options clicks(ClickTracker clicks) {
+            this.clicks = clicks;
+            return this;
         }
-        return forwardIndex.get(id);
     }
-}
\ No newline at end of file
+}
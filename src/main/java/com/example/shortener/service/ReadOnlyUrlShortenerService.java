@@ -0,0 +1,71 @@
+package com.example.shortener.service;
+
+import com.example.shortener.errors.ReadOnlyReplicaException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves resolves from a delegate and rejects shortens, for a follower whose
+ * indexes are filled by replication from the leader.
+ */
+public class ReadOnlyUrlShortenerService implements UrlShortenerService {
+
+    private final UrlShortenerService delegate;
+
+    public ReadOnlyUrlShortenerService(UrlShortenerService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String shorten(String longUrl) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public String shorten(String longUrl, Duration ttl) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public String createAlias(String alias, String longUrl) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public Optional<String> resolve(String code) {
+        return delegate.resolve(code);
+    }
+
+    @Override
+    public Optional<Instant> expiresAt(String code) {
+        return delegate.expiresAt(code);
+    }
+
+    @Override
+    public Optional<ClickStats> clicks(String code) {
+        return delegate.clicks(code);
+    }
+
+    @Override
+    public List<ClickStats> topClicks(int limit) {
+        return delegate.topClicks(limit);
+    }
+
+    @Override
+    public List<ShortenResult> shortenAll(List<String> longUrls) {
+        throw new ReadOnlyReplicaException();
+    }
+
+    @Override
+    public List<Optional<String>> resolveAll(List<String> codes) {
+        return delegate.resolveAll(codes);
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shortener.service;
+
+/**
+ * Receives timings of the stages of a shorten and the outcome of each
+ * shorten and resolve from {@link DefaultUrlShortenerService}. Timings are taken as
+ * {@code start = startTimer()} followed by {@code stopTimer(stage, start)},
+ * which returns the start of the next stage so consecutive stages cost one
+ * clock read each.
+ * <p>
+ * {@link #NOOP} never reads the clock; when it is the only implementation
+ * loaded, the JIT inlines its empty methods and instrumentation costs
+ * nothing.
+ */
+public interface ServiceMetrics {
+
+    ServiceMetrics NOOP = new ServiceMetrics() {
+        @Override
+        public long startTimer() {
+            return 0;
+        }
+
+        @Override
+        public long stopTimer(Stage stage, long start) {
+            return 0;
+        }
+
+        @Override
+        public void recordShorten(ShortenOutcome outcome) {
+        }
+
+        @Override
+        public void recordResolve(ResolveResult result) {
+        }
+    };
+
+    /**
+     * Stages of a shorten, in the order they run.
+     */
+    enum Stage {
+        VALIDATE("validate"),
+        NORMALIZE("normalize"),
+        /** Reverse index lookup; for new URLs this includes ALLOCATE, JOURNAL and FORWARD_PUT. */
+        REVERSE_INDEX("reverse-index"),
+        ALLOCATE("allocate"),
+        JOURNAL("journal"),
+        FORWARD_PUT("forward-put");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Outcomes of a shorten. The share of {@code MERGED} outcomes is the
+     * fraction of shortens de-duplicated only thanks to the normalizer.
+     */
+    enum ShortenOutcome {
+        /** A new ID was allocated. */
+        NEW("new"),
+        /** The URL, as submitted, already had an ID. */
+        EXISTING("existing"),
+        /** The URL was rewritten by the normalizer and its canonical form already had an ID. */
+        MERGED("merged");
+
+        private final String tag;
+
+        ShortenOutcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Outcomes of a resolve.
+     */
+    enum ResolveResult {
+        HIT("hit"),
+        MISS("miss"),
+        INVALID("invalid");
+
+        private final String tag;
+
+        ResolveResult(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Returns the start time of the first stage, in nanoseconds.
+     */
+    long startTimer();
+
+    /**
+     * Records {@code stage} as having run since {@code start} and returns the
+     * current time, which is the start of the next stage.
+     */
+    long stopTimer(Stage stage, long start);
+
+    void recordShorten(ShortenOutcome outcome);
+
+    void recordResolve(ResolveResult result);
+}
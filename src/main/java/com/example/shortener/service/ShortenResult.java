@@ -0,0 +1,41 @@
+package com.example.shortener.service;
+
+/**
+ * Outcome of shortening one URL of a batch: either a short code or the
+ * reason the URL was rejected.
+ */
+public final class ShortenResult {
+    private final String shortCode;
+    private final String error;
+
+    private ShortenResult(String shortCode, String error) {
+        this.shortCode = shortCode;
+        this.error = error;
+    }
+
+    public static ShortenResult success(String shortCode) {
+        return new ShortenResult(shortCode, null);
+    }
+
+    public static ShortenResult failure(String error) {
+        return new ShortenResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return shortCode != null;
+    }
+
+    /**
+     * Returns the short code, or null if the URL was rejected.
+     */
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    /**
+     * Returns why the URL was rejected, or null on success.
+     */
+    public String getError() {
+        return error;
+    }
+}
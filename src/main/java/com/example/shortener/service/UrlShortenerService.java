@@ -1,8 +1,16 @@
 package com.example.shortener.service;
 
+import com.example.shortener.errors.AliasTakenException;
+import com.example.shortener.errors.AliasesNotEnabledException;
 import com.example.shortener.errors.CapacityExceededException;
+import com.example.shortener.errors.ClicksNotEnabledException;
+import com.example.shortener.errors.ExpiryNotEnabledException;
+import com.example.shortener.errors.InvalidAliasException;
 import com.example.shortener.errors.InvalidUrlException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,6 +28,72 @@ public interface UrlShortenerService {
      */
     String shorten(String longUrl) throws InvalidUrlException, CapacityExceededException;
 
+    /**
+     * Shortens the provided URL so that its mapping expires after
+     * {@code ttl}. Shortening a URL that already has a code keeps that code
+     * and only ever extends its lifetime: a later expiry replaces an earlier
+     * one, and a shorten without a time to live makes it permanent.
+     *
+     * @param longUrl the URL to shorten
+     * @param ttl the time to live, or null for a permanent mapping
+     * @return the short code
+     * @throws ExpiryNotEnabledException if a ttl is given but this service
+     *                                   does not expire mappings
+     */
+    default String shorten(String longUrl, Duration ttl) {
+        if (ttl == null) {
+            return shorten(longUrl);
+        }
+        throw new ExpiryNotEnabledException();
+    }
+
+    /**
+     * Shortens the provided URL and names its mapping with a custom alias,
+     * which then resolves like the mapping's code. Creating an alias that
+     * already names the same URL succeeds again.
+     *
+     * @param alias the alias; see
+     *              {@link com.example.shortener.core.AliasIndex#isValid(String)}
+     * @param longUrl the URL to shorten
+     * @return the alias
+     * @throws InvalidAliasException if the alias is not valid
+     * @throws AliasTakenException if the alias already names another URL
+     * @throws InvalidUrlException if the URL is invalid
+     * @throws AliasesNotEnabledException if aliases are not enabled
+     */
+    default String createAlias(String alias, String longUrl) {
+        throw new AliasesNotEnabledException();
+    }
+
+    /**
+     * Returns when the mapping of {@code code} expires, or empty if it is
+     * permanent or unknown.
+     */
+    default Optional<Instant> expiresAt(String code) {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the clicks of {@code code}, a short code or alias, counted by
+     * this node's resolves.
+     *
+     * @return the clicks, or empty if the code is unknown or invalid
+     * @throws ClicksNotEnabledException if this service does not count clicks
+     */
+    default Optional<ClickStats> clicks(String code) {
+        throw new ClicksNotEnabledException();
+    }
+
+    /**
+     * Returns up to {@code limit} of the most clicked codes of recent
+     * traffic, most clicked first.
+     *
+     * @throws ClicksNotEnabledException if this service does not count clicks
+     */
+    default List<ClickStats> topClicks(int limit) {
+        throw new ClicksNotEnabledException();
+    }
+
     /**
      * Resolves the given short code back to the original URL.
      *
@@ -27,4 +101,32 @@ public interface UrlShortenerService {
      * @return an Optional containing the URL if known, or empty if not found
      */
     Optional<String> resolve(String code);
+
+    /**
+     * Shortens a batch of URLs. Repeated URLs within the batch get the same
+     * code, and a URL that cannot be shortened yields a failed result instead
+     * of failing the whole batch.
+     *
+     * @param longUrls the URLs to shorten; elements may be null
+     * @return one result per input URL, in input order
+     */
+    List<ShortenResult> shortenAll(List<String> longUrls);
+
+    /**
+     * Resolves a batch of short codes.
+     *
+     * @param codes the codes to resolve; elements may be null
+     * @return one Optional per input code, in input order, empty if the code
+     *         is unknown or invalid
+     */
+    List<Optional<String>> resolveAll(List<String> codes);
+
+    /**
+     * Returns true if this service only resolves, e.g. on a replica, and
+     * every shorten fails with a
+     * {@link com.example.shortener.errors.ReadOnlyReplicaException}.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.shortener.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs request handling on virtual threads when
+ * {@code shortener.virtual-threads.enabled=true}. Only compiled by the
+ * {@code java21} Maven profile, so Java 17 builds are unaffected.
+ * <p>
+ * Tomcat's bounded worker pool is replaced by one virtual thread per task,
+ * so concurrency is limited by {@code server.tomcat.max-connections} rather
+ * than {@code server.tomcat.threads.max}. Streamed batch responses run on
+ * the {@code applicationTaskExecutor}, which is replaced as well. Locks on
+ * the shorten path are {@link java.util.concurrent.locks.ReentrantLock}s, so
+ * blocking while holding one unmounts the virtual thread instead of pinning
+ * its carrier; run with {@code -Djdk.tracePinnedThreads=full} to check.
+ */
+@Configuration
+@ConditionalOnProperty("shortener.virtual-threads.enabled")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return handler -> handler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vt-", 0).factory()));
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-vt-", 0).factory()));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.shortener.cluster;
+
+import com.example.shortener.core.Base64Codec;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.NodePartition;
+import com.example.shortener.core.PartitionedBase64Codec;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link NodeRouter} against a stub of node 1 served by the
+ * JDK HTTP server: owner lookup, relaying redirects and resolves, splitting
+ * batches by node and unavailable or absent nodes.
+ */
+public class NodeRouterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Base64Codec nodeZero = new PartitionedBase64Codec(new Base64UrlCodec(), new NodePartition(2, 0));
+    private final Base64Codec nodeOne = new PartitionedBase64Codec(new Base64UrlCodec(), new NodePartition(2, 1));
+    private final Base64Codec nodeTwo = new PartitionedBase64Codec(new Base64UrlCodec(), new NodePartition(2, 2));
+    private final List<String> forwardedHeaders = new CopyOnWriteArrayList<>();
+    private HttpServer peer;
+    private NodeRouter router;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext("/", this::serve);
+        peer.start();
+        String peerUrl = "http://127.0.0.1:" + peer.getAddress().getPort() + "/";
+        // Node 2 has no peer, node 3 does not listen
+        router = new NodeRouter(new NodePartition(2, 0), new Base64UrlCodec(),
+                List.of("http://self.invalid", peerUrl, "", "http://127.0.0.1:1"), objectMapper, Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        peer.stop(0);
+    }
+
+    /** Node 1 knows its local IDs below 10 as https://one.example/{id}. */
+    private void serve(HttpExchange exchange) throws IOException {
+        forwardedHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst(NodeRouter.FORWARDED_HEADER)));
+        String path = exchange.getRequestURI().getPath();
+        if (exchange.getRequestMethod().equals("GET")) {
+            long id = nodeOne.tryDecode(path.substring(1));
+            if (id >= 0 && id < 10) {
+                exchange.getResponseHeaders().set(HttpHeaders.LOCATION, "https://one.example/" + id);
+                exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"" + path.substring(1) + "\"");
+                exchange.sendResponseHeaders(301, -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } else if (path.equals("/api/resolve")) {
+            long id = nodeOne.tryDecode(objectMapper.readTree(exchange.getRequestBody()).path("shortCode").asText());
+            if (id >= 0 && id < 10) {
+                respond(exchange, "{\"longUrl\":\"https://one.example/" + id + "\"}");
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } else {
+            StringBuilder json = new StringBuilder("{\"results\":[");
+            for (JsonNode code : objectMapper.readTree(exchange.getRequestBody()).path("shortCodes")) {
+                long id = nodeOne.tryDecode(code.asText());
+                json.append(json.charAt(json.length() - 1) == '[' ? "" : ",")
+                        .append(id >= 0 && id < 10 ? "{\"longUrl\":\"https://one.example/" + id + "\"}" : "{\"error\":\"Not found\"}");
+            }
+            respond(exchange, json.append("]}").toString());
+        }
+        exchange.close();
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    public void testFindsOwner() {
+        assertThat(router.ownerOf(nodeZero.encode(5))).isZero();
+        assertThat(router.ownerOf(nodeOne.encode(5))).isEqualTo(1);
+        assertThat(router.ownerOf("bad!code")).isEqualTo(-1);
+        assertThat(router.isRemote(nodeZero.encode(5))).isFalse();
+        assertThat(router.isRemote(nodeTwo.encode(5))).isTrue();
+        assertThat(router.isRemote("bad!code")).isFalse();
+    }
+
+    @Test
+    public void testRelaysRedirectsAndResolves() {
+        String code = nodeOne.encode(3);
+        ResponseEntity<Void> redirect = router.forwardRedirect(code, null);
+        assertThat(redirect.getStatusCode().value()).isEqualTo(301);
+        assertThat(redirect.getHeaders().getFirst(HttpHeaders.LOCATION)).isEqualTo("https://one.example/3");
+        assertThat(redirect.getHeaders().getETag()).isEqualTo("\"" + code + "\"");
+
+        ResponseEntity<byte[]> resolve = router.forwardResolve(code);
+        assertThat(resolve.getStatusCode().value()).isEqualTo(200);
+        assertThat(new String(resolve.getBody(), StandardCharsets.UTF_8)).contains("https://one.example/3");
+
+        assertThat(router.forwardResolve(nodeOne.encode(11)).getStatusCode().value()).isEqualTo(404);
+        assertThat(router.forwardRedirect(nodeOne.encode(11), null).getStatusCode().value()).isEqualTo(404);
+        assertThat(forwardedHeaders).containsOnly("1");
+
+        // Nobody minted node 2's codes
+        assertThat(router.forwardRedirect(nodeTwo.encode(3), null).getStatusCode().value()).isEqualTo(404);
+        assertThat(router.forwardResolve(nodeTwo.encode(3)).getStatusCode().value()).isEqualTo(404);
+    }
+
+    @Test
+    public void testSplitsBatchesByNode() {
+        List<String> codes = List.of(nodeOne.encode(1), nodeZero.encode(7), "bad!code", nodeTwo.encode(1),
+                nodeOne.encode(12), nodeOne.encode(2));
+        List<List<String>> localCalls = new ArrayList<>();
+        List<Optional<String>> results = router.resolveAll(codes, local -> {
+            localCalls.add(local);
+            List<Optional<String>> resolved = new ArrayList<>();
+            for (String code : local) {
+                long id = nodeZero.tryDecode(code);
+                resolved.add(id < 0 ? Optional.empty() : Optional.of("https://zero.example/" + id));
+            }
+            return resolved;
+        });
+
+        assertThat(results).containsExactly(Optional.of("https://one.example/1"), Optional.of("https://zero.example/7"),
+                Optional.empty(), Optional.empty(), Optional.empty(), Optional.of("https://one.example/2"));
+        assertThat(localCalls).containsExactly(List.of(nodeZero.encode(7), "bad!code"));
+        // One batch request for node 1
+        assertThat(forwardedHeaders).hasSize(1);
+
+        List<String> localOnly = List.of(nodeZero.encode(1));
+        assertThat(router.resolveAll(localOnly, local -> List.of(Optional.of("x")))).containsExactly(Optional.of("x"));
+    }
+
+    @Test
+    public void testFailsOnUnavailableNode() {
+        String code = new PartitionedBase64Codec(new Base64UrlCodec(), new NodePartition(2, 3)).encode(1);
+        assertThatThrownBy(() -> router.forwardRedirect(code, null)).isInstanceOf(NodeUnavailableException.class);
+        assertThatThrownBy(() -> router.forwardResolve(code)).isInstanceOf(NodeUnavailableException.class);
+        assertThatThrownBy(() -> new NodeRouter(new NodePartition(1, 0), new Base64UrlCodec(),
+                List.of("a", "b", "c"), objectMapper, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
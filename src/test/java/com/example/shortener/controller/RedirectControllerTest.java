@@ -0,0 +1,163 @@
+package com.example.shortener.controller;
+
+import com.example.shortener.cluster.NodeRouter;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.example.shortener.service.UrlShortenerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Web layer tests for {@link RedirectController}: redirect and caching
+ * headers, conditional requests, unknown codes and codes of other nodes.
+ */
+@WebMvcTest(RedirectController.class)
+class RedirectControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UrlShortenerService service;
+
+    @MockBean
+    private NodeRouter router;
+
+    @Test
+    void redirect_withKnownCode_returnsImmutableRedirect() throws Exception {
+        // Arrange
+        when(service.resolve("abc12345")).thenReturn(Optional.of("https://example.com/target?q=1"));
+
+        // Act & Assert
+        mockMvc.perform(get("/abc12345"))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://example.com/target?q=1"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc12345\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void redirect_withExpiringCode_isCachedUntilExpiry() throws Exception {
+        // Arrange
+        when(service.resolve("abc12345")).thenReturn(Optional.of("https://example.com/target"));
+        when(service.expiresAt("abc12345")).thenReturn(Optional.of(Instant.now().plusSeconds(3_600)));
+
+        // Act & Assert
+        mockMvc.perform(get("/abc12345"))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL,
+                        matchesPattern("public, max-age=35\\d\\d")));
+    }
+
+    @Test
+    void redirect_withAlias_returnsRedirect() throws Exception {
+        // Arrange
+        when(service.resolve("spring-sale")).thenReturn(Optional.of("https://example.com/sale"));
+
+        // Act & Assert
+        mockMvc.perform(get("/spring-sale"))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://example.com/sale"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"spring-sale\""));
+        mockMvc.perform(get("/" + "x".repeat(65)))
+                .andExpect(status().isNotFound());
+        verify(service, never()).resolve("x".repeat(65));
+    }
+
+    @Test
+    void redirect_withNonAsciiUrl_percentEncodesLocation() throws Exception {
+        // Arrange
+        when(service.resolve("abc12345")).thenReturn(Optional.of("https://example.com/straße"));
+
+        // Act & Assert
+        mockMvc.perform(get("/abc12345"))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://example.com/stra%C3%9Fe"));
+    }
+
+    @Test
+    void redirect_withMatchingEtag_returnsNotModified() throws Exception {
+        // Arrange
+        when(service.resolve("abc12345")).thenReturn(Optional.of("https://example.com/target"));
+
+        // Act & Assert
+        mockMvc.perform(get("/abc12345").header(HttpHeaders.IF_NONE_MATCH, "W/\"abc12345\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().doesNotExist(HttpHeaders.LOCATION));
+    }
+
+    @Test
+    void redirect_withUnknownCode_returnsUncachedNotFound() throws Exception {
+        // Arrange
+        when(service.resolve(anyString())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/unknown1"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+    }
+
+    @Test
+    void redirect_withMalformedCode_isNotRouted() throws Exception {
+        // Act & Assert: too short for an alias, and other characters never match
+        mockMvc.perform(get("/ab"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/abc.1234"))
+                .andExpect(status().isNotFound());
+        verify(service, never()).resolve(anyString());
+    }
+
+    @Test
+    void redirect_withRemoteCode_relaysOwnerResponse() throws Exception {
+        // Arrange
+        when(router.isRemote("remote01")).thenReturn(true);
+        when(router.forwardRedirect("remote01", null)).thenReturn(ResponseEntity.status(301)
+                .header(HttpHeaders.LOCATION, "https://example.com/elsewhere").build());
+
+        // Act & Assert
+        mockMvc.perform(get("/remote01"))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://example.com/elsewhere"));
+        verify(service, never()).resolve(anyString());
+    }
+
+    @Test
+    void redirect_forwardedByAnotherNode_isResolvedLocally() throws Exception {
+        // Arrange
+        when(router.isRemote("remote01")).thenReturn(true);
+        when(service.resolve("remote01")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/remote01").header(NodeRouter.FORWARDED_HEADER, "1"))
+                .andExpect(status().isNotFound());
+        verify(router, never()).forwardRedirect(anyString(), any());
+    }
+
+    @Test
+    void redirect_withUnavailableOwner_returnsBadGateway() throws Exception {
+        // Arrange
+        when(router.isRemote("remote01")).thenReturn(true);
+        when(router.forwardRedirect("remote01", null)).thenThrow(new NodeUnavailableException("Node is unavailable"));
+
+        // Act & Assert
+        mockMvc.perform(get("/remote01"))
+                .andExpect(status().isBadGateway());
+    }
+}
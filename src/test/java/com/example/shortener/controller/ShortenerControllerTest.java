@@ -1,24 +1,61 @@
 package com.example.shortener.controller;
 
+import com.example.shortener.cluster.NodeRouter;
+import com.example.shortener.core.Base64Codec;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ClickTracker;
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.dto.AliasRequest;
+import com.example.shortener.dto.BatchResolveRequest;
+import com.example.shortener.dto.BatchShortenRequest;
 import com.example.shortener.dto.ResolveRequest;
 import com.example.shortener.dto.ResolveResponse;
 import com.example.shortener.dto.ShortenRequest;
 import com.example.shortener.dto.ShortenResponse;
+import com.example.shortener.errors.AliasTakenException;
+import com.example.shortener.errors.AliasesNotEnabledException;
 import com.example.shortener.errors.CapacityExceededException;
+import com.example.shortener.errors.ClicksNotEnabledException;
+import com.example.shortener.errors.ExpiryNotEnabledException;
+import com.example.shortener.errors.InvalidAliasException;
 import com.example.shortener.errors.InvalidUrlException;
+import com.example.shortener.errors.NodeUnavailableException;
+import com.example.shortener.errors.ReadOnlyReplicaException;
+import com.example.shortener.service.ClickStats;
+import com.example.shortener.service.ShortenResult;
 import com.example.shortener.service.UrlShortenerService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -27,17 +64,47 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * WebMvcTest to test the web layer in isolation.
  */
 @WebMvcTest(ShortenerController.class)
+@Import(ShortenerControllerTest.Config.class)
 class ShortenerControllerTest {
 
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Base64Codec base64Codec() {
+            return new Base64UrlCodec();
+        }
+
+        @Bean
+        ClockCache responseCache() {
+            return new ClockCache(1 << 20);
+        }
+    }
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ClockCache responseCache;
+
     @MockBean
     private UrlShortenerService service;
 
+    @MockBean
+    private NodeRouter router;
+
+    @MockBean
+    private ClickTracker clickTracker;
+
+    @BeforeEach
+    void routeBatchesLocally() {
+        when(router.resolveAll(anyList(), any())).thenAnswer(invocation -> invocation
+                .<Function<List<String>, List<Optional<String>>>>getArgument(1)
+                .apply(invocation.getArgument(0)));
+    }
+
     @Test
     void shorten_withValidUrl_returnsShortCode() throws Exception {
         // Arrange
@@ -73,6 +140,81 @@ class ShortenerControllerTest {
                 .andExpect(content().string(errorMessage));
     }
 
+    @Test
+    void shorten_withTtl_passesTtlToService() throws Exception {
+        // Arrange
+        when(service.shorten("https://example.com", Duration.ofSeconds(60))).thenReturn("abc12345");
+        when(service.shorten("https://example.org", Duration.ofSeconds(60))).thenThrow(new ExpiryNotEnabledException());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://example.com\",\"ttlSeconds\":60}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("abc12345"));
+        mockMvc.perform(post("/api/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longUrl\":\"https://example.org\",\"ttlSeconds\":60}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createAlias_whenAliasesDisabled_returnsNotFound() throws Exception {
+        // Arrange
+        when(service.createAlias("spring-sale", "https://example.com/sale"))
+                .thenThrow(new AliasesNotEnabledException());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/alias")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AliasRequest("spring-sale", "https://example.com/sale"))))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Custom aliases are not enabled on this node"));
+    }
+
+    @Test
+    void createAlias_returnsAliasOrConflict() throws Exception {
+        // Arrange
+        when(service.createAlias("spring-sale", "https://example.com/sale")).thenReturn("spring-sale");
+        when(service.createAlias("spring-sale", "https://example.com/other"))
+                .thenThrow(new AliasTakenException("spring-sale"));
+        when(service.createAlias("summer24", "https://example.com/sale"))
+                .thenThrow(new InvalidAliasException("Invalid alias"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/alias")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AliasRequest("spring-sale", "https://example.com/sale"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("spring-sale"));
+        mockMvc.perform(post("/api/alias")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AliasRequest("spring-sale", "https://example.com/other"))))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/alias")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AliasRequest("summer24", "https://example.com/sale"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shorten_onReadOnlyReplica_returnsMisdirectedRequest() throws Exception {
+        // Arrange
+        when(service.shorten(anyString())).thenThrow(new ReadOnlyReplicaException());
+        when(service.isReadOnly()).thenReturn(true);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ShortenRequest("https://example.com"))))
+                .andExpect(status().is(421));
+        // Rejected before a streamed 200 response is started
+        mockMvc.perform(post("/api/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchShortenRequest(List.of("https://example.com")))))
+                .andExpect(status().is(421));
+    }
+
     @Test
     void shorten_withBlankUrl_handledByService() throws Exception {
         // Arrange - blank URL gets passed to service which throws exception
@@ -290,5 +432,171 @@ class ShortenerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.shortCode").value(expectedCode));
     }
-}
 
+    @Test
+    void shortenBatch_reportsPerItemResults() throws Exception {
+        // Arrange
+        List<String> urls = List.of("https://example.com/a", "ftp://example.com");
+        when(service.shortenAll(urls)).thenReturn(List.of(
+                ShortenResult.success("batch001"),
+                ShortenResult.failure("Unsupported URL scheme: ftp")));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchShortenRequest(urls))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.results[0].shortCode").value("batch001"))
+                .andExpect(jsonPath("$.results[1].error").value("Unsupported URL scheme: ftp"));
+    }
+
+    @Test
+    void resolveBatch_reportsUnknownCodes() throws Exception {
+        // Arrange
+        List<String> codes = List.of("abc12345", "unknown1");
+        when(service.resolveAll(codes)).thenReturn(List.of(Optional.of("https://example.com/a"), Optional.empty()));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/resolve/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchResolveRequest(codes))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].longUrl").value("https://example.com/a"))
+                .andExpect(jsonPath("$.results[1].error").value("Not found"));
+    }
+
+    @Test
+    void shortenBatch_whenJournalFails_returnsServiceUnavailable() throws Exception {
+        // Arrange
+        List<String> urls = List.of("https://example.com/a", "https://example.com/b");
+        when(service.shortenAll(urls)).thenThrow(new UncheckedIOException(new IOException("disk full")));
+
+        // Act & Assert - reported before a streamed 200 response is started
+        mockMvc.perform(post("/api/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchShortenRequest(urls))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void resolveBatch_whenOwnerUnreachable_returnsBadGateway() throws Exception {
+        // Arrange
+        List<String> codes = List.of("abc12345", "def67890");
+        doThrow(new NodeUnavailableException("node-b")).when(router).resolveAll(anyList(), any());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/resolve/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchResolveRequest(codes))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadGateway());
+    }
+
+    @Test
+    void shortenBatch_overLimit_returnsPayloadTooLarge() throws Exception {
+        // Arrange
+        List<String> urls = Collections.nCopies(1001, "https://example.com/a");
+
+        // Act & Assert
+        mockMvc.perform(post("/api/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchShortenRequest(urls))))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void resolve_repeatHitIsServedFromCache() throws Exception {
+        // Arrange
+        String shortCode = "cache001";
+        when(service.resolve(shortCode)).thenReturn(Optional.of("https://example.com/cached"));
+        ResolveRequest request = new ResolveRequest(shortCode);
+
+        // Act & Assert
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/resolve")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.longUrl").value("https://example.com/cached"));
+        }
+        verify(service, times(1)).resolve(shortCode);
+        // The cache hit never reaches the service, so the controller counts it
+        verify(clickTracker, times(1)).record(new Base64UrlCodec().decode(shortCode));
+    }
+
+    @Test
+    void resolve_withAlias_isNotCached() throws Exception {
+        // Arrange
+        when(service.resolve("spring-sale")).thenReturn(Optional.of("https://example.com/sale"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/resolve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ResolveRequest("spring-sale"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.longUrl").value("https://example.com/sale"));
+        assertThat(responseCache.get(Base64Codec.INVALID_ID)).isNull();
+    }
+
+    @Test
+    void clicks_returnsStatsOrNotFound() throws Exception {
+        // Arrange
+        when(service.clicks("hot-landing")).thenReturn(Optional.of(new ClickStats("hot-landing", 42, 40)));
+        when(service.clicks("aaaaaaaa")).thenReturn(Optional.empty());
+        when(service.topClicks(2)).thenReturn(List.of(new ClickStats("AAAAAAAB", 42, 40),
+                new ClickStats("AAAAAAAC", 7, 6)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/clicks/hot-landing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("hot-landing"))
+                .andExpect(jsonPath("$.clicks").value(42))
+                .andExpect(jsonPath("$.recentClicks").value(40));
+        mockMvc.perform(get("/api/clicks/aaaaaaaa"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/clicks").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].shortCode").value("AAAAAAAB"))
+                .andExpect(jsonPath("$[1].clicks").value(7));
+    }
+
+    @Test
+    void clicks_withTrackingDisabled_returnsNotFound() throws Exception {
+        // Arrange
+        when(service.topClicks(10)).thenThrow(new ClicksNotEnabledException());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/clicks"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resolve_withRemoteCode_relaysOwnerResponse() throws Exception {
+        // Arrange
+        when(router.isRemote("remote01")).thenReturn(true);
+        when(router.forwardResolve("remote01")).thenReturn(ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"longUrl\":\"https://example.com/elsewhere\"}".getBytes()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/resolve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ResolveRequest("remote01"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.longUrl").value("https://example.com/elsewhere"));
+        verify(service, times(0)).resolve(anyString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link AliasIndex}: alias syntax, lookups across growth and
+ * concurrent creation of the same aliases.
+ */
+public class AliasIndexTest {
+
+    @Test
+    public void testValidatesAliases() {
+        assertThat(AliasIndex.isValid("spring-sale")).isTrue();
+        assertThat(AliasIndex.isValid("a_B-9")).isTrue();
+        assertThat(AliasIndex.isValid("x".repeat(64))).isTrue();
+        assertThat(AliasIndex.isValid("ab")).isFalse();
+        assertThat(AliasIndex.isValid("x".repeat(65))).isFalse();
+        // Eight characters is the numeric code length
+        assertThat(AliasIndex.isValid("summer24")).isFalse();
+        assertThat(AliasIndex.isValid("spring sale")).isFalse();
+        assertThat(AliasIndex.isValid("straße")).isFalse();
+        assertThat(AliasIndex.isValid("api")).isFalse();
+        assertThat(AliasIndex.isValid(null)).isFalse();
+        assertThatThrownBy(() -> new AliasIndex().putIfAbsent("summer24", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testPutAndGetAcrossGrowth() {
+        AliasIndex index = new AliasIndex();
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            assertThat(index.putIfAbsent("vanity-alias-" + i, i)).isEqualTo(i);
+        }
+        assertThat(index.putIfAbsent("vanity-alias-7", 99)).isEqualTo(7);
+        assertThat(index.size()).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(index.get("vanity-alias-" + i)).isEqualTo(i);
+        }
+        assertThat(index.get("vanity-alias-" + count)).isEqualTo(AliasIndex.NO_ID);
+        assertThat(index.get("Alias-1")).isEqualTo(AliasIndex.NO_ID);
+        assertThat(index.get("AAAAAAAB")).isEqualTo(AliasIndex.NO_ID);
+        // 19-byte aliases in half-empty tables after the last doubling
+        assertThat(index.retainedBytes()).isLessThan(count * 64L);
+    }
+
+    @Test
+    public void testConcurrentCreationHasOneWinner() throws Exception {
+        AliasIndex index = new AliasIndex();
+        int threads = 4;
+        int aliases = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Long> winners = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = t * (long) aliases;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < aliases; i++) {
+                    long stored = index.putIfAbsent("promo-code-" + i, base + i);
+                    Long previous = winners.putIfAbsent("promo-code-" + i, stored);
+                    assertThat(previous == null || previous == stored).isTrue();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(index.size()).isEqualTo(aliases);
+        for (int i = 0; i < aliases; i++) {
+            assertThat(index.get("promo-code-" + i)).isEqualTo(winners.get("promo-code-" + i));
+        }
+    }
+}
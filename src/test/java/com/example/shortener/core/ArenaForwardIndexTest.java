@@ -0,0 +1,119 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ArenaForwardIndex} covering both storage modes,
+ * chunk boundaries and readers racing writers across chunk rollovers.
+ */
+public class ArenaForwardIndexTest {
+
+    @Test
+    public void testPutAndGetOnHeapAndDirect() {
+        for (ArenaForwardIndex.Storage storage : ArenaForwardIndex.Storage.values()) {
+            ArenaForwardIndex index = new ArenaForwardIndex(storage, 4, 12);
+            index.put(0, "http://example.com");
+            index.put(37, "https://bücher.example/straße?q=ü");
+
+            assertThat(index.get(0)).contains("http://example.com");
+            assertThat(index.get(37)).contains("https://bücher.example/straße?q=ü");
+            assertThat(index.get(1)).isEmpty();
+            assertThat(index.get(38)).isEmpty();
+            assertThat(index.get(-1)).isEmpty();
+            assertThat(index.highWatermark()).isEqualTo(37);
+        }
+    }
+
+    @Test
+    public void testEntriesNeverStraddleChunks() {
+        // 4 KiB chunks; 1000-byte entries leave a 96-byte tail per chunk
+        ArenaForwardIndex index = new ArenaForwardIndex(ArenaForwardIndex.Storage.HEAP, 3, 12);
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String url = "https://example.com/" + String.valueOf((char) ('a' + i % 26)).repeat(980);
+            urls.add(url);
+            index.put(i, url);
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            assertThat(index.get(i)).contains(urls.get(i));
+        }
+        assertThatThrownBy(() -> index.put(99, "x".repeat(5000)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReadersNeverSeePartialEntriesWhileChunksRoll() throws InterruptedException {
+        // 4 KiB chunks and entries of up to 1 KiB: most reservations race a
+        // skipped chunk tail or a new chunk, and sparse IDs keep growing the
+        // segment array under the readers
+        ArenaForwardIndex index = new ArenaForwardIndex(ArenaForwardIndex.Storage.DIRECT, 4, 12);
+        AtomicLong ids = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int perThread = 2_000;
+        Thread[] writers = new Thread[3];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long id = ids.getAndIncrement() * 5;
+                    index.put(id, url(id));
+                }
+            });
+        }
+        Thread[] readers = new Thread[2];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        long hw = index.highWatermark();
+                        for (long id = Math.max(0, hw - 500); id <= hw; id += 5) {
+                            // A slot is either empty or holds the whole entry
+                            Optional<String> url = index.get(id);
+                            if (url.isPresent()) {
+                                assertThat(url.get()).isEqualTo(url(id));
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertThat(failure.get()).isNull();
+
+        long total = (long) perThread * writers.length;
+        long urlBytes = 0;
+        for (long id = 0; id < total * 5; id += 5) {
+            assertThat(index.get(id)).contains(url(id));
+            urlBytes += url(id).length();
+        }
+        assertThat(index.highWatermark()).isEqualTo((total - 1) * 5);
+        // Only skipped chunk tails, each shorter than the longest entry (< 1 KiB), add to the URL bytes
+        long chunks = (index.arenaBytes() >>> 12) + 1;
+        assertThat(index.arenaBytes() - urlBytes).isBetween(0L, chunks * 1024);
+    }
+
+    private static String url(long id) {
+        return "https://example.com/" + id + "/" + "x".repeat((int) (id * 7919 % 1000));
+    }
+}
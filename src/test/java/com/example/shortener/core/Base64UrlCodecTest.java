@@ -0,0 +1,78 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Base64UrlCodec}. The table-driven codec must produce
+ * exactly the same codes as Base64URL-encoding the 6-byte big-endian ID with
+ * {@link java.util.Base64}, which is how codes were generated originally.
+ */
+public class Base64UrlCodecTest {
+
+    private static final long MAX_ID = (1L << 48) - 1;
+
+    private final Base64UrlCodec codec = new Base64UrlCodec();
+
+    @Test
+    public void testEncodeMatchesJdkBase64() {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] edges = {0L, 1L, 63L, 64L, 255L, 256L, MAX_ID - 1, MAX_ID};
+        for (long id : edges) {
+            assertThat(codec.encode(id)).isEqualTo(jdkEncode(id));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long id = random.nextLong(MAX_ID + 1);
+            String expected = jdkEncode(id);
+            assertThat(codec.encode(id)).isEqualTo(expected);
+            assertThat(codec.decode(expected)).isEqualTo(id);
+        }
+    }
+
+    @Test
+    public void testBufferOverloadsRoundTrip() {
+        long id = 0x0123_4567_89ABL;
+        char[] chars = new char[10];
+        codec.encode(id, chars, 1);
+        byte[] bytes = new byte[10];
+        codec.encode(id, bytes, 2);
+        String expected = codec.encode(id);
+
+        assertThat(new String(chars, 1, 8)).isEqualTo(expected);
+        assertThat(new String(bytes, 2, 8, StandardCharsets.US_ASCII)).isEqualTo(expected);
+        assertThat(codec.decode(bytes, 2, 8)).isEqualTo(id);
+        assertThat(codec.decode(new StringBuilder(expected))).isEqualTo(id);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 8);
+        assertThat(codec.decode(buffer)).isEqualTo(id);
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+
+    @Test
+    public void testInvalidCodesAreRejected() {
+        String[] invalid = {null, "", "abc", "abcdefghi", "abc=defg", "abc+defg", "abc/defg", "abcdefgé", "!!!!@@@@"};
+        for (String code : invalid) {
+            assertThat(codec.isValidCode(code)).as(String.valueOf(code)).isFalse();
+            assertThat(codec.tryDecode(code)).isEqualTo(Base64Codec.INVALID_ID);
+        }
+        assertThatThrownBy(() -> codec.decode("abc=defg")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode("abc=defg".getBytes(StandardCharsets.US_ASCII), 0, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.encode(-1L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.encode(MAX_ID + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String jdkEncode(long id) {
+        byte[] buffer = new byte[6];
+        for (int i = 5; i >= 0; i--) {
+            buffer[i] = (byte) (id & 0xFF);
+            id >>>= 8;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer);
+    }
+}
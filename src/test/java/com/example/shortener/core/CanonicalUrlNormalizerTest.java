@@ -0,0 +1,112 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CanonicalUrlNormalizer}: each normalization, the
+ * identity of already canonical URLs, and a fuzz test checking that
+ * normalizing valid URLs yields valid URLs and is idempotent.
+ */
+public class CanonicalUrlNormalizerTest {
+
+    private final CanonicalUrlNormalizer normalizer = new CanonicalUrlNormalizer();
+    private final CanonicalUrlNormalizer sorting = new CanonicalUrlNormalizer(true);
+
+    @Test
+    public void testNormalizations() {
+        assertThat(normalizer.normalize("HTTPS://Example.COM/Path")).isEqualTo("https://example.com/Path");
+        assertThat(normalizer.normalize("http://example.com:80/a")).isEqualTo("http://example.com/a");
+        assertThat(normalizer.normalize("https://example.com:443/a")).isEqualTo("https://example.com/a");
+        assertThat(normalizer.normalize("http://example.com:443/a")).isEqualTo("http://example.com:443/a");
+        assertThat(normalizer.normalize("http://example.com:/a")).isEqualTo("http://example.com/a");
+        assertThat(normalizer.normalize("http://example.com")).isEqualTo("http://example.com/");
+        assertThat(normalizer.normalize("http://example.com?q")).isEqualTo("http://example.com/?q");
+        assertThat(normalizer.normalize("http://User@Example.com/")).isEqualTo("http://User@example.com/");
+        assertThat(normalizer.normalize("http://[FE80::1]:80/")).isEqualTo("http://[fe80::1]/");
+        // Escapes: unreserved characters are decoded, other hex digits uppercased
+        assertThat(normalizer.normalize("http://example.com/%7euser/a%2fb%41?x=%3d#%2d"))
+                .isEqualTo("http://example.com/~user/a%2FbA?x=%3D#-");
+        assertThat(normalizer.normalize("http://EX%41MPLE.com/")).isEqualTo("http://example.com/");
+        // Dot segments, including escaped dots
+        assertThat(normalizer.normalize("http://example.com/a/./b/../c")).isEqualTo("http://example.com/a/c");
+        assertThat(normalizer.normalize("http://example.com/a/b/..")).isEqualTo("http://example.com/a/");
+        assertThat(normalizer.normalize("http://example.com/a/.")).isEqualTo("http://example.com/a/");
+        assertThat(normalizer.normalize("http://example.com/../../a")).isEqualTo("http://example.com/a");
+        assertThat(normalizer.normalize("http://example.com/a/%2E%2e/b")).isEqualTo("http://example.com/b");
+        assertThat(normalizer.normalize("http://example.com/a//../b")).isEqualTo("http://example.com/a/b");
+        assertThat(normalizer.normalize("http://example.com/.../a")).isEqualTo("http://example.com/.../a");
+        // Dots in the query and fragment are data
+        assertThat(normalizer.normalize("http://example.com/?p=/../x#/./y")).isEqualTo("http://example.com/?p=/../x#/./y");
+        // Without an authority only the scheme is normalized
+        assertThat(normalizer.normalize("HTTP:Opaque/./x")).isEqualTo("http:Opaque/./x");
+        assertThat(normalizer.normalize("http://example.com/?b=2&a=1")).isEqualTo("http://example.com/?b=2&a=1");
+    }
+
+    @Test
+    public void testSortsQueryParamsByName() {
+        assertThat(sorting.normalize("http://example.com/?b=2&a=1&c")).isEqualTo("http://example.com/?a=1&b=2&c");
+        // Repeated names keep their order; the fragment stays in place
+        assertThat(sorting.normalize("http://example.com/?x=2&a&x=1#F")).isEqualTo("http://example.com/?a&x=2&x=1#F");
+        assertThat(sorting.normalize("HTTP://example.com?ab=1&a=2")).isEqualTo("http://example.com/?a=2&ab=1");
+        assertThat(sorting.normalize("http://example.com/?%62=1&a=%7e")).isEqualTo("http://example.com/?a=~&b=1");
+    }
+
+    @Test
+    public void testReturnsCanonicalUrlsUnchanged() {
+        String[] canonical = {
+                "https://example.com/path/to?q=1&r=%2F#top",
+                "http://user:PW@host-1.example.org:8080/a/b;c?x=[1]",
+                "http://[::1]:8080/",
+                "https://straße.example/ä?ö=ü",
+                "http:opaque",
+                "http://example.com/?a&a=1&b=2",
+        };
+        for (String url : canonical) {
+            assertThat(normalizer.normalize(url)).isSameAs(url);
+            assertThat(sorting.normalize(url)).isSameAs(url);
+        }
+    }
+
+    @Test
+    public void testNormalizedUrlsStayValidAndAreFixedPoints() {
+        DefaultUrlValidator validator = new DefaultUrlValidator(4096, Set.of("http", "https"));
+        String[] seeds = {
+                "HTTP://Example.COM:80/a/./B/../%7ec?Y=%2f&x=1#%41",
+                "https://u@[FE80::A]:443/%2E/x/..",
+                "http://host:0080/a//b/../../c?b&a=%3d",
+                "http://example.com/ä/%c3%a4/./?z=1&y=2",
+        };
+        String alphabet = "aZ09-._~%2Ee3d/?#&=:@[].";
+        Random random = new Random(42);
+        int checked = 0;
+        for (int n = 0; n < 100_000; n++) {
+            StringBuilder url = new StringBuilder(seeds[random.nextInt(seeds.length)]);
+            for (int m = random.nextInt(4); m >= 0; m--) {
+                int at = random.nextInt(url.length() + 1);
+                if (random.nextBoolean() && at < url.length()) {
+                    url.deleteCharAt(at);
+                } else {
+                    url.insert(at, alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            String input = url.toString();
+            try {
+                validator.validate(input);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            checked++;
+            for (CanonicalUrlNormalizer candidate : new CanonicalUrlNormalizer[]{normalizer, sorting}) {
+                String once = candidate.normalize(input);
+                assertThatCode(() -> validator.validate(once)).as(input).doesNotThrowAnyException();
+                assertThat(candidate.normalize(once)).as(input).isSameAs(once);
+            }
+        }
+        assertThat(checked).isGreaterThan(10_000);
+    }
+}
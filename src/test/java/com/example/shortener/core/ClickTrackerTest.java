@@ -0,0 +1,112 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ClickCounters} and {@link HeavyHitters}: per-ID
+ * counts across segments, top-K on skewed traffic and decay.
+ */
+public class ClickTrackerTest {
+
+    @Test
+    public void testCountsClicksPerId() {
+        ClickCounters counters = new ClickCounters(4);
+        for (int i = 0; i < 3; i++) {
+            counters.increment(5);
+        }
+        counters.increment(100);
+        counters.increment(-1);
+        assertThat(counters.get(5)).isEqualTo(3);
+        assertThat(counters.get(100)).isEqualTo(1);
+        assertThat(counters.get(6)).isZero();
+        assertThat(counters.get(1_000_000)).isZero();
+        assertThat(counters.get(-1)).isZero();
+        // Only the segments of IDs 0-15 and 96-111
+        assertThat(counters.retainedBytes()).isEqualTo(2 * (16 + 8 * 16));
+    }
+
+    @Test
+    public void testConcurrentClicksOnDistinctIdsAreExact() throws Exception {
+        ClickCounters counters = new ClickCounters(10);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 100; round++) {
+                        for (long id = thread; id < 10_000; id += 4) {
+                            counters.increment(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (long id = 0; id < 10_000; id++) {
+            assertThat(counters.get(id)).isEqualTo(100);
+        }
+    }
+
+    @Test
+    public void testFindsHeavyHittersOfSkewedTraffic() {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 1 << 12, 2, 0, 0);
+        SplittableRandom random = new SplittableRandom(42);
+        // IDs 0-4 get half the clicks, spread evenly; the rest go to 100,000 cold IDs
+        for (int i = 0; i < 1_000_000; i++) {
+            long id = random.nextBoolean() ? random.nextInt(5) : 1000 + random.nextInt(100_000);
+            heavyHitters.offer(id);
+        }
+        List<HeavyHitters.Entry> top = heavyHitters.top(5);
+        assertThat(top).extracting(HeavyHitters.Entry::id).containsExactlyInAnyOrder(0L, 1L, 2L, 3L, 4L);
+        for (HeavyHitters.Entry entry : top) {
+            // 100,000 clicks each, sampled one in four
+            assertThat(entry.estimate()).isBetween(90_000L, 120_000L);
+        }
+        assertThat(heavyHitters.top(10)).hasSize(10);
+        assertThat(heavyHitters.top(0)).isEmpty();
+    }
+
+    @Test
+    public void testDecayFollowsRecentTraffic() throws Exception {
+        HeavyHitters heavyHitters = new HeavyHitters(2, 1 << 10, 0, 50, System.currentTimeMillis());
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.offer(1);
+        }
+        assertThat(heavyHitters.estimate(1)).isEqualTo(1000);
+        // Halved at least once, then overtaken by a newcomer
+        Thread.sleep(200);
+        for (int i = 0; i < 600; i++) {
+            heavyHitters.offer(2);
+            heavyHitters.offer(3);
+        }
+        assertThat(heavyHitters.estimate(1)).isLessThanOrEqualTo(500);
+        assertThat(heavyHitters.top(1)).extracting(HeavyHitters.Entry::id).containsAnyOf(2L, 3L);
+    }
+
+    @Test
+    public void testTrackerCombinesCountsAndTopK() {
+        ClickTracker tracker = new ClickTracker(new ClickCounters(8), new HeavyHitters(4, 1 << 10, 0, 0, 0));
+        for (int i = 0; i < 10; i++) {
+            tracker.record(7);
+        }
+        tracker.record(3);
+        assertThat(tracker.clicks(7)).isEqualTo(10);
+        assertThat(tracker.recentClicks(7)).isEqualTo(10);
+        assertThat(tracker.top(10)).extracting(HeavyHitters.Entry::id).containsExactly(7L, 3L);
+        assertThat(tracker.retainedBytes()).isPositive();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ClockCache}: hits and misses, replacing a cached
+ * key in place, the byte budget and second chances for recently read entries.
+ */
+public class ClockCacheTest {
+
+    @Test
+    public void testGetAfterPut() {
+        ClockCache cache = new ClockCache(1 << 16);
+        byte[] value = {1, 2, 3};
+        cache.put(42, value);
+
+        assertThat(cache.get(42)).isSameAs(value);
+        assertThat(cache.get(43)).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.sizeInBytes()).isEqualTo(3 + 64);
+    }
+
+    @Test
+    public void testReputAfterEarlierSlotIsFreedReplacesInPlace() {
+        // Eight slots form a single set, so both keys share it
+        ClockCache cache = new ClockCache(1 << 16, 8);
+        cache.put(1, new byte[10]);
+        cache.put(2, new byte[20]);
+        cache.remove(1);
+
+        byte[] updated = new byte[30];
+        cache.put(2, updated);
+
+        assertThat(cache.get(2)).isSameAs(updated);
+        assertThat(cache.sizeInBytes()).isEqualTo(30 + 64);
+        assertThat(cache.evictions()).isZero();
+
+        cache.remove(2);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.sizeInBytes()).isZero();
+    }
+
+    @Test
+    public void testByteBudgetIsEnforced() {
+        ClockCache cache = new ClockCache(10_000, 1024);
+        for (long key = 0; key < 1000; key++) {
+            cache.put(key, new byte[100]);
+        }
+        assertThat(cache.sizeInBytes()).isLessThanOrEqualTo(10_000);
+        assertThat(cache.evictions()).isGreaterThan(0);
+        // Oversized values are not cached at all
+        cache.put(5000, new byte[5000]);
+        assertThat(cache.get(5000)).isNull();
+    }
+
+    @Test
+    public void testRecentlyReadEntriesSurvive() {
+        ClockCache cache = new ClockCache(100 * 164, 4096);
+        byte[] hot = new byte[100];
+        cache.put(-1, hot);
+        for (long key = 0; key < 10_000; key++) {
+            // Reading the hot entry keeps setting its reference bit
+            assertThat(cache.get(-1)).isSameAs(hot);
+            cache.put(key, new byte[100]);
+        }
+        assertThat(cache.get(-1)).isSameAs(hot);
+    }
+}
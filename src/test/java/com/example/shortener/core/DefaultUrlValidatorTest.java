@@ -0,0 +1,134 @@
+package com.example.shortener.core;
+
+import com.example.shortener.errors.InvalidUrlException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DefaultUrlValidator}, including a differential fuzz
+ * test proving it accepts and rejects the same URLs as the
+ * {@link java.net.URI}-based {@link UriUrlValidator}. For longer fuzzing
+ * runs pass {@code -DargLine="-Dfuzz.n=10000000 -Dfuzz.seed=..."}.
+ */
+public class DefaultUrlValidatorTest {
+
+    private static final Set<String> SCHEMES = Set.of("http", "https");
+
+    private static final String[] SEEDS = {
+            "https://example.com/path?q=1#top",
+            "http://user:pw@host-1.example.org:8080/a/b;c?x=[1]&y=%20#f",
+            "HTTPS://EXAMPLE.COM",
+            "http:opaque?part",
+            "http:///path",
+            "http://[::1]:80/",
+            "http://[fe80::1%25eth0]/",
+            "http://[1:2:3:4:5:6:7:8]/x",
+            "http://[::ffff:192.168.0.1]/",
+            "https://straße.example/ä?ö=ü",
+            "http://192.168.0.1:65536/",
+            "ftp://example.com/file",
+            "mailto:someone@example.com",
+            "//example.com/relative",
+            "/just/a/path",
+    };
+
+    /** Characters that are significant somewhere in the URI grammar. */
+    private static final String ALPHABET =
+            "aZ09-._~!$&'()*+,;=:@/?#[]%% \"<>\\^`{|}\t\n\u0000\u007f\u0080\u0085 é 　\ud83d";
+
+    private final DefaultUrlValidator validator = new DefaultUrlValidator(2048, SCHEMES);
+    private final UriUrlValidator reference = new UriUrlValidator(2048, SCHEMES);
+
+    @Test
+    public void testAcceptsAndRejectsLikeUri() {
+        assertThat(accepts(validator, "https://example.com/path?q=1#top")).isTrue();
+        assertThat(accepts(validator, "HTTP://example.com")).isTrue();
+        assertThat(accepts(validator, "http:opaque")).isTrue();
+        assertThat(accepts(validator, "http:///path")).isTrue();
+        assertThat(accepts(validator, "http://[::1]:8080/")).isTrue();
+        assertThat(accepts(validator, "https://straße.example/ä")).isTrue();
+        assertThat(accepts(validator, "http://")).isFalse();
+        assertThat(accepts(validator, "http:")).isFalse();
+        assertThat(accepts(validator, "http://exa mple.com")).isFalse();
+        assertThat(accepts(validator, "http://example.com/%zz")).isFalse();
+        assertThat(accepts(validator, "http://example.com/a#b#c")).isFalse();
+        assertThat(accepts(validator, "http://[::1/")).isFalse();
+        assertThat(accepts(validator, "1http://example.com")).isFalse();
+        assertThat(accepts(validator, "example.com")).isFalse();
+    }
+
+    @Test
+    public void testRejectionMessages() {
+        assertThatThrownBy(() -> validator.validate(" "))
+                .isInstanceOf(InvalidUrlException.class).hasMessage("URL must be non-empty");
+        assertThatThrownBy(() -> new DefaultUrlValidator(10, SCHEMES).validate("https://example.com"))
+                .hasMessage("URL exceeds maximum length of 10");
+        assertThatThrownBy(() -> validator.validate("ftp://example.com"))
+                .hasMessage("Unsupported URL scheme: ftp");
+        assertThatThrownBy(() -> validator.validate("http://exa mple.com"))
+                .hasMessage("Malformed URL")
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+    }
+
+    @Test
+    public void testMatchesUriOnFuzzedInput() {
+        Random random = new Random(Long.getLong("fuzz.seed", 20240601));
+        for (int i = 0; i < Integer.getInteger("fuzz.n", 200_000); i++) {
+            String url = mutate(SEEDS[random.nextInt(SEEDS.length)], random);
+            boolean expected = accepts(reference, url);
+            if (accepts(validator, url) != expected) {
+                fail("Validators disagree on \"%s\": URI %s it", escape(url), expected ? "accepts" : "rejects");
+            }
+        }
+    }
+
+    private static String mutate(String seed, Random random) {
+        StringBuilder sb = new StringBuilder(seed);
+        int edits = 1 + random.nextInt(4);
+        for (int e = 0; e < edits; e++) {
+            int at = random.nextInt(sb.length() + 1);
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.insert(at, c);
+                    break;
+                case 1:
+                    if (at < sb.length()) {
+                        sb.setCharAt(at, c);
+                    }
+                    break;
+                case 2:
+                    if (at < sb.length()) {
+                        sb.deleteCharAt(at);
+                    }
+                    break;
+                default:
+                    // Truncate, exercising every component boundary
+                    sb.setLength(at);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean accepts(UrlValidator validator, String url) {
+        try {
+            validator.validate(url);
+            return true;
+        } catch (InvalidUrlException | NumberFormatException e) {
+            // URI may throw NumberFormatException for oversized IPv4 octets in an IPv6 literal
+            return false;
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            sb.append(c >= 0x20 && c < 0x7f ? String.valueOf(c) : String.format("\\u%04x", (int) c));
+        }
+        return sb.toString();
+    }
+}
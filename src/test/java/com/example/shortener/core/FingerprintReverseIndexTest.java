@@ -0,0 +1,87 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FingerprintReverseIndex} covering incremental growth,
+ * fingerprint collisions and concurrent inserts of the same URLs.
+ */
+public class FingerprintReverseIndexTest {
+
+    @Test
+    public void testGrowthKeepsAllEntriesVisible() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(10);
+        FingerprintReverseIndex index = new FingerprintReverseIndex(forward);
+        int count = 50_000;
+        for (int id = 0; id < count; id++) {
+            String url = "https://example.com/" + id;
+            forward.put(id, url);
+            assertThat(index.putIfAbsent(url, id)).isEqualTo(id);
+            // Entries stay visible while shards drain their old tables
+            if (id % 97 == 0) {
+                for (int probe = 0; probe <= id; probe += 1013) {
+                    assertThat(index.tryGetId("https://example.com/" + probe)).isEqualTo(probe);
+                }
+            }
+        }
+        assertThat(index.size()).isEqualTo(count);
+        for (int id = 0; id < count; id++) {
+            assertThat(index.getId("https://example.com/" + id)).contains((long) id);
+        }
+        assertThat(index.getId("https://example.com/missing")).isEmpty();
+        assertThat(index.tryGetId("https://example.com/missing")).isEqualTo(ReverseIndex.NO_ID);
+    }
+
+    @Test
+    public void testCollidingFingerprintsAreConfirmedAgainstForwardIndex() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(4);
+        // Every URL gets the same fingerprint
+        FingerprintReverseIndex index = new FingerprintReverseIndex(forward, 0, url -> 42L);
+        for (int id = 0; id < 20; id++) {
+            forward.put(id, "https://example.com/" + id);
+            assertThat(index.putIfAbsent("https://example.com/" + id, id)).isEqualTo(id);
+        }
+        for (int id = 0; id < 20; id++) {
+            assertThat(index.tryGetId("https://example.com/" + id)).isEqualTo(id);
+        }
+        assertThat(index.putIfAbsent("https://example.com/7", 99)).isEqualTo(7);
+        assertThat(index.tryGetId("https://example.com/20")).isEqualTo(ReverseIndex.NO_ID);
+    }
+
+    @Test
+    public void testConcurrentInsertsOfSameUrlsAgree() throws InterruptedException {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(12);
+        FingerprintReverseIndex index = new FingerprintReverseIndex(forward);
+        AtomicLong ids = new AtomicLong();
+        int urls = 20_000;
+        ConcurrentHashMap<String, Long> winners = new ConcurrentHashMap<>();
+        AtomicLong disagreements = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < urls; i++) {
+                    String url = "https://example.com/" + i;
+                    long id = ids.getAndIncrement();
+                    forward.put(id, url);
+                    long stored = index.putIfAbsent(url, id);
+                    Long previous = winners.putIfAbsent(url, stored);
+                    if (previous != null && previous != stored) {
+                        disagreements.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(disagreements.get()).isZero();
+        assertThat(index.size()).isEqualTo(urls);
+        winners.forEach((url, id) -> assertThat(index.tryGetId(url)).isEqualTo(id));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LeasingIdSpace}: uniqueness under concurrency,
+ * accounting of partly used blocks and resuming past a known ID.
+ */
+public class LeasingIdSpaceTest {
+
+    @Test
+    public void testConcurrentAllocationsAreUnique() throws InterruptedException {
+        LeasingIdSpace idSpace = new LeasingIdSpace(64, 4);
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(10);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int perThread = 10_000;
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long id = idSpace.allocate();
+                    ids.add(id);
+                    forward.put(id, "https://example.com/" + id);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ids).hasSize(threads.length * perThread);
+        long max = ids.stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertThat(forward.highWatermark()).isEqualTo(max);
+        // Unused tails of leased blocks are still counted as remaining
+        assertThat(idSpace.remaining()).isEqualTo(idSpace.maxId() + 1 - ids.size());
+    }
+
+    @Test
+    public void testPartlyUsedBlocksAndHighWatermark() throws InterruptedException {
+        LeasingIdSpace idSpace = new LeasingIdSpace(100, 2);
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(4);
+        long[] ids = new long[3];
+        ids[0] = idSpace.allocate();
+        Thread thread = new Thread(() -> {
+            ids[1] = idSpace.allocate();
+            ids[2] = idSpace.allocate();
+        });
+        thread.start();
+        thread.join();
+        forward.put(ids[0], "https://example.com/a");
+        forward.put(ids[1], "https://example.com/b");
+
+        assertThat(idSpace.remaining()).isEqualTo(idSpace.maxId() + 1 - 3);
+        assertThat(forward.highWatermark()).isEqualTo(Math.max(ids[0], ids[1]));
+        // Allocated but never stored IDs leave gaps that readers skip
+        assertThat(forward.get(ids[2])).isEmpty();
+        AtomicLong visited = new AtomicLong();
+        forward.forEach((id, url) -> visited.incrementAndGet());
+        assertThat(visited.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAdvancePastSkipsLeasedIds() {
+        LeasingIdSpace idSpace = new LeasingIdSpace(1000, 1);
+        assertThat(idSpace.allocate()).isZero();
+        idSpace.advancePast(41);
+        assertThat(idSpace.allocate()).isEqualTo(42);
+        idSpace.advancePast(5_000);
+        assertThat(idSpace.allocate()).isEqualTo(5_001);
+        assertThat(idSpace.allocate()).isEqualTo(5_002);
+    }
+}
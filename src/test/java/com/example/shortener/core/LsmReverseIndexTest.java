@@ -0,0 +1,218 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LsmReverseIndex}: lookups across flushes and
+ * compactions, tombstones, Bloom filters sparing disk reads, failed flushes
+ * and concurrent allocation.
+ */
+public class LsmReverseIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static String url(int i) {
+        return "https://example.com/page/" + i + "?ref=" + Integer.toHexString(i * 31);
+    }
+
+    @Test
+    public void testLookupsAcrossFlushesAndCompactions() throws Exception {
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 1000, 12, 2)) {
+            int count = 50_000;
+            for (int i = 0; i < count; i++) {
+                assertThat(index.putIfAbsent(url(i), i)).isEqualTo(i);
+            }
+            index.flush();
+            assertThat(index.putIfAbsent(url(7), 99)).isEqualTo(7);
+            assertThat(index.size()).isEqualTo(count);
+            for (int i = 0; i < count; i++) {
+                assertThat(index.tryGetId(url(i))).isEqualTo(i);
+            }
+            assertThat(index.getId("https://example.com/missing")).isEmpty();
+            assertThat(index.getId(url(123))).contains(123L);
+
+            // At most 50 flushes, merged in pairs: at most one run per tier
+            assertThat(index.runCount()).isBetween(1, 6);
+            assertThat(index.compactions()).isPositive();
+            assertThat(index.writeAmplification()).isGreaterThan(1.0).isLessThan(8.0);
+            assertThat(index.runRetainedBytes()).isLessThan(count * 8L);
+            try (var files = Files.list(dir)) {
+                assertThat(files.count()).isEqualTo(index.runCount());
+            }
+        }
+    }
+
+    @Test
+    public void testAbsentUrlsRarelyReadDisk() throws Exception {
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 10_000, 12, 4)) {
+            for (int i = 0; i < 100_000; i++) {
+                index.putIfAbsent(url(i), i);
+            }
+            index.flush();
+            long before = index.blockReads();
+            int lookups = 20_000;
+            for (int i = 0; i < lookups; i++) {
+                assertThat(index.tryGetId(url(1_000_000 + i))).isEqualTo(ReverseIndex.NO_ID);
+            }
+            // About 0.3% false positives per run
+            assertThat(index.blockReads() - before).isLessThan(lookups * index.runCount() / 100L);
+
+            before = index.blockReads();
+            index.tryGetId(url(42));
+            assertThat(index.blockReads() - before).isBetween(1L, (long) index.runCount());
+        }
+    }
+
+    @Test
+    public void testRemovedUrlsGetNewIds() throws Exception {
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 100, 12, 2)) {
+            for (int i = 0; i < 1000; i++) {
+                index.putIfAbsent(url(i), i);
+            }
+            index.flush();
+            assertThat(index.remove(url(5), 6)).isFalse();
+            assertThat(index.remove(url(5), 5)).isTrue();
+            assertThat(index.remove(url(5), 5)).isFalse();
+            assertThat(index.tryGetId(url(5))).isEqualTo(ReverseIndex.NO_ID);
+            assertThat(index.size()).isEqualTo(999);
+
+            // The tombstone shadows the flushed entry through later flushes and merges
+            for (int i = 1000; i < 2000; i++) {
+                index.putIfAbsent(url(i), i);
+            }
+            index.flush();
+            assertThat(index.tryGetId(url(5))).isEqualTo(ReverseIndex.NO_ID);
+            long result = index.getOrAllocate(url(5), url -> 5000);
+            assertThat(ReverseIndex.isAllocated(result)).isTrue();
+            assertThat(ReverseIndex.allocatedId(result)).isEqualTo(5000);
+            index.flush();
+            assertThat(index.tryGetId(url(5))).isEqualTo(5000);
+            assertThat(index.tryGetId(url(6))).isEqualTo(6);
+        }
+    }
+
+    @Test
+    public void testDeletesStaleRuns() throws Exception {
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 10, 12, 4)) {
+            for (int i = 0; i < 25; i++) {
+                index.putIfAbsent(url(i), i);
+            }
+            index.flush();
+        }
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 10, 12, 4)) {
+            assertThat(index.tryGetId(url(1))).isEqualTo(ReverseIndex.NO_ID);
+            try (var files = Files.list(dir)) {
+                assertThat(files.count()).isZero();
+            }
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    public void testSurvivesFailedFlushes() throws Exception {
+        Path runs = dir.resolve("runs");
+        try (LsmReverseIndex index = new LsmReverseIndex(runs, 10, 12, 4)) {
+            for (int i = 0; i < 5; i++) {
+                index.putIfAbsent(url(i), i);
+            }
+            // Run files can no longer be created
+            Files.delete(runs);
+            assertThatThrownBy(index::flush).isInstanceOf(UncheckedIOException.class);
+            assertThat(index.tryGetId(url(3))).isEqualTo(3);
+            assertThat(index.runCount()).isZero();
+
+            // Writers are refused rather than blocked once the memtables are full
+            AtomicInteger allocations = new AtomicInteger();
+            int refused = -1;
+            for (int i = 5; i < 1_000 && refused < 0; i++) {
+                int n = i;
+                try {
+                    index.getOrAllocate(url(i), url -> {
+                        allocations.incrementAndGet();
+                        return n;
+                    });
+                } catch (UncheckedIOException e) {
+                    refused = i;
+                }
+            }
+            assertThat(refused).isBetween(20, 40);
+            assertThat(allocations.get()).isEqualTo(refused - 5);
+            for (int i = 0; i < refused; i++) {
+                assertThat(index.tryGetId(url(i))).isEqualTo(i);
+            }
+
+            // Once runs can be written again, a refused writer's retry succeeds
+            Files.createDirectories(runs);
+            int n = refused;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            for (;;) {
+                try {
+                    index.getOrAllocate(url(n), url -> n);
+                    break;
+                } catch (UncheckedIOException e) {
+                    assertThat(System.nanoTime()).isLessThan(deadline);
+                    Thread.sleep(10);
+                }
+            }
+            index.flush();
+            assertThat(index.runCount()).isPositive();
+            assertThat(index.size()).isEqualTo(n + 1);
+            for (int i = 0; i <= n; i++) {
+                assertThat(index.tryGetId(url(i))).isEqualTo(i);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAllocationRunsAllocatorOnce() throws Exception {
+        try (LsmReverseIndex index = new LsmReverseIndex(dir, 500, 12, 2)) {
+            int threads = 4;
+            int urls = 20_000;
+            AtomicInteger allocations = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] ids = new long[urls];
+                    for (int i = 0; i < urls; i++) {
+                        int n = i;
+                        ids[i] = ReverseIndex.allocatedId(index.getOrAllocate(url(i), url -> {
+                            allocations.incrementAndGet();
+                            return n;
+                        }));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < urls; i++) {
+                    assertThat(ids[i]).isEqualTo(i);
+                }
+            }
+            executor.shutdown();
+            assertThat(allocations.get()).isEqualTo(urls);
+            assertThat(index.size()).isEqualTo(urls);
+        }
+    }
+}
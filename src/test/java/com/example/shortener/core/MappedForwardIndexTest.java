@@ -0,0 +1,98 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MappedForwardIndex}, focusing on reopening an
+ * existing data directory, recovering the ID space and reverse index, and
+ * re-applying mappings without growing the arena.
+ */
+public class MappedForwardIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testEntriesSurviveReopen() {
+        try (MappedForwardIndex index = new MappedForwardIndex(dir, 4, 12)) {
+            for (long id = 0; id < 100; id++) {
+                index.put(id, "https://example.com/" + id);
+            }
+            index.put(250, "https://example.com/ünïcode");
+        }
+
+        try (MappedForwardIndex reopened = new MappedForwardIndex(dir, 4, 12)) {
+            assertThat(reopened.highWatermark()).isEqualTo(250);
+            assertThat(reopened.get(42)).contains("https://example.com/42");
+            assertThat(reopened.get(250)).contains("https://example.com/ünïcode");
+            assertThat(reopened.get(100)).isEmpty();
+
+            ByteBuffer view = reopened.view(7);
+            assertThat(StandardCharsets.UTF_8.decode(view).toString()).isEqualTo("https://example.com/7");
+
+            // New writes go after the recovered arena position
+            reopened.put(251, "https://example.com/next");
+            assertThat(reopened.get(99)).contains("https://example.com/99");
+            assertThat(reopened.get(251)).contains("https://example.com/next");
+        }
+    }
+
+    @Test
+    public void testIdSpaceAndReverseIndexRecoverFromFiles() {
+        try (MappedForwardIndex index = new MappedForwardIndex(dir, 4, 12)) {
+            index.put(0, "https://a.example");
+            index.put(1, "https://b.example");
+            index.put(2, "https://c.example");
+        }
+
+        try (MappedForwardIndex reopened = new MappedForwardIndex(dir, 4, 12)) {
+            AtomicIdSpace idSpace = new AtomicIdSpace();
+            idSpace.advancePast(reopened.highWatermark());
+            ConcurrentReverseIndex reverseIndex = new ConcurrentReverseIndex();
+            reopened.forEach((id, url) -> reverseIndex.putIfAbsent(url, id));
+
+            assertThat(idSpace.allocate()).isEqualTo(3);
+            assertThat(reverseIndex.getId("https://b.example")).contains(1L);
+        }
+    }
+
+    @Test
+    public void testReputOfSameUrlDoesNotGrowArena() {
+        try (MappedForwardIndex index = new MappedForwardIndex(dir, 4, 12)) {
+            index.put(3, "https://example.com/same");
+            long arenaBytes = index.arenaBytes();
+
+            index.put(3, "https://example.com/same");
+            assertThat(index.arenaBytes()).isEqualTo(arenaBytes);
+            assertThat(index.get(3)).contains("https://example.com/same");
+
+            // A different URL for the same ID is still written
+            index.put(3, "https://example.com/other");
+            assertThat(index.arenaBytes()).isGreaterThan(arenaBytes);
+            assertThat(index.get(3)).contains("https://example.com/other");
+        }
+
+        try (MappedForwardIndex reopened = new MappedForwardIndex(dir, 4, 12)) {
+            long arenaBytes = reopened.arenaBytes();
+            reopened.put(3, "https://example.com/other");
+            assertThat(reopened.arenaBytes()).isEqualTo(arenaBytes);
+        }
+    }
+
+    @Test
+    public void testGeometryMismatchIsRejected() {
+        try (MappedForwardIndex index = new MappedForwardIndex(dir, 4, 12)) {
+            index.put(0, "https://example.com");
+        }
+        assertThatThrownBy(() -> new MappedForwardIndex(dir, 5, 12))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("segmentShift=4");
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MappingExpirer}: removal from both indexes and the
+ * response cache, extended and cleared deadlines, refusing to extend a
+ * mapping being expired, retrying failed removals, and release of emptied
+ * forward index segments.
+ */
+public class MappingExpirerTest {
+
+    private static String url(long id) {
+        return "https://example.com/page/" + id;
+    }
+
+    @Test
+    public void testExpiresMappingsAtDeadline() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        ReverseIndex reverse = new FingerprintReverseIndex(forward, 16);
+        ClockCache cache = new ClockCache(1 << 16);
+        MappingExpirer expirer = new MappingExpirer(forward, reverse, cache, 100, 0);
+        for (long id = 0; id < 3; id++) {
+            forward.put(id, url(id));
+            reverse.putIfAbsent(url(id), id);
+        }
+        cache.put(1, new byte[10]);
+        expirer.expireAt(1, 1_000);
+        expirer.expireAt(2, 1_050);
+
+        assertThat(expirer.expire(999)).isZero();
+        assertThat(expirer.isExpired(1, 999)).isFalse();
+        assertThat(expirer.isExpired(1, 1_000)).isTrue();
+        assertThat(expirer.expire(1_000)).isEqualTo(1);
+        assertThat(forward.get(1)).isEmpty();
+        assertThat(reverse.tryGetId(url(1))).isEqualTo(ReverseIndex.NO_ID);
+        assertThat(cache.get(1)).isNull();
+        assertThat(forward.get(2)).contains(url(2));
+        assertThat(reverse.size()).isEqualTo(2);
+
+        // Deadlines are rounded up to whole ticks
+        assertThat(expirer.expire(1_050)).isZero();
+        assertThat(expirer.expire(1_100)).isEqualTo(1);
+        assertThat(forward.get(0)).contains(url(0));
+        assertThat(reverse.tryGetId(url(0))).isZero();
+        assertThat(expirer.expiredCount()).isEqualTo(2);
+        assertThat(expirer.pendingCount()).isZero();
+        assertThat(expirer.reclaimedBytes()).isPositive();
+
+        // The URL can be indexed again under a new ID
+        forward.put(3, url(1));
+        assertThat(reverse.putIfAbsent(url(1), 3)).isEqualTo(3);
+        assertThat(reverse.tryGetId(url(1))).isEqualTo(3);
+    }
+
+    @Test
+    public void testExtendsAndClearsDeadlines() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        ReverseIndex reverse = new ConcurrentReverseIndex(16);
+        MappingExpirer expirer = new MappingExpirer(forward, reverse, null, 100, 0);
+        for (long id = 0; id < 3; id++) {
+            forward.put(id, url(id));
+            reverse.putIfAbsent(url(id), id);
+        }
+        expirer.expireAt(0, 500);
+        expirer.expireAt(1, 500);
+        expirer.extend(0, 2_000);
+        expirer.extend(0, 1_000);
+        expirer.extend(1, MappingExpirer.NEVER);
+        expirer.extend(2, 300);
+
+        assertThat(expirer.deadlineOf(0)).isEqualTo(2_000);
+        assertThat(expirer.deadlineOf(1)).isEqualTo(MappingExpirer.NEVER);
+        assertThat(expirer.deadlineOf(2)).isEqualTo(MappingExpirer.NEVER);
+        assertThat(expirer.expire(1_000)).isZero();
+        assertThat(expirer.expire(2_000)).isEqualTo(1);
+        assertThat(forward.get(0)).isEmpty();
+        assertThat(forward.get(1)).contains(url(1));
+        assertThat(forward.get(2)).contains(url(2));
+        assertThat(MappingExpirer.deadline(10, Long.MAX_VALUE - 5)).isEqualTo(MappingExpirer.NEVER);
+    }
+
+    @Test
+    public void testRefusesExtendingMappingBeingExpired() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        MappingExpirer[] expirer = new MappingExpirer[1];
+        boolean[] extended = new boolean[2];
+        ReverseIndex reverse = new ConcurrentReverseIndex(16) {
+            @Override
+            public boolean remove(String normalizedUrl, long id) {
+                // A shorten that found the ID just before it expires
+                extended[0] = expirer[0].extend(id, MappingExpirer.NEVER);
+                boolean removed = super.remove(normalizedUrl, id);
+                extended[1] = expirer[0].extend(id, 5_000);
+                return removed;
+            }
+        };
+        expirer[0] = new MappingExpirer(forward, reverse, null, 100, 0);
+        forward.put(0, url(0));
+        reverse.putIfAbsent(url(0), 0);
+        expirer[0].expireAt(0, 500);
+
+        assertThat(expirer[0].expire(500)).isEqualTo(1);
+        assertThat(extended[0]).isFalse();
+        assertThat(extended[1]).isFalse();
+        assertThat(forward.get(0)).isEmpty();
+        assertThat(expirer[0].pendingCount()).isZero();
+        // Once removed, callers find the URL gone from the reverse index
+        assertThat(expirer[0].extend(0, MappingExpirer.NEVER)).isTrue();
+        assertThat(reverse.tryGetId(url(0))).isEqualTo(ReverseIndex.NO_ID);
+    }
+
+    @Test
+    public void testRetriesMappingThatFailedToExpire() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        boolean[] failing = {true};
+        ReverseIndex reverse = new ConcurrentReverseIndex(16) {
+            @Override
+            public boolean remove(String normalizedUrl, long id) {
+                if (id == 0 && failing[0]) {
+                    throw new IllegalStateException("Remove failed");
+                }
+                return super.remove(normalizedUrl, id);
+            }
+        };
+        MappingExpirer expirer = new MappingExpirer(forward, reverse, null, 100, 0);
+        for (long id = 0; id < 2; id++) {
+            forward.put(id, url(id));
+            reverse.putIfAbsent(url(id), id);
+            expirer.expireAt(id, 500);
+        }
+
+        assertThatThrownBy(() -> expirer.expire(500)).isInstanceOf(IllegalStateException.class);
+        assertThat(forward.get(1)).isEmpty();
+        assertThat(forward.get(0)).contains(url(0));
+        // Still expiring rather than stuck being reaped
+        assertThat(expirer.deadlineOf(0)).isEqualTo(500);
+        assertThat(expirer.extend(0, 600)).isTrue();
+
+        failing[0] = false;
+        assertThat(expirer.expire(600)).isEqualTo(1);
+        assertThat(forward.get(0)).isEmpty();
+        assertThat(expirer.pendingCount()).isZero();
+    }
+
+    @Test
+    public void testReleasesEmptiedSegments() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(4, null, true);
+        ReverseIndex reverse = new ConcurrentReverseIndex(16);
+        MappingExpirer expirer = new MappingExpirer(forward, reverse, null, 10, 0);
+        // Three segments of 16; everything but the last ID of the second one expires
+        for (long id = 0; id < 48; id++) {
+            forward.put(id, url(id));
+            reverse.putIfAbsent(url(id), id);
+            if (id != 31) {
+                expirer.expireAt(id, 100);
+            }
+        }
+
+        assertThat(expirer.expire(100)).isEqualTo(47);
+        // The newest segment stays allocated for writes
+        assertThat(forward.releasedSegmentCount()).isEqualTo(1);
+        assertThat(forward.get(31)).contains(url(31));
+        assertThat(forward.get(5)).isEmpty();
+        assertThat(reverse.size()).isEqualTo(1);
+        assertThat(expirer.reclaimedBytes()).isGreaterThanOrEqualTo(forward.segmentArrayBytes());
+
+        // A write to a released segment reallocates it
+        forward.put(5, url(5));
+        assertThat(forward.get(5)).contains(url(5));
+        assertThat(forward.releasedSegmentCount()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.shortener.core;
+
+import com.example.shortener.errors.CapacityExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PartitionedIdSpace} and
+ * {@link PartitionedBase64Codec}: node bits in codes, disjoint codes across
+ * nodes, rejecting other nodes' codes and the node's share of IDs.
+ */
+public class PartitionedIdSpaceTest {
+
+    @Test
+    public void testNodesMintDisjointCodes() {
+        Base64Codec plain = new Base64UrlCodec();
+        Set<String> codes = new HashSet<>();
+        for (int node = 0; node < 3; node++) {
+            NodePartition partition = new NodePartition(4, node);
+            IdSpace idSpace = new PartitionedIdSpace(new AtomicIdSpace(), partition);
+            Base64Codec codec = new PartitionedBase64Codec(plain, partition);
+            for (int i = 0; i < 100; i++) {
+                long id = idSpace.allocate();
+                assertThat(id).isEqualTo(i);
+                String code = codec.encode(id);
+                assertThat(codes.add(code)).isTrue();
+                assertThat(partition.nodeOf(plain.decode(code))).isEqualTo(node);
+                assertThat(codec.decode(code)).isEqualTo(id);
+                assertThat(codec.tryDecode(code)).isEqualTo(id);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsOtherNodesCodes() {
+        NodePartition one = new NodePartition(4, 1);
+        NodePartition two = new NodePartition(4, 2);
+        Base64Codec codecOne = new PartitionedBase64Codec(new Base64UrlCodec(), one);
+        Base64Codec codecTwo = new PartitionedBase64Codec(new Base64UrlCodec(), two);
+        String code = codecTwo.encode(42);
+
+        assertThat(codecOne.tryDecode(code)).isEqualTo(Base64Codec.INVALID_ID);
+        assertThat(codecOne.isValidCode(code)).isFalse();
+        assertThat(codecTwo.isValidCode(code)).isTrue();
+        assertThatThrownBy(() -> codecOne.decode(code)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(codecOne.tryDecode("bad!code")).isEqualTo(Base64Codec.INVALID_ID);
+        assertThatThrownBy(() -> codecOne.encode(one.maxLocalId() + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testConfinesIdsToNodeShare() {
+        NodePartition partition = new NodePartition(16, 65535);
+        assertThat(partition.maxLocalId()).isEqualTo((1L << 32) - 1);
+        assertThat(partition.globalId(partition.maxLocalId())).isEqualTo((1L << 48) - 1);
+
+        PartitionedIdSpace idSpace = new PartitionedIdSpace(new AtomicIdSpace(), partition);
+        assertThat(idSpace.maxId()).isEqualTo(partition.maxLocalId());
+        assertThat(idSpace.remaining()).isEqualTo(partition.maxLocalId());
+        idSpace.advancePast(partition.maxLocalId() - 2);
+        assertThat(idSpace.allocateBlock(2)).isEqualTo(partition.maxLocalId() - 1);
+        assertThat(idSpace.remaining()).isZero();
+        assertThatThrownBy(idSpace::allocate).isInstanceOf(CapacityExceededException.class);
+
+        assertThatThrownBy(() -> new NodePartition(0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new NodePartition(4, 16)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
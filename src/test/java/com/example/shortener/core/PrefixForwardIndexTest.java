@@ -0,0 +1,144 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PrefixForwardIndex}: prefix splitting, rebuilding
+ * URLs from shared prefixes, a full dictionary and writers racing to intern
+ * the same prefixes.
+ */
+public class PrefixForwardIndexTest {
+
+    @Test
+    public void testSplitsAndRebuildsUrls() {
+        assertThat(PrefixForwardIndex.prefixEnd("https://example.com/a/b/c?x=/y/")).isEqualTo("https://example.com/a/".length());
+        assertThat(PrefixForwardIndex.prefixEnd("https://example.com/watch?v=1")).isEqualTo("https://example.com/".length());
+        assertThat(PrefixForwardIndex.prefixEnd("https://example.com")).isZero();
+        assertThat(PrefixForwardIndex.prefixEnd("http:opaque/a/b")).isZero();
+
+        PrefixForwardIndex index = new PrefixForwardIndex(4, 12, 16);
+        String[] urls = {
+                "https://example.com/articles/1",
+                "https://example.com/articles/2?q=/x/",
+                "https://example.com/watch?v=3",
+                "https://example.com",
+                "http:opaque",
+                "https://bücher.example/straße/ä?q=ü",
+        };
+        for (int i = 0; i < urls.length; i++) {
+            index.put(i * 7, urls[i]);
+        }
+        for (int i = 0; i < urls.length; i++) {
+            assertThat(index.get(i * 7)).contains(urls[i]);
+        }
+        assertThat(index.get(1)).isEmpty();
+        assertThat(index.get(urls.length * 7)).isEmpty();
+        assertThat(index.get(-1)).isEmpty();
+        // The empty prefix, two for example.com and one for bücher.example
+        assertThat(index.prefixCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testStoresWholeUrlsOnceDictionaryIsFull() {
+        PrefixForwardIndex index = new PrefixForwardIndex(8, 12, 3);
+        for (int i = 0; i < 100; i++) {
+            index.put(i, "https://host-" + (i % 10) + ".example.com/path/" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(index.get(i)).contains("https://host-" + (i % 10) + ".example.com/path/" + i);
+        }
+        assertThat(index.prefixCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRacingWritersInternEachPrefixOnce() throws InterruptedException {
+        // Every writer walks the same hosts in the same order, so each new
+        // prefix is interned by several threads at once while readers decode
+        // entries that reference it
+        PrefixForwardIndex index = new PrefixForwardIndex(8, 12, 1 << 10);
+        AtomicLong failures = new AtomicLong();
+        int hosts = 300;
+        int writers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[writers + 1];
+        for (int t = 0; t < writers; t++) {
+            int writer = t;
+            threads[t] = new Thread(() -> {
+                await(start);
+                for (int host = 0; host < hosts; host++) {
+                    long id = (long) host * writers + writer;
+                    index.put(id, url(host, id));
+                }
+            });
+        }
+        threads[writers] = new Thread(() -> {
+            await(start);
+            long total = (long) hosts * writers;
+            for (int pass = 0; pass < 50; pass++) {
+                for (long id = 0; id < total; id++) {
+                    Optional<String> url = index.get(id);
+                    if (url.isPresent() && !url.get().equals(url(id / writers, id))) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures.get()).isZero();
+        for (long id = 0; id < (long) hosts * writers; id++) {
+            assertThat(index.get(id)).contains(url(id / writers, id));
+        }
+        assertThat(index.prefixCount()).isEqualTo(hosts + 1);
+    }
+
+    @Test
+    public void testRacingWritersFillDictionary() throws InterruptedException {
+        PrefixForwardIndex index = new PrefixForwardIndex(8, 12, 50);
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < 500; i++) {
+                    long id = ids.getAndIncrement();
+                    index.put(id, url(id % 200, id));
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // The last free entries go to exactly one racer each; later prefixes are stored whole
+        assertThat(index.prefixCount()).isEqualTo(50);
+        for (long id = 0; id < ids.get(); id++) {
+            assertThat(index.get(id)).contains(url(id % 200, id));
+        }
+    }
+
+    private static String url(long host, long id) {
+        return "https://host-" + host + ".example.com/a/" + id;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SegmentedForwardIndex} compaction and segment
+ * release: reads from compressed segments, thawing on a late write, writes
+ * racing a compaction or a release, segment dumps and readers racing the
+ * compactor.
+ */
+public class SegmentedForwardIndexTest {
+
+    private static String url(long id) {
+        return "https://host-" + (id % 7) + ".example.com/articles/" + id + "?ref=feed";
+    }
+
+    @Test
+    public void testReadsCompactedSegments() {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(8, new ClockCache(1 << 16));
+        for (long id = 0; id < 1_000; id++) {
+            if (id % 5 != 3) {
+                index.put(id, url(id));
+            }
+        }
+        index.put(1_001, "https://bücher.example/straße");
+
+        // Segments 0 and 1 are older than the two newest
+        assertThat(index.compactColdSegments(2)).isEqualTo(2);
+        assertThat(index.compactColdSegments(2)).isZero();
+        assertThat(index.coldSegmentCount()).isEqualTo(2);
+        assertThat(index.allocatedSegmentCount()).isEqualTo(4);
+
+        for (long id = 0; id < 1_000; id++) {
+            if (id % 5 != 3) {
+                assertThat(index.get(id)).contains(url(id));
+            } else {
+                assertThat(index.get(id)).isEmpty();
+            }
+        }
+        assertThat(index.get(1_001)).contains("https://bücher.example/straße");
+        assertThat(index.get(1_002)).isEmpty();
+
+        assertThat(index.compactSegment(3)).isTrue();
+        assertThat(index.get(1_001)).contains("https://bücher.example/straße");
+        assertThat(index.get(1_000)).isEmpty();
+
+        assertThat(index.coldReads()).isGreaterThan(0);
+        assertThat(index.coldReadNanos()).isGreaterThan(0);
+        assertThat(index.coldCompressedBytes()).isLessThan(index.coldRawBytes() / 2);
+        assertThat(index.coldBlockCache().hits()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testLateWriteThawsSegment() {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(6, new ClockCache(1 << 16));
+        for (long id = 0; id < 200; id += 2) {
+            index.put(id, url(id));
+        }
+        assertThat(index.compactSegment(0)).isTrue();
+        assertThat(index.compactSegment(0)).isFalse();
+
+        index.put(1, url(1));
+        assertThat(index.coldSegmentCount()).isZero();
+        for (long id = 0; id < 64; id++) {
+            assertThat(index.get(id)).isEqualTo(id % 2 == 0 || id == 1
+                    ? Optional.of(url(id)) : Optional.empty());
+        }
+
+        // Compacting again must not serve blocks cached for the first compaction
+        assertThat(index.compactSegment(0)).isTrue();
+        assertThat(index.get(1)).contains(url(1));
+        assertThat(index.get(3)).isEmpty();
+    }
+
+    @Test
+    public void testWriteRacingCompactionIsNeverLost() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            SegmentedForwardIndex index = new SegmentedForwardIndex(6, new ClockCache(1 << 16));
+            for (long id = 0; id < 64; id += 2) {
+                index.put(id, url(id));
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            // Each write either lands before the compactor snapshots the
+            // segment or thaws the compacted segment again
+            Thread compactor = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < 20; i++) {
+                    index.compactSegment(0);
+                }
+            });
+            Thread writer = new Thread(() -> {
+                await(start);
+                for (long id = 1; id < 64; id += 2) {
+                    index.put(id, url(id));
+                }
+            });
+            compactor.start();
+            writer.start();
+            start.countDown();
+            compactor.join();
+            writer.join();
+
+            for (long id = 0; id < 64; id++) {
+                assertThat(index.get(id)).contains(url(id));
+            }
+            index.compactSegment(0);
+            for (long id = 0; id < 64; id++) {
+                assertThat(index.get(id)).contains(url(id));
+            }
+        }
+    }
+
+    @Test
+    public void testReleaseLosingToLateWriteKeepsTheWrite() throws InterruptedException {
+        for (int round = 0; round < 500; round++) {
+            // Large segments widen the window between the emptiness scan and the guard
+            SegmentedForwardIndex index = new SegmentedForwardIndex(14, null, true);
+            index.put(0, url(0));
+            index.put(1 << 15, url(1 << 15));
+            index.remove(0);
+            CountDownLatch start = new CountDownLatch(1);
+            boolean[] released = new boolean[1];
+            Thread releaser = new Thread(() -> {
+                await(start);
+                released[0] = index.releaseSegment(0);
+            });
+            Thread writer = new Thread(() -> {
+                await(start);
+                index.put(5, url(5));
+            });
+            releaser.start();
+            writer.start();
+            start.countDown();
+            releaser.join();
+            writer.join();
+
+            // Whether the release lost to the write or the write re-allocated
+            // the released segment, the entry is there and nothing stays released
+            assertThat(index.get(5)).contains(url(5));
+            assertThat(index.get(0)).isEmpty();
+            assertThat(index.releasedSegmentCount()).isZero();
+            assertThat(index.releaseSegment(0)).isFalse();
+            if (released[0]) {
+                assertThat(index.allocatedSegmentCount()).isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void testDumpsCompactedSegments() {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(7, new ClockCache(1 << 16));
+        for (long id = 0; id < 300; id += 3) {
+            index.put(id, url(id));
+        }
+        index.compactColdSegments(1);
+
+        List<Long> ids = new ArrayList<>();
+        index.forEachInSegment(1, 200, (id, url) -> {
+            assertThat(url).isEqualTo(url(id));
+            ids.add(id);
+        });
+        assertThat(ids).hasSize(24).first().isEqualTo(129L);
+        assertThat(ids).last().isEqualTo(198L);
+    }
+
+    @Test
+    public void testCompactionIsDisabledWithoutCache() {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(6);
+        index.put(0, url(0));
+        index.put(100, url(100));
+        assertThat(index.isCompactionEnabled()).isFalse();
+        assertThat(index.compactColdSegments(1)).isZero();
+        assertThat(index.get(0)).contains(url(0));
+        assertThatThrownBy(() -> new SegmentedForwardIndex(3, new ClockCache(1 << 16)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReadersAndWritersRaceCompactor() throws InterruptedException {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(8, new ClockCache(1 << 14));
+        int total = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (long id = 0; id < total; id++) {
+                index.put(id, url(id));
+            }
+            // Late writes into old, probably compacted segments
+            for (long id = 1; id < total; id += 997) {
+                index.put(id, url(id));
+            }
+            done.set(true);
+        });
+        Thread compactor = new Thread(() -> {
+            while (!done.get()) {
+                index.compactColdSegments(1);
+            }
+        });
+        Thread[] readers = new Thread[2];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        long hw = index.highWatermark();
+                        for (long id = Math.max(0, hw - 2_000); id <= hw; id += 13) {
+                            assertThat(index.get(id)).contains(url(id));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+        writer.start();
+        compactor.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        compactor.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertThat(failure.get()).isNull();
+        index.compactColdSegments(1);
+        for (long id = 0; id < total; id++) {
+            assertThat(index.get(id)).contains(url(id));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
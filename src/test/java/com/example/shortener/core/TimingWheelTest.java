@@ -0,0 +1,72 @@
+package com.example.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TimingWheel}: entries fire on their tick whichever
+ * level or the overflow bucket they were filed in.
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void testFiresOnTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(1_000);
+        long[] ticks = {1_001, 1_063, 1_064, 1_000 + 4_096, 1_000 + 300_000, 1_000 + (1L << 36) + 5};
+        for (int i = 0; i < ticks.length; i++) {
+            wheel.schedule(i, ticks[i]);
+        }
+        assertThat(wheel.size()).isEqualTo(ticks.length);
+        for (int i = 0; i < ticks.length; i++) {
+            List<Long> fired = new ArrayList<>();
+            wheel.advance(ticks[i] - 1, fired::add);
+            assertThat(fired).as("before tick %d", ticks[i]).isEmpty();
+            wheel.advance(ticks[i], fired::add);
+            assertThat(fired).as("at tick %d", ticks[i]).containsExactly((long) i);
+            if (i == 4) {
+                // Leap over the empty span instead of stepping through it
+                assertThat(wheel.size()).isEqualTo(1);
+            }
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void testPastTicksFireOnNextAdvance() {
+        TimingWheel wheel = new TimingWheel(50);
+        wheel.schedule(7, 10);
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(51, fired::add);
+        assertThat(fired).containsExactly(7L);
+    }
+
+    @Test
+    public void testRandomSchedulesFireExactlyOnce() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(0);
+        long[] ticks = new long[10_000];
+        for (int id = 0; id < ticks.length; id++) {
+            ticks[id] = 1 + random.nextInt(1 << 20);
+            wheel.schedule(id, ticks[id]);
+        }
+        long[] firedAt = new long[ticks.length];
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(5_000);
+            long tick = now;
+            wheel.advance(tick, id -> {
+                assertThat(firedAt[(int) id]).isZero();
+                firedAt[(int) id] = tick;
+            });
+        }
+        for (int id = 0; id < ticks.length; id++) {
+            // Fired by the first advance reaching its tick
+            assertThat(firedAt[id]).isGreaterThanOrEqualTo(ticks[id]).isLessThan(ticks[id] + 5_001);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shortener.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link AdaptiveLimiter}: rejection at the limit, and the
+ * limit following the latency of admitted requests.
+ */
+public class AdaptiveLimiterTest {
+
+    /**
+     * Admits as many requests as the limit allows, then releases them as if
+     * each had taken {@code latencyMicros}; with a zero window every batch
+     * ends one.
+     */
+    private static void saturate(AdaptiveLimiter limiter, long latencyMicros, int windows) {
+        for (int w = 0; w < windows; w++) {
+            int admitted = 0;
+            while (limiter.tryAcquire()) {
+                admitted++;
+            }
+            long start = System.nanoTime() - TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+            for (int i = 0; i < Math.max(admitted, 10); i++) {
+                if (i >= admitted) {
+                    // Too few permits for a window's minimum sample count
+                    assertThat(limiter.tryAcquire()).isTrue();
+                }
+                limiter.release(start);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsBeyondLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 10, 1.5, 1000);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        assertThat(limiter.rejectedCount()).isEqualTo(1);
+
+        limiter.release(System.nanoTime());
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release();
+        limiter.release();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    public void testGrowsWhileLatencyIsSteadyAndShrinksWhenItRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 10, 2, 100, 1.5, 0);
+        saturate(limiter, 1000, 50);
+        int grown = limiter.limit();
+        assertThat(grown).isGreaterThan(30);
+
+        // Queueing doubles the latency
+        saturate(limiter, 4000, 10);
+        assertThat(limiter.limit()).isLessThan(grown / 2);
+
+        // Latency recovers, and so does the limit
+        int shrunk = limiter.limit();
+        saturate(limiter, 1000, 30);
+        assertThat(limiter.limit()).isGreaterThan(shrunk);
+    }
+
+    @Test
+    public void testStaysWithinBounds() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 10, 5, 20, 1.5, 0);
+        saturate(limiter, 1000, 200);
+        assertThat(limiter.limit()).isEqualTo(20);
+        saturate(limiter, 100_000, 40);
+        assertThat(limiter.limit()).isEqualTo(5);
+    }
+
+    @Test
+    public void testDoesNotGrowWhileMostPermitsAreUnused() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 40, 2, 100, 1.5, 0);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(System.nanoTime() - 1000);
+        }
+        assertThat(limiter.limit()).isEqualTo(40);
+    }
+
+    @Test
+    public void testRejectsInvalidLimits() {
+        assertThatThrownBy(() -> new AdaptiveLimiter("test", 1, 0, 10, 1.5, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveLimiter("test", 20, 1, 10, 1.5, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveLimiter("test", 5, 1, 10, 0.5, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
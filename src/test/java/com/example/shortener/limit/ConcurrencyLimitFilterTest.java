@@ -0,0 +1,99 @@
+package com.example.shortener.limit;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrencyLimitFilter}: which requests each limiter
+ * admits, shedding with {@code Retry-After}, and permits being released once
+ * the response is complete.
+ */
+public class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimits limits = new ConcurrencyLimits(
+            new AdaptiveLimiter("resolve", 1, 1, 10, 1.5, 1000),
+            new AdaptiveLimiter("shorten", 1, 1, 10, 1.5, 1000),
+            2);
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limits);
+
+    @Test
+    public void testClassifiesRequests() {
+        assertThat(filter.limiterFor(new MockHttpServletRequest("POST", "/api/resolve"))).isSameAs(limits.resolve());
+        assertThat(filter.limiterFor(new MockHttpServletRequest("POST", "/api/resolve/batch")))
+                .isSameAs(limits.resolve());
+        assertThat(filter.limiterFor(new MockHttpServletRequest("GET", "/abc123"))).isSameAs(limits.resolve());
+        assertThat(filter.limiterFor(new MockHttpServletRequest("POST", "/api/shorten"))).isSameAs(limits.shorten());
+        assertThat(filter.limiterFor(new MockHttpServletRequest("POST", "/api/shorten/batch")))
+                .isSameAs(limits.shorten());
+        assertThat(filter.limiterFor(new MockHttpServletRequest("POST", "/api/alias"))).isSameAs(limits.shorten());
+
+        assertThat(filter.limiterFor(new MockHttpServletRequest("GET", "/"))).isNull();
+        assertThat(filter.limiterFor(new MockHttpServletRequest("GET", "/actuator/prometheus"))).isNull();
+        assertThat(filter.limiterFor(new MockHttpServletRequest("GET", "/api/stats"))).isNull();
+
+        MockHttpServletRequest underContext = new MockHttpServletRequest("GET", "/app/abc123");
+        underContext.setContextPath("/app");
+        assertThat(filter.limiterFor(underContext)).isSameAs(limits.resolve());
+    }
+
+    @Test
+    public void testShedsRequestsBeyondLimit() throws Exception {
+        assertThat(limits.shorten().tryAcquire()).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/shorten"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(limits.shorten().rejectedCount()).isEqualTo(1);
+
+        // Resolves have their own limit
+        MockHttpServletResponse resolved = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), resolved, new MockFilterChain());
+        assertThat(resolved.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testReleasesPermitAfterChain() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger(-1);
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                inFlight.set(limits.resolve().inFlight());
+            }
+        });
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/resolve"), new MockHttpServletResponse(), chain);
+
+        assertThat(inFlight.get()).isEqualTo(1);
+        assertThat(limits.resolve().inFlight()).isZero();
+    }
+
+    @Test
+    public void testStreamedResponseHoldsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/shorten/batch");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        });
+        filter.doFilter(request, response, chain);
+        assertThat(limits.shorten().inFlight()).isEqualTo(1);
+
+        request.getAsyncContext().complete();
+        assertThat(limits.shorten().inFlight()).isZero();
+    }
+}
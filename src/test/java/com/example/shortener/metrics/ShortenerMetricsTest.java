@@ -0,0 +1,122 @@
+package com.example.shortener.metrics;
+
+import com.example.shortener.core.AtomicIdSpace;
+import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.CanonicalUrlNormalizer;
+import com.example.shortener.core.ClockCache;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.IdSpace;
+import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.service.DefaultUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MicrometerServiceMetrics} and
+ * {@link ShortenerMeterBinder}: stage timers, shorten and resolve counters
+ * and capacity gauges as seen through a registry.
+ */
+public class ShortenerMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private IdSpace idSpace;
+    private SegmentedForwardIndex forwardIndex;
+    private ReverseIndex reverseIndex;
+    private UrlShortenerService service;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        idSpace = new AtomicIdSpace();
+        forwardIndex = new SegmentedForwardIndex(4);
+        reverseIndex = new ConcurrentReverseIndex();
+        service = new DefaultUrlShortenerService(
+                idSpace,
+                forwardIndex,
+                reverseIndex,
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().metrics(new MicrometerServiceMetrics(registry)));
+        new ShortenerMeterBinder(idSpace, forwardIndex, reverseIndex, new ClockCache(1 << 16)).bindTo(registry);
+    }
+
+    @Test
+    public void testStageTimersAndResolveCounters() {
+        String code = service.shorten("https://example.com/a");
+        service.shorten("https://example.com/a");
+        service.resolve(code);
+        service.resolve("AAAAAAAz");
+        service.resolve("not-a-code");
+
+        assertThat(stageCount("validate")).isEqualTo(2);
+        assertThat(stageCount("reverse-index")).isEqualTo(2);
+        // Only the first shorten allocated, stored and journaled a new ID
+        assertThat(stageCount("allocate")).isEqualTo(1);
+        assertThat(stageCount("forward-put")).isEqualTo(1);
+        assertThat(stageCount("journal")).isEqualTo(1);
+        assertThat(resolveCount("hit")).isEqualTo(1);
+        assertThat(resolveCount("miss")).isEqualTo(1);
+        assertThat(resolveCount("invalid")).isEqualTo(1);
+    }
+
+    @Test
+    public void testShortenOutcomes() {
+        UrlShortenerService canonical = new DefaultUrlShortenerService(
+                new AtomicIdSpace(),
+                new SegmentedForwardIndex(4),
+                new ConcurrentReverseIndex(),
+                new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new CanonicalUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().metrics(new MicrometerServiceMetrics(registry)));
+        canonical.shorten("https://example.com/a");
+        canonical.shorten("https://example.com/a");
+        canonical.shorten("HTTPS://example.com:443/a");
+        canonical.shortenAll(List.of("https://example.com/b", "https://EXAMPLE.com/b", "https://example.com/./a"));
+
+        assertThat(shortenCount("new")).isEqualTo(2);
+        assertThat(shortenCount("existing")).isEqualTo(1);
+        // Duplicates within a batch share the result of their first occurrence and are not counted
+        assertThat(shortenCount("merged")).isEqualTo(2);
+    }
+
+    @Test
+    public void testCapacityGauges() {
+        for (int i = 0; i < 40; i++) {
+            service.shorten("https://example.com/" + i);
+        }
+
+        assertThat(gauge("shortener.forward.high.watermark")).isEqualTo(39);
+        // Segments of 16 entries: IDs 0-39 span three
+        assertThat(gauge("shortener.forward.segments")).isEqualTo(3);
+        assertThat(gauge("shortener.reverse.size")).isEqualTo(40);
+        assertThat(gauge("shortener.ids.remaining")).isEqualTo((double) idSpace.remaining());
+    }
+
+    private long stageCount(String stage) {
+        return registry.get("shortener.shorten.stage").tag("stage", stage).timer().count();
+    }
+
+    private double shortenCount(String outcome) {
+        return registry.get("shortener.shorten").tag("outcome", outcome).counter().count();
+    }
+
+    private double resolveCount(String result) {
+        return registry.get("shortener.resolve").tag("result", result).counter().count();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
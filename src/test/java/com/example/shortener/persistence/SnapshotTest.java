@@ -0,0 +1,177 @@
+package com.example.shortener.persistence;
+
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotWriter}, {@link SnapshotLoader} and
+ * {@link Snapshotter}: round trips across many segments, the cut at the
+ * high watermark, checksum validation and write-ahead log purging, which
+ * waits for mappings still being stored.
+ */
+public class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRoundTripAcrossSegments() throws IOException {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(4);
+        for (long id = 0; id < 100; id++) {
+            if (id % 7 != 3) {
+                index.put(id, "https://example.com/" + id + "/ü");
+            }
+        }
+        Path file = dir.resolve("snapshot.bin");
+        assertThat(new SnapshotWriter().write(index, file)).isEqualTo(99L);
+
+        SegmentedForwardIndex restored = new SegmentedForwardIndex(4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SnapshotLoader loader = new SnapshotLoader(pool);
+            assertThat(loader.load(file, restored)).isEqualTo(99L);
+            assertThat(restored.highWatermark()).isEqualTo(99L);
+            for (long id = 0; id < 100; id++) {
+                assertThat(restored.get(id)).isEqualTo(index.get(id));
+            }
+
+            ReverseIndex reverseIndex = new ConcurrentReverseIndex(128);
+            loader.rebuildReverseIndex(restored, reverseIndex);
+            assertThat(reverseIndex.getId("https://example.com/42/ü")).contains(42L);
+            assertThat(reverseIndex.getId("https://example.com/3/ü")).isEmpty();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyIndex() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        assertThat(new SnapshotWriter().write(new SegmentedForwardIndex(4), file)).isEqualTo(-1L);
+
+        SegmentedForwardIndex restored = new SegmentedForwardIndex(4);
+        assertThat(new SnapshotLoader().load(file, restored)).isEqualTo(-1L);
+        assertThat(restored.highWatermark()).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testCorruptBlockIsRejected() throws IOException {
+        SegmentedForwardIndex index = new SegmentedForwardIndex(4);
+        index.put(0, "https://example.com/a");
+        Path file = dir.resolve("snapshot.bin");
+        new SnapshotWriter().write(index, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Flip a byte inside the URL of the first block
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), SnapshotWriter.HEADER_SIZE + 16);
+        }
+
+        assertThatThrownBy(() -> new SnapshotLoader().load(file, new SegmentedForwardIndex(4)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum mismatch");
+    }
+
+    @Test
+    public void testGeometryMismatchIsRejected() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        new SnapshotWriter().write(new SegmentedForwardIndex(4), file);
+
+        assertThatThrownBy(() -> new SnapshotLoader().load(file, new SegmentedForwardIndex(5)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("segmentShift=4");
+    }
+
+    @Test
+    public void testSnapshotPurgesCoveredLogFiles() throws IOException {
+        Path walDir = dir.resolve("wal");
+        Path file = dir.resolve("snapshot.bin");
+        SegmentedForwardIndex index = new SegmentedForwardIndex(4);
+        try (WriteAheadLog wal = new WriteAheadLog(walDir, SyncPolicy.GROUP_COMMIT, 0);
+             Snapshotter snapshotter = new Snapshotter(index, file, wal, 0)) {
+            for (long id = 0; id < 10; id++) {
+                record(wal, index, id);
+            }
+            assertThat(snapshotter.snapshot()).isEqualTo(9L);
+            record(wal, index, 10);
+        }
+
+        // Closing took a final snapshot; only an empty log file may be left over
+        SegmentedForwardIndex restored = new SegmentedForwardIndex(4);
+        assertThat(new SnapshotLoader().load(file, restored)).isEqualTo(10L);
+        Map<Long, String> replayed = new LinkedHashMap<>();
+        try (WriteAheadLog wal = new WriteAheadLog(walDir, SyncPolicy.GROUP_COMMIT, 0)) {
+            wal.replay(replayed::put);
+        }
+        assertThat(replayed).isEmpty();
+        try (Stream<Path> files = Files.list(walDir)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    public void testSnapshotWaitsForRecordedMappingsToBeStored() throws Exception {
+        Path walDir = dir.resolve("wal");
+        Path file = dir.resolve("snapshot.bin");
+        SegmentedForwardIndex index = new SegmentedForwardIndex(4);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (WriteAheadLog wal = new WriteAheadLog(walDir, SyncPolicy.GROUP_COMMIT, 0);
+             Snapshotter snapshotter = new Snapshotter(index, file, wal, 0)) {
+            for (long id = 0; id < 10; id++) {
+                record(wal, index, id);
+            }
+            CountDownLatch recorded = new CountDownLatch(1);
+            CountDownLatch store = new CountDownLatch(1);
+            Future<?> writer = executor.submit(() -> {
+                wal.record(10, "https://example.com/10");
+                recorded.countDown();
+                store.await();
+                index.put(10, "https://example.com/10");
+                wal.stored(10, "https://example.com/10");
+                return null;
+            });
+            recorded.await();
+            Future<Long> snapshot = executor.submit(snapshotter::snapshot);
+            // Cutting now would miss id 10 and then purge its only record
+            assertThatThrownBy(() -> snapshot.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            store.countDown();
+            writer.get();
+            assertThat(snapshot.get()).isEqualTo(10L);
+
+            SegmentedForwardIndex restored = new SegmentedForwardIndex(4);
+            assertThat(new SnapshotLoader().load(file, restored)).isEqualTo(10L);
+            assertThat(restored.get(10)).contains("https://example.com/10");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Journals and stores a mapping the way the service does.
+     */
+    private static void record(WriteAheadLog wal, SegmentedForwardIndex index, long id) {
+        wal.record(id, "https://example.com/" + id);
+        index.put(id, "https://example.com/" + id);
+        wal.stored(id, "https://example.com/" + id);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.shortener.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for {@link WriteAheadLog}: replay across restarts for every
+ * sync policy, discarded mappings, concurrent group commit and torn-tail
+ * handling.
+ */
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRecordsAreReplayedAfterReopen() {
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            Path logDir = dir.resolve(policy.name());
+            try (WriteAheadLog wal = new WriteAheadLog(logDir, policy, 10)) {
+                wal.record(0, "https://example.com/a");
+                wal.record(1, "https://example.com/ü");
+            }
+            try (WriteAheadLog wal = new WriteAheadLog(logDir, policy, 10)) {
+                wal.record(2, "https://example.com/c");
+            }
+
+            Map<Long, String> replayed = new LinkedHashMap<>();
+            try (WriteAheadLog wal = new WriteAheadLog(logDir, policy, 10)) {
+                wal.replay(replayed::put);
+            }
+            assertThat(replayed).containsExactly(
+                    entry(0L, "https://example.com/a"),
+                    entry(1L, "https://example.com/ü"),
+                    entry(2L, "https://example.com/c"));
+        }
+    }
+
+    @Test
+    public void testBatchIsReplayedInOrder() {
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            Path logDir = dir.resolve("batch-" + policy.name());
+            try (WriteAheadLog wal = new WriteAheadLog(logDir, policy, 10)) {
+                wal.recordAll(new long[]{5, 6, 7}, new String[]{"https://a", "https://b", "unused"}, 2);
+                wal.record(8, "https://c");
+            }
+            Map<Long, String> replayed = new LinkedHashMap<>();
+            try (WriteAheadLog wal = new WriteAheadLog(logDir, policy, 10)) {
+                wal.replay(replayed::put);
+            }
+            assertThat(replayed).containsExactly(
+                    entry(5L, "https://a"), entry(6L, "https://b"), entry(8L, "https://c"));
+        }
+    }
+
+    @Test
+    public void testDiscardedMappingsAreNotReplayed() {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0)) {
+            wal.recordAll(new long[]{5, 6, 7}, new String[]{"https://a", "https://b", "https://c"}, 3);
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0)) {
+            // Discards may land in a later file than the mapping
+            wal.discard(6);
+            wal.record(8, "https://d");
+        }
+        Map<Long, String> replayed = new LinkedHashMap<>();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0)) {
+            wal.replay(replayed::put);
+        }
+        assertThat(replayed).containsExactly(entry(5L, "https://a"), entry(7L, "https://c"), entry(8L, "https://d"));
+    }
+
+    @Test
+    public void testConcurrentGroupCommit() throws InterruptedException {
+        int threads = 8;
+        int perThread = 500;
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        wal.record(base + i, "https://example.com/" + (base + i));
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        Map<Long, String> replayed = new ConcurrentHashMap<>();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.GROUP_COMMIT, 0)) {
+            wal.replay(replayed::put);
+        }
+        assertThat(replayed).hasSize(threads * perThread);
+        assertThat(replayed.get(1234L)).isEqualTo("https://example.com/1234");
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.PER_WRITE, 0)) {
+            wal.record(0, "https://example.com/a");
+            wal.record(1, "https://example.com/b");
+        }
+        Path log;
+        try (Stream<Path> files = Files.list(dir)) {
+            log = files.findFirst().orElseThrow();
+        }
+        // Simulate a crash in the middle of writing a third record
+        Files.write(log, new byte[]{0, 0, 0, 30, 1, 0}, StandardOpenOption.APPEND);
+
+        Map<Long, String> replayed = new LinkedHashMap<>();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SyncPolicy.PER_WRITE, 0)) {
+            wal.replay(replayed::put);
+        }
+        assertThat(replayed).containsOnlyKeys(0L, 1L);
+    }
+}
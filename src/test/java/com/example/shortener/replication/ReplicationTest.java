@@ -0,0 +1,209 @@
+package com.example.shortener.replication;
+
+import com.example.shortener.core.ArenaForwardIndex;
+import com.example.shortener.core.ConcurrentReverseIndex;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.MappingJournal;
+import com.example.shortener.core.NoOpMappingJournal;
+import com.example.shortener.core.ReverseIndex;
+import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.errors.ReadOnlyReplicaException;
+import com.example.shortener.service.ReadOnlyUrlShortenerService;
+import com.example.shortener.service.UrlShortenerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ReplicationLeader} and {@link ReplicationFollower} on
+ * localhost: bootstrapping from existing segments, streaming new mappings,
+ * lag, re-bootstrapping after the leader restarts without growing replica
+ * storage, dropping a follower that does not keep up and rejecting shortens
+ * on a replica.
+ */
+public class ReplicationTest {
+
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (AutoCloseable closeable : closeables) {
+            closeable.close();
+        }
+    }
+
+    private static String url(long id) {
+        return "https://example.com/page/" + id;
+    }
+
+    private ReplicationLeader leader(ForwardIndex index, int port, int backlog) {
+        ReplicationLeader leader = new ReplicationLeader(index,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), backlog, 50);
+        closeables.add(leader);
+        return leader;
+    }
+
+    private ReplicationFollower follower(ForwardIndex index, ReverseIndex reverseIndex, int port) {
+        ReplicationFollower follower = new ReplicationFollower(index, reverseIndex,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50, 2_000);
+        closeables.add(follower);
+        return follower;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testBootstrapsAndStreams() throws InterruptedException {
+        SegmentedForwardIndex source = new SegmentedForwardIndex(8);
+        for (long id = 0; id < 1_000; id++) {
+            if (id % 3 != 0) {
+                source.put(id, url(id));
+            }
+        }
+        ReplicationLeader leader = leader(source, 0, 1_024);
+        SegmentedForwardIndex replica = new SegmentedForwardIndex(8);
+        ConcurrentReverseIndex reverse = new ConcurrentReverseIndex(16);
+        ReplicationFollower follower = follower(replica, reverse, leader.port());
+
+        assertThat(follower.awaitBootstrap(Duration.ofSeconds(10))).isTrue();
+        assertThat(follower.isConnected()).isTrue();
+        assertThat(follower.bootstrapCount()).isEqualTo(1);
+        assertThat(follower.appliedCount()).isEqualTo(666);
+        assertThat(replica.highWatermark()).isEqualTo(998);
+        assertThat(replica.get(998)).contains(url(998));
+        assertThat(replica.get(999)).isEmpty();
+        assertThat(reverse.size()).isEqualTo(666);
+
+        MappingJournal journal = new ReplicatingJournal(new NoOpMappingJournal(), leader);
+        journal.record(1_000, url(1_000));
+        journal.recordAll(new long[]{1_001, 1_002}, new String[]{url(1_001), url(1_002), "unused"}, 2);
+        // Published once stored in the forward index, not when recorded
+        assertThat(leader.publishedCount()).isZero();
+        journal.stored(1_000, url(1_000));
+        journal.storedAll(new long[]{1_001, 1_002}, new String[]{url(1_001), url(1_002), "unused"}, 2);
+        await(() -> replica.highWatermark() == 1_002);
+        assertThat(replica.get(1_001)).contains(url(1_001));
+        assertThat(reverse.tryGetId(url(1_002))).isEqualTo(1_002);
+        assertThat(leader.publishedCount()).isEqualTo(3);
+        assertThat(leader.followerCount()).isEqualTo(1);
+
+        // Heartbeats keep an idle replica's lag near zero
+        await(() -> follower.lagMillis() < 1_000);
+        assertThat(leader.backlog()).isZero();
+        assertThat(leader.droppedCount()).isZero();
+    }
+
+    @Test
+    public void testRebootstrapsAfterLeaderRestart() throws InterruptedException {
+        SegmentedForwardIndex source = new SegmentedForwardIndex(8);
+        source.put(1, url(1));
+        ReplicationLeader first = leader(source, 0, 16);
+        int port = first.port();
+        SegmentedForwardIndex replica = new SegmentedForwardIndex(8);
+        ReplicationFollower follower = follower(replica, new ConcurrentReverseIndex(16), port);
+        assertThat(follower.awaitBootstrap(Duration.ofSeconds(10))).isTrue();
+        // The heartbeat following the bulk transfer starts the lag clock
+        await(() -> !Double.isNaN(follower.lagMillis()));
+
+        first.close();
+        await(() -> !follower.isConnected());
+        source.put(2, url(2));
+        restartLeader(source, port);
+
+        await(() -> follower.bootstrapCount() == 2);
+        assertThat(replica.get(1)).contains(url(1));
+        assertThat(replica.get(2)).contains(url(2));
+        assertThat(follower.appliedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRebootstrapDoesNotGrowReplicaStorage() throws InterruptedException {
+        SegmentedForwardIndex source = new SegmentedForwardIndex(8);
+        for (long id = 0; id < 100; id++) {
+            source.put(id, url(id));
+        }
+        ReplicationLeader first = leader(source, 0, 16);
+        int port = first.port();
+        ArenaForwardIndex replica = new ArenaForwardIndex(ArenaForwardIndex.Storage.HEAP, 8, 12);
+        ReplicationFollower follower = follower(replica, new ConcurrentReverseIndex(16), port);
+        assertThat(follower.awaitBootstrap(Duration.ofSeconds(10))).isTrue();
+        long arenaBytes = replica.arenaBytes();
+
+        for (int restart = 2; restart <= 3; restart++) {
+            first.close();
+            await(() -> !follower.isConnected());
+            first = restartLeader(source, port);
+            int bootstraps = restart;
+            await(() -> follower.bootstrapCount() == bootstraps);
+        }
+        // Every mapping was sent three times but appended once
+        assertThat(follower.appliedCount()).isEqualTo(300);
+        assertThat(replica.arenaBytes()).isEqualTo(arenaBytes);
+        assertThat(replica.get(99)).contains(url(99));
+    }
+
+    /**
+     * Starts a leader on the port a closed one used. The follower's
+     * reconnect attempts may briefly hold the free port.
+     */
+    private ReplicationLeader restartLeader(ForwardIndex source, int port) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            try {
+                return leader(source, port, 16);
+            } catch (UncheckedIOException e) {
+                assertThat(System.nanoTime()).as("port not released in time").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testDropsFollowerThatFallsBehind() throws IOException, InterruptedException {
+        ReplicationLeader leader = leader(new SegmentedForwardIndex(8), 0, 4);
+        // Never reads, so the sender blocks once the socket buffers are full
+        try (Socket stalled = new Socket(InetAddress.getLoopbackAddress(), leader.port())) {
+            await(() -> leader.followerCount() == 1);
+            String padding = "x".repeat(1_000);
+            for (long id = 0; id < 100_000 && leader.droppedCount() == 0; id++) {
+                leader.publish(id, url(id) + padding);
+            }
+            assertThat(leader.droppedCount()).isEqualTo(1);
+            await(() -> leader.followerCount() == 0);
+        }
+    }
+
+    @Test
+    public void testReplicaRejectsShortens() {
+        UrlShortenerService delegate = mock(UrlShortenerService.class);
+        when(delegate.resolve("AAAAAAAB")).thenReturn(Optional.of(url(1)));
+        UrlShortenerService replica = new ReadOnlyUrlShortenerService(delegate);
+
+        assertThat(replica.isReadOnly()).isTrue();
+        assertThat(replica.resolve("AAAAAAAB")).contains(url(1));
+        assertThatThrownBy(() -> replica.shorten(url(2))).isInstanceOf(ReadOnlyReplicaException.class);
+        assertThatThrownBy(() -> replica.shortenAll(List.of(url(2)))).isInstanceOf(ReadOnlyReplicaException.class);
+        verify(delegate, never()).shorten(any());
+        assertThatThrownBy(() -> ReplicationFollower.parseAddress("leader")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ReplicationFollower.parseAddress("leader:7070").getPort()).isEqualTo(7070);
+    }
+}
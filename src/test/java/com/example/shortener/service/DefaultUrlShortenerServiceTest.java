@@ -1,17 +1,37 @@
 package com.example.shortener.service;
 
+import com.example.shortener.core.AliasIndex;
 import com.example.shortener.core.AtomicIdSpace;
 import com.example.shortener.core.Base64UrlCodec;
+import com.example.shortener.core.ClickCounters;
+import com.example.shortener.core.ClickTracker;
 import com.example.shortener.core.ConcurrentReverseIndex;
 import com.example.shortener.core.DefaultUrlValidator;
+import com.example.shortener.core.FingerprintReverseIndex;
+import com.example.shortener.core.ForwardIndex;
+import com.example.shortener.core.HeavyHitters;
+import com.example.shortener.core.MappingExpirer;
+import com.example.shortener.core.MappingJournal;
 import com.example.shortener.core.NoOpUrlNormalizer;
+import com.example.shortener.core.ReverseIndex;
 import com.example.shortener.core.SegmentedForwardIndex;
+import com.example.shortener.errors.AliasTakenException;
+import com.example.shortener.errors.AliasesNotEnabledException;
 import com.example.shortener.errors.CapacityExceededException;
+import com.example.shortener.errors.ClicksNotEnabledException;
+import com.example.shortener.errors.ExpiryNotEnabledException;
+import com.example.shortener.errors.InvalidAliasException;
 import com.example.shortener.errors.InvalidUrlException;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -53,6 +73,293 @@ public class DefaultUrlShortenerServiceTest {
         assertThat(code1).isEqualTo(code2);
     }
 
+    @Test
+    public void testConcurrentShortenOfSameUrlsLeavesNoOrphans() throws InterruptedException {
+        for (boolean fingerprint : new boolean[]{false, true}) {
+            AtomicIdSpace idSpace = new AtomicIdSpace();
+            SegmentedForwardIndex forwardIndex = new SegmentedForwardIndex(10);
+            ReverseIndex reverseIndex = fingerprint
+                    ? new FingerprintReverseIndex(forwardIndex)
+                    : new ConcurrentReverseIndex();
+            UrlShortenerService racing = new DefaultUrlShortenerService(idSpace, forwardIndex, reverseIndex,
+                    new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")),
+                    new NoOpUrlNormalizer());
+            int urls = 2_000;
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < urls; i++) {
+                        racing.shorten("https://example.com/" + i);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // IDs lost to a concurrent shorten of the same URL were never stored
+            long[] stored = {0};
+            forwardIndex.forEach((id, url) -> stored[0]++);
+            assertThat(stored[0]).isEqualTo(urls);
+            assertThat(reverseIndex.size()).isEqualTo(urls);
+            for (int i = 0; i < urls; i++) {
+                String url = "https://example.com/" + i;
+                assertThat(racing.resolve(racing.shorten(url))).contains(url);
+            }
+        }
+    }
+
+    @Test
+    public void testShortenAllDeduplicatesAndReportsErrors() {
+        String existing = service.shorten("https://example.com/existing");
+        List<ShortenResult> results = service.shortenAll(Arrays.asList(
+                "https://example.com/a",
+                "ftp://example.com",
+                "https://example.com/existing",
+                "https://example.com/a",
+                null,
+                "https://example.com/b"));
+
+        assertThat(results).hasSize(6);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).getError()).startsWith("Unsupported URL scheme");
+        assertThat(results.get(2).getShortCode()).isEqualTo(existing);
+        assertThat(results.get(3).getShortCode()).isEqualTo(results.get(0).getShortCode());
+        assertThat(results.get(4).isSuccess()).isFalse();
+        assertThat(service.resolve(results.get(5).getShortCode())).contains("https://example.com/b");
+        assertThat(service.shorten("https://example.com/a")).isEqualTo(results.get(0).getShortCode());
+
+        List<Optional<String>> resolved = service.resolveAll(Arrays.asList(
+                results.get(0).getShortCode(), "!!!!@@@@", null));
+        assertThat(resolved).containsExactly(Optional.of("https://example.com/a"), Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    public void testMappingsArePublishedOnlyOnceJournaled() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8);
+        ConcurrentReverseIndex reverse = new ConcurrentReverseIndex();
+        List<Long> stored = new ArrayList<>();
+        List<Long> discarded = new ArrayList<>();
+        boolean[] failing = {true};
+        UrlShortenerService[] journaled = new UrlShortenerService[1];
+        MappingJournal journal = new MappingJournal() {
+            @Override
+            public void record(long id, String normalizedUrl) {
+                // Neither a resolve nor another shorten can see the mapping yet
+                assertThat(forward.get(id)).isEmpty();
+                assertThat(reverse.tryGetId(normalizedUrl)).isEqualTo(ReverseIndex.NO_ID);
+                if (failing[0]) {
+                    throw new UncheckedIOException(new IOException("Disk full"));
+                }
+            }
+
+            @Override
+            public void recordAll(long[] ids, String[] normalizedUrls, int count) {
+                MappingJournal.super.recordAll(ids, normalizedUrls, count);
+                // A concurrent shorten wins the first URL before the batch publishes it
+                journaled[0].shorten(normalizedUrls[0]);
+            }
+
+            @Override
+            public void stored(long id, String normalizedUrl) {
+                // Replication may publish it now, since a bootstrap would find it
+                assertThat(forward.get(id)).contains(normalizedUrl);
+                stored.add(id);
+            }
+
+            @Override
+            public void discard(long id) {
+                discarded.add(id);
+            }
+
+            @Override
+            public void replay(ForwardIndex.EntryConsumer action) {
+            }
+        };
+        journaled[0] = new DefaultUrlShortenerService(new AtomicIdSpace(), forward, reverse, new Base64UrlCodec(),
+                new DefaultUrlValidator(2048, Set.of("http", "https")), new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().journal(journal));
+
+        assertThatThrownBy(() -> journaled[0].shorten("https://example.com/a"))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(reverse.size()).isZero();
+        assertThat(forward.highWatermark()).isEqualTo(-1);
+        assertThatThrownBy(() -> journaled[0].shortenAll(List.of("https://example.com/a")))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(reverse.size()).isZero();
+
+        failing[0] = false;
+        String code = journaled[0].shorten("https://example.com/a");
+        assertThat(journaled[0].resolve(code)).contains("https://example.com/a");
+
+        List<ShortenResult> results = journaled[0].shortenAll(List.of("https://example.com/b", "https://example.com/c"));
+        String raced = journaled[0].shorten("https://example.com/b");
+        assertThat(results.get(0).getShortCode()).isEqualTo(raced);
+        assertThat(discarded).hasSize(1);
+        assertThat(forward.get(discarded.get(0))).isEmpty();
+        assertThat(stored).hasSize(3).doesNotContain(discarded.get(0));
+        assertThat(journaled[0].resolve(results.get(1).getShortCode())).contains("https://example.com/c");
+    }
+
+    @Test
+    public void testBatchFailingMidwayStillReportsStoredMappings() {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8);
+        ConcurrentReverseIndex reverse = new ConcurrentReverseIndex() {
+            @Override
+            public long getOrAllocate(String normalizedUrl, IdAllocator allocator) {
+                if (normalizedUrl.endsWith("/b")) {
+                    throw new UncheckedIOException(new IOException("Disk full"));
+                }
+                return super.getOrAllocate(normalizedUrl, allocator);
+            }
+        };
+        List<Long> stored = new ArrayList<>();
+        List<Long> discarded = new ArrayList<>();
+        MappingJournal journal = new MappingJournal() {
+            @Override
+            public void record(long id, String normalizedUrl) {
+            }
+
+            @Override
+            public void stored(long id, String normalizedUrl) {
+                stored.add(id);
+            }
+
+            @Override
+            public void discard(long id) {
+                discarded.add(id);
+            }
+
+            @Override
+            public void replay(ForwardIndex.EntryConsumer action) {
+            }
+        };
+        UrlShortenerService failing = new DefaultUrlShortenerService(new AtomicIdSpace(), forward, reverse,
+                new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")), new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().journal(journal));
+
+        assertThatThrownBy(() -> failing.shortenAll(List.of("https://example.com/a", "https://example.com/b",
+                "https://example.com/c"))).isInstanceOf(UncheckedIOException.class);
+        // The first mapping was published, so it is reported stored; the others never will be
+        assertThat(stored).containsExactly(0L);
+        assertThat(discarded).containsExactly(1L, 2L);
+        assertThat(reverse.tryGetId("https://example.com/a")).isZero();
+    }
+
+    @Test
+    public void testExpiringMappings() throws InterruptedException {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        ConcurrentReverseIndex reverse = new ConcurrentReverseIndex();
+        MappingExpirer expirer = new MappingExpirer(forward, reverse, null, 1, System.currentTimeMillis());
+        UrlShortenerService expiring = new DefaultUrlShortenerService(new AtomicIdSpace(), forward, reverse,
+                new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")), new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().expirer(expirer));
+
+        String shortLived = expiring.shorten("https://example.com/a", Duration.ofMillis(1));
+        String extended = expiring.shorten("https://example.com/b", Duration.ofMillis(1));
+        assertThat(expiring.shorten("https://example.com/b", Duration.ofDays(1))).isEqualTo(extended);
+        String permanent = expiring.shorten("https://example.com/c", Duration.ofMillis(1));
+        assertThat(expiring.shortenAll(List.of("https://example.com/c")).get(0).getShortCode()).isEqualTo(permanent);
+        assertThat(expiring.expiresAt(extended)).isPresent();
+        assertThat(expiring.expiresAt(permanent)).isEmpty();
+
+        Thread.sleep(5);
+        // Hidden at the deadline, before the expirer has removed it
+        assertThat(expiring.resolve(shortLived)).isEmpty();
+        assertThat(expirer.expire(System.currentTimeMillis())).isEqualTo(1);
+        assertThat(expiring.resolve(extended)).contains("https://example.com/b");
+        assertThat(expiring.resolve(permanent)).contains("https://example.com/c");
+        assertThat(expiring.shorten("https://example.com/a")).isNotEqualTo(shortLived);
+
+        assertThatThrownBy(() -> service.shorten("https://example.com/a", Duration.ofSeconds(1)))
+                .isInstanceOf(ExpiryNotEnabledException.class);
+    }
+
+    @Test
+    public void testShortenRacingExpiryGetsNewCode() throws InterruptedException {
+        SegmentedForwardIndex forward = new SegmentedForwardIndex(8, null, true);
+        MappingExpirer[] expirer = new MappingExpirer[1];
+        boolean[] racing = {false};
+        ConcurrentReverseIndex reverse = new ConcurrentReverseIndex() {
+            @Override
+            public long tryGetId(String normalizedUrl) {
+                long result = super.tryGetId(normalizedUrl);
+                if (racing[0]) {
+                    // The reaper runs between the lookup and extending the deadline
+                    racing[0] = false;
+                    assertThat(expirer[0].expire(System.currentTimeMillis())).isEqualTo(1);
+                }
+                return result;
+            }
+        };
+        expirer[0] = new MappingExpirer(forward, reverse, null, 1, System.currentTimeMillis());
+        UrlShortenerService expiring = new DefaultUrlShortenerService(new AtomicIdSpace(), forward, reverse,
+                new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")), new NoOpUrlNormalizer(),
+                new DefaultUrlShortenerService.Options().expirer(expirer[0]));
+
+        String shortLived = expiring.shorten("https://example.com/a", Duration.ofMillis(1));
+        Thread.sleep(5);
+        racing[0] = true;
+        String permanent = expiring.shorten("https://example.com/a");
+
+        assertThat(permanent).isNotEqualTo(shortLived);
+        assertThat(expiring.resolve(permanent)).contains("https://example.com/a");
+        assertThat(expiring.resolve(shortLived)).isEmpty();
+    }
+
+    @Test
+    public void testAliases() {
+        UrlShortenerService aliased = new DefaultUrlShortenerService(new AtomicIdSpace(), new SegmentedForwardIndex(8),
+                new ConcurrentReverseIndex(), new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(), new DefaultUrlShortenerService.Options().aliasIndex(new AliasIndex()));
+
+        String code = aliased.shorten("https://example.com/sale");
+        assertThat(aliased.createAlias("spring-sale", "https://example.com/sale")).isEqualTo("spring-sale");
+        assertThat(aliased.createAlias("spring-sale", "https://example.com/sale")).isEqualTo("spring-sale");
+        assertThat(aliased.resolve("spring-sale")).contains("https://example.com/sale");
+        assertThat(aliased.resolve(code)).contains("https://example.com/sale");
+        assertThat(aliased.resolveAll(List.of("spring-sale", "autumn-sale")))
+                .containsExactly(Optional.of("https://example.com/sale"), Optional.empty());
+        // Creating an alias shortens the URL
+        aliased.createAlias("new-launch", "https://example.com/new");
+        assertThat(aliased.shorten("https://example.com/new")).hasSize(8);
+
+        assertThatThrownBy(() -> aliased.createAlias("spring-sale", "https://example.com/other"))
+                .isInstanceOf(AliasTakenException.class);
+        assertThatThrownBy(() -> aliased.createAlias("summer24", "https://example.com/sale"))
+                .isInstanceOf(InvalidAliasException.class);
+        assertThatThrownBy(() -> aliased.createAlias("summer-24", "ftp://example.com"))
+                .isInstanceOf(InvalidUrlException.class);
+        assertThat(service.resolve("spring-sale")).isEmpty();
+        assertThatThrownBy(() -> service.createAlias("spring-sale", "https://example.com/sale"))
+                .isInstanceOf(AliasesNotEnabledException.class);
+    }
+
+    @Test
+    public void testCountsClicks() {
+        UrlShortenerService tracked = new DefaultUrlShortenerService(new AtomicIdSpace(), new SegmentedForwardIndex(8),
+                new ConcurrentReverseIndex(), new Base64UrlCodec(), new DefaultUrlValidator(2048, Set.of("http", "https")),
+                new NoOpUrlNormalizer(), new DefaultUrlShortenerService.Options()
+                        .aliasIndex(new AliasIndex())
+                        .clicks(new ClickTracker(new ClickCounters(8), new HeavyHitters(10, 1 << 10, 0, 0, 0))));
+
+        String hot = tracked.shorten("https://example.com/hot");
+        String cold = tracked.shorten("https://example.com/cold");
+        tracked.createAlias("hot-landing", "https://example.com/hot");
+        for (int i = 0; i < 5; i++) {
+            tracked.resolve(hot);
+        }
+        tracked.resolve("hot-landing");
+        tracked.resolveAll(List.of(cold, "aaaaaaaa"));
+
+        assertThat(tracked.clicks(hot)).get().extracting(ClickStats::getClicks).isEqualTo(6L);
+        assertThat(tracked.clicks("hot-landing")).get().extracting(ClickStats::getRecentClicks).isEqualTo(6L);
+        assertThat(tracked.clicks(cold)).get().extracting(ClickStats::getClicks).isEqualTo(1L);
+        assertThat(tracked.clicks("aaaaaaaa")).isEmpty();
+        assertThat(tracked.topClicks(10)).extracting(ClickStats::getShortCode).containsExactly(hot, cold);
+        assertThatThrownBy(() -> service.topClicks(10)).isInstanceOf(ClicksNotEnabledException.class);
+    }
+
     @Test
     public void testUnknownCodeReturnsEmpty() {
         Optional<String> resolved = service.resolve("aaaaaaaa");